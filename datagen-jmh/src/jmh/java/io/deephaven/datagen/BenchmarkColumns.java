@@ -0,0 +1,79 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Column definitions shared by the benchmarks, written like in generation files.  The benchmarks live in the
+ * {@code io.deephaven.datagen} package so they can create generators the way {@link DataGen} does.
+ */
+final class BenchmarkColumns {
+
+    private BenchmarkColumns() {
+    }
+
+    /**
+     * Creates a generator from a column definition.
+     *
+     * @param json  the column definition, as in the "columns" of a generation file
+     * @return      a generator, ready to produce values
+     */
+    static DataGenerator generator(final String json) {
+        try {
+            return DataGenerator.fromJson("benchmark", (JSONObject) new JSONParser().parse(json));
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("Bad column definition " + json, ex);
+        }
+    }
+
+    /**
+     * Writes a file with one word per line, for the generators that read values from a file.
+     *
+     * @param words     number of words
+     * @return          the file, deleted when the JVM exits
+     */
+    static File wordsFile(final int words) throws IOException {
+        final File file = File.createTempFile("words", ".txt");
+        file.deleteOnExit();
+        final Random prng = new Random(8675309);
+        try (final PrintWriter writer = new PrintWriter(file)) {
+            for (int i = 0; i < words; ++i) {
+                final int length = 3 + prng.nextInt(10);
+                final StringBuilder sb = new StringBuilder(length);
+                for (int c = 0; c < length; ++c) {
+                    sb.append((char) ('a' + prng.nextInt(26)));
+                }
+                writer.println(sb);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Values from a generator, starting it over when a bounded one runs out, so benchmarks can keep going.
+     * Checking {@code hasNext()} for every value is what generation does for bounded columns too.
+     */
+    static final class Values {
+        private final String json;
+        private Iterator<Object> iterator;
+
+        Values(final String json) {
+            this.json = json;
+            iterator = generator(json).getIterator();
+        }
+
+        Object next() {
+            if (!iterator.hasNext()) {
+                iterator = generator(json).getIterator();
+            }
+            return iterator.next();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package io.deephaven.datagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of each distribution of the {@code random} generation type, per value, for the column types it supports.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DistributionBenchmark {
+
+    @Param({
+            "uniform:INT64",
+            "uniform:DOUBLE",
+            "uniform:TIMESTAMP_NANOS",
+            "normal:DOUBLE",
+            "exponential:DOUBLE",
+            "poisson_wait:TIMESTAMP_NANOS",
+            "random_walk:INT64",
+            "random_walk:DOUBLE",
+            "random_pick:INT64",
+            "random_pick:STRING",
+    })
+    public String distribution;
+
+    private BenchmarkColumns.Values values;
+
+    @Setup
+    public void setup() {
+        final int colon = distribution.indexOf(':');
+        final String name = distribution.substring(0, colon);
+        final String type = distribution.substring(colon + 1);
+        final String parameters;
+        switch (name) {
+            case "uniform":
+                parameters = type.equals("DOUBLE")
+                        ? "\"lower_bound\": \"0\", \"upper_bound\": \"1000\""
+                        : "\"lower_bound\": \"0\", \"upper_bound\": \"1000000000000\"";
+                break;
+            case "normal":
+                parameters = "\"mean\": \"100\", \"stddev\": \"15\"";
+                break;
+            case "exponential":
+                parameters = "\"lambda\": \"0.5\"";
+                break;
+            case "poisson_wait":
+                parameters = "\"start_nanos\": \"1600000000000000000\", \"mean_wait_nanos\": \"1000000\"";
+                break;
+            case "random_walk":
+                parameters = "\"initial\": \"100\", \"step\": \"1\"";
+                break;
+            case "random_pick":
+                parameters = type.equals("STRING")
+                        ? "\"options\": [\"AAPL\", \"MSFT\", \"GOOG\", \"AMZN\", \"IBM\"], \"weights\": [\"5\", \"4\", \"3\", \"2\", \"1\"]"
+                        : "\"options\": [\"1\", \"2\", \"3\", \"5\", \"8\"], \"weights\": [\"5\", \"4\", \"3\", \"2\", \"1\"]";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown distribution " + distribution);
+        }
+        values = new BenchmarkColumns.Values(String.format(
+                "{\"generation_type\": \"random\", \"distribution\": \"%s\", \"type\": \"%s\", %s, "
+                        + "\"seed\": \"1\", \"percent_null\": \"0\"}",
+                name, type, parameters));
+    }
+
+    @Benchmark
+    public Object next() {
+        return values.next();
+    }
+}
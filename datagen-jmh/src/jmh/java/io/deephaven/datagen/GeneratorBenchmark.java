@@ -0,0 +1,99 @@
+package io.deephaven.datagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of each generation type, one value per operation, without nulls.  Expression columns need other
+ * columns to read, so they are only covered by {@link WriterBenchmark}.
+ * Bounded generators start over when they run out; for {@code full_range_shuffled} that includes building its deck
+ * again, once every million values.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GeneratorBenchmark {
+
+    @Param({
+            "full_range_increasing",
+            "full_range_shuffled",
+            "full_range_k_sorted",
+            "id",
+            "list",
+            "file",
+            "selection",
+            "random_string",
+            "random_string_unique",
+            "array",
+    })
+    public String generator;
+
+    private BenchmarkColumns.Values values;
+
+    @Setup
+    public void setup() throws IOException {
+        final File words = BenchmarkColumns.wordsFile(10_000);
+        final String json;
+        switch (generator) {
+            case "full_range_increasing":
+                json = "{\"generation_type\": \"full_range\", \"type\": \"INT64\", \"order\": \"Increasing\", "
+                        + "\"range_start\": \"0\", \"range_stop\": \"1000000000000\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "full_range_shuffled":
+                json = "{\"generation_type\": \"full_range\", \"type\": \"INT64\", \"order\": \"Shuffled\", "
+                        + "\"range_start\": \"0\", \"range_stop\": \"999999\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "full_range_k_sorted":
+                json = "{\"generation_type\": \"full_range\", \"type\": \"INT64\", \"order\": \"K_Sorted\", \"k\": \"100\", "
+                        + "\"range_start\": \"0\", \"range_stop\": \"1000000000000\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "id":
+                json = "{\"generation_type\": \"id\", \"type\": \"INT64\", \"increment\": \"INCREASING\", "
+                        + "\"start_id\": \"1\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "list":
+                json = "{\"generation_type\": \"list\", \"type\": \"STRING\", \"values\": [\"a\", \"b\", \"c\", \"d\"], "
+                        + "\"random\": \"true\", \"count\": \"1000000000\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "file":
+                json = "{\"generation_type\": \"file\", \"type\": \"STRING\", \"source_file\": \"" + words.getPath() + "\", "
+                        + "\"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "selection":
+                json = "{\"generation_type\": \"selection\", \"type\": \"STRING\", \"source_file\": \"" + words.getPath() + "\", "
+                        + "\"distribution\": \"uniform\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "random_string":
+                json = "{\"generation_type\": \"random_string\", \"charset\": \"alphanumeric\", "
+                        + "\"length_distribution\": \"uniform\", \"min_length\": \"4\", \"max_length\": \"20\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "random_string_unique":
+                json = "{\"generation_type\": \"random_string\", \"charset\": \"alphanumeric\", \"length\": \"16\", "
+                        + "\"unique\": \"true\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+                break;
+            case "array":
+                json = "{\"generation_type\": \"array\", \"length\": \"8\", \"seed\": \"1\", \"element\": "
+                        + "{\"generation_type\": \"random\", \"distribution\": \"uniform\", \"type\": \"DOUBLE\", "
+                        + "\"lower_bound\": \"0\", \"upper_bound\": \"1\", \"seed\": \"2\", \"percent_null\": \"0\"}}";
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown generator " + generator);
+        }
+        values = new BenchmarkColumns.Values(json);
+    }
+
+    @Benchmark
+    public Object next() {
+        return values.next();
+    }
+}
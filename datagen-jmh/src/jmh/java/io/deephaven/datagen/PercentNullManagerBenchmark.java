@@ -0,0 +1,47 @@
+package io.deephaven.datagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of rolling for nulls, which every generator does for every value, and of a generator with and without
+ * nulls.  With {@code percent_null} at 0 the roll is skipped entirely.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PercentNullManagerBenchmark {
+
+    @Param({"0", "5", "50"})
+    public String percentNull;
+
+    private PercentNullManager nullManager;
+    private BenchmarkColumns.Values values;
+
+    @Setup
+    public void setup() {
+        // as read by PercentNullManager.parseJson
+        nullManager = PercentNullManager.fromPercentage(Double.parseDouble(percentNull) / 100.0, 1);
+        values = new BenchmarkColumns.Values("{\"generation_type\": \"random\", \"distribution\": \"uniform\", "
+                + "\"type\": \"INT64\", \"lower_bound\": \"0\", \"upper_bound\": \"1000000\", "
+                + "\"seed\": \"1\", \"percent_null\": \"" + percentNull + "\"}");
+    }
+
+    @Benchmark
+    public boolean test() {
+        return nullManager.test();
+    }
+
+    @Benchmark
+    public Object generate() {
+        return values.next();
+    }
+}
@@ -0,0 +1,94 @@
+package io.deephaven.datagen;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the adapters that convert generated values: numbers to decimal or hex strings
+ * ({@link LongToStringDataGeneratorAdapter}), and the narrower or derived types produced from a wider carrier
+ * ({@link TypeConversionDataGeneratorAdapter}).  Compare with the same generators in {@link GeneratorBenchmark}
+ * and {@link DistributionBenchmark}, which don't convert.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StringAdapterBenchmark {
+
+    @Param({
+            "full_range:decimal",
+            "full_range:hex",
+            "uniform:decimal",
+            "uniform:hex",
+            "uniform:INT16",
+            "uniform:DATE",
+            "uniform:BOOLEAN",
+            "uniform:DECIMAL",
+            "normal:INT64",
+    })
+    public String adapter;
+
+    private BenchmarkColumns.Values values;
+
+    @Setup
+    public void setup() {
+        final int colon = adapter.indexOf(':');
+        final String generator = adapter.substring(0, colon);
+        final String conversion = adapter.substring(colon + 1);
+        final String json;
+        if (generator.equals("full_range")) {
+            json = "{\"generation_type\": \"full_range\", \"type\": \"STRING\", \"order\": \"Increasing\", "
+                    + "\"range_start\": \"0\", \"range_stop\": \"1000000000000\", "
+                    + "\"hex\": \"" + conversion.equals("hex") + "\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+        } else if (generator.equals("normal")) {
+            json = "{\"generation_type\": \"random\", \"distribution\": \"normal\", \"type\": \"" + conversion + "\", "
+                    + "\"mean\": \"100\", \"stddev\": \"15\", \"seed\": \"1\", \"percent_null\": \"0\"}";
+        } else {
+            final String type;
+            final String bounds;
+            switch (conversion) {
+                case "decimal":
+                case "hex":
+                    type = "STRING";
+                    bounds = "\"lower_bound\": \"0\", \"upper_bound\": \"1000000000000\", "
+                            + "\"hex\": \"" + conversion.equals("hex") + "\"";
+                    break;
+                case "INT16":
+                    type = conversion;
+                    bounds = "\"lower_bound\": \"-30000\", \"upper_bound\": \"30000\"";
+                    break;
+                case "DATE":
+                    // days since the epoch
+                    type = conversion;
+                    bounds = "\"lower_bound\": \"0\", \"upper_bound\": \"20000\"";
+                    break;
+                case "BOOLEAN":
+                    type = conversion;
+                    // the upper bound is exclusive
+                    bounds = "\"lower_bound\": \"0\", \"upper_bound\": \"2\"";
+                    break;
+                case "DECIMAL":
+                    type = conversion;
+                    bounds = "\"lower_bound\": \"0\", \"upper_bound\": \"1000000\", \"precision\": \"18\", \"scale\": \"4\"";
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown adapter " + adapter);
+            }
+            json = "{\"generation_type\": \"random\", \"distribution\": \"uniform\", \"type\": \"" + type + "\", "
+                    + bounds + ", \"seed\": \"1\", \"percent_null\": \"0\"}";
+        }
+        values = new BenchmarkColumns.Values(json);
+    }
+
+    @Benchmark
+    public Object next() {
+        return values.next();
+    }
+}
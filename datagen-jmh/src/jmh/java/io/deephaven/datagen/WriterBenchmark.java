@@ -0,0 +1,127 @@
+package io.deephaven.datagen;
+
+import org.json.simple.parser.ParseException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rows per second generating a table of mixed columns to a file, per output format and Parquet codec.
+ * {@code NONE} generates the same rows without writing them, so the difference is the writer's cost.
+ * Each invocation writes a new file of {@link #ROWS} rows, the way {@link DataGen} does, without statistics
+ * or metrics.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class WriterBenchmark {
+
+    static final int ROWS = 100_000;
+
+    private static final String COLUMNS = "["
+            + "{\"name\": \"Id\", \"generation_type\": \"id\", \"type\": \"INT64\", \"increment\": \"INCREASING\", "
+            + "\"start_id\": \"1\", \"seed\": \"1\", \"percent_null\": \"0\"}, "
+            + "{\"name\": \"Symbol\", \"generation_type\": \"random\", \"distribution\": \"random_pick\", \"type\": \"STRING\", "
+            + "\"options\": [\"AAPL\", \"MSFT\", \"GOOG\", \"AMZN\", \"IBM\"], \"seed\": \"2\", \"percent_null\": \"1\"}, "
+            + "{\"name\": \"Price\", \"generation_type\": \"random\", \"distribution\": \"normal\", \"type\": \"DOUBLE\", "
+            + "\"mean\": \"100\", \"stddev\": \"15\", \"seed\": \"3\", \"percent_null\": \"1\"}, "
+            + "{\"name\": \"Size\", \"generation_type\": \"random\", \"distribution\": \"uniform\", \"type\": \"INT32\", "
+            + "\"lower_bound\": \"1\", \"upper_bound\": \"1000\", \"seed\": \"4\", \"percent_null\": \"0\"}, "
+            + "{\"name\": \"Time\", \"generation_type\": \"random\", \"distribution\": \"poisson_wait\", \"type\": \"TIMESTAMP_NANOS\", "
+            + "\"start_nanos\": \"1600000000000000000\", \"mean_wait_nanos\": \"1000000\", \"seed\": \"5\", \"percent_null\": \"0\"}, "
+            + "{\"name\": \"Note\", \"generation_type\": \"random_string\", \"charset\": \"alphanumeric\", "
+            + "\"length_distribution\": \"uniform\", \"min_length\": \"4\", \"max_length\": \"20\", \"seed\": \"6\", \"percent_null\": \"5\"}, "
+            + "{\"name\": \"Notional\", \"generation_type\": \"expression\", \"type\": \"DOUBLE\", "
+            + "\"expression\": \"Price * Size\", \"seed\": \"7\", \"percent_null\": \"0\"}"
+            + "]";
+
+    @Param({"NONE", "CSV", "PARQUET:UNCOMPRESSED", "PARQUET:SNAPPY", "PARQUET:GZIP", "PARQUET:ZSTD"})
+    public String output;
+
+    private File generatorFile;
+    private File outputFile;
+    private GeneratorFile generation;
+
+    @Setup(Level.Trial)
+    public void writeGeneratorFile() throws IOException {
+        final String format;
+        final String compression;
+        final int colon = output.indexOf(':');
+        if (colon < 0) {
+            // NONE doesn't write, but a format is needed to read the generator file
+            format = output.equals("NONE") ? "CSV" : output;
+            compression = "UNCOMPRESSED";
+        } else {
+            format = output.substring(0, colon);
+            compression = output.substring(colon + 1);
+        }
+        generatorFile = File.createTempFile("writer-benchmark", ".json");
+        try (final FileWriter writer = new FileWriter(generatorFile)) {
+            writer.write(String.format("{\"format\": \"%s\", \"compression\": \"%s\", \"rows\": \"%d\", \"columns\": %s}%n",
+                    format, compression, ROWS, COLUMNS));
+        }
+        outputFile = File.createTempFile("writer-benchmark", "." + format.toLowerCase());
+    }
+
+    @Setup(Level.Invocation)
+    public void readGeneratorFile() throws IOException, ParseException {
+        // generators are used up by generating
+        generation = GeneratorFile.read(generatorFile);
+        deleteOutput();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long generate() throws IOException {
+        if (output.equals("NONE")) {
+            return generateOnly();
+        }
+        return DataGen.generate(generation, outputFile.getPath(), ROWS, null, null, null);
+    }
+
+    /**
+     * Fills the rows like {@link DataGen} does, and drops them.
+     */
+    private long generateOnly() {
+        // there are no generic arrays; each element is set to a generator's Iterator<Object> below
+        @SuppressWarnings("unchecked")
+        final Iterator<Object>[] iterators = new Iterator[generation.generators.length];
+        for (int i = 0; i < iterators.length; ++i) {
+            iterators[i] = generation.generators[i].getIterator();
+        }
+        long hash = 0;
+        for (int row = 0; row < ROWS; ++row) {
+            for (final int i : generation.order) {
+                generation.data[i] = iterators[i].next();
+            }
+            hash += System.identityHashCode(generation.data[generation.data.length - 1]);
+        }
+        return hash;
+    }
+
+    private void deleteOutput() {
+        outputFile.delete();
+        // the Parquet writer's checksum file
+        new File(outputFile.getParentFile(), "." + outputFile.getName() + ".crc").delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        deleteOutput();
+        generatorFile.delete();
+    }
+}
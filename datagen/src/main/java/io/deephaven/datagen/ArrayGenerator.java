@@ -0,0 +1,193 @@
+package io.deephaven.datagen;
+
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.Type;
+import org.apache.parquet.schema.Types;
+import org.json.simple.JSONObject;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * An ArrayGenerator produces array values: each row is an {@code Object[]} whose elements come from
+ * an element generator, and whose length comes from a length generator.  Both are regular column
+ * definitions, so any of the existing generation types and distributions can be used for them.
+ *
+ * In Parquet, array columns are written as LIST columns (a repeated group with an optional element).
+ */
+public class ArrayGenerator extends DataGenerator {
+
+    private final DataGenerator elementGenerator;
+    private final DataGenerator lengthGenerator;
+    private final PercentNullManager pctNullMgr;
+    private final GeneratorObjectIterator objectIterator;
+
+    private ArrayGenerator(
+            final DataGenerator elementGenerator,
+            final DataGenerator lengthGenerator,
+            final long seed,
+            final double pctNullMgr) {
+        super(elementGenerator.getColumnType());
+        this.elementGenerator = elementGenerator;
+        this.lengthGenerator = lengthGenerator;
+        this.pctNullMgr = PercentNullManager.fromPercentage(pctNullMgr, seed);
+        objectIterator = new GeneratorObjectIterator();
+    }
+
+    static DataGenerator fromJson(final String fieldName, final JSONObject jo) {
+        final Object elementObject = jo.get("element");
+        if (!(elementObject instanceof JSONObject)) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: array columns need an \"element\" column definition", fieldName));
+        }
+        final DataGenerator elementGenerator = DataGenerator.fromJson(fieldName + ".element", (JSONObject) elementObject);
+        if (elementGenerator instanceof ArrayGenerator) {
+            throw new IllegalArgumentException(String.format("%s: arrays of arrays are not supported", fieldName));
+        }
+
+        final Object lengthObject = jo.get("length");
+        final DataGenerator lengthGenerator;
+        if (lengthObject instanceof String) {
+            final int length = Utils.getIntElementValue("length", jo);
+            if (length < 0) {
+                throw new IllegalArgumentException(String.format("%s: length (=%d) should be >= 0", fieldName, length));
+            }
+            lengthGenerator = new FixedLengthGenerator(length);
+        } else if (lengthObject instanceof JSONObject) {
+            lengthGenerator = DataGenerator.fromJson(fieldName + ".length", (JSONObject) lengthObject);
+            switch (lengthGenerator.getColumnType()) {
+                case INT32:
+                case INT64:
+                case DOUBLE:
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(
+                            "%s: length generator should produce INT32, INT64 or DOUBLE, not %s",
+                            fieldName, lengthGenerator.getColumnType()));
+            }
+        } else {
+            throw new IllegalArgumentException(String.format(
+                    "%s: array columns need a \"length\", either a number or a column definition", fieldName));
+        }
+
+        final long seed = Utils.getLongElementValue("seed", jo);
+        final double percentNull = PercentNullManager.parseJson(fieldName, jo);
+
+        return new ArrayGenerator(elementGenerator, lengthGenerator, seed, percentNull);
+    }
+
+    @Override
+    public Type getParquetType(final String columnName) {
+        return Types.optionalGroup()
+                .as(LogicalTypeAnnotation.listType())
+                .addField(Types.repeatedGroup()
+                        .addField(elementGenerator.getParquetType("element"))
+                        .named("list"))
+                .named(columnName);
+    }
+
+    @Override
+    public Set<String> getReferencedColumns() {
+        final Set<String> columns = new HashSet<>(lengthGenerator.getReferencedColumns());
+        columns.addAll(elementGenerator.getReferencedColumns());
+        return columns;
+    }
+
+    @Override
+    public void bindColumns(final String[] columns, final DataGenerator[] generators, final Object[] row) {
+        lengthGenerator.bindColumns(columns, generators, row);
+        elementGenerator.bindColumns(columns, generators, row);
+    }
+
+    @Override
+    public boolean isUnbounded() {
+        return lengthGenerator.isUnbounded() && elementGenerator.isUnbounded();
+    }
+
+    @Override
+    public long getRowCount() {
+        if (elementGenerator.isUnbounded()) {
+            return lengthGenerator.getRowCount();
+        }
+        // depends on the lengths drawn
+        return -1;
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        return lengthGenerator.getEstimatedHeapBytes() + elementGenerator.getEstimatedHeapBytes();
+    }
+
+    @Override
+    public Iterator<Object> getIterator() {
+        return objectIterator;
+    }
+
+    private static final class FixedLengthGenerator extends DataGenerator {
+        private final Integer length;
+
+        private FixedLengthGenerator(final int length) {
+            super(ColumnType.INT32);
+            this.length = length;
+        }
+
+        @Override
+        public boolean isUnbounded() {
+            return true;
+        }
+
+        @Override
+        public Iterator<Object> getIterator() {
+            return new Iterator<Object>() {
+                @Override
+                public boolean hasNext() {
+                    return true;
+                }
+
+                @Override
+                public Object next() {
+                    return length;
+                }
+            };
+        }
+    }
+
+    private class GeneratorObjectIterator implements Iterator<Object> {
+        private final Iterator<Object> lengths = lengthGenerator.getIterator();
+        private final Iterator<Object> elements = elementGenerator.getIterator();
+
+        @Override
+        public boolean hasNext() {
+            return lengths.hasNext() && elements.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            final Object lengthObject = lengths.next();
+            if (lengthObject == null) {
+                return null;
+            }
+            final int length = (int) Math.max(0, Math.round(((Number) lengthObject).doubleValue()));
+
+            final Object[] values = new Object[length];
+            int n = 0;
+            // a finite element generator may run out in the middle of an array; keep what we got.
+            while (n < length && elements.hasNext()) {
+                values[n++] = detach(elements.next());
+            }
+
+            // even if we end up rolling a null
+            if (pctNullMgr.test()) {
+                return null;
+            }
+
+            if (n < length) {
+                final Object[] truncated = new Object[n];
+                System.arraycopy(values, 0, truncated, 0, n);
+                return truncated;
+            }
+            return values;
+        }
+    }
+}
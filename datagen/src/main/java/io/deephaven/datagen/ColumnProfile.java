@@ -0,0 +1,698 @@
+package io.deephaven.datagen;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the statistics of one column in a single pass over its values, and fits a generator
+ * definition to them; used by {@link DataProfiler}.
+ *
+ * Memory stays bounded: distinct values are counted exactly only up to a limit, after which only a
+ * {@link HyperLogLog} estimate is kept, and the shape of numeric values is kept in a {@link StreamingHistogram}.
+ *
+ * Values come either typed, from a Parquet file, or as text, from a CSV file; for text the column type is
+ * inferred as the narrowest of INT32, INT64, DOUBLE, BOOLEAN, TIMESTAMP_NANOS or STRING that parses all values.
+ */
+class ColumnProfile {
+
+    private static final int HISTOGRAM_BINS = 100;
+    private static final int MAX_TRACKED_LENGTH = 1 << 16;
+    /** random_pick weights are ints, and their total has to fit too. */
+    private static final long MAX_TOTAL_WEIGHT = 1L << 30;
+    private static final MathContext SIGNIFICANT_DIGITS = new MathContext(6);
+
+    // classes of the characters seen in strings
+    private static final int CHARS_HEX_LETTER = 1;
+    private static final int CHARS_OTHER_LOWER = 2;
+    private static final int CHARS_UPPER = 4;
+    private static final int CHARS_DIGIT = 8;
+    private static final int CHARS_OTHER = 16;
+    private static final int CHARS_LOWER = CHARS_HEX_LETTER | CHARS_OTHER_LOWER;
+
+    private final String name;
+    private final DataGenerator.ColumnType declaredType;
+    private final int precision;
+    private final int scale;
+    private final int maxExactValues;
+
+    private long rows;
+    private long nulls;
+
+    // type inference for text values
+    private boolean allLong = true;
+    private boolean allDouble = true;
+    private boolean allBoolean = true;
+    private boolean allTimestamp = true;
+
+    // exact counts of the values, as strings, until there are too many of them
+    private Map<String, long[]> valueCounts = new HashMap<>();
+    private final HyperLogLog distinct = new HyperLogLog();
+
+    // numeric values
+    private long numericCount;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double mean;
+    private double m2;
+    private final StreamingHistogram histogram = new StreamingHistogram(HISTOGRAM_BINS);
+    private long longMin = Long.MAX_VALUE;
+    private long longMax = Long.MIN_VALUE;
+
+    // order of the non null values
+    private boolean havePrevious;
+    private double previous;
+    private long previousLong;
+    private long ascendingPairs;
+    private long descendingPairs;
+    private long pairs;
+    private long firstLong;
+    private long walkStep = -1;
+    private boolean isWalk = true;
+    // value minus position, for permutations of a range
+    private long minOffset = Long.MAX_VALUE;
+    private long maxOffset = Long.MIN_VALUE;
+
+    // strings
+    private long[] lengthCounts = new long[64];
+    private int minLength = Integer.MAX_VALUE;
+    private int maxLength;
+    private int charClasses;
+
+    /**
+     * @param name              name of the column
+     * @param declaredType      type of the column, or null to infer it from text values
+     * @param precision         precision, for DECIMAL columns
+     * @param scale             scale, for DECIMAL columns
+     * @param maxExactValues    how many distinct values to count exactly
+     */
+    ColumnProfile(
+            final String name,
+            final DataGenerator.ColumnType declaredType,
+            final int precision,
+            final int scale,
+            final int maxExactValues) {
+        this.name = name;
+        this.declaredType = declaredType;
+        this.precision = precision;
+        this.scale = scale;
+        this.maxExactValues = maxExactValues;
+    }
+
+    String getName() {
+        return name;
+    }
+
+    /**
+     * Adds a typed value, as read from a Parquet file.
+     *
+     * @param value the value, or null
+     */
+    void add(final Object value) {
+        ++rows;
+        if (value == null) {
+            ++nulls;
+            return;
+        }
+        distinct.add(value);
+        countValue(optionString(value));
+        switch (declaredType) {
+            case BOOLEAN:
+                addNumeric((Boolean) value ? 1 : 0, true);
+                break;
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                addNumeric(((Number) value).longValue(), true);
+                break;
+            case FLOAT:
+            case DOUBLE:
+            case DECIMAL:
+                addNumeric(((Number) value).doubleValue(), false);
+                break;
+            case DATE:
+                addNumeric(((LocalDate) value).toEpochDay(), true);
+                break;
+            case TIMESTAMP_NANOS:
+                addNumeric(((DataGenerator.UnixTimestampNanos) value).nanos, true);
+                break;
+            case STRING:
+                addString(value.toString());
+                break;
+            case FIXED_BINARY:
+                addString(value.toString());
+                break;
+            default:
+                throw new IllegalStateException("Missing types");
+        }
+    }
+
+    /**
+     * Adds a value as text, as read from a CSV file.  Empty text is null.
+     *
+     * @param text the text of the value
+     */
+    void addText(final String text) {
+        ++rows;
+        if (text.isEmpty()) {
+            ++nulls;
+            return;
+        }
+        distinct.add(text);
+        countValue(text);
+        addString(text);
+
+        if (allLong) {
+            try {
+                addNumeric(Long.parseLong(text), true);
+                // not a boolean or a timestamp either
+                allBoolean = allTimestamp = false;
+                return;
+            } catch (NumberFormatException ex) {
+                allLong = false;
+            }
+        }
+        if (allDouble) {
+            try {
+                addNumeric(Double.parseDouble(text), false);
+                allBoolean = allTimestamp = false;
+                return;
+            } catch (NumberFormatException ex) {
+                allDouble = false;
+            }
+        }
+        if (allBoolean) {
+            if (!text.equalsIgnoreCase("true") && !text.equalsIgnoreCase("false")) {
+                allBoolean = false;
+            }
+        }
+        if (allTimestamp) {
+            try {
+                addNumeric(parseTimestampNanos(text), true);
+            } catch (DateTimeParseException | ArithmeticException ex) {
+                allTimestamp = false;
+            }
+        }
+    }
+
+    private static long parseTimestampNanos(final String text) {
+        Instant instant;
+        try {
+            instant = Instant.parse(text);
+        } catch (DateTimeParseException ex) {
+            instant = OffsetDateTime.parse(text).toInstant();
+        }
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    /** The text a value takes as a random_pick option, for the carrier types the option lists are parsed as. */
+    private static String optionString(final Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? "1" : "0";
+        }
+        if (value instanceof LocalDate) {
+            return Long.toString(((LocalDate) value).toEpochDay());
+        }
+        if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).toPlainString();
+        }
+        if (value instanceof DataGenerator.UnixTimestampNanos) {
+            return Long.toString(((DataGenerator.UnixTimestampNanos) value).nanos);
+        }
+        return value.toString();
+    }
+
+    private void countValue(final String key) {
+        if (valueCounts == null) {
+            return;
+        }
+        final long[] count = valueCounts.get(key);
+        if (count != null) {
+            ++count[0];
+        } else if (valueCounts.size() < maxExactValues) {
+            valueCounts.put(key, new long[] {1});
+        } else {
+            // too many to keep; from now on only the estimate
+            valueCounts = null;
+        }
+    }
+
+    private void addNumeric(final double value, final boolean integral) {
+        final long asLong = (long) value;
+        addNumeric(value, asLong, integral);
+    }
+
+    private void addNumeric(final long value, final boolean integral) {
+        addNumeric((double) value, value, integral);
+    }
+
+    private void addNumeric(final double value, final long asLong, final boolean integral) {
+        final long position = numericCount;
+        ++numericCount;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        // Welford's online mean and variance
+        final double delta = value - mean;
+        mean += delta / numericCount;
+        m2 += delta * (value - mean);
+        histogram.add(value);
+
+        if (integral) {
+            longMin = Math.min(longMin, asLong);
+            longMax = Math.max(longMax, asLong);
+            minOffset = Math.min(minOffset, asLong - position);
+            maxOffset = Math.max(maxOffset, asLong - position);
+        }
+
+        if (havePrevious) {
+            ++pairs;
+            final int cmp = integral ? Long.compare(asLong, previousLong) : Double.compare(value, previous);
+            if (cmp >= 0) {
+                ++ascendingPairs;
+            }
+            if (cmp <= 0) {
+                ++descendingPairs;
+            }
+            if (integral && isWalk) {
+                final long step = Math.abs(asLong - previousLong);
+                if (walkStep == -1) {
+                    walkStep = step;
+                }
+                isWalk = step == walkStep && step != 0;
+            }
+        } else {
+            firstLong = asLong;
+        }
+        havePrevious = true;
+        previous = value;
+        previousLong = asLong;
+    }
+
+    private void addString(final String text) {
+        final int length = text.length();
+        minLength = Math.min(minLength, length);
+        maxLength = Math.max(maxLength, length);
+        final int tracked = Math.min(length, MAX_TRACKED_LENGTH);
+        if (tracked >= lengthCounts.length) {
+            lengthCounts = Arrays.copyOf(lengthCounts, Math.max(tracked + 1, 2 * lengthCounts.length));
+        }
+        ++lengthCounts[tracked];
+        for (int i = 0; i < length; ++i) {
+            final char c = text.charAt(i);
+            if (c >= 'a' && c <= 'f') {
+                charClasses |= CHARS_HEX_LETTER;
+            } else if (c >= 'g' && c <= 'z') {
+                charClasses |= CHARS_OTHER_LOWER;
+            } else if (c >= 'A' && c <= 'Z') {
+                charClasses |= CHARS_UPPER;
+            } else if (c >= '0' && c <= '9') {
+                charClasses |= CHARS_DIGIT;
+            } else {
+                charClasses |= CHARS_OTHER;
+            }
+        }
+    }
+
+    /**
+     * @return  the declared type, or the type inferred from the text values
+     */
+    DataGenerator.ColumnType getColumnType() {
+        if (declaredType != null) {
+            return declaredType;
+        }
+        if (rows == nulls) {
+            return DataGenerator.ColumnType.STRING;
+        }
+        if (allLong) {
+            return longMin >= Integer.MIN_VALUE && longMax <= Integer.MAX_VALUE
+                    ? DataGenerator.ColumnType.INT32
+                    : DataGenerator.ColumnType.INT64;
+        }
+        if (allDouble) {
+            return DataGenerator.ColumnType.DOUBLE;
+        }
+        if (allBoolean) {
+            return DataGenerator.ColumnType.BOOLEAN;
+        }
+        if (allTimestamp) {
+            return DataGenerator.ColumnType.TIMESTAMP_NANOS;
+        }
+        return DataGenerator.ColumnType.STRING;
+    }
+
+    private boolean isTextual() {
+        final DataGenerator.ColumnType type = getColumnType();
+        return type == DataGenerator.ColumnType.STRING || type == DataGenerator.ColumnType.FIXED_BINARY;
+    }
+
+    private double stddev() {
+        return numericCount > 1 ? Math.sqrt(m2 / (numericCount - 1)) : 0.0;
+    }
+
+    private double sortedFraction() {
+        return pairs == 0 ? 1.0 : (double) ascendingPairs / pairs;
+    }
+
+    private long nonNull() {
+        return rows - nulls;
+    }
+
+    /**
+     * Fits a column definition, in the vocabulary of the generation files, to the statistics collected.
+     *
+     * @param outputRows    number of rows the generated file will have
+     * @param seed          seed for the column
+     * @return              the column definition, in order, with values as strings
+     */
+    Map<String, Object> toColumnDefinition(final long outputRows, final long seed) {
+        final Map<String, Object> def = new LinkedHashMap<>();
+        def.put("name", name);
+        final DataGenerator.ColumnType type = getColumnType();
+        final String percentNull = format(rows == 0 ? 0.0 : 100.0 * nulls / rows);
+
+        if (nonNull() == 0) {
+            // only nulls
+            def.put("generation_type", "random");
+            def.put("distribution", "random_pick");
+            def.put("type", isTextual() ? "STRING" : type.name());
+            def.put("options", list(isTextual() ? "" : "0"));
+            def.put("seed", Long.toString(seed));
+            def.put("percent_null", "100");
+            return def;
+        }
+
+        final boolean categorical = valueCounts != null
+                && type != DataGenerator.ColumnType.TIMESTAMP_NANOS
+                && (type == DataGenerator.ColumnType.BOOLEAN || 2L * valueCounts.size() <= nonNull());
+        if (isRangePermutation(type)) {
+            def.put("generation_type", "full_range");
+            def.put("type", type.name());
+            def.put("range_start", Long.toString(longMin));
+            def.put("range_stop", Long.toString(longMin + outputRows - 1));
+            addOrdering(def);
+        } else if (isWalk && pairs > 1 && isIntegral(type) && nulls == 0) {
+            // every step the same size: that's no accident, even if there are few distinct values
+            def.put("generation_type", "random");
+            def.put("distribution", "random_walk");
+            def.put("type", type.name());
+            def.put("initial", Long.toString(firstLong));
+            def.put("step", Long.toString(walkStep));
+        } else if (categorical) {
+            def.put("generation_type", "random");
+            def.put("distribution", "random_pick");
+            def.put("type", type == DataGenerator.ColumnType.FIXED_BINARY ? "STRING" : type.name());
+            addOptions(def, type);
+        } else if (isTextual()) {
+            def.put("generation_type", "random_string");
+            def.put("type", "STRING");
+            addStringShape(def, outputRows);
+        } else if (type == DataGenerator.ColumnType.TIMESTAMP_NANOS) {
+            def.put("generation_type", "random");
+            def.put("type", type.name());
+            if (ascendingPairs == pairs && nonNull() > 1) {
+                def.put("distribution", "poisson_wait");
+                def.put("start_nanos", Long.toString(longMin));
+                // the sample's rate; more rows cover a longer span
+                def.put("mean_wait_nanos", Long.toString(Math.max(1, (longMax - longMin) / (nonNull() - 1))));
+            } else {
+                def.put("distribution", "uniform");
+                def.put("lower_bound", Long.toString(longMin));
+                def.put("upper_bound", Long.toString(longMax + 1));
+            }
+        } else {
+            def.put("generation_type", "random");
+            addNumericFit(def, type);
+        }
+        if ("DECIMAL".equals(def.get("type"))) {
+            def.put("precision", Integer.toString(precision));
+            def.put("scale", Integer.toString(scale));
+        }
+        def.put("seed", Long.toString(seed));
+        def.put("percent_null", percentNull);
+        return def;
+    }
+
+    private static boolean isIntegral(final DataGenerator.ColumnType type) {
+        switch (type) {
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+            case DATE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /** All values of a range, each once, in some order: full_range can produce that. */
+    private boolean isRangePermutation(final DataGenerator.ColumnType type) {
+        if (type != DataGenerator.ColumnType.INT32 && type != DataGenerator.ColumnType.INT64 || nulls != 0) {
+            return false;
+        }
+        return longMax - longMin + 1 == numericCount && distinct.estimate() >= 0.97 * numericCount;
+    }
+
+    private void addOrdering(final Map<String, Object> def) {
+        if (ascendingPairs == pairs) {
+            def.put("order", "Increasing");
+            return;
+        }
+        if (descendingPairs == pairs) {
+            def.put("order", "Decreasing");
+            return;
+        }
+        // for a permutation, the furthest any value is from its sorted position
+        final long k = Math.max(Math.abs(maxOffset - longMin), Math.abs(minOffset - longMin));
+        if (k < numericCount / 10) {
+            def.put("order", "K_Sorted");
+            def.put("k", Long.toString(k));
+        } else {
+            def.put("order", "Shuffled");
+        }
+    }
+
+    private void addOptions(final Map<String, Object> def, final DataGenerator.ColumnType type) {
+        // text booleans can be spelled more than one way; count them by the option they turn into
+        final Map<String, long[]> optionCounts;
+        if (type == DataGenerator.ColumnType.BOOLEAN && declaredType == null) {
+            optionCounts = new HashMap<>();
+            for (final Map.Entry<String, long[]> entry : valueCounts.entrySet()) {
+                final String option = Boolean.parseBoolean(entry.getKey()) ? "1" : "0";
+                optionCounts.computeIfAbsent(option, k -> new long[1])[0] += entry.getValue()[0];
+            }
+        } else {
+            optionCounts = valueCounts;
+        }
+        final List<Map.Entry<String, long[]>> entries = new ArrayList<>(optionCounts.entrySet());
+        // most frequent first
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        final double scale = Math.min(1.0, (double) MAX_TOTAL_WEIGHT / nonNull());
+        final List<Object> options = new ArrayList<>(entries.size());
+        final List<Object> weights = new ArrayList<>(entries.size());
+        boolean uniform = true;
+        for (final Map.Entry<String, long[]> entry : entries) {
+            options.add(entry.getKey());
+            weights.add(Long.toString(Math.max(1, Math.round(entry.getValue()[0] * scale))));
+            uniform &= entry.getValue()[0] == entries.get(0).getValue()[0];
+        }
+        def.put("options", options);
+        if (!uniform) {
+            def.put("weights", weights);
+        }
+    }
+
+    private void addStringShape(final Map<String, Object> def, final long outputRows) {
+        def.put("charset", charsetName());
+
+        final long n = nonNull();
+        if (minLength == maxLength) {
+            def.put("length_distribution", "fixed");
+            def.put("length", Integer.toString(minLength));
+        } else {
+            final int lo = minLength;
+            final int hi = Math.min(maxLength, MAX_TRACKED_LENGTH);
+            double lengthMean = 0.0;
+            for (int l = lo; l <= hi; ++l) {
+                lengthMean += (double) l * lengthCounts[l] / n;
+            }
+            double lengthVariance = 0.0;
+            double logSum = 0.0;
+            for (int l = lo; l <= hi; ++l) {
+                lengthVariance += (l - lengthMean) * (l - lengthMean) * lengthCounts[l] / n;
+                if (lo > 0) {
+                    logSum += Math.log((double) l / lo) * lengthCounts[l];
+                }
+            }
+            final double lengthStddev = Math.sqrt(lengthVariance);
+            final double alpha = logSum > 0 ? n / logSum : 0.0;
+
+            // distance of the empirical length distribution to each candidate's, exact for discrete lengths
+            double ksUniform = 0.0;
+            double ksNormal = 0.0;
+            double ksLongTail = alpha > 0 ? 0.0 : Double.POSITIVE_INFINITY;
+            long cumulative = 0;
+            for (int l = lo; l <= hi; ++l) {
+                cumulative += lengthCounts[l];
+                final double empirical = (double) cumulative / n;
+                ksUniform = Math.max(ksUniform, Math.abs(empirical - (double) (l - lo + 1) / (hi - lo + 1)));
+                ksNormal = Math.max(ksNormal, Math.abs(empirical - normalCdf(l + 0.5, lengthMean, lengthStddev)));
+                if (alpha > 0) {
+                    final double longTail = l == hi ? 1.0 : 1.0 - Math.pow((double) lo / (l + 1), alpha);
+                    ksLongTail = Math.max(ksLongTail, Math.abs(empirical - longTail));
+                }
+            }
+            if (ksLongTail < ksUniform && ksLongTail < ksNormal) {
+                def.put("length_distribution", "long_tail");
+                def.put("min_length", Integer.toString(lo));
+                def.put("max_length", Integer.toString(hi));
+                def.put("alpha", format(alpha));
+            } else if (ksNormal < ksUniform) {
+                def.put("length_distribution", "normal");
+                def.put("mean_length", format(lengthMean));
+                def.put("stddev_length", format(lengthStddev));
+                def.put("min_length", Integer.toString(lo));
+                def.put("max_length", Integer.toString(hi));
+            } else {
+                def.put("length_distribution", "uniform");
+                def.put("min_length", Integer.toString(lo));
+                def.put("max_length", Integer.toString(hi));
+            }
+        }
+        // the row counter that makes them unique has to fit the shortest
+        if (distinct.estimate() >= 0.98 * n && n > 1 && minLength >= RandomStringGenerator.uniqueDigits(
+                RandomStringGenerator.charset(name, charsetName()).length(), outputRows)) {
+            def.put("unique", "true");
+            def.put("unique_rows", Long.toString(outputRows));
+        }
+    }
+
+    private String charsetName() {
+        final int classes = charClasses;
+        if ((classes & CHARS_OTHER) != 0) {
+            return "printable";
+        }
+        if (classes == CHARS_DIGIT) {
+            return "digits";
+        }
+        if ((classes & ~(CHARS_DIGIT | CHARS_HEX_LETTER)) == 0) {
+            return "hex";
+        }
+        if ((classes & ~CHARS_LOWER) == 0) {
+            return "lowercase";
+        }
+        if (classes == CHARS_UPPER) {
+            return "uppercase";
+        }
+        if ((classes & CHARS_DIGIT) == 0) {
+            return "letters";
+        }
+        return "alphanumeric";
+    }
+
+    private void addNumericFit(final Map<String, Object> def, final DataGenerator.ColumnType type) {
+        final double sd = stddev();
+        final double ksUniform = ksDistance(x -> max > min ? Math.max(0.0, Math.min(1.0, (x - min) / (max - min))) : 1.0);
+        final double ksNormal = sd > 0 ? ksDistance(x -> normalCdf(x, mean, sd)) : Double.POSITIVE_INFINITY;
+        final double ksExponential = min >= 0 && mean > 0
+                ? ksDistance(x -> x <= 0 ? 0.0 : 1.0 - Math.exp(-x / mean))
+                : Double.POSITIVE_INFINITY;
+
+        def.put("type", type.name());
+        if (ksExponential < ksUniform && ksExponential < ksNormal) {
+            def.put("distribution", "exponential");
+            def.put("lambda", format(1.0 / mean));
+        } else if (ksNormal < ksUniform) {
+            def.put("distribution", "normal");
+            def.put("mean", format(mean));
+            def.put("stddev", format(sd));
+        } else {
+            def.put("distribution", "uniform");
+            if (isIntegral(type) || type == DataGenerator.ColumnType.BOOLEAN) {
+                // upper bounds are exclusive for integers
+                def.put("lower_bound", Long.toString(longMin));
+                def.put("upper_bound", Long.toString(longMax + 1));
+            } else {
+                def.put("lower_bound", format(min));
+                def.put("upper_bound", format(max));
+            }
+        }
+    }
+
+    private interface Cdf {
+        double at(double x);
+    }
+
+    /** Kolmogorov-Smirnov distance between the histogram and a candidate distribution. */
+    private double ksDistance(final Cdf cdf) {
+        double distance = 0.0;
+        for (int bin = 0; bin < histogram.getBinCount(); ++bin) {
+            final double x = histogram.getCentroid(bin);
+            distance = Math.max(distance, Math.abs(histogram.cumulativeFraction(bin) - cdf.at(x)));
+        }
+        return distance;
+    }
+
+    private static double normalCdf(final double x, final double mean, final double stddev) {
+        if (stddev <= 0) {
+            return x < mean ? 0.0 : 1.0;
+        }
+        return 0.5 * (1.0 + erf((x - mean) / (stddev * Math.sqrt(2.0))));
+    }
+
+    /** Abramowitz and Stegun 7.1.26; the error is below 1.5e-7. */
+    private static double erf(final double x) {
+        final double t = 1.0 / (1.0 + 0.3275911 * Math.abs(x));
+        final double y = 1.0 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return x >= 0 ? y : -y;
+    }
+
+    /**
+     * Summarizes the statistics collected, for the report that goes along with the generation file.
+     */
+    Map<String, Object> toSummary() {
+        final Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("type", getColumnType().name());
+        summary.put("rows", Long.toString(rows));
+        summary.put("nulls", Long.toString(nulls));
+        summary.put("distinct_estimate", Long.toString(distinct.estimate()));
+        if (valueCounts != null) {
+            summary.put("distinct_exact", Integer.toString(valueCounts.size()));
+        }
+        if (numericCount > 0 && !isTextual()) {
+            summary.put("min", format(min));
+            summary.put("max", format(max));
+            summary.put("mean", format(mean));
+            summary.put("stddev", format(stddev()));
+            summary.put("sorted_fraction", format(sortedFraction()));
+        }
+        if (isTextual() && nonNull() > 0) {
+            summary.put("min_length", Integer.toString(minLength));
+            summary.put("max_length", Integer.toString(maxLength));
+        }
+        return summary;
+    }
+
+    private static List<Object> list(final Object... values) {
+        return new ArrayList<>(Arrays.asList(values));
+    }
+
+    private static String format(final double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        // six significant digits, without trailing zeros
+        return new BigDecimal(value).round(SIGNIFICANT_DIGITS).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,65 @@
+package io.deephaven.datagen;
+
+/**
+ * Draws from a multiset without replacement: index {@code i} is drawn as many times as its count, in random order,
+ * with each draw as likely as the counts left make it.  The counts are kept in a Fenwick tree, so a draw takes
+ * logarithmic time in the number of indices, and no more memory than the counts.
+ */
+final class CountSampler {
+
+    // tree[i] is the sum of the counts of the (i & -i) indices ending at i - 1
+    private final long[] tree;
+    private final int highBit;
+    private long remaining;
+
+    /**
+     * @param counts    how many times each index is drawn; not kept
+     */
+    CountSampler(final long[] counts) {
+        final int n = counts.length;
+        tree = new long[n + 1];
+        for (int i = 0; i < n; ++i) {
+            if (counts[i] < 0) {
+                throw new IllegalArgumentException(String.format("count (=%d) of index %d should be >= 0", counts[i], i));
+            }
+            tree[i + 1] += counts[i];
+            remaining += counts[i];
+            final int parent = (i + 1) + ((i + 1) & -(i + 1));
+            if (parent <= n) {
+                tree[parent] += tree[i + 1];
+            }
+        }
+        highBit = n == 0 ? 0 : Integer.highestOneBit(n);
+    }
+
+    /** The number of draws left. */
+    long remaining() {
+        return remaining;
+    }
+
+    /**
+     * Draws an index, and takes one off its count.
+     *
+     * @param u     a uniformly random number in {@code [0, remaining())}
+     * @return      the index whose counts, laid end to end in index order, cover u
+     */
+    int take(long u) {
+        if (u < 0 || u >= remaining) {
+            throw new IllegalArgumentException(String.format("u (=%d) should be in [0, %d)", u, remaining));
+        }
+        // the largest position whose prefix sum is <= u
+        int pos = 0;
+        for (int step = highBit; step > 0; step >>>= 1) {
+            final int next = pos + step;
+            if (next < tree.length && tree[next] <= u) {
+                pos = next;
+                u -= tree[next];
+            }
+        }
+        for (int i = pos + 1; i < tree.length; i += i & -i) {
+            --tree[i];
+        }
+        --remaining;
+        return pos;
+    }
+}
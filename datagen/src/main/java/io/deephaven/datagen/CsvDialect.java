@@ -0,0 +1,334 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+
+import java.math.BigDecimal;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * How CSV output is written: delimiter, quoting, escaping, line endings, byte order mark and header, from the
+ * optional {@code "csv"} object of a generation file.  The defaults are RFC 4180: commas, double quotes around
+ * fields that need them, doubled quotes inside, and a header line; lines end in LF unless {@code line_ending}
+ * is {@code crlf}.
+ *
+ * To exercise the harder paths of CSV readers, string values can be made to contain quotes, delimiters, line
+ * breaks or multi-byte characters at a given ratio; one of them is inserted at a random position of a value.
+ * The choice is seeded, so the output is reproducible.
+ */
+final class CsvDialect {
+
+    enum QuotePolicy {
+        /** Quote fields that contain a delimiter, quote, escape or line break, and empty strings. */
+        MINIMAL,
+        /** Quote every non null field. */
+        ALL,
+        /** Quote every non null field that isn't a number or a boolean, and fields that need it. */
+        NON_NUMERIC,
+        /** Never quote; special characters are preceded by the escape character instead. */
+        NONE,
+    }
+
+    /** Inserted for multi-byte content: two, three and four byte UTF-8 encodings. */
+    private static final String[] MULTIBYTE = {
+            "\u00e9", "\u00df", "\u0416",                  // e acute, sharp s, Cyrillic zhe
+            "\u20ac", "\u4e2d", "\u6587",                  // euro sign, CJK
+            "\ud83d\ude00",                                // grinning face, a surrogate pair
+    };
+
+    private final char delimiter;
+    private final char quote;
+    /** Precedes quotes (and itself) inside quoted fields; same as quote for doubled quotes. */
+    private final char escape;
+    private final QuotePolicy quotePolicy;
+    private final String lineEnding;
+    private final boolean bom;
+    private final boolean header;
+    private final String nullValue;
+
+    // cumulative thresholds of the stress content ratios
+    private final double quoteThreshold;
+    private final double delimiterThreshold;
+    private final double newlineThreshold;
+    private final double multibyteThreshold;
+    private final Random prng;
+
+    /** Holds a field while deciding how to write it. */
+    private final StringBuilder field = new StringBuilder();
+
+    private CsvDialect(
+            final char delimiter,
+            final char quote,
+            final char escape,
+            final QuotePolicy quotePolicy,
+            final String lineEnding,
+            final boolean bom,
+            final boolean header,
+            final String nullValue,
+            final double quoteRatio,
+            final double delimiterRatio,
+            final double newlineRatio,
+            final double multibyteRatio,
+            final long seed) {
+        this.delimiter = delimiter;
+        this.quote = quote;
+        this.escape = escape;
+        this.quotePolicy = quotePolicy;
+        this.lineEnding = lineEnding;
+        this.bom = bom;
+        this.header = header;
+        this.nullValue = nullValue;
+        quoteThreshold = quoteRatio;
+        delimiterThreshold = quoteThreshold + delimiterRatio;
+        newlineThreshold = delimiterThreshold + newlineRatio;
+        multibyteThreshold = newlineThreshold + multibyteRatio;
+        prng = new Random(seed);
+    }
+
+    /**
+     * Creates a dialect from the {@code "csv"} object of a generation file.
+     *
+     * @param jo    the JSON object, or null for the defaults
+     * @return      a CsvDialect; it keeps state for the stress content, so use one per file
+     */
+    static CsvDialect fromJson(final JSONObject jo) {
+        final JSONObject csv = jo == null ? new JSONObject() : jo;
+        final char delimiter = getChar(csv, "delimiter", ",");
+        final char quote = getChar(csv, "quote", "\"");
+        final String escapeName = Utils.getStringElementValueOrDefault("escape", csv, "double");
+        final char escape = "double".equals(escapeName) ? quote : getChar(csv, "escape", null);
+
+        final String policyName = Utils.getStringElementValueOrDefault("quote_policy", csv, "minimal");
+        final QuotePolicy quotePolicy;
+        try {
+            quotePolicy = QuotePolicy.valueOf(policyName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(String.format(
+                    "csv: quote_policy must be one of minimal, all, non_numeric or none; found \"%s\"", policyName));
+        }
+        if (quotePolicy == QuotePolicy.NONE && escape == quote) {
+            throw new IllegalArgumentException("csv: quote_policy none needs an escape character");
+        }
+        if (delimiter == quote || delimiter == escape || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalArgumentException(String.format(
+                    "csv: delimiter '%c' can't be the quote, the escape or a line break", delimiter));
+        }
+
+        final String lineEndingName = Utils.getStringElementValueOrDefault("line_ending", csv, "lf");
+        final String lineEnding;
+        switch (lineEndingName.toLowerCase(Locale.ROOT)) {
+            case "lf":
+                lineEnding = "\n";
+                break;
+            case "crlf":
+                lineEnding = "\r\n";
+                break;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "csv: line_ending must be lf or crlf; found \"%s\"", lineEndingName));
+        }
+
+        final double quoteRatio = getRatio(csv, "quote_ratio");
+        final double delimiterRatio = getRatio(csv, "delimiter_ratio");
+        final double newlineRatio = getRatio(csv, "newline_ratio");
+        final double multibyteRatio = getRatio(csv, "multibyte_ratio");
+        if (quoteRatio + delimiterRatio + newlineRatio + multibyteRatio > 1.0) {
+            throw new IllegalArgumentException("csv: quote_ratio, delimiter_ratio, newline_ratio and multibyte_ratio add up to more than 1");
+        }
+
+        return new CsvDialect(
+                delimiter,
+                quote,
+                escape,
+                quotePolicy,
+                lineEnding,
+                Utils.getBooleanElementValueOrDefault("bom", csv, false),
+                Utils.getBooleanElementValueOrDefault("header", csv, true),
+                Utils.getStringElementValueOrDefault("null_value", csv, ""),
+                quoteRatio,
+                delimiterRatio,
+                newlineRatio,
+                multibyteRatio,
+                Long.parseLong(Utils.getStringElementValueOrDefault("seed", csv, "0")));
+    }
+
+    private static char getChar(final JSONObject jo, final String key, final String defaultValue) {
+        final String value = defaultValue == null
+                ? Utils.getStringElementValue(key, jo)
+                : Utils.getStringElementValueOrDefault(key, jo, defaultValue);
+        if ("tab".equalsIgnoreCase(value)) {
+            return '\t';
+        }
+        if (value.length() != 1) {
+            throw new IllegalArgumentException(String.format(
+                    "csv: %s should be a single character; found \"%s\"", key, value));
+        }
+        return value.charAt(0);
+    }
+
+    private static double getRatio(final JSONObject jo, final String key) {
+        final double ratio = Double.parseDouble(Utils.getStringElementValueOrDefault(key, jo, "0"));
+        if (ratio < 0.0 || ratio > 1.0) {
+            throw new IllegalArgumentException(String.format("csv: %s (=%g) should be between 0 and 1", key, ratio));
+        }
+        return ratio;
+    }
+
+    char getDelimiter() {
+        return delimiter;
+    }
+
+    String getLineEnding() {
+        return lineEnding;
+    }
+
+    /** Whether files start with a UTF-8 byte order mark. */
+    boolean hasBom() {
+        return bom;
+    }
+
+    boolean hasHeader() {
+        return header;
+    }
+
+    /**
+     * Appends a field, quoted and escaped as needed.
+     *
+     * @param row       the row being built
+     * @param value     the value of the field, or null
+     */
+    void appendField(final StringBuilder row, final Object value) {
+        if (value == null) {
+            row.append(nullValue);
+            return;
+        }
+        field.setLength(0);
+        appendValue(field, value);
+        // the last threshold is the sum of all the ratios
+        if (value instanceof CharSequence && multibyteThreshold > 0.0) {
+            addStressContent();
+        }
+        appendFormatted(row, value);
+    }
+
+    /**
+     * Appends a column name for the header, quoted and escaped as needed.
+     *
+     * @param row       the header being built
+     * @param name      the column name
+     */
+    void appendName(final StringBuilder row, final String name) {
+        field.setLength(0);
+        field.append(name);
+        appendFormatted(row, name);
+    }
+
+    /** Appends the value in {@code field}, quoting and escaping it as the policy says. */
+    private void appendFormatted(final StringBuilder row, final Object value) {
+
+        if (quotePolicy == QuotePolicy.NONE) {
+            for (int i = 0; i < field.length(); ++i) {
+                final char c = field.charAt(i);
+                if (isSpecial(c)) {
+                    row.append(escape);
+                }
+                row.append(c);
+            }
+            return;
+        }
+
+        final boolean quoted;
+        switch (quotePolicy) {
+            case ALL:
+                quoted = true;
+                break;
+            case NON_NUMERIC:
+                quoted = !(value instanceof Number || value instanceof Boolean) || needsQuotes();
+                break;
+            default:
+                quoted = needsQuotes();
+                break;
+        }
+        if (!quoted) {
+            row.append(field);
+            return;
+        }
+        row.append(quote);
+        for (int i = 0; i < field.length(); ++i) {
+            final char c = field.charAt(i);
+            if (c == quote || c == escape) {
+                row.append(escape);
+            }
+            row.append(c);
+        }
+        row.append(quote);
+    }
+
+    private boolean isSpecial(final char c) {
+        return c == delimiter || c == quote || c == escape || c == '\n' || c == '\r';
+    }
+
+    private boolean needsQuotes() {
+        final int length = field.length();
+        if (length == 0) {
+            // otherwise empty strings read as nulls
+            return nullValue.isEmpty();
+        }
+        for (int i = 0; i < length; ++i) {
+            if (isSpecial(field.charAt(i))) {
+                return true;
+            }
+        }
+        return length == nullValue.length() && nullValue.contentEquals(field);
+    }
+
+    /** Maybe inserts one quote, delimiter, line break or multi-byte character at a random position. */
+    private void addStressContent() {
+        final double roll = prng.nextDouble();
+        if (roll >= multibyteThreshold) {
+            return;
+        }
+        // don't split a surrogate pair of the value
+        final int random = prng.nextInt(field.length() + 1);
+        final int position = random > 0 && Character.isHighSurrogate(field.charAt(random - 1)) ? random - 1 : random;
+        if (roll < quoteThreshold) {
+            field.insert(position, quote);
+        } else if (roll < delimiterThreshold) {
+            field.insert(position, delimiter);
+        } else if (roll < newlineThreshold) {
+            field.insert(position, lineEnding);
+        } else {
+            field.insert(position, MULTIBYTE[prng.nextInt(MULTIBYTE.length)]);
+        }
+    }
+
+    /**
+     * Appends an array value as {@code [e1|e2|...]}, so that it doesn't clash with the CSV field separator.
+     * Null elements are left empty.
+     */
+    private static void appendArray(final StringBuilder sb, final Object[] values) {
+        sb.append('[');
+        for (int i = 0; i < values.length; ++i) {
+            if (i != 0) {
+                sb.append('|');
+            }
+            if (values[i] != null) {
+                appendValue(sb, values[i]);
+            }
+        }
+        sb.append(']');
+    }
+
+    private static void appendValue(final StringBuilder sb, final Object val) {
+        if (val instanceof Object[]) {
+            appendArray(sb, (Object[]) val);
+        } else if (val instanceof BigDecimal) {
+            sb.append(((BigDecimal) val).toPlainString());
+        } else if (val instanceof CharSequence) {
+            // avoids making a String out of reusable buffers
+            sb.append((CharSequence) val);
+        } else {
+            sb.append(val);
+        }
+    }
+}
@@ -9,19 +9,33 @@ import org.apache.parquet.io.api.RecordConsumer;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.PrimitiveType;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 
 public class CustomWriterSupport extends WriteSupport<Object[]> {
     private final MessageType schema;
     private RecordConsumer recordConsumer;
-    private final List<ColumnDescriptor> cols;
     private final int ncols;
+    // resolved once from the schema, so writing a row doesn't do any lookups per field
+    private final String[] fieldNames;
+    private final PrimitiveType.PrimitiveTypeName[] primitiveTypes;
+    private final boolean[] isList;
+    private GenerationMetrics metrics;
 
     CustomWriterSupport(final MessageType schema) {
         this.schema = schema;
-        this.cols = schema.getColumns();
+        final List<ColumnDescriptor> cols = schema.getColumns();
         this.ncols = cols.size();
+        fieldNames = new String[ncols];
+        primitiveTypes = new PrimitiveType.PrimitiveTypeName[ncols];
+        isList = new boolean[ncols];
+        for (int i = 0; i < ncols; ++i) {
+            fieldNames[i] = cols.get(i).getPath()[0];
+            primitiveTypes[i] = cols.get(i).getPrimitiveType().getPrimitiveTypeName();
+            isList[i] = !schema.getType(i).isPrimitive();
+        }
     }
 
     @Override
@@ -34,47 +48,106 @@ public class CustomWriterSupport extends WriteSupport<Object[]> {
         this.recordConsumer = recordConsumer;
     }
 
+    /** Times writing the rows the metrics time. */
+    void setMetrics(final GenerationMetrics metrics) {
+        this.metrics = metrics;
+    }
+
     public void write(final Object[] buffer) {
+        final boolean timed = metrics != null && metrics.isTimedRow();
+        final long start = timed ? System.nanoTime() : 0;
         recordConsumer.startMessage();
         for (int i = 0; i < ncols; ++i) {
-            final String field = cols.get(i).getPath()[0];
             final Object val = buffer[i];
             if (val != null) {
+                final String field = fieldNames[i];
                 recordConsumer.startField(field, i);
-                final PrimitiveType.PrimitiveTypeName ptn = cols.get(i).getPrimitiveType().getPrimitiveTypeName();
-                switch (ptn) {
-                    case BOOLEAN:
-                        recordConsumer.addBoolean((Boolean) val);
-                        break;
-                    case DOUBLE:
-                        recordConsumer.addDouble((double) val);
-                        break;
-                    case INT32:
-                        recordConsumer.addInteger((Integer) val);
-                        break;
-                    case INT64:
-                        final long v;
-                        if (val instanceof DataGenerator.UnixTimestampNanos) {
-                            v = ((DataGenerator.UnixTimestampNanos) val).nanos;
-                        } else if (val instanceof Long) {
-                            v = (Long) val;
-                        } else {
-                            throw new IllegalStateException(
-                                    "Unknown object type: " + val.getClass().getCanonicalName() + " with value " + val);
-                        }
-                        recordConsumer.addLong(v);
-                        break;
-                    case BINARY:
-                        recordConsumer.addBinary(stringToBinary((String) val));
-                        break;
-                    default:
-                        throw new ParquetEncodingException(
-                                "Unsupported column type: " + ptn);
+                if (isList[i]) {
+                    addList(primitiveTypes[i], (Object[]) val);
+                } else {
+                    addValue(primitiveTypes[i], val);
                 }
                 recordConsumer.endField(field, i);
             }
         }
         recordConsumer.endMessage();
+        if (timed) {
+            metrics.addWriteSupportNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Writes the content of a LIST column: an optional group with a repeated "list" group,
+     * which holds one optional "element" per array element.
+     */
+    private void addList(final PrimitiveType.PrimitiveTypeName ptn, final Object[] values) {
+        recordConsumer.startGroup();
+        if (values.length > 0) {
+            recordConsumer.startField("list", 0);
+            for (final Object element : values) {
+                recordConsumer.startGroup();
+                if (element != null) {
+                    recordConsumer.startField("element", 0);
+                    addValue(ptn, element);
+                    recordConsumer.endField("element", 0);
+                }
+                recordConsumer.endGroup();
+            }
+            recordConsumer.endField("list", 0);
+        }
+        recordConsumer.endGroup();
+    }
+
+    private void addValue(final PrimitiveType.PrimitiveTypeName ptn, final Object val) {
+        switch (ptn) {
+            case BOOLEAN:
+                recordConsumer.addBoolean((Boolean) val);
+                break;
+            case DOUBLE:
+                recordConsumer.addDouble((double) val);
+                break;
+            case INT32:
+                if (val instanceof LocalDate) {
+                    recordConsumer.addInteger((int) ((LocalDate) val).toEpochDay());
+                } else {
+                    // Integer, or the narrower Byte and Short
+                    recordConsumer.addInteger(((Number) val).intValue());
+                }
+                break;
+            case FLOAT:
+                recordConsumer.addFloat((Float) val);
+                break;
+            case INT64:
+                final long v;
+                if (val instanceof DataGenerator.UnixTimestampNanos) {
+                    v = ((DataGenerator.UnixTimestampNanos) val).nanos;
+                } else if (val instanceof Long) {
+                    v = (Long) val;
+                } else if (val instanceof BigDecimal) {
+                    // the scale was set by the generator to match the column's
+                    v = ((BigDecimal) val).unscaledValue().longValue();
+                } else {
+                    throw new IllegalStateException(
+                            "Unknown object type: " + val.getClass().getCanonicalName() + " with value " + val);
+                }
+                recordConsumer.addLong(v);
+                break;
+            case BINARY:
+                if (val instanceof DataGenerator.AsciiStringBuffer) {
+                    // the writer copies reused bytes when it needs to keep them
+                    final DataGenerator.AsciiStringBuffer buffer = (DataGenerator.AsciiStringBuffer) val;
+                    recordConsumer.addBinary(Binary.fromReusedByteArray(buffer.bytes, 0, buffer.length));
+                } else {
+                    recordConsumer.addBinary(stringToBinary((String) val));
+                }
+                break;
+            case FIXED_LEN_BYTE_ARRAY:
+                recordConsumer.addBinary(Binary.fromConstantByteArray(((DataGenerator.FixedBinary) val).bytes));
+                break;
+            default:
+                throw new ParquetEncodingException(
+                        "Unsupported column type: " + ptn);
+        }
     }
 
     public void flush() {
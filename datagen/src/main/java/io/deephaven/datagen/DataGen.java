@@ -1,20 +1,28 @@
 package io.deephaven.datagen;
 
+import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Semaphore;
 
 // https://github.com/fangyidong/json-simple
 import org.apache.parquet.hadoop.ParquetWriter;
 import org.apache.parquet.hadoop.api.WriteSupport;
-import org.json.simple.JSONObject;
 import org.json.simple.parser.*;
 
 
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
 import org.apache.parquet.schema.MessageType;
 import org.apache.parquet.schema.Types;
 
@@ -24,10 +32,20 @@ public class DataGen {
             "data.overwrite", "true"));
     private static final boolean FORCE_GENERATION = Boolean.parseBoolean(System.getProperty(
             "force.generation", "False"));
-
-    private enum OutputFormat {
+    static final boolean GENERATION_STATS = Boolean.parseBoolean(System.getProperty(
+            "generation.stats", "True"));
+    private static final boolean GENERATION_METRICS = Boolean.parseBoolean(System.getProperty(
+            "generation.metrics", "True"));
+    static final int CSV_BUFFER_SIZE = 1 << 16;
+    private static final int PAUSE_CHECK_INTERVAL = 1024;
+    static final int UPLOAD_BATCH_ROWS = Integer.parseInt(System.getProperty(
+            "generation.upload.batch.rows", "65536"));
+
+    enum OutputFormat {
         PARQUET,
         CSV,
+        // not a file: uploaded to the server by a RowBatchConsumer
+        FLIGHT,
     }
 
     /***
@@ -35,49 +53,94 @@ public class DataGen {
      *
      * @param outputFilePath         Where the target file will live.
      * @param customWriterSupport    {@code CustomWriterSupport} for the schema we will be writing.
+     * @param compression            Codec to compress the column chunks with.
+     * @param ioPermits              Permits to take turns writing with other generations, or null to write through
+     *                               Hadoop's local file system.
      * @return                       {@code ParquetWriter} ready to write
      * @throws IOException
      */
-    private static ParquetWriter<Object[]> getParquetWriter(final String outputFilePath, CustomWriterSupport customWriterSupport) throws IOException {
+    private static ParquetWriter<Object[]> getParquetWriter(
+            final String outputFilePath,
+            final CustomWriterSupport customWriterSupport,
+            final CompressionCodecName compression,
+            final Semaphore ioPermits) throws IOException {
 
         final File outputParquetFile = new File(outputFilePath);
         if (outputParquetFile.exists() && OVERWRITE) {
             outputParquetFile.delete();
         }
-        final Path path = new Path(outputParquetFile.toURI().toString());
-        ParquetWriter.Builder<Object[], ?> parquetWriterBuilder = new ParquetWriter.Builder(path) {
-            @Override
-            protected ParquetWriter.Builder self() {
-                return this;
-            }
-
-            @Override
-            protected WriteSupport<Object[]> getWriteSupport(org.apache.hadoop.conf.Configuration conf) {
-                return customWriterSupport;
-            }
-        };
-        parquetWriterBuilder.withCompressionCodec(CompressionCodecName.GZIP);
+        final ParquetWriter.Builder<Object[], ?> parquetWriterBuilder;
+        if (ioPermits == null) {
+            final Path path = new Path(outputParquetFile.toURI().toString());
+            parquetWriterBuilder = new CustomParquetWriterBuilder(path, customWriterSupport);
+        } else {
+            parquetWriterBuilder = new CustomParquetWriterBuilder(
+                    new LimitedOutputFile(outputParquetFile, ioPermits), customWriterSupport);
+        }
+        parquetWriterBuilder.withCompressionCodec(compression);
 
         return parquetWriterBuilder.build();
     }
 
-    /***
-     * Parse the output format from the given JSON document map
-     *
-     * @param document      JSON document map, positioned at top-level
-     * @return              OutputFormat, or an exception about a bad type
+    private static final class CustomParquetWriterBuilder
+            extends ParquetWriter.Builder<Object[], CustomParquetWriterBuilder> {
+        private final CustomWriterSupport customWriterSupport;
+
+        private CustomParquetWriterBuilder(final Path path, final CustomWriterSupport customWriterSupport) {
+            super(path);
+            this.customWriterSupport = customWriterSupport;
+        }
+
+        private CustomParquetWriterBuilder(final OutputFile file, final CustomWriterSupport customWriterSupport) {
+            super(file);
+            this.customWriterSupport = customWriterSupport;
+        }
+
+        @Override
+        protected CustomParquetWriterBuilder self() {
+            return this;
+        }
+
+        @Override
+        protected WriteSupport<Object[]> getWriteSupport(org.apache.hadoop.conf.Configuration conf) {
+            return customWriterSupport;
+        }
+    }
+
+    /**
+     * A local file written through a {@link LimitedOutputStream}, for Parquet.  Unlike Hadoop's local file system,
+     * it doesn't write a checksum file next to it.
      */
-    private static OutputFormat getOutputFormat(final Map<String, Object> document) {
-        final String fmt = (String) document.get("format");
-        if (fmt == null) {
-            System.out.println("no format found, defaulting to PARQUET");
-            return OutputFormat.PARQUET;
+    private static final class LimitedOutputFile implements OutputFile {
+        private final File file;
+        private final Semaphore ioPermits;
+
+        private LimitedOutputFile(final File file, final Semaphore ioPermits) {
+            this.file = file;
+            this.ioPermits = ioPermits;
         }
 
-        try {
-            return Enum.valueOf(OutputFormat.class, fmt);
-        } catch (IllegalArgumentException ex) {
-            throw new IllegalArgumentException(String.format("unrecognized output format \"%s\"", fmt));
+        @Override
+        public PositionOutputStream create(final long blockSizeHint) throws IOException {
+            if (file.exists()) {
+                throw new FileAlreadyExistsException(file.getPath());
+            }
+            return createOrOverwrite(blockSizeHint);
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(final long blockSizeHint) throws IOException {
+            return new LimitedOutputStream(new FileOutputStream(file), ioPermits, CSV_BUFFER_SIZE);
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
         }
     }
 
@@ -92,6 +155,10 @@ public class DataGen {
             case PARQUET:
                 extension = "parquet";
                 break;
+            case FLIGHT:
+                // never written, but names the statistics and metrics
+                extension = "flight";
+                break;
             default:
                 throw new IllegalStateException("unrecognized format " + format);
         }
@@ -103,44 +170,72 @@ public class DataGen {
      * the generators and then closes the file.
      *
      * @param outputFileName  Filename to write output to.
+     * @param compression     Codec to compress the column chunks with.
      * @param columns         Column names for the columns we expect to write.
      * @param generators      Array of generators, one for each column we expect to write.
+     * @param order           Indices of the columns, in the order their values are generated for each row.
+     * @param data            Array the generators were bound to, that holds the values of a row.
+     * @param maxRows         Maximum number of rows to generate, or -1 to exhaust the generators.
+     * @param stats           Statistics to add the rows to, or null.
+     * @param metrics         Metrics to time the stages with, or null.
+     * @param scheduler       Scheduler running this generation along with others, or null.
+     * @return                Number of rows written.
      * @throws IOException
      */
-    private static void generateParquet(
+    private static long generateParquet(
             final String outputFileName,
+            final CompressionCodecName compression,
             final String[] columns,
-            final DataGenerator[] generators) throws IOException {
+            final DataGenerator[] generators,
+            final int[] order,
+            final Object[] data,
+            final long maxRows,
+            final GenerationStatistics stats,
+            final GenerationMetrics metrics,
+            final GenerationScheduler scheduler) throws IOException {
 
         // build typed Parquet structure
         // need a MessageTypeBuilder so we can create the protobuf type that Parquet uses
         Types.MessageTypeBuilder builder = org.apache.parquet.schema.Types.buildMessage();
         for (int i = 0; i < columns.length; ++i) {
-            builder.addField(DataGenerator.parquetTypeFromJSONType(generators[i].getColumnType(), columns[i]));
+            builder.addField(generators[i].getParquetType(columns[i]));
         }
 
         MessageType mt = builder.named("MyMessage");
 
         final CustomWriterSupport customWriterSupport = new CustomWriterSupport(mt);
-        ParquetWriter<Object[]> pqw2 = getParquetWriter(outputFileName, customWriterSupport);
+        ParquetWriter<Object[]> pqw2 = getParquetWriter(outputFileName, customWriterSupport, compression,
+                scheduler != null ? scheduler.getIoPermits() : null);
+        if (metrics != null) {
+            customWriterSupport.setMetrics(metrics);
+            metrics.setByteCounter(pqw2::getDataSize);
+        }
 
-        final Object[] data = new Object[columns.length];
-        boolean more = true;
-        int row = 0;
+        final Iterator<Object>[] iterators = getIterators(generators);
+        final Iterator<Object>[] drivers = getDrivingIterators(columns, generators, iterators, maxRows);
+        long row = 0;
         try {
-            while (more) {
+            while ((maxRows < 0 || row < maxRows) && hasNextRow(drivers)) {
+                if (scheduler != null) {
+                    checkPause(scheduler, row, metrics);
+                }
                 ++row;
-                for (int i = 0; i < columns.length; ++i) {
-                    final DataGenerator dg = generators[i];
-                    final Iterator<Object> iter = dg.getIterator();
-                    if (!iter.hasNext()) {
-                        more = false;
-                        break;
+                final boolean timed = metrics != null && metrics.startRow();
+                for (final int i : order) {
+                    data[i] = iterators[i].next();
+                    if (timed) {
+                        metrics.columnDone(i);
+                    }
+                }
+                if (stats != null) {
+                    stats.addRow(data);
+                    if (timed) {
+                        metrics.statisticsDone();
                     }
-                    data[i] = iter.next();
                 }
-                if (more) {
-                    pqw2.write(data);
+                pqw2.write(data);
+                if (timed) {
+                    metrics.writeDone();
                 }
             }
         } catch (Exception ex) {
@@ -148,59 +243,302 @@ public class DataGen {
             throw new RuntimeException(String.format("Failure while generating at row %d", row), ex);
         }
 
+        final long closeStart = System.nanoTime();
         customWriterSupport.flush();
         pqw2.close();
+        if (metrics != null) {
+            metrics.addCloseNanos(System.nanoTime() - closeStart);
+        }
+        return row;
     }
 
     /***
      * Generates a CSV file from the list of generators. This function will exhaust the
-     * generators. Also writes a header at the first row, using the column names.
+     * generators. Also writes a header at the first row, using the column names, unless the dialect says not to.
      *
-     * @param outputFile    A {@FileWriter} where we will write to.
+     * @param outputFile    A {@Writer} where we will write to.
+     * @param dialect       How to delimit, quote and escape fields.
      * @param columns       Column names for the columns we expect to write.
      * @param generators    Array of generators, one for each column we expect to write.
+     * @param order         Indices of the columns, in the order their values are generated for each row.
+     * @param data          Array the generators were bound to, that holds the values of a row.
+     * @param maxRows       Maximum number of rows to generate, or -1 to exhaust the generators.
+     * @param stats         Statistics to add the rows to, or null.
+     * @param metrics       Metrics to time the stages with, or null.
+     * @param scheduler     Scheduler running this generation along with others, or null.
+     * @return              Number of rows written.
      */
-    private static void generateCSV(
-            final FileWriter outputFile,
+    private static long generateCSV(
+            final Writer outputFile,
+            final CsvDialect dialect,
             final String[] columns,
-            final DataGenerator[] generators
+            final DataGenerator[] generators,
+            final int[] order,
+            final Object[] data,
+            final long maxRows,
+            final GenerationStatistics stats,
+            final GenerationMetrics metrics,
+            final GenerationScheduler scheduler
     ) throws IOException {
 
-        StringBuilder headerBuilder = new StringBuilder();
+        final char delimiter = dialect.getDelimiter();
+        final String lineEnding = dialect.getLineEnding();
+        if (dialect.hasBom()) {
+            outputFile.write('\uFEFF');
+        }
+        if (dialect.hasHeader()) {
+            StringBuilder headerBuilder = new StringBuilder();
+            for (int i = 0; i < columns.length; ++i) {
+                if (i != 0) {
+                    headerBuilder.append(delimiter);
+                }
+
+                dialect.appendName(headerBuilder, columns[i]);
+            }
+            outputFile.write(headerBuilder.toString());
+            outputFile.write(lineEnding);
+        }
+
+        final Iterator<Object>[] iterators = getIterators(generators);
+        final Iterator<Object>[] drivers = getDrivingIterators(columns, generators, iterators, maxRows);
+        final StringBuilder rowBuilder = new StringBuilder();
+        char[] chars = new char[256];
+        long row = 0;
+        for (; (maxRows < 0 || row < maxRows) && hasNextRow(drivers); ++row) {
+            if (scheduler != null) {
+                checkPause(scheduler, row, metrics);
+            }
+            final boolean timed = metrics != null && metrics.startRow();
+            for (final int i : order) {
+                data[i] = iterators[i].next();
+                if (timed) {
+                    metrics.columnDone(i);
+                }
+            }
+            if (stats != null) {
+                stats.addRow(data);
+                if (timed) {
+                    metrics.statisticsDone();
+                }
+            }
+            rowBuilder.setLength(0);
+            for (int i = 0; i < data.length; ++i) {
+                if (i != 0) {
+                    rowBuilder.append(delimiter);
+                }
+                dialect.appendField(rowBuilder, data[i]);
+            }
+            rowBuilder.append(lineEnding);
+            // copy out the row instead of making a String of it
+            final int length = rowBuilder.length();
+            if (chars.length < length) {
+                chars = new char[Math.max(length, 2 * chars.length)];
+            }
+            rowBuilder.getChars(0, length, chars, 0);
+            outputFile.write(chars, 0, length);
+            if (metrics != null) {
+                // characters, which is close enough to bytes for progress messages
+                metrics.addBytes(length);
+                if (timed) {
+                    metrics.writeDone();
+                }
+            }
+        }
+        return row;
+    }
+
+    /***
+     * Generates rows in batches of columns for a consumer, which may upload them somewhere.  This function will
+     * exhaust the generators.
+     *
+     * @param generation    The generation file, with generators that haven't produced values yet.
+     * @param maxRows       Maximum number of rows to generate, or -1 to exhaust the generators.
+     * @param stats         Statistics to add the rows to, or null.
+     * @param metrics       Metrics to time the stages with, or null.
+     * @param consumer      Where the batches go.
+     * @return              Number of rows generated.
+     * @throws IOException
+     */
+    static long generateBatches(
+            final GeneratorFile generation,
+            final long maxRows,
+            final GenerationStatistics stats,
+            final GenerationMetrics metrics,
+            final RowBatchConsumer consumer) throws IOException {
+
+        final String[] columns = generation.columns;
+        final Object[] data = generation.data;
+        final Class<?>[] types = new Class<?>[columns.length];
         for (int i = 0; i < columns.length; ++i) {
-            if (i != 0) {
-                headerBuilder.append(',');
+            types[i] = getBatchType(columns[i], generation.generators[i]);
+        }
+        consumer.start(generation.variable, columns, types);
+
+        final long rowCount = generation.getRowCount();
+        final int batchRows = rowCount >= 0 && rowCount < UPLOAD_BATCH_ROWS ? (int) Math.max(1, rowCount) : UPLOAD_BATCH_ROWS;
+        final Object[][] values = new Object[columns.length][batchRows];
+        final Iterator<Object>[] iterators = getIterators(generation.generators);
+        final Iterator<Object>[] drivers = getDrivingIterators(columns, generation.generators, iterators, maxRows);
+        int batched = 0;
+        long row = 0;
+        for (; (maxRows < 0 || row < maxRows) && hasNextRow(drivers); ++row) {
+            final boolean timed = metrics != null && metrics.startRow();
+            for (final int i : generation.order) {
+                data[i] = iterators[i].next();
+                if (timed) {
+                    metrics.columnDone(i);
+                }
+            }
+            if (stats != null) {
+                stats.addRow(data);
+                if (timed) {
+                    metrics.statisticsDone();
+                }
+            }
+            for (int i = 0; i < data.length; ++i) {
+                values[i][batched] = getBatchValue(data[i], types[i]);
+            }
+            if (timed) {
+                metrics.writeDone();
             }
+            if (++batched == batchRows) {
+                sendBatch(consumer, values, batched, metrics);
+                batched = 0;
+            }
+        }
+        if (batched > 0) {
+            sendBatch(consumer, values, batched, metrics);
+        }
+        final long finishStart = System.nanoTime();
+        consumer.finish(row);
+        if (metrics != null) {
+            metrics.addCloseNanos(System.nanoTime() - finishStart);
+        }
+        return row;
+    }
 
-            headerBuilder.append(columns[i]);
+    private static void sendBatch(
+            final RowBatchConsumer consumer,
+            final Object[][] values,
+            final int rows,
+            final GenerationMetrics metrics) throws IOException {
+        final long start = System.nanoTime();
+        consumer.batch(values, rows);
+        if (metrics != null) {
+            metrics.addUploadNanos(System.nanoTime() - start);
         }
-        outputFile.write(headerBuilder.toString());
-        outputFile.append('\n');
+    }
 
-        for (boolean more = true; more; /* inside */ ) {
-            final StringBuilder rowBuilder = new StringBuilder();
-            for (int i = 0; i < columns.length; ++i) {
-                final DataGenerator gen = generators[i];
+    /**
+     * Tells the class of the values a column hands to a {@link RowBatchConsumer}.
+     */
+    private static Class<?> getBatchType(final String column, final DataGenerator generator) {
+        if (generator instanceof ArrayGenerator) {
+            throw new IllegalArgumentException(String.format("%s: array columns can't be uploaded", column));
+        }
+        switch (generator.getColumnType()) {
+            case BOOLEAN:
+                return Boolean.class;
+            case INT8:
+                return Byte.class;
+            case INT16:
+                return Short.class;
+            case INT32:
+                return Integer.class;
+            case INT64:
+                return Long.class;
+            case FLOAT:
+                return Float.class;
+            case DOUBLE:
+                return Double.class;
+            case STRING:
+                return String.class;
+            case TIMESTAMP_NANOS:
+                return Instant.class;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: columns of type %s can't be uploaded", column, generator.getColumnType()));
+        }
+    }
 
-                if (!gen.getIterator().hasNext()) {
-                    more = false;
-                    break;
-                }
+    /**
+     * Converts a generated value to the class of its column; see {@link #getBatchType}.
+     */
+    private static Object getBatchValue(final Object value, final Class<?> type) {
+        if (value == null || type.isInstance(value)) {
+            return value;
+        }
+        if (type == Instant.class) {
+            final long nanos = value instanceof DataGenerator.UnixTimestampNanos
+                    ? ((DataGenerator.UnixTimestampNanos) value).nanos
+                    : ((Number) value).longValue();
+            return Instant.ofEpochSecond(0, nanos);
+        }
+        if (type == String.class) {
+            // copies reusable buffers, since the batch outlives the row
+            return value.toString();
+        }
+        if (type == Long.class) {
+            return ((Number) value).longValue();
+        }
+        if (type == Double.class) {
+            return ((Number) value).doubleValue();
+        }
+        throw new IllegalStateException(String.format("can't upload a %s as a %s",
+                value.getClass().getSimpleName(), type.getSimpleName()));
+    }
 
-                final Object val = gen.getIterator().next();
-                if (i != 0) {
-                    rowBuilder.append(',');
-                }
+    private static Iterator<Object>[] getIterators(final DataGenerator[] generators) {
+        final Iterator<Object>[] iterators = new Iterator[generators.length];
+        for (int i = 0; i < generators.length; ++i) {
+            iterators[i] = generators[i].getIterator();
+        }
+        return iterators;
+    }
 
-                if (val != null)
-                    rowBuilder.append(val);
+    /**
+     * Gets the iterators of the generators that may run out; those drive how many rows get generated,
+     * and only they need to be checked for every row.  There may be none if the number of rows is given.
+     */
+    private static Iterator<Object>[] getDrivingIterators(
+            final String[] columns,
+            final DataGenerator[] generators,
+            final Iterator<Object>[] iterators,
+            final long maxRows) {
+        final List<Iterator<Object>> drivers = new ArrayList<>();
+        for (int i = 0; i < generators.length; ++i) {
+            if (!generators[i].isUnbounded()) {
+                drivers.add(iterators[i]);
             }
+        }
+        if (drivers.isEmpty() && maxRows < 0) {
+            throw new IllegalArgumentException("None of the columns " + Arrays.toString(columns) +
+                    " has a finite length to drive generation, and \"rows\" isn't given");
+        }
+        return drivers.toArray(new Iterator[0]);
+    }
+
+    /**
+     * Waits while the scheduler has generation paused, checking once in {@link #PAUSE_CHECK_INTERVAL} rows.
+     */
+    private static void checkPause(final GenerationScheduler scheduler, final long row, final GenerationMetrics metrics)
+            throws IOException {
+        if ((row & (PAUSE_CHECK_INTERVAL - 1)) != 0) {
+            return;
+        }
+        final long pausedNanos = scheduler.awaitResumed();
+        if (metrics != null && pausedNanos > 0) {
+            metrics.addPausedNanos(pausedNanos);
+        }
+    }
 
-            if (more) {
-                outputFile.write(rowBuilder.toString());
-                outputFile.append('\n');
+    private static boolean hasNextRow(final Iterator<Object>[] drivers) {
+        for (final Iterator<Object> driver : drivers) {
+            if (!driver.hasNext()) {
+                return false;
             }
         }
+        return true;
     }
 
     /** Strip any extension and base directory. */
@@ -221,27 +559,55 @@ public class DataGen {
      * @oaram outputPrefixPath           Base directory for generated data.
      * @param dir                        A directory relative to which interpret the generatorFilename.
      * @param generatorFilename          String with the generatorFilename to be read
+     * @return                           The name of the output file, whether it was generated now or before
      * @throws IOException
      * @throws ParseException
      */
-    public static void generateData(
+    public static String generateData(
             final String outputPrefixPath,
             final File dir,
             final String generatorFilename
     ) throws IOException, ParseException {
-        final File generatorFile;
+        return generateData(outputPrefixPath, dir, generatorFilename, null);
+    }
+
+    /**
+     * Finds a generator file the way {@link #generateData} does.
+     *
+     * @param dir                        A directory relative to which interpret the generatorFilename.
+     * @param generatorFilename          String with the generatorFilename to be read
+     * @return                           The generator file
+     */
+    static File locateGeneratorFile(final File dir, final String generatorFilename) {
         if (!generatorFilename.startsWith(File.separator)) {
-            generatorFile = Utils.locateFile(dir, generatorFilename);
-        } else {
-            generatorFile = new File(generatorFilename);
-            if (!generatorFile.exists()) {
-                throw new IllegalArgumentException("Generator file \"" + generatorFilename + "\" doesn't exist");
-            }
+            return Utils.locateFile(dir, generatorFilename);
+        }
+        final File generatorFile = new File(generatorFilename);
+        if (!generatorFile.exists()) {
+            throw new IllegalArgumentException("Generator file \"" + generatorFilename + "\" doesn't exist");
+        }
+        return generatorFile;
+    }
+
+    /**
+     * Generates test data like {@link #generateData(String, File, String)}, as one of several generations running
+     * at the same time.
+     *
+     * @param scheduler                  The scheduler running the generations, that limits their heap and
+     *                                   disk use, or null if this is the only one.
+     */
+    static String generateData(
+            final String outputPrefixPath,
+            final File dir,
+            final String generatorFilename,
+            final GenerationScheduler scheduler
+    ) throws IOException, ParseException {
+        final File generatorFile = locateGeneratorFile(dir, generatorFilename);
+        final OutputFormat format = GeneratorFile.readFormat(generatorFile);
+        if (format == OutputFormat.FLIGHT) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: format FLIGHT is uploaded with uploadData, not generated to a file", generatorFilename));
         }
-        // get the JSON file root object as a map of column names to JSON objects
-        final JSONObject jsonMap = (JSONObject) new JSONParser().parse(new FileReader(generatorFile));
-        final Map<String, Object> documentDictionary = (Map<String, Object>) jsonMap;
-        final OutputFormat format = getOutputFormat(documentDictionary);
         final String outputFilename = getOutputFilename(outputPrefixPath, generatorFilename, format);
 
         if (!FORCE_GENERATION) {
@@ -249,66 +615,200 @@ public class DataGen {
             if (outputFile.exists() && outputFile.lastModified() > generatorFile.lastModified()) {
                 System.out.println("Not generating " + outputFile.getAbsolutePath() +
                         " since it exists and is older than " + generatorFile.getAbsolutePath());
-                return;
+                return outputFilename;
             }
         }
-        System.out.println("Generating " + outputFilename + ".");
 
-        final Object columnsObject = documentDictionary.get("columns");
-        final Map<String, Object> columnDictionary;
-        final String[] columns;
-        if (columnsObject instanceof Map) {
-            columnDictionary = (Map<String, Object>) columnsObject;
-            columns = columnDictionary.keySet().toArray(new String[columnDictionary.size()]);
-        } else if (columnsObject instanceof List) {
-            final List<Object> columnList = (List) columnsObject;
-            columnDictionary = new HashMap<>();
-            columns = new String[columnList.size()];
-            int i = 0;
-            for (Object element : columnList) {
-                final JSONObject jo = (JSONObject) element;
-                final String column = Utils.getStringElementValue("name", jo);
-                columns[i++] = column;
-                columnDictionary.put(column, jo);
+        // fail now rather than hours in, if the estimates go over the budgets
+        GenerationPlanner.checkBudgets(generatorFile, generatorFilename);
+
+        System.out.println("Generating " + outputFilename + ".");
+        final long setupStart = System.nanoTime();
+        final GeneratorFile generation = GeneratorFile.read(generatorFile);
+        final double setupSeconds = (System.nanoTime() - setupStart) / 1e9;
+        final long heapBytes = scheduler != null ? GenerationPlanner.estimateHeapBytes(generation) : 0;
+        if (scheduler != null) {
+            scheduler.reserveHeap(outputFilename, heapBytes);
+        }
+        try {
+            generateFile(outputFilename, generation, setupSeconds, scheduler, null);
+        } finally {
+            if (scheduler != null) {
+                scheduler.releaseHeap(heapBytes);
             }
-        } else {
-            throw new IllegalArgumentException(
-                    "element \"columns\" has the wrong type: " + columnsObject.getClass().getSimpleName());
         }
+        return outputFilename;
+    }
 
-        // map from string (name of column) to our io.deephaven.datagen.DataGenerator-derived objects
-        final DataGenerator[] generators = new DataGenerator[columns.length];
+    /**
+     * Tells whether a generation file is uploaded with {@link #uploadData} rather than generated to a file with
+     * {@link #generateData(String, File, String)}.
+     *
+     * @param dir                        A directory relative to which interpret the generatorFilename.
+     * @param generatorFilename          String with the generatorFilename to be read
+     * @return                           true for format FLIGHT
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static boolean isUpload(final File dir, final String generatorFilename) throws IOException, ParseException {
+        return GeneratorFile.readFormat(locateGeneratorFile(dir, generatorFilename)) == OutputFormat.FLIGHT;
+    }
 
-        // for each entry in the JSON document ...
-        int i = 0;
-        for (final String column : columns) {
+    /**
+     * Generates the data of a generation file of format FLIGHT and hands it in batches to a consumer, which uploads
+     * it to the server and binds it to the file's {@code "variable"}.  Nothing is kept, so the data is generated
+     * again each time.  The statistics and metrics are written like for a file named {@code <basename>.flight}
+     * in the outputPrefixPath.
+     *
+     * @param outputPrefixPath           Base directory for the statistics and metrics.
+     * @param dir                        A directory relative to which interpret the generatorFilename.
+     * @param generatorFilename          String with the generatorFilename to be read
+     * @param consumer                   Takes the rows.
+     * @return                           The name the statistics and metrics files are named after
+     * @throws IOException
+     * @throws ParseException
+     */
+    public static String uploadData(
+            final String outputPrefixPath,
+            final File dir,
+            final String generatorFilename,
+            final RowBatchConsumer consumer
+    ) throws IOException, ParseException {
+        final File generatorFile = locateGeneratorFile(dir, generatorFilename);
+        final OutputFormat format = GeneratorFile.readFormat(generatorFile);
+        if (format != OutputFormat.FLIGHT) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: format %s is generated to a file, not uploaded", generatorFilename, format));
+        }
+        GenerationPlanner.checkBudgets(generatorFile, generatorFilename);
 
-            // get the column name and the JSON object
-            final JSONObject jsonField = (JSONObject) columnDictionary.get(column);
+        final String outputFilename = getOutputFilename(outputPrefixPath, generatorFilename, format);
+        System.out.println("Uploading " + outputFilename + ".");
+        final long setupStart = System.nanoTime();
+        final GeneratorFile generation = GeneratorFile.read(generatorFile);
+        final double setupSeconds = (System.nanoTime() - setupStart) / 1e9;
+        generateFile(outputFilename, generation, setupSeconds, null, consumer);
+        return outputFilename;
+    }
 
-            // create that object and dump it into the map
-            final DataGenerator gen = DataGenerator.fromJson(column, jsonField);
-            generators[i++] = gen;
+    /**
+     * Generates a file, or uploads its rows, with its statistics and metrics next to where it would be.
+     *
+     * @param consumer  Takes the rows instead of the file, or null.
+     */
+    private static void generateFile(
+            final String outputFilename,
+            final GeneratorFile generation,
+            final double setupSeconds,
+            final GenerationScheduler scheduler,
+            final RowBatchConsumer consumer) throws IOException {
+
+        // statistics and metrics of a previous generation no longer apply
+        final File statsFile = new File(getStatisticsFilename(outputFilename));
+        if (statsFile.exists()) {
+            statsFile.delete();
+        }
+        final File metricsFile = new File(getMetricsFilename(outputFilename));
+        if (metricsFile.exists()) {
+            metricsFile.delete();
+        }
+        final GenerationStatistics stats = GENERATION_STATS
+                ? new GenerationStatistics(generation.columns, generation.generators)
+                : null;
+        final GenerationMetrics metrics = GENERATION_METRICS
+                ? new GenerationMetrics(outputFilename, generation.columns, generation.getRowCount(), setupSeconds)
+                : null;
+
+        if (consumer == null) {
+            generate(generation, outputFilename, generation.maxRows, stats, metrics, scheduler);
+        } else {
+            generateBatches(generation, generation.maxRows, stats, metrics, consumer);
         }
 
-        if (format == OutputFormat.PARQUET) {
-            generateParquet(outputFilename, columns, generators);
-        } else if (format == OutputFormat.CSV) {
+        if (stats != null) {
+            stats.write(statsFile.getPath(), outputFilename);
+        }
+        if (metrics != null) {
+            // an upload has no file, and File.length() is 0 then
+            metrics.finish(new File(outputFilename).length());
+            metrics.print();
+            metrics.write(metricsFile.getPath(), outputFilename, generation.format);
+        }
+    }
 
-            final FileWriter outputFile;
+    /**
+     * Writes the rows of a generation file in its format.
+     *
+     * @param generation        The generation file, with generators that haven't produced values yet.
+     * @param outputFilename    Filename to write output to.
+     * @param maxRows           Maximum number of rows to generate, or -1 to exhaust the generators.
+     * @param stats             Statistics to add the rows to, or null.
+     * @param metrics           Metrics to time the stages with, or null.
+     * @param scheduler         Scheduler running this generation along with others, or null if it runs alone.
+     * @return                  The number of rows written.
+     * @throws IOException
+     */
+    static long generate(
+            final GeneratorFile generation,
+            final String outputFilename,
+            final long maxRows,
+            final GenerationStatistics stats,
+            final GenerationMetrics metrics,
+            final GenerationScheduler scheduler) throws IOException {
+        if (generation.format == OutputFormat.PARQUET) {
+            return generateParquet(outputFilename, generation.compression, generation.columns, generation.generators,
+                    generation.order, generation.data, maxRows, stats, metrics, scheduler);
+        } else if (generation.format == OutputFormat.CSV) {
+
+            final CsvDialect dialect = CsvDialect.fromJson(generation.csv);
+            final Writer outputFile;
             try {
-                outputFile = new FileWriter(outputFilename);
+                // always UTF-8, whatever the platform's default
+                final OutputStream stream = scheduler == null
+                        ? new FileOutputStream(outputFilename)
+                        : new LimitedOutputStream(new FileOutputStream(outputFilename), scheduler.getIoPermits(), CSV_BUFFER_SIZE);
+                outputFile = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), CSV_BUFFER_SIZE);
             } catch (IOException ex) {
                 String err = String.format("Couldn't create output file: %s\n", ex);
                 System.err.printf(err);
                 throw new InternalError(err);
             }
 
-            generateCSV(outputFile, columns, generators);
+            final long rows = generateCSV(outputFile, dialect, generation.columns, generation.generators,
+                    generation.order, generation.data, maxRows, stats, metrics, scheduler);
+            final long closeStart = System.nanoTime();
             outputFile.close();
+            if (metrics != null) {
+                metrics.addCloseNanos(System.nanoTime() - closeStart);
+            }
+            return rows;
         } else {
-            throw new InternalError(String.format("Not ready to handle format %s", format));
+            throw new InternalError(String.format("Not ready to handle format %s", generation.format));
         }
     }
 
+    /**
+     * Names the file with the statistics of a generated file: row count, and per column null count, minimum,
+     * maximum and distinct count estimate.  It's written along with the generated file, unless the java property
+     * {@code generation.stats} is false.
+     *
+     * @param outputFilename    name of the generated file
+     * @return                  name of its statistics file
+     */
+    public static String getStatisticsFilename(final String outputFilename) {
+        return outputFilename + ".stats.json";
+    }
+
+    /**
+     * Names the file with the metrics of a generated file: rows and bytes per second, time per row of each
+     * column's generator, time in each stage and in garbage collection.  It's written along with the generated
+     * file, unless the java property {@code generation.metrics} is false.
+     *
+     * @param outputFilename    name of the generated file
+     * @return                  name of its metrics file
+     */
+    public static String getMetricsFilename(final String outputFilename) {
+        return outputFilename + ".metrics.json";
+    }
+
 }
@@ -1,15 +1,20 @@
 package io.deephaven.datagen;
 
+import io.deephaven.datagen.TypeConversionDataGeneratorAdapter.Source;
 import org.apache.parquet.schema.LogicalTypeAnnotation;
 import org.apache.parquet.schema.PrimitiveType;
 import org.apache.parquet.schema.Type;
 import org.apache.parquet.schema.Types;
 import org.json.simple.JSONObject;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.time.format.DateTimeFormatter;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 /**
  * DataGenerator implements a partial interface for data generator objects. These objects
@@ -36,18 +41,81 @@ public abstract class DataGenerator {
         INT32,
         INT64,
         TIMESTAMP_NANOS,
+        BOOLEAN,
+        INT8,
+        INT16,
+        FLOAT,
+        DATE,
+        DECIMAL,
+        FIXED_BINARY,
     };
 
+    /** Precision and scale used for DECIMAL columns that don't specify them. */
+    static final int DEFAULT_DECIMAL_PRECISION = 18;
+    static final int DEFAULT_DECIMAL_SCALE = 2;
+
     public static final class UnixTimestampNanos {
         final long nanos;
         public UnixTimestampNanos(final long nanos) {
             this.nanos = nanos;
         }
         @Override public String toString() {
-            return DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(Instant.ofEpochSecond(0, nanos));
+            return DateTimeFormatter.ISO_INSTANT.format(Instant.ofEpochSecond(0, nanos));
+        }
+    }
+
+    public static final class FixedBinary {
+        final byte[] bytes;
+        public FixedBinary(final byte[] bytes) {
+            this.bytes = bytes;
+        }
+        @Override public String toString() {
+            final StringBuilder sb = new StringBuilder(2 * bytes.length);
+            for (final byte b : bytes) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
         }
     }
 
+    /**
+     * A reusable buffer holding the bytes of an ASCII string.  Generators that return one keep overwriting it,
+     * so it is only valid until the next value is produced; use {@link #detach(Object)} to keep a value around.
+     */
+    public static final class AsciiStringBuffer implements CharSequence {
+        final byte[] bytes;
+        int length;
+        public AsciiStringBuffer(final int capacity) {
+            this.bytes = new byte[capacity];
+        }
+        @Override public int length() {
+            return length;
+        }
+        @Override public char charAt(final int index) {
+            return (char) bytes[index];
+        }
+        @Override public CharSequence subSequence(final int start, final int end) {
+            return toString().substring(start, end);
+        }
+        @Override public String toString() {
+            return new String(bytes, 0, length, StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * Makes a copy of a generated value if it is a reusable buffer, so it remains valid after the next value
+     * is produced.
+     *
+     * @param value     a value produced by a generator
+     * @return          a value that is safe to keep
+     */
+    static Object detach(final Object value) {
+        if (value instanceof AsciiStringBuffer) {
+            return value.toString();
+        }
+        return value;
+    }
+
     final protected ColumnType columnType;
 
     /**
@@ -67,28 +135,71 @@ public abstract class DataGenerator {
 
         switch (generation_type.toLowerCase(Locale.ROOT)) {
             case "full_range":
-                return FullRangeGenerator.fromJson(fieldName, jo);
+                return fromJsonConverting(fieldName, jo, Source.GENERATED, FullRangeGenerator::fromJson);
 
             case "selection":
-                return SelectionGenerator.fromJson(fieldName, jo);
+                return fromJsonConverting(fieldName, jo, Source.LIST, SelectionGenerator::fromJson);
 
             case "random":
-                return RandomGenerator.fromJson(fieldName, jo);
+                return fromJsonConverting(fieldName, jo, Source.GENERATED, RandomGenerator::fromJson);
 
             case "file":
-                return ExplicitListGenerator.fromJsonFileGenerator(fieldName, jo);
+                return fromJsonConverting(fieldName, jo, Source.LIST, ExplicitListGenerator::fromJsonFileGenerator);
 
             case "list":
-                return ExplicitListGenerator.fromJsonListGenerator(fieldName, jo);
+                return fromJsonConverting(fieldName, jo, Source.LIST, ExplicitListGenerator::fromJsonListGenerator);
 
             case "id":
-                return IDGenerator.fromJson(fieldName, jo);
+                return fromJsonConverting(fieldName, jo, Source.INTEGERS, IDGenerator::fromJson);
+
+            case "array":
+                return ArrayGenerator.fromJson(fieldName, jo);
+
+            case "random_string":
+                return RandomStringGenerator.fromJson(fieldName, jo);
+
+            case "parquet_source":
+                return ParquetSourceGenerator.fromJson(fieldName, jo);
+
+            case "expression":
+                return fromJsonConverting(fieldName, jo, Source.GENERATED, ExpressionGenerator::fromJson);
 
             default:
                 throw new IllegalArgumentException(String.format("%s: Unexpected generation_type of %s", fieldName, generation_type));
         }
     }
 
+    /**
+     * Creates a generator for a column type that the generator behind {@code factory} may not produce
+     * directly.  In that case, a generator for a "carrier" type is created, and its values are converted
+     * to the requested type as they are produced; see {@link TypeConversionDataGeneratorAdapter}.
+     *
+     * @param fieldName     String naming of this field
+     * @param jo            JSONObject containing the JSON representation we'll consume
+     * @param source        what the generator can produce: doubles too, integers only, or values parsed from a list
+     * @param factory       creates the generator from a JSON representation
+     * @return              an initialized DataGenerator
+     */
+    private static DataGenerator fromJsonConverting(
+            final String fieldName,
+            final JSONObject jo,
+            final Source source,
+            final BiFunction<String, JSONObject, DataGenerator> factory) {
+        final String type = (String) jo.get("type");
+        if (type == null) {
+            return factory.apply(fieldName, jo);
+        }
+        final ColumnType columnType = Enum.valueOf(ColumnType.class, type);
+        final ColumnType carrierType = TypeConversionDataGeneratorAdapter.carrierType(columnType, jo, source);
+        if (carrierType == null) {
+            return factory.apply(fieldName, jo);
+        }
+        final JSONObject carrierJo = new JSONObject();
+        carrierJo.putAll(jo);
+        carrierJo.put("type", carrierType.name());
+        return TypeConversionDataGeneratorAdapter.fromJson(fieldName, jo, columnType, factory.apply(fieldName, carrierJo));
+    }
+
     /**
      * Helper to get the column type from JSON
      *
@@ -116,6 +227,23 @@ public abstract class DataGenerator {
      * @return              Parquet Type corresponding to the provided ColumnType
      */
     static public Type parquetTypeFromJSONType(final ColumnType columnType, final String columnName) {
+        if (columnType == ColumnType.FIXED_BINARY) {
+            throw new IllegalArgumentException(columnName + ": FIXED_BINARY columns need a length");
+        }
+        return parquetTypeFromJSONType(columnType, columnName, DEFAULT_DECIMAL_PRECISION, DEFAULT_DECIMAL_SCALE);
+    }
+
+    /**
+     * Helper to convert from one of our types to a Parquet Type, for types that take parameters.
+     *
+     * @param columnType    ColumnType enum for this field
+     * @param columnName    String with the name of this field; just for error messages
+     * @param precision     precision for DECIMAL columns; ignored for other types
+     * @param scaleOrLength scale for DECIMAL columns, or length in bytes for FIXED_BINARY columns
+     * @return              Parquet Type corresponding to the provided ColumnType
+     */
+    static public Type parquetTypeFromJSONType(
+            final ColumnType columnType, final String columnName, final int precision, final int scaleOrLength) {
         switch (columnType) {
             case DOUBLE:
                 return Types.optional(PrimitiveType.PrimitiveTypeName.DOUBLE).named(columnName);
@@ -132,6 +260,30 @@ public abstract class DataGenerator {
                         .as(LogicalTypeAnnotation.TimestampLogicalTypeAnnotation.timestampType(
                                 true, LogicalTypeAnnotation.TimeUnit.NANOS))
                         .named(columnName);
+            case BOOLEAN:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.BOOLEAN).named(columnName);
+            case INT8:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.INT32)
+                        .as(LogicalTypeAnnotation.intType(8, true))
+                        .named(columnName);
+            case INT16:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.INT32)
+                        .as(LogicalTypeAnnotation.intType(16, true))
+                        .named(columnName);
+            case FLOAT:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.FLOAT).named(columnName);
+            case DATE:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.INT32)
+                        .as(LogicalTypeAnnotation.dateType())
+                        .named(columnName);
+            case DECIMAL:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.INT64)
+                        .as(LogicalTypeAnnotation.decimalType(scaleOrLength, precision))
+                        .named(columnName);
+            case FIXED_BINARY:
+                return Types.optional(PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY)
+                        .length(scaleOrLength)
+                        .named(columnName);
             default:
                 throw new IllegalArgumentException("need to add support for ColumnType." + columnType);
         }
@@ -141,6 +293,68 @@ public abstract class DataGenerator {
         return columnType;
     }
 
+    /**
+     * Gets the Parquet type for the column this generator produces.
+     *
+     * @param columnName    String with the name of this field
+     * @return              Parquet Type for the column
+     */
+    public Type getParquetType(final String columnName) {
+        return parquetTypeFromJSONType(columnType, columnName);
+    }
+
+    /**
+     * Tells whether this generator never runs out of values.  Unbounded generators don't decide how many
+     * rows get generated, so their iterators need not be checked for every row.
+     *
+     * @return  true if the iterator's {@code hasNext()} is always true
+     */
+    public boolean isUnbounded() {
+        return false;
+    }
+
+    /**
+     * Tells how many values a bounded generator produces before it runs out, if that can be known without
+     * producing them.
+     *
+     * @return  the number of values, or -1 if it's unknown or the generator is unbounded
+     */
+    public long getRowCount() {
+        return -1;
+    }
+
+    /**
+     * Estimates the heap this generator holds on to while it produces values, like the values of a source
+     * file or the deck of a shuffled range; the memory of a single value is not counted.  It's computed
+     * without producing values, so it can be checked before generation starts.
+     *
+     * @return  an estimate in bytes
+     */
+    public long getEstimatedHeapBytes() {
+        return 0;
+    }
+
+    /**
+     * Gets the names of the other columns this generator reads values from; those columns are
+     * generated first for each row.
+     *
+     * @return  Set of column names, empty for generators that don't depend on other columns
+     */
+    public Set<String> getReferencedColumns() {
+        return Collections.emptySet();
+    }
+
+    /**
+     * Gives the generator the row being generated, so it can read the values of the columns it references.
+     * Called once all the generators exist, before any values are produced.
+     *
+     * @param columns       Column names, in row order
+     * @param generators    Generators for each of the columns
+     * @param row           Array that holds the values of the current row while it is generated
+     */
+    public void bindColumns(final String[] columns, final DataGenerator[] generators, final Object[] row) {
+    }
+
     /**
      * Gets an Iterator for this generator that produces objects.
      *
@@ -0,0 +1,280 @@
+package io.deephaven.datagen;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Profiles a sample CSV or Parquet file and writes a generator file that produces data like it.
+ *
+ * The sample is read once, streaming; for each column we keep a {@link ColumnProfile} with a histogram,
+ * a distinct count sketch, the null fraction, how sorted the values are and the string lengths, and then pick
+ * the generation_type and distribution that fit best.  The statistics go in the generator file too,
+ * under "profile", which {@link DataGen} ignores.
+ *
+ * Usage: {@code DataProfiler [-n rows] [-k max_exact_values] [-s seed] [-f format] sample.(csv|parquet) generator.json}
+ */
+public class DataProfiler {
+
+    private static final String me = DataProfiler.class.getSimpleName();
+
+    private static final int DEFAULT_MAX_EXACT_VALUES = 1000;
+    private static final long DEFAULT_SEED = 8675309;
+
+    private static void usage() {
+        System.err.printf("Usage: %s [-n rows] [-k max_exact_values] [-s seed] [-f PARQUET|CSV] sample.(csv|parquet) generator.json\n", me);
+        System.err.printf("    -n rows              rows to generate; defaults to the rows in the sample\n");
+        System.err.printf("    -k max_exact_values  columns with up to this many distinct values pick from them (default %d)\n",
+                DEFAULT_MAX_EXACT_VALUES);
+        System.err.printf("    -s seed              seed for the first column; the others get the next ones (default %d)\n",
+                DEFAULT_SEED);
+        System.err.printf("    -f format            format of the file to generate (default PARQUET)\n");
+        System.exit(1);
+    }
+
+    public static void main(String[] args) {
+        long rows = -1;
+        int maxExactValues = DEFAULT_MAX_EXACT_VALUES;
+        long seed = DEFAULT_SEED;
+        String format = "PARQUET";
+
+        int argn = 0;
+        while (argn < args.length && args[argn].startsWith("-")) {
+            final String arg = args[argn++];
+            if (argn == args.length) {
+                usage();
+            }
+            try {
+                if ("-n".equals(arg)) {
+                    rows = Long.parseLong(args[argn++]);
+                } else if ("-k".equals(arg)) {
+                    maxExactValues = Integer.parseInt(args[argn++]);
+                } else if ("-s".equals(arg)) {
+                    seed = Long.parseLong(args[argn++]);
+                } else if ("-f".equals(arg)) {
+                    format = args[argn++].toUpperCase(Locale.ROOT);
+                } else {
+                    System.err.printf("%s: unknown option '%s'.\n", me, arg);
+                    usage();
+                }
+            } catch (NumberFormatException ex) {
+                System.err.printf("%s: '%s' is not a valid number for %s.\n", me, args[argn - 1], arg);
+                usage();
+            }
+        }
+        if (args.length - argn != 2 || !("PARQUET".equals(format) || "CSV".equals(format))) {
+            usage();
+        }
+        final String sampleFilename = args[argn++];
+        final String generatorFilename = args[argn];
+
+        try {
+            final List<ColumnProfile> profiles = sampleFilename.toLowerCase(Locale.ROOT).endsWith(".parquet")
+                    ? profileParquet(sampleFilename, maxExactValues)
+                    : profileCsv(sampleFilename, maxExactValues);
+            writeGeneratorFile(generatorFilename, sampleFilename, profiles, rows, seed, format);
+        } catch (IOException ex) {
+            System.err.printf("%s: couldn't profile \"%s\": %s\n", me, sampleFilename, ex);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Profiles the columns of a CSV file with a header line, as {@link DataGen} writes them.
+     * Fields can be quoted, with doubled quotes inside; empty fields are null.  Lines can end in CRLF, and
+     * a byte order mark is skipped.
+     *
+     * @param fileName          name of the CSV file
+     * @param maxExactValues    how many distinct values to count exactly per column
+     * @return                  a profile per column
+     * @throws IOException
+     */
+    static List<ColumnProfile> profileCsv(final String fileName, final int maxExactValues) throws IOException {
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(fileName), StandardCharsets.UTF_8), 1 << 16)) {
+            // skip a byte order mark
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+            final CsvTokenizer tokenizer = new CsvTokenizer(reader);
+            final List<String> fields = new ArrayList<>();
+            if (!tokenizer.readRecord(fields)) {
+                throw new IllegalArgumentException(String.format("%s: no header line", fileName));
+            }
+            final List<ColumnProfile> profiles = new ArrayList<>(fields.size());
+            for (final String name : fields) {
+                profiles.add(new ColumnProfile(name, null, 0, 0, maxExactValues));
+            }
+            long line = 1;
+            while (tokenizer.readRecord(fields)) {
+                ++line;
+                if (fields.size() == 1 && fields.get(0).isEmpty()) {
+                    // blank line
+                    continue;
+                }
+                if (fields.size() != profiles.size()) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s: record %d has %d fields, the header has %d", fileName, line, fields.size(), profiles.size()));
+                }
+                for (int i = 0; i < fields.size(); ++i) {
+                    profiles.get(i).addText(fields.get(i));
+                }
+            }
+            return profiles;
+        }
+    }
+
+    /** Splits CSV text into records, following RFC 4180 for quoted fields. */
+    private static class CsvTokenizer {
+        private final Reader reader;
+        private final StringBuilder field = new StringBuilder();
+
+        CsvTokenizer(final Reader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * Reads the fields of the next record.
+         *
+         * @param fields    cleared, then filled with the fields
+         * @return          false at the end of the input
+         * @throws IOException
+         */
+        boolean readRecord(final List<String> fields) throws IOException {
+            fields.clear();
+            field.setLength(0);
+            int c = reader.read();
+            if (c == -1) {
+                return false;
+            }
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw new IllegalArgumentException("unterminated quoted field at the end of the file");
+                    }
+                    if (c == '"') {
+                        c = reader.read();
+                        if (c != '"') {
+                            // closing quote; c is whatever follows it
+                            quoted = false;
+                            continue;
+                        }
+                    }
+                    field.append((char) c);
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == -1) {
+                    fields.add(field.toString());
+                    return true;
+                } else if (c == '\r') {
+                    c = reader.read();
+                    if (c != '\n') {
+                        throw new IllegalArgumentException("carriage return without a line feed outside quotes");
+                    }
+                    continue;
+                } else {
+                    field.append((char) c);
+                }
+                c = reader.read();
+            }
+        }
+    }
+
+    /**
+     * Profiles the flat columns of a Parquet file, one row group at a time.
+     *
+     * @param fileName          name of the Parquet file
+     * @param maxExactValues    how many distinct values to count exactly per column
+     * @return                  a profile per column
+     * @throws IOException
+     */
+    static List<ColumnProfile> profileParquet(final String fileName, final int maxExactValues) throws IOException {
+        final List<String> names = ParquetColumnReader.getColumnNames(fileName);
+        final List<ParquetColumnReader> readers = new ArrayList<>(names.size());
+        try {
+            final List<ColumnProfile> profiles = new ArrayList<>(names.size());
+            for (final String name : names) {
+                final ParquetColumnReader reader = ParquetColumnReader.open(fileName, name);
+                readers.add(reader);
+                profiles.add(new ColumnProfile(
+                        name, reader.getColumnType(), reader.getPrecision(), reader.getScaleOrLength(), maxExactValues));
+            }
+            if (readers.isEmpty()) {
+                return profiles;
+            }
+            final ParquetColumnReader.RowGroupCursor[] cursors = new ParquetColumnReader.RowGroupCursor[readers.size()];
+            for (int group = 0; group < readers.get(0).getRowGroupCount(); ++group) {
+                for (int i = 0; i < cursors.length; ++i) {
+                    cursors[i] = readers.get(i).readRowGroup(group);
+                }
+                // row by row, so the order statistics see the values as they are in the file
+                while (cursors[0].hasNext()) {
+                    for (int i = 0; i < cursors.length; ++i) {
+                        profiles.get(i).add(cursors[i].next());
+                    }
+                }
+            }
+            return profiles;
+        } finally {
+            for (final ParquetColumnReader reader : readers) {
+                reader.close();
+            }
+        }
+    }
+
+    private static void writeGeneratorFile(
+            final String generatorFilename,
+            final String sampleFilename,
+            final List<ColumnProfile> profiles,
+            final long rows,
+            final long seed,
+            final String format) throws IOException {
+        long sampleRows = 0;
+        // a list, since generator files are read into unordered maps
+        final List<Object> columns = new ArrayList<>(profiles.size());
+        final Map<String, Object> profile = new LinkedHashMap<>();
+        for (int i = 0; i < profiles.size(); ++i) {
+            final ColumnProfile columnProfile = profiles.get(i);
+            final Map<String, Object> summary = columnProfile.toSummary();
+            sampleRows = Long.parseLong((String) summary.get("rows"));
+            final long outputRows = rows < 0 ? sampleRows : rows;
+            final Map<String, Object> definition = columnProfile.toColumnDefinition(outputRows, seed + i);
+            columns.add(definition);
+            profile.put(columnProfile.getName(), summary);
+            System.out.printf("%s: %s %s %s\n", columnProfile.getName(), summary.get("type"),
+                    definition.get("generation_type"),
+                    definition.containsKey("distribution") ? definition.get("distribution") : "");
+        }
+
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put("format", format);
+        document.put("rows", Long.toString(rows < 0 ? sampleRows : rows));
+        document.put("columns", columns);
+        final Map<String, Object> source = new LinkedHashMap<>();
+        source.put("sample_file", sampleFilename);
+        source.put("columns", profile);
+        document.put("profile", source);
+
+        final StringBuilder sb = new StringBuilder();
+        Utils.appendJson(sb, document, 0);
+        sb.append('\n');
+        try (final FileWriter writer = new FileWriter(generatorFilename)) {
+            writer.write(sb.toString());
+        }
+        System.out.printf("Wrote %s.\n", generatorFilename);
+    }
+}
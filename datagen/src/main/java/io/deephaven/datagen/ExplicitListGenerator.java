@@ -77,6 +77,16 @@ public class ExplicitListGenerator extends DataGenerator {
         return values.get(currentIndex++ % values.size());
     }
 
+    @Override
+    public long getRowCount() {
+        return count;
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        return Utils.estimateHeapBytes(values);
+    }
+
     class GeneratorObjectIterator  implements Iterator<Object> {
         @Override
         public boolean hasNext() {
@@ -0,0 +1,926 @@
+package io.deephaven.datagen;
+
+import java.util.ArrayList;
+import java.util.IllegalFormatException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Parses and compiles the expressions of {@link ExpressionGenerator} columns.
+ *
+ * Parsing produces a tree of {@link Node}s.  Once the types of the referenced columns are known, the tree is
+ * compiled into nested evaluators specialized on the types of their operands, so evaluating an expression for
+ * a row does no type dispatch or tree walking; only the final value gets boxed.
+ *
+ * The syntax is Java-like:
+ * <ul>
+ *     <li>numbers ({@code 42}, {@code 1.5}), strings ({@code 'abc'} or {@code "abc"}), {@code true} and
+ *         {@code false}.</li>
+ *     <li>column names, which evaluate to the value of that column in the same row.</li>
+ *     <li>{@code + - * / %}, where {@code +} concatenates if either side is a string; integer operations
+ *         stay integers, as in Java, except that an integer divided by zero, or its remainder, is null.</li>
+ *     <li>{@code == != < <= > >=}, {@code && || !} and {@code cond ? a : b}.</li>
+ *     <li>the functions {@code if(cond, a, b)}, {@code abs(x)}, {@code min(a, b, ...)}, {@code max(a, b, ...)},
+ *         {@code hash(x)}, {@code long(x)}, {@code double(x)}, {@code str(x)}, {@code concat(a, b, ...)}
+ *         and {@code format(fmt, a, ...)}.</li>
+ * </ul>
+ */
+final class ExpressionCompiler {
+
+    enum ValueType {
+        LONG,
+        DOUBLE,
+        BOOLEAN,
+        STRING,
+    }
+
+    @FunctionalInterface
+    interface LongEvaluator {
+        long eval(Object[] row);
+    }
+
+    @FunctionalInterface
+    interface DoubleEvaluator {
+        double eval(Object[] row);
+    }
+
+    @FunctionalInterface
+    interface BooleanEvaluator {
+        boolean eval(Object[] row);
+    }
+
+    @FunctionalInterface
+    interface StringEvaluator {
+        String eval(Object[] row);
+    }
+
+    @FunctionalInterface
+    interface ObjectEvaluator {
+        Object eval(Object[] row);
+    }
+
+    /**
+     * Thrown by an evaluator whose value is null, like an integer divided by zero; it is the same one every time, and
+     * has no stack trace, so it costs little.
+     */
+    static final class NullValue extends RuntimeException {
+        static final NullValue INSTANCE = new NullValue();
+
+        private NullValue() {
+            super("null value", null, false, false);
+        }
+    }
+
+    /** Resolves the column references of an expression while compiling it. */
+    interface Scope {
+        Compiled column(String name);
+    }
+
+    /** A compiled (sub)expression: its type, and the evaluator for that type. */
+    static final class Compiled {
+        final ValueType type;
+        private final Object evaluator;
+
+        private Compiled(final ValueType type, final Object evaluator) {
+            this.type = type;
+            this.evaluator = evaluator;
+        }
+
+        static Compiled ofLong(final LongEvaluator evaluator) {
+            return new Compiled(ValueType.LONG, evaluator);
+        }
+
+        static Compiled ofDouble(final DoubleEvaluator evaluator) {
+            return new Compiled(ValueType.DOUBLE, evaluator);
+        }
+
+        static Compiled ofBoolean(final BooleanEvaluator evaluator) {
+            return new Compiled(ValueType.BOOLEAN, evaluator);
+        }
+
+        static Compiled ofString(final StringEvaluator evaluator) {
+            return new Compiled(ValueType.STRING, evaluator);
+        }
+
+        boolean isNumeric() {
+            return type == ValueType.LONG || type == ValueType.DOUBLE;
+        }
+
+        LongEvaluator longEvaluator() {
+            if (type != ValueType.LONG) {
+                throw new IllegalStateException("not a LONG expression: " + type);
+            }
+            return (LongEvaluator) evaluator;
+        }
+
+        /** Gets a DoubleEvaluator for a numeric expression, widening integers. */
+        DoubleEvaluator doubleEvaluator() {
+            switch (type) {
+                case DOUBLE:
+                    return (DoubleEvaluator) evaluator;
+                case LONG: {
+                    final LongEvaluator e = (LongEvaluator) evaluator;
+                    return row -> (double) e.eval(row);
+                }
+                default:
+                    throw new IllegalStateException("not a numeric expression: " + type);
+            }
+        }
+
+        BooleanEvaluator booleanEvaluator() {
+            if (type != ValueType.BOOLEAN) {
+                throw new IllegalStateException("not a BOOLEAN expression: " + type);
+            }
+            return (BooleanEvaluator) evaluator;
+        }
+
+        /** Gets a StringEvaluator for any expression, formatting non-strings as Java does. */
+        StringEvaluator stringEvaluator() {
+            switch (type) {
+                case STRING:
+                    return (StringEvaluator) evaluator;
+                case LONG: {
+                    final LongEvaluator e = (LongEvaluator) evaluator;
+                    return row -> Long.toString(e.eval(row));
+                }
+                case DOUBLE: {
+                    final DoubleEvaluator e = (DoubleEvaluator) evaluator;
+                    return row -> Double.toString(e.eval(row));
+                }
+                case BOOLEAN: {
+                    final BooleanEvaluator e = (BooleanEvaluator) evaluator;
+                    return row -> Boolean.toString(e.eval(row));
+                }
+                default:
+                    throw new IllegalStateException("Missing value type " + type);
+            }
+        }
+
+        /** Gets an evaluator producing boxed values, for when an Object is needed anyway. */
+        ObjectEvaluator objectEvaluator() {
+            switch (type) {
+                case STRING:
+                    return ((StringEvaluator) evaluator)::eval;
+                case LONG:
+                    return ((LongEvaluator) evaluator)::eval;
+                case DOUBLE:
+                    return ((DoubleEvaluator) evaluator)::eval;
+                case BOOLEAN:
+                    return ((BooleanEvaluator) evaluator)::eval;
+                default:
+                    throw new IllegalStateException("Missing value type " + type);
+            }
+        }
+    }
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * Parses an expression.
+     *
+     * @param fieldName     String naming the column; for error messages
+     * @param text          String with the expression
+     * @return              the root of the parsed expression
+     */
+    static Node parse(final String fieldName, final String text) {
+        return new Parser(fieldName, text).parse();
+    }
+
+    private static IllegalArgumentException error(final String fieldName, final String format, final Object... args) {
+        return new IllegalArgumentException(fieldName + ": " + String.format(format, args));
+    }
+
+    /** Mixes a 64 bit value into a non-negative hash, the way {@link HyperLogLog} mixes values. */
+    static long mix(final long z) {
+        return HyperLogLog.mix(z) >>> 1;
+    }
+
+    /** Hashes the characters of a String into a non-negative hash, the way {@link HyperLogLog} hashes them. */
+    static long hashString(final String s) {
+        return HyperLogLog.hashChars(s) >>> 1;
+    }
+
+    /** A node of a parsed expression. */
+    abstract static class Node {
+        /** Adds the names of the columns referenced by this node and its children. */
+        abstract void collectColumns(Set<String> columns);
+
+        abstract Compiled compile(String fieldName, Scope scope);
+    }
+
+    private static final class Literal extends Node {
+        private final Object value;
+
+        private Literal(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        void collectColumns(final Set<String> columns) {
+        }
+
+        @Override
+        Compiled compile(final String fieldName, final Scope scope) {
+            if (value instanceof Long) {
+                final long v = (Long) value;
+                return Compiled.ofLong(row -> v);
+            }
+            if (value instanceof Double) {
+                final double v = (Double) value;
+                return Compiled.ofDouble(row -> v);
+            }
+            if (value instanceof Boolean) {
+                final boolean v = (Boolean) value;
+                return Compiled.ofBoolean(row -> v);
+            }
+            final String v = (String) value;
+            return Compiled.ofString(row -> v);
+        }
+    }
+
+    private static final class ColumnReference extends Node {
+        private final String name;
+
+        private ColumnReference(final String name) {
+            this.name = name;
+        }
+
+        @Override
+        void collectColumns(final Set<String> columns) {
+            columns.add(name);
+        }
+
+        @Override
+        Compiled compile(final String fieldName, final Scope scope) {
+            return scope.column(name);
+        }
+    }
+
+    private static final class Unary extends Node {
+        private final char op;
+        private final Node operand;
+
+        private Unary(final char op, final Node operand) {
+            this.op = op;
+            this.operand = operand;
+        }
+
+        @Override
+        void collectColumns(final Set<String> columns) {
+            operand.collectColumns(columns);
+        }
+
+        @Override
+        Compiled compile(final String fieldName, final Scope scope) {
+            final Compiled c = operand.compile(fieldName, scope);
+            if (op == '!') {
+                if (c.type != ValueType.BOOLEAN) {
+                    throw error(fieldName, "! needs a boolean, not %s", c.type);
+                }
+                final BooleanEvaluator e = c.booleanEvaluator();
+                return Compiled.ofBoolean(row -> !e.eval(row));
+            }
+            if (c.type == ValueType.LONG) {
+                final LongEvaluator e = c.longEvaluator();
+                return Compiled.ofLong(row -> -e.eval(row));
+            }
+            if (c.type == ValueType.DOUBLE) {
+                final DoubleEvaluator e = c.doubleEvaluator();
+                return Compiled.ofDouble(row -> -e.eval(row));
+            }
+            throw error(fieldName, "unary - needs a number, not %s", c.type);
+        }
+    }
+
+    private static final class Binary extends Node {
+        private final String op;
+        private final Node left;
+        private final Node right;
+
+        private Binary(final String op, final Node left, final Node right) {
+            this.op = op;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        void collectColumns(final Set<String> columns) {
+            left.collectColumns(columns);
+            right.collectColumns(columns);
+        }
+
+        @Override
+        Compiled compile(final String fieldName, final Scope scope) {
+            final Compiled l = left.compile(fieldName, scope);
+            final Compiled r = right.compile(fieldName, scope);
+            switch (op) {
+                case "&&":
+                case "||": {
+                    if (l.type != ValueType.BOOLEAN || r.type != ValueType.BOOLEAN) {
+                        throw error(fieldName, "%s needs booleans, not %s and %s", op, l.type, r.type);
+                    }
+                    final BooleanEvaluator a = l.booleanEvaluator();
+                    final BooleanEvaluator b = r.booleanEvaluator();
+                    return op.equals("&&")
+                            ? Compiled.ofBoolean(row -> a.eval(row) && b.eval(row))
+                            : Compiled.ofBoolean(row -> a.eval(row) || b.eval(row));
+                }
+                case "==":
+                case "!=":
+                case "<":
+                case "<=":
+                case ">":
+                case ">=":
+                    return compileComparison(fieldName, l, r);
+                case "+":
+                    if (l.type == ValueType.STRING || r.type == ValueType.STRING) {
+                        final StringEvaluator a = l.stringEvaluator();
+                        final StringEvaluator b = r.stringEvaluator();
+                        return Compiled.ofString(row -> a.eval(row).concat(b.eval(row)));
+                    }
+                    return compileArithmetic(fieldName, l, r);
+                default:
+                    return compileArithmetic(fieldName, l, r);
+            }
+        }
+
+        private Compiled compileArithmetic(final String fieldName, final Compiled l, final Compiled r) {
+            if (!l.isNumeric() || !r.isNumeric()) {
+                throw error(fieldName, "%s needs numbers, not %s and %s", op, l.type, r.type);
+            }
+            if (l.type == ValueType.LONG && r.type == ValueType.LONG) {
+                final LongEvaluator a = l.longEvaluator();
+                final LongEvaluator b = r.longEvaluator();
+                switch (op) {
+                    case "+":
+                        return Compiled.ofLong(row -> a.eval(row) + b.eval(row));
+                    case "-":
+                        return Compiled.ofLong(row -> a.eval(row) - b.eval(row));
+                    case "*":
+                        return Compiled.ofLong(row -> a.eval(row) * b.eval(row));
+                    case "/":
+                        return Compiled.ofLong(row -> {
+                            final long dividend = a.eval(row);
+                            final long divisor = b.eval(row);
+                            if (divisor == 0) {
+                                throw NullValue.INSTANCE;
+                            }
+                            return dividend / divisor;
+                        });
+                    case "%":
+                        return Compiled.ofLong(row -> {
+                            final long dividend = a.eval(row);
+                            final long divisor = b.eval(row);
+                            if (divisor == 0) {
+                                throw NullValue.INSTANCE;
+                            }
+                            return dividend % divisor;
+                        });
+                    default:
+                        throw new IllegalStateException("Missing operator " + op);
+                }
+            }
+            final DoubleEvaluator a = l.doubleEvaluator();
+            final DoubleEvaluator b = r.doubleEvaluator();
+            switch (op) {
+                case "+":
+                    return Compiled.ofDouble(row -> a.eval(row) + b.eval(row));
+                case "-":
+                    return Compiled.ofDouble(row -> a.eval(row) - b.eval(row));
+                case "*":
+                    return Compiled.ofDouble(row -> a.eval(row) * b.eval(row));
+                case "/":
+                    return Compiled.ofDouble(row -> a.eval(row) / b.eval(row));
+                case "%":
+                    return Compiled.ofDouble(row -> a.eval(row) % b.eval(row));
+                default:
+                    throw new IllegalStateException("Missing operator " + op);
+            }
+        }
+
+        private Compiled compileComparison(final String fieldName, final Compiled l, final Compiled r) {
+            if (l.type == ValueType.LONG && r.type == ValueType.LONG) {
+                final LongEvaluator a = l.longEvaluator();
+                final LongEvaluator b = r.longEvaluator();
+                switch (op) {
+                    case "==":
+                        return Compiled.ofBoolean(row -> a.eval(row) == b.eval(row));
+                    case "!=":
+                        return Compiled.ofBoolean(row -> a.eval(row) != b.eval(row));
+                    case "<":
+                        return Compiled.ofBoolean(row -> a.eval(row) < b.eval(row));
+                    case "<=":
+                        return Compiled.ofBoolean(row -> a.eval(row) <= b.eval(row));
+                    case ">":
+                        return Compiled.ofBoolean(row -> a.eval(row) > b.eval(row));
+                    default:
+                        return Compiled.ofBoolean(row -> a.eval(row) >= b.eval(row));
+                }
+            }
+            if (l.isNumeric() && r.isNumeric()) {
+                final DoubleEvaluator a = l.doubleEvaluator();
+                final DoubleEvaluator b = r.doubleEvaluator();
+                switch (op) {
+                    case "==":
+                        return Compiled.ofBoolean(row -> a.eval(row) == b.eval(row));
+                    case "!=":
+                        return Compiled.ofBoolean(row -> a.eval(row) != b.eval(row));
+                    case "<":
+                        return Compiled.ofBoolean(row -> a.eval(row) < b.eval(row));
+                    case "<=":
+                        return Compiled.ofBoolean(row -> a.eval(row) <= b.eval(row));
+                    case ">":
+                        return Compiled.ofBoolean(row -> a.eval(row) > b.eval(row));
+                    default:
+                        return Compiled.ofBoolean(row -> a.eval(row) >= b.eval(row));
+                }
+            }
+            if (l.type == ValueType.STRING && r.type == ValueType.STRING) {
+                final StringEvaluator a = l.stringEvaluator();
+                final StringEvaluator b = r.stringEvaluator();
+                switch (op) {
+                    case "==":
+                        return Compiled.ofBoolean(row -> a.eval(row).equals(b.eval(row)));
+                    case "!=":
+                        return Compiled.ofBoolean(row -> !a.eval(row).equals(b.eval(row)));
+                    case "<":
+                        return Compiled.ofBoolean(row -> a.eval(row).compareTo(b.eval(row)) < 0);
+                    case "<=":
+                        return Compiled.ofBoolean(row -> a.eval(row).compareTo(b.eval(row)) <= 0);
+                    case ">":
+                        return Compiled.ofBoolean(row -> a.eval(row).compareTo(b.eval(row)) > 0);
+                    default:
+                        return Compiled.ofBoolean(row -> a.eval(row).compareTo(b.eval(row)) >= 0);
+                }
+            }
+            if (l.type == ValueType.BOOLEAN && r.type == ValueType.BOOLEAN && (op.equals("==") || op.equals("!="))) {
+                final BooleanEvaluator a = l.booleanEvaluator();
+                final BooleanEvaluator b = r.booleanEvaluator();
+                return op.equals("==")
+                        ? Compiled.ofBoolean(row -> a.eval(row) == b.eval(row))
+                        : Compiled.ofBoolean(row -> a.eval(row) != b.eval(row));
+            }
+            throw error(fieldName, "can't compare %s and %s with %s", l.type, r.type, op);
+        }
+    }
+
+    private static final class Conditional extends Node {
+        private final Node condition;
+        private final Node ifTrue;
+        private final Node ifFalse;
+
+        private Conditional(final Node condition, final Node ifTrue, final Node ifFalse) {
+            this.condition = condition;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+        }
+
+        @Override
+        void collectColumns(final Set<String> columns) {
+            condition.collectColumns(columns);
+            ifTrue.collectColumns(columns);
+            ifFalse.collectColumns(columns);
+        }
+
+        @Override
+        Compiled compile(final String fieldName, final Scope scope) {
+            final Compiled c = condition.compile(fieldName, scope);
+            if (c.type != ValueType.BOOLEAN) {
+                throw error(fieldName, "the condition should be a boolean, not %s", c.type);
+            }
+            final BooleanEvaluator cond = c.booleanEvaluator();
+            final Compiled t = ifTrue.compile(fieldName, scope);
+            final Compiled f = ifFalse.compile(fieldName, scope);
+            if (t.type == ValueType.LONG && f.type == ValueType.LONG) {
+                final LongEvaluator a = t.longEvaluator();
+                final LongEvaluator b = f.longEvaluator();
+                return Compiled.ofLong(row -> cond.eval(row) ? a.eval(row) : b.eval(row));
+            }
+            if (t.isNumeric() && f.isNumeric()) {
+                final DoubleEvaluator a = t.doubleEvaluator();
+                final DoubleEvaluator b = f.doubleEvaluator();
+                return Compiled.ofDouble(row -> cond.eval(row) ? a.eval(row) : b.eval(row));
+            }
+            if (t.type == ValueType.BOOLEAN && f.type == ValueType.BOOLEAN) {
+                final BooleanEvaluator a = t.booleanEvaluator();
+                final BooleanEvaluator b = f.booleanEvaluator();
+                return Compiled.ofBoolean(row -> cond.eval(row) ? a.eval(row) : b.eval(row));
+            }
+            if (t.type == ValueType.STRING && f.type == ValueType.STRING) {
+                final StringEvaluator a = t.stringEvaluator();
+                final StringEvaluator b = f.stringEvaluator();
+                return Compiled.ofString(row -> cond.eval(row) ? a.eval(row) : b.eval(row));
+            }
+            throw error(fieldName, "both branches of a conditional should have the same type, not %s and %s",
+                    t.type, f.type);
+        }
+    }
+
+    private static final class Call extends Node {
+        private final String function;
+        private final List<Node> arguments;
+
+        private Call(final String function, final List<Node> arguments) {
+            this.function = function;
+            this.arguments = arguments;
+        }
+
+        @Override
+        void collectColumns(final Set<String> columns) {
+            for (final Node argument : arguments) {
+                argument.collectColumns(columns);
+            }
+        }
+
+        private void checkArgumentCount(final String fieldName, final int min, final int max) {
+            final int n = arguments.size();
+            if (n < min || n > max) {
+                final String expected = min == max ? Integer.toString(min) : min + " or more";
+                throw error(fieldName, "%s() takes %s arguments, not %d", function, expected, n);
+            }
+        }
+
+        private Compiled numericArgument(final String fieldName, final Scope scope, final int i) {
+            final Compiled c = arguments.get(i).compile(fieldName, scope);
+            if (!c.isNumeric()) {
+                throw error(fieldName, "%s() needs numbers, not %s", function, c.type);
+            }
+            return c;
+        }
+
+        @Override
+        Compiled compile(final String fieldName, final Scope scope) {
+            switch (function) {
+                case "if":
+                    checkArgumentCount(fieldName, 3, 3);
+                    return new Conditional(arguments.get(0), arguments.get(1), arguments.get(2)).compile(fieldName, scope);
+
+                case "abs": {
+                    checkArgumentCount(fieldName, 1, 1);
+                    final Compiled c = numericArgument(fieldName, scope, 0);
+                    if (c.type == ValueType.LONG) {
+                        final LongEvaluator e = c.longEvaluator();
+                        return Compiled.ofLong(row -> Math.abs(e.eval(row)));
+                    }
+                    final DoubleEvaluator e = c.doubleEvaluator();
+                    return Compiled.ofDouble(row -> Math.abs(e.eval(row)));
+                }
+
+                case "min":
+                case "max": {
+                    checkArgumentCount(fieldName, 2, Integer.MAX_VALUE);
+                    final boolean isMin = function.equals("min");
+                    Compiled result = numericArgument(fieldName, scope, 0);
+                    for (int i = 1; i < arguments.size(); ++i) {
+                        final Compiled next = numericArgument(fieldName, scope, i);
+                        if (result.type == ValueType.LONG && next.type == ValueType.LONG) {
+                            final LongEvaluator a = result.longEvaluator();
+                            final LongEvaluator b = next.longEvaluator();
+                            result = isMin
+                                    ? Compiled.ofLong(row -> Math.min(a.eval(row), b.eval(row)))
+                                    : Compiled.ofLong(row -> Math.max(a.eval(row), b.eval(row)));
+                        } else {
+                            final DoubleEvaluator a = result.doubleEvaluator();
+                            final DoubleEvaluator b = next.doubleEvaluator();
+                            result = isMin
+                                    ? Compiled.ofDouble(row -> Math.min(a.eval(row), b.eval(row)))
+                                    : Compiled.ofDouble(row -> Math.max(a.eval(row), b.eval(row)));
+                        }
+                    }
+                    return result;
+                }
+
+                case "hash": {
+                    checkArgumentCount(fieldName, 1, 1);
+                    final Compiled c = arguments.get(0).compile(fieldName, scope);
+                    switch (c.type) {
+                        case LONG: {
+                            final LongEvaluator e = c.longEvaluator();
+                            return Compiled.ofLong(row -> mix(e.eval(row)));
+                        }
+                        case DOUBLE: {
+                            final DoubleEvaluator e = c.doubleEvaluator();
+                            return Compiled.ofLong(row -> mix(Double.doubleToLongBits(e.eval(row))));
+                        }
+                        case BOOLEAN: {
+                            final BooleanEvaluator e = c.booleanEvaluator();
+                            return Compiled.ofLong(row -> mix(e.eval(row) ? 1 : 0));
+                        }
+                        default: {
+                            final StringEvaluator e = c.stringEvaluator();
+                            return Compiled.ofLong(row -> hashString(e.eval(row)));
+                        }
+                    }
+                }
+
+                case "long": {
+                    checkArgumentCount(fieldName, 1, 1);
+                    final Compiled c = arguments.get(0).compile(fieldName, scope);
+                    switch (c.type) {
+                        case LONG:
+                            return c;
+                        case DOUBLE: {
+                            final DoubleEvaluator e = c.doubleEvaluator();
+                            return Compiled.ofLong(row -> (long) e.eval(row));
+                        }
+                        case BOOLEAN: {
+                            final BooleanEvaluator e = c.booleanEvaluator();
+                            return Compiled.ofLong(row -> e.eval(row) ? 1 : 0);
+                        }
+                        default: {
+                            final StringEvaluator e = c.stringEvaluator();
+                            return Compiled.ofLong(row -> Long.parseLong(e.eval(row)));
+                        }
+                    }
+                }
+
+                case "double": {
+                    checkArgumentCount(fieldName, 1, 1);
+                    final Compiled c = arguments.get(0).compile(fieldName, scope);
+                    if (c.isNumeric()) {
+                        return Compiled.ofDouble(c.doubleEvaluator());
+                    }
+                    if (c.type == ValueType.STRING) {
+                        final StringEvaluator e = c.stringEvaluator();
+                        return Compiled.ofDouble(row -> Double.parseDouble(e.eval(row)));
+                    }
+                    throw error(fieldName, "double() needs a number or a string, not %s", c.type);
+                }
+
+                case "str":
+                    checkArgumentCount(fieldName, 1, 1);
+                    return Compiled.ofString(arguments.get(0).compile(fieldName, scope).stringEvaluator());
+
+                case "concat": {
+                    checkArgumentCount(fieldName, 1, Integer.MAX_VALUE);
+                    final StringEvaluator[] parts = new StringEvaluator[arguments.size()];
+                    for (int i = 0; i < parts.length; ++i) {
+                        parts[i] = arguments.get(i).compile(fieldName, scope).stringEvaluator();
+                    }
+                    return Compiled.ofString(row -> {
+                        final StringBuilder sb = new StringBuilder();
+                        for (final StringEvaluator part : parts) {
+                            sb.append(part.eval(row));
+                        }
+                        return sb.toString();
+                    });
+                }
+
+                case "format":
+                    return compileFormat(fieldName, scope);
+
+                default:
+                    throw error(fieldName, "unknown function %s()", function);
+            }
+        }
+
+        private Compiled compileFormat(final String fieldName, final Scope scope) {
+            checkArgumentCount(fieldName, 1, Integer.MAX_VALUE);
+            final Compiled format = arguments.get(0).compile(fieldName, scope);
+            if (format.type != ValueType.STRING) {
+                throw error(fieldName, "the first argument of format() should be a string, not %s", format.type);
+            }
+            final ObjectEvaluator[] args = new ObjectEvaluator[arguments.size() - 1];
+            final Object[] samples = new Object[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                final Compiled c = arguments.get(i + 1).compile(fieldName, scope);
+                args[i] = c.objectEvaluator();
+                samples[i] = c.type == ValueType.LONG ? (Object) 0L
+                        : c.type == ValueType.DOUBLE ? (Object) 0.0
+                        : c.type == ValueType.BOOLEAN ? (Object) false
+                        : "";
+            }
+            // a literal format is checked against the argument types now, rather than on the first row
+            if (arguments.get(0) instanceof Literal) {
+                try {
+                    String.format(Locale.ROOT, (String) ((Literal) arguments.get(0)).value, samples);
+                } catch (IllegalFormatException ex) {
+                    throw error(fieldName, "format() doesn't match its arguments: %s", ex.getMessage());
+                }
+            }
+            final StringEvaluator fmt = format.stringEvaluator();
+            return Compiled.ofString(row -> {
+                final Object[] values = new Object[args.length];
+                for (int i = 0; i < args.length; ++i) {
+                    values[i] = args[i].eval(row);
+                }
+                return String.format(Locale.ROOT, fmt.eval(row), values);
+            });
+        }
+    }
+
+    /**
+     * A recursive descent parser, one method per precedence level, lowest first.
+     */
+    private static final class Parser {
+        private final String fieldName;
+        private final String text;
+        private int pos;
+
+        private Parser(final String fieldName, final String text) {
+            this.fieldName = fieldName;
+            this.text = text;
+        }
+
+        private IllegalArgumentException syntaxError(final String message) {
+            return error(fieldName, "%s at position %d of expression \"%s\"", message, pos, text);
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                ++pos;
+            }
+        }
+
+        /** Consumes {@code token} if it comes next. */
+        private boolean accept(final String token) {
+            skipWhitespace();
+            if (!text.startsWith(token, pos)) {
+                return false;
+            }
+            // don't take the start of "<=" as "<", or "==" as "="
+            if (token.length() == 1 && pos + 1 < text.length() && text.charAt(pos + 1) == '='
+                    && "<>!=".indexOf(token.charAt(0)) >= 0) {
+                return false;
+            }
+            pos += token.length();
+            return true;
+        }
+
+        private void expect(final String token) {
+            if (!accept(token)) {
+                throw syntaxError("expected \"" + token + "\"");
+            }
+        }
+
+        Node parse() {
+            final Node node = parseConditional();
+            skipWhitespace();
+            if (pos != text.length()) {
+                throw syntaxError("unexpected \"" + text.charAt(pos) + "\"");
+            }
+            return node;
+        }
+
+        private Node parseConditional() {
+            final Node condition = parseOr();
+            if (accept("?")) {
+                final Node ifTrue = parseConditional();
+                expect(":");
+                final Node ifFalse = parseConditional();
+                return new Conditional(condition, ifTrue, ifFalse);
+            }
+            return condition;
+        }
+
+        private Node parseOr() {
+            Node node = parseAnd();
+            while (accept("||")) {
+                node = new Binary("||", node, parseAnd());
+            }
+            return node;
+        }
+
+        private Node parseAnd() {
+            Node node = parseComparison();
+            while (accept("&&")) {
+                node = new Binary("&&", node, parseComparison());
+            }
+            return node;
+        }
+
+        private Node parseComparison() {
+            final Node node = parseAdditive();
+            for (final String op : new String[] {"==", "!=", "<=", ">=", "<", ">"}) {
+                if (accept(op)) {
+                    return new Binary(op, node, parseAdditive());
+                }
+            }
+            return node;
+        }
+
+        private Node parseAdditive() {
+            Node node = parseMultiplicative();
+            while (true) {
+                if (accept("+")) {
+                    node = new Binary("+", node, parseMultiplicative());
+                } else if (accept("-")) {
+                    node = new Binary("-", node, parseMultiplicative());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseMultiplicative() {
+            Node node = parseUnary();
+            while (true) {
+                if (accept("*")) {
+                    node = new Binary("*", node, parseUnary());
+                } else if (accept("/")) {
+                    node = new Binary("/", node, parseUnary());
+                } else if (accept("%")) {
+                    node = new Binary("%", node, parseUnary());
+                } else {
+                    return node;
+                }
+            }
+        }
+
+        private Node parseUnary() {
+            if (accept("-")) {
+                return new Unary('-', parseUnary());
+            }
+            if (accept("!")) {
+                return new Unary('!', parseUnary());
+            }
+            return parsePrimary();
+        }
+
+        private Node parsePrimary() {
+            skipWhitespace();
+            if (pos == text.length()) {
+                throw syntaxError("unexpected end");
+            }
+            final char c = text.charAt(pos);
+            if (c == '(') {
+                ++pos;
+                final Node node = parseConditional();
+                expect(")");
+                return node;
+            }
+            if (c == '\'' || c == '"') {
+                return parseString(c);
+            }
+            if (Character.isDigit(c) || c == '.') {
+                return parseNumber();
+            }
+            if (Character.isJavaIdentifierStart(c)) {
+                final int start = pos;
+                while (pos < text.length() && Character.isJavaIdentifierPart(text.charAt(pos))) {
+                    ++pos;
+                }
+                final String name = text.substring(start, pos);
+                if (accept("(")) {
+                    final List<Node> arguments = new ArrayList<>();
+                    if (!accept(")")) {
+                        do {
+                            arguments.add(parseConditional());
+                        } while (accept(","));
+                        expect(")");
+                    }
+                    return new Call(name, arguments);
+                }
+                if (name.equals("true") || name.equals("false")) {
+                    return new Literal(Boolean.parseBoolean(name));
+                }
+                return new ColumnReference(name);
+            }
+            throw syntaxError("unexpected \"" + c + "\"");
+        }
+
+        private Node parseString(final char quote) {
+            final StringBuilder sb = new StringBuilder();
+            ++pos;
+            while (true) {
+                if (pos >= text.length()) {
+                    throw syntaxError("unterminated string");
+                }
+                final char c = text.charAt(pos++);
+                if (c == quote) {
+                    return new Literal(sb.toString());
+                }
+                if (c == '\\' && pos < text.length()) {
+                    sb.append(text.charAt(pos++));
+                } else {
+                    sb.append(c);
+                }
+            }
+        }
+
+        private Node parseNumber() {
+            final int start = pos;
+            boolean isDouble = false;
+            while (pos < text.length()) {
+                final char c = text.charAt(pos);
+                if (c == '.' || c == 'e' || c == 'E') {
+                    isDouble = true;
+                } else if ((c == '+' || c == '-') && (text.charAt(pos - 1) == 'e' || text.charAt(pos - 1) == 'E')) {
+                    // exponent sign
+                } else if (!Character.isDigit(c)) {
+                    break;
+                }
+                ++pos;
+            }
+            final String number = text.substring(start, pos);
+            try {
+                return new Literal(isDouble ? (Object) Double.parseDouble(number) : (Object) Long.parseLong(number));
+            } catch (NumberFormatException ex) {
+                pos = start;
+                throw syntaxError("bad number \"" + number + "\"");
+            }
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * An ExpressionGenerator computes each value from the values of other columns in the same row,
+ * for example {@code Values % 1000} or {@code concat(Symbol, '-', str(Id))}; see {@link ExpressionCompiler}
+ * for the syntax.
+ *
+ * The expression is parsed when the generator is created, and compiled once all the columns exist and
+ * {@link #bindColumns} gives it the row being generated.  The value is null if any of the referenced
+ * columns is null in that row, or if an integer is divided by zero.
+ */
+public class ExpressionGenerator extends DataGenerator {
+
+    private final String fieldName;
+    private final ExpressionCompiler.Node expression;
+    private final Set<String> referencedColumns;
+    private final PercentNullManager pctNullMgr;
+    private final GeneratorObjectIterator objectIterator;
+    private Object[] row;
+    private int[] referencedIndices;
+    private ExpressionCompiler.ObjectEvaluator evaluator;
+
+    private ExpressionGenerator(
+            final String fieldName,
+            final ColumnType columnType,
+            final ExpressionCompiler.Node expression,
+            final long seed,
+            final double percentNull) {
+        super(columnType);
+        this.fieldName = fieldName;
+        this.expression = expression;
+        final Set<String> columns = new LinkedHashSet<>();
+        expression.collectColumns(columns);
+        this.referencedColumns = Collections.unmodifiableSet(columns);
+        this.pctNullMgr = PercentNullManager.fromPercentage(percentNull, seed);
+        objectIterator = new GeneratorObjectIterator();
+    }
+
+    static DataGenerator fromJson(final String fieldName, final JSONObject jo) {
+        final ColumnType columnType = DataGenerator.columnTypeFromJson(jo);
+        switch (columnType) {
+            case INT32:
+            case INT64:
+            case DOUBLE:
+            case STRING:
+            case TIMESTAMP_NANOS:
+                break;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: output type %s is not supported for expression", fieldName, columnType));
+        }
+
+        final String text = Utils.getStringElementValue("expression", jo);
+        final ExpressionCompiler.Node expression = ExpressionCompiler.parse(fieldName, text);
+        final long seed = Long.parseLong(Utils.getStringElementValueOrDefault("seed", jo, "0"));
+        final double percentNull = PercentNullManager.parseJson(fieldName, jo);
+
+        return new ExpressionGenerator(fieldName, columnType, expression, seed, percentNull);
+    }
+
+    @Override
+    public Set<String> getReferencedColumns() {
+        return referencedColumns;
+    }
+
+    @Override
+    public void bindColumns(final String[] columns, final DataGenerator[] generators, final Object[] row) {
+        final Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < columns.length; ++i) {
+            indices.put(columns[i], i);
+        }
+
+        this.row = row;
+        referencedIndices = new int[referencedColumns.size()];
+        int r = 0;
+        for (final String column : referencedColumns) {
+            final Integer index = indices.get(column);
+            if (index == null) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: expression references unknown column \"%s\"", fieldName, column));
+            }
+            referencedIndices[r++] = index;
+        }
+
+        final ExpressionCompiler.Compiled compiled =
+                expression.compile(fieldName, name -> columnEvaluator(name, indices.get(name), generators));
+        evaluator = outputEvaluator(compiled);
+    }
+
+    /**
+     * Compiles a reference to a column, reading the value the column's generator put in the row.
+     */
+    private ExpressionCompiler.Compiled columnEvaluator(
+            final String name, final int index, final DataGenerator[] generators) {
+        final DataGenerator generator = generators[index];
+        if (generator instanceof ArrayGenerator) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: expressions can't reference the array column \"%s\"", fieldName, name));
+        }
+        switch (generator.getColumnType()) {
+            case BOOLEAN:
+                return ExpressionCompiler.Compiled.ofBoolean(row -> (Boolean) row[index]);
+            case INT8:
+            case INT16:
+            case INT32:
+            case INT64:
+                return ExpressionCompiler.Compiled.ofLong(row -> ((Number) row[index]).longValue());
+            case FLOAT:
+            case DOUBLE:
+            case DECIMAL:
+                return ExpressionCompiler.Compiled.ofDouble(row -> ((Number) row[index]).doubleValue());
+            case TIMESTAMP_NANOS:
+                return ExpressionCompiler.Compiled.ofLong(row -> ((UnixTimestampNanos) row[index]).nanos);
+            case DATE:
+                return ExpressionCompiler.Compiled.ofLong(row -> ((LocalDate) row[index]).toEpochDay());
+            case STRING:
+            case FIXED_BINARY:
+                return ExpressionCompiler.Compiled.ofString(row -> row[index].toString());
+            default:
+                throw new IllegalStateException("Missing types");
+        }
+    }
+
+    /**
+     * Converts the compiled expression into the column's type; doubles are rounded for integer columns.
+     */
+    private ExpressionCompiler.ObjectEvaluator outputEvaluator(final ExpressionCompiler.Compiled compiled) {
+        if (columnType == ColumnType.STRING) {
+            return compiled.stringEvaluator()::eval;
+        }
+        if (columnType == ColumnType.DOUBLE) {
+            if (!compiled.isNumeric()) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: expression produces %s, not a number", fieldName, compiled.type));
+            }
+            final ExpressionCompiler.DoubleEvaluator e = compiled.doubleEvaluator();
+            return row -> e.eval(row);
+        }
+
+        final ExpressionCompiler.LongEvaluator e;
+        switch (compiled.type) {
+            case LONG:
+                e = compiled.longEvaluator();
+                break;
+            case DOUBLE: {
+                final ExpressionCompiler.DoubleEvaluator d = compiled.doubleEvaluator();
+                e = row -> Math.round(d.eval(row));
+                break;
+            }
+            case BOOLEAN: {
+                // BOOLEAN columns get here through an INT64 carrier
+                final ExpressionCompiler.BooleanEvaluator b = compiled.booleanEvaluator();
+                e = row -> b.eval(row) ? 1L : 0L;
+                break;
+            }
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: expression produces %s, which can't be converted to %s", fieldName, compiled.type, columnType));
+        }
+        switch (columnType) {
+            case INT32:
+                return row -> {
+                    final long value = e.eval(row);
+                    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException(String.format(
+                                "%s: value %d out of range for %s", fieldName, value, columnType));
+                    }
+                    return (int) value;
+                };
+            case INT64:
+                return e::eval;
+            case TIMESTAMP_NANOS:
+                return row -> new UnixTimestampNanos(e.eval(row));
+            default:
+                throw new IllegalStateException("Missing types");
+        }
+    }
+
+    @Override
+    public boolean isUnbounded() {
+        return true;
+    }
+
+    @Override
+    public Iterator<Object> getIterator() {
+        return objectIterator;
+    }
+
+    private class GeneratorObjectIterator implements Iterator<Object> {
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public Object next() {
+            if (evaluator == null) {
+                throw new IllegalStateException(fieldName + ": expression used before its columns were bound");
+            }
+            // roll for every row, so the sequence of nulls doesn't depend on the referenced columns
+            final boolean rolledNull = pctNullMgr.test();
+            for (final int index : referencedIndices) {
+                if (row[index] == null) {
+                    return null;
+                }
+            }
+            if (rolledNull) {
+                return null;
+            }
+            try {
+                return evaluator.eval(row);
+            } catch (ExpressionCompiler.NullValue ex) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.deephaven.datagen;
+
+import java.util.Random;
+
+/**
+ * A pseudo-random permutation of {@code [0, size)} that takes no memory, for shuffling ranges too large to hold:
+ * a balanced Feistel network over the smallest even number of bits that covers the range, walking the cycle
+ * of values that fall outside it until one falls inside.  The network covers less than four times the range,
+ * so that takes less than four rounds of the network on average.
+ */
+final class FeistelPermutation {
+
+    /** Sizes up to this fit the network in a long. */
+    static final long MAX_SIZE = 1L << 62;
+
+    private static final int ROUNDS = 4;
+
+    private final long size;
+    private final int halfBits;
+    private final long mask;
+    private final long[] keys = new long[ROUNDS];
+
+    /**
+     * @param size  number of values permuted, between 1 and {@link #MAX_SIZE}
+     * @param seed  seed of the permutation
+     */
+    FeistelPermutation(final long size, final long seed) {
+        if (size <= 0 || size > MAX_SIZE) {
+            throw new IllegalArgumentException(String.format("permutation size (=%d) should be between 1 and 2^62", size));
+        }
+        this.size = size;
+        final int bits = Math.max(2, 64 - Long.numberOfLeadingZeros(size - 1));
+        halfBits = (bits + 1) / 2;
+        mask = (1L << halfBits) - 1;
+        final Random prng = new Random(seed);
+        for (int i = 0; i < ROUNDS; ++i) {
+            keys[i] = prng.nextLong();
+        }
+    }
+
+    /**
+     * @param x     a value in {@code [0, size)}
+     * @return      the value x is mapped to, in {@code [0, size)}
+     */
+    long permute(long x) {
+        do {
+            x = encrypt(x);
+        } while (x >= size);
+        return x;
+    }
+
+    private long encrypt(final long x) {
+        long left = x >>> halfBits;
+        long right = x & mask;
+        for (final long key : keys) {
+            final long next = left ^ (HyperLogLog.mix(right ^ key) & mask);
+            left = right;
+            right = next;
+        }
+        return (left << halfBits) | right;
+    }
+}
@@ -2,33 +2,62 @@ package io.deephaven.datagen;
 
 import org.json.simple.JSONObject;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Random;
 
 /***
  * A io.deephaven.datagen.FullRangeGenerator generates a full range of integer values from a starting number to
- * an ending number, inclusive. The range may be shuffled, increasing, or decreasing.
+ * an ending number, inclusive. The range may be shuffled, increasing, decreasing, or have a controlled
+ * amount of presortedness.
  *
  * Increasing and decreasing orderings are dynamically generated. Shuffling requires a shuffle -- so an array is
- * built, shuffled, then enumerated. Of course, that takes O(n) for memory and time.
+ * built, shuffled, then enumerated. Of course, that takes O(n) for memory and time; the array is only built when
+ * the first value is asked for, so the generator can be created to look at its estimates without paying for it.
+ *
+ * The presorted orderings let sort benchmarks sweep how sorted the input is:
+ * <ul>
+ *     <li>K_SORTED: every value is at most {@code k} positions away from its sorted position; the range is
+ *         shuffled in consecutive blocks of {@code k + 1} values, so it takes O(k) memory.</li>
+ *     <li>SWAPPED: an increasing range where a fraction {@code swap_fraction} of the positions have been
+ *         exchanged with another random position; like SHUFFLED, this takes O(n) memory.</li>
+ *     <li>RUNS: {@code runs} increasing runs, one after the other, with interleaved values: run {@code j}
+ *         holds {@code range_start + j}, {@code range_start + j + runs}, ...</li>
+ *     <li>SAWTOOTH: consecutive blocks of {@code period} values, each increasing, with the blocks emitted
+ *         from the highest to the lowest one.</li>
+ * </ul>
  */
 public class FullRangeGenerator extends DataGenerator {
 
+    // the most values an array holds on common JVMs
+    private static final int MAX_DECK_SIZE = Integer.MAX_VALUE - 8;
+
     private final long start;
     private final long stop;
+    private final long size;
     private long current;
     private final PercentNullManager pctNullMgr;
     private final Ordering order;
     private final Random prng;
-    private Iterator<Long> deckIterator;
+    private final long orderParameter;
+    private final double swapFraction;
+    private final long startNanos;
+    private final long stepNanos;
+    private long[] deck;
+    private int deckIndex;
+    private int deckSize;
+    private long deckNext;
+    private long runOrBlock;
     private final GeneratorObjectIterator objectIterator;
 
     enum Ordering {
         INCREASING,
         DECREASING,
         SHUFFLED,
+        K_SORTED,
+        SWAPPED,
+        RUNS,
+        SAWTOOTH,
     }
 
     private FullRangeGenerator(
@@ -37,15 +66,26 @@ public class FullRangeGenerator extends DataGenerator {
             final long stop,
             final long seed,
             final Ordering ordering,
+            final long orderParameter,
+            final double swapFraction,
+            final long startNanos,
+            final long stepNanos,
             final double pctNullMgr
     ) {
         super(columnType);
         if (stop < start)
             throw new IllegalArgumentException(String.format("start %d must be lower than stop %d", start, stop));
+        if (stop - start < 0 || stop - start == Long.MAX_VALUE)
+            throw new IllegalArgumentException(String.format("range from %d to %d has too many values", start, stop));
         this.start = start;
         this.stop = stop;
+        this.size = stop - start + 1;
         this.prng = new Random(seed);
         this.order = ordering;
+        this.orderParameter = orderParameter;
+        this.swapFraction = swapFraction;
+        this.startNanos = startNanos;
+        this.stepNanos = stepNanos;
         this.pctNullMgr = PercentNullManager.fromPercentage(pctNullMgr, seed);
 
         initialize();
@@ -53,36 +93,134 @@ public class FullRangeGenerator extends DataGenerator {
         objectIterator = new GeneratorObjectIterator();
     }
 
+    private int deckCapacity() {
+        if (size > MAX_DECK_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "ordering %s needs the range in memory, and %d values is too many", order, size));
+        }
+        return (int) size;
+    }
+
     private void initialize() {
-        int capacity = (int) (stop - start + 1);
+        switch (order) {
+            case SHUFFLED:
+            case SWAPPED:
+                // fail early if the range is too big; the deck is built when the first value is asked for
+                deckCapacity();
+                break;
 
-        if (order == Ordering.SHUFFLED) {
+            case K_SORTED:
+                // blocks of k + 1 values are refilled and shuffled as we go.
+                deck = new long[(int) Math.min(orderParameter + 1, size)];
+                deckNext = start;
+                break;
+
+            case RUNS:
+                runOrBlock = 0;
+                current = start;
+                break;
 
-            // start with all the integers in order
-            ArrayList<Long> deck = new ArrayList<Long>(capacity);
-            for (long n = start; n <= stop; ++n) {
-                deck.add(n);
+            case SAWTOOTH: {
+                runOrBlock = (size - 1) / orderParameter;
+                current = start + runOrBlock * orderParameter;
+                break;
             }
 
-            // do we need a shuffle?
-            if (order == Ordering.SHUFFLED) {
+            case INCREASING:
+                current = start;
+                break;
+
+            case DECREASING:
+                current = stop;
+                break;
+
+            default:
+                throw new InternalError(String.format("Not ready to handle ordering %s", order));
+        }
+    }
+
+    /**
+     * Builds the deck of the whole range for SHUFFLED and SWAPPED.
+     */
+    private void buildDeck() {
+        switch (order) {
+            case SHUFFLED: {
+                final int capacity = deckCapacity();
+
+                // start with all the integers in order
+                deck = new long[capacity];
+                for (int idx = 0; idx < capacity; ++idx) {
+                    deck[idx] = start + idx;
+                }
+
                 for (int idx = 0; idx < capacity - 1; idx++) {
+                    final int target = prng.nextInt(capacity - idx - 1);
+
+                    final long temp = deck[target];
+                    deck[target] = deck[idx];
+                    deck[idx] = temp;
+                }
+                deckSize = capacity;
+                break;
+            }
 
-                    int target = prng.nextInt(capacity - idx - 1);
+            case SWAPPED: {
+                final int capacity = deckCapacity();
+                deck = new long[capacity];
+                for (int idx = 0; idx < capacity; ++idx) {
+                    deck[idx] = start + idx;
+                }
 
-                    Long temp = deck.get(target);
-                    deck.set(target, deck.get(idx));
-                    deck.set(idx, temp);
+                // each swap displaces two positions
+                final long swaps = Math.round(swapFraction * capacity / 2.0);
+                for (long s = 0; s < swaps; ++s) {
+                    final int a = prng.nextInt(capacity);
+                    final int b = prng.nextInt(capacity);
+                    final long temp = deck[a];
+                    deck[a] = deck[b];
+                    deck[b] = temp;
                 }
+                deckSize = capacity;
+                break;
             }
 
-            deckIterator = deck.iterator();
-        } else if (order == Ordering.INCREASING) {
-            current = start;
-        } else if (order == Ordering.DECREASING) {
-            current = stop;
-        } else {
-            throw new InternalError(String.format("Not ready to handle ordering %s", order));
+            default:
+                throw new InternalError(String.format("Ordering %s has no deck to build", order));
+        }
+    }
+
+    private static Ordering orderingFromJson(final String fieldName, final JSONObject jo) {
+        final String ordering = (String) jo.get("order");
+        if (ordering == null) {
+            System.err.printf("order not found, defaulting to Increasing\n");
+            return Ordering.INCREASING;
+        }
+        switch (ordering.toUpperCase(Locale.ROOT)) {
+            case "INCREASING":
+                return Ordering.INCREASING;
+
+            case "DECREASING":
+                return Ordering.DECREASING;
+
+            case "SHUFFLED":
+                return Ordering.SHUFFLED;
+
+            case "K_SORTED":
+                return Ordering.K_SORTED;
+
+            case "SWAPPED":
+                return Ordering.SWAPPED;
+
+            case "RUNS":
+                return Ordering.RUNS;
+
+            case "SAWTOOTH":
+                return Ordering.SAWTOOTH;
+
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: Ordering must be one of Increasing, Decreasing, Shuffled, K_Sorted, Swapped, Runs or Sawtooth, found \"%s\"",
+                        fieldName, ordering));
         }
     }
 
@@ -93,36 +231,56 @@ public class FullRangeGenerator extends DataGenerator {
             case INT32:
             case INT64:
             case STRING:
-                break;
             case TIMESTAMP_NANOS:
-                throw new IllegalArgumentException(
-                        "Only column types DOUBLE, INT32 or INT64 are supported for " +
-                                FullRangeGenerator.class.getSimpleName());
+                break;
             default:
                 throw new IllegalStateException("Missing types");
         }
 
-        Ordering order = Ordering.INCREASING;
-        String ordering = (String) jo.get("order");
-        if (ordering == null) {
-            System.err.printf("order not found, defaulting to Increasing\n");
-        } else {
-            switch (ordering.toUpperCase(Locale.ROOT)) {
-                case "INCREASING":
-                    order = Ordering.INCREASING;
-                    break;
-
-                case "DECREASING":
-                    order = Ordering.DECREASING;
-                    break;
+        final Ordering order = orderingFromJson(fieldName, jo);
 
-                case "SHUFFLED":
-                    order = Ordering.SHUFFLED;
-                    break;
+        long orderParameter = 0;
+        double swapFraction = 0.0;
+        switch (order) {
+            case K_SORTED:
+                orderParameter = Utils.getLongElementValue("k", jo);
+                if (orderParameter < 0) {
+                    throw new IllegalArgumentException(String.format("%s: k (=%d) should be >= 0", fieldName, orderParameter));
+                }
+                // blocks of k + 1 values are kept in memory
+                if (orderParameter > MAX_DECK_SIZE - 1) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s: k (=%d) should be < %d", fieldName, orderParameter, MAX_DECK_SIZE));
+                }
+                break;
+            case SWAPPED:
+                swapFraction = Utils.getDoubleElementValue("swap_fraction", jo);
+                if (swapFraction < 0.0 || swapFraction > 1.0) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s: swap_fraction (=%g) should be between 0 and 1", fieldName, swapFraction));
+                }
+                break;
+            case RUNS:
+                orderParameter = Utils.getLongElementValue("runs", jo);
+                if (orderParameter <= 0) {
+                    throw new IllegalArgumentException(String.format("%s: runs (=%d) should be > 0", fieldName, orderParameter));
+                }
+                break;
+            case SAWTOOTH:
+                orderParameter = Utils.getLongElementValue("period", jo);
+                if (orderParameter <= 0) {
+                    throw new IllegalArgumentException(String.format("%s: period (=%d) should be > 0", fieldName, orderParameter));
+                }
+                break;
+            default:
+                break;
+        }
 
-                default:
-                    throw new IllegalArgumentException(String.format("Ordering must be one of Increasing, Decreasing, or Shuffled, found \"%s\"", ordering));
-            }
+        long startNanos = 0;
+        long stepNanos = 1;
+        if (columnType == ColumnType.TIMESTAMP_NANOS) {
+            startNanos = Long.parseLong(Utils.getStringElementValueOrDefault("start_nanos", jo, "0"));
+            stepNanos = Long.parseLong(Utils.getStringElementValueOrDefault("step_nanos", jo, "1"));
         }
 
         double percent_null = PercentNullManager.parseJson(fieldName, jo);
@@ -133,6 +291,10 @@ public class FullRangeGenerator extends DataGenerator {
                 Long.parseLong((String) jo.get("range_stop")),
                 Long.parseLong((String) jo.get("seed")),
                 order,
+                orderParameter,
+                swapFraction,
+                startNanos,
+                stepNanos,
                 percent_null
         );
 
@@ -144,34 +306,104 @@ public class FullRangeGenerator extends DataGenerator {
         return frg;
     }
 
-    private boolean generatorHasNext() {
+    /**
+     * Refill the K_SORTED block with the next values in increasing order, and shuffle it.
+     */
+    private void refillBlock() {
+        deckSize = (int) Math.min(deck.length, stop - deckNext + 1);
+        for (int idx = 0; idx < deckSize; ++idx) {
+            deck[idx] = deckNext++;
+        }
+        for (int idx = deckSize - 1; idx > 0; --idx) {
+            final int target = prng.nextInt(idx + 1);
+            final long temp = deck[target];
+            deck[target] = deck[idx];
+            deck[idx] = temp;
+        }
+        deckIndex = 0;
+    }
 
-        if (deckIterator != null)
-            return deckIterator.hasNext();
-        else {
-            if (order == Ordering.INCREASING)
+    private boolean generatorHasNext() {
+        switch (order) {
+            case SHUFFLED:
+            case SWAPPED:
+                if (deck == null) {
+                    buildDeck();
+                }
+                return deckIndex < deckSize;
+            case K_SORTED:
+                return deckIndex < deckSize || deckNext <= stop;
+            case INCREASING:
                 return (current <= stop);
-            else if (order == Ordering.DECREASING)
+            case DECREASING:
                 return (current >= start);
+            case RUNS:
+                return runOrBlock < orderParameter && current <= stop;
+            case SAWTOOTH:
+                return runOrBlock >= 0;
         }
 
         throw new InternalError();
     }
 
     private long generatorGetNext() {
-
-        if (deckIterator != null)
-            return deckIterator.next();
-        else {
-            if (order == Ordering.INCREASING)
+        switch (order) {
+            case SHUFFLED:
+            case SWAPPED:
+                if (deck == null) {
+                    buildDeck();
+                }
+                return deck[deckIndex++];
+            case K_SORTED:
+                if (deckIndex == deckSize) {
+                    refillBlock();
+                }
+                return deck[deckIndex++];
+            case INCREASING:
                 return current++;
-            else if (order == Ordering.DECREASING)
+            case DECREASING:
                 return current--;
+            case RUNS: {
+                final long next = current;
+                current += orderParameter;
+                if (current > stop) {
+                    ++runOrBlock;
+                    current = start + runOrBlock;
+                }
+                return next;
+            }
+            case SAWTOOTH: {
+                final long next = current++;
+                final long blockStart = start + runOrBlock * orderParameter;
+                if (current > stop || current - blockStart == orderParameter) {
+                    --runOrBlock;
+                    current = start + runOrBlock * orderParameter;
+                }
+                return next;
+            }
         }
 
         throw new InternalError();
     }
 
+    @Override
+    public long getRowCount() {
+        return size;
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        switch (order) {
+            case SHUFFLED:
+            case SWAPPED:
+                return 16 + 8 * size;
+            case K_SORTED:
+                return 16 + 8 * Math.min(orderParameter + 1, size);
+            default:
+                return 0;
+        }
+    }
+
     @Override
     public Iterator<Object> getIterator() {
         return objectIterator;
@@ -202,6 +434,8 @@ public class FullRangeGenerator extends DataGenerator {
                     return nextItem;
                 case DOUBLE:
                     return (double) nextItem;
+                case TIMESTAMP_NANOS:
+                    return new UnixTimestampNanos(startNanos + nextItem * stepNanos);
                 default:
                     throw new IllegalStateException("Need to implement more types");
             }
@@ -209,5 +443,3 @@ public class FullRangeGenerator extends DataGenerator {
     }
 
 }
-
-
@@ -0,0 +1,314 @@
+package io.deephaven.datagen;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * Metrics of a generation as it runs: rows and bytes per second, the time each column's generator takes per row,
+ * the time spent writing versus generating, and garbage collection.  They are written next to the output file,
+ * see {@link DataGen#getMetricsFilename(String)}, and progress is printed every {@code generation.progress.seconds}
+ * (default 10), with the time left when the number of rows is known.
+ *
+ * Stages are timed on one row in {@link #TIMED_ROW_INTERVAL}, so timing costs little, and scaled up to all rows.
+ * For Parquet, the writer stage is split between {@link CustomWriterSupport}, which hands the values to the column
+ * writers, and the rest of {@code ParquetWriter.write}, which includes compressing pages and flushing row groups.
+ * For uploads, the writer stage is filling the batches, and uploading them is timed whole as the upload stage.
+ */
+final class GenerationMetrics {
+
+    private static final int TIMED_ROW_INTERVAL = 16;
+    private static final int PROGRESS_CHECK_INTERVAL = 4096;
+    private static final long PROGRESS_NANOS = Math.round(1e9 * Double.parseDouble(System.getProperty(
+            "generation.progress.seconds", "10")));
+
+    private final String name;
+    private final String[] columns;
+    private final long expectedRows;
+    private final double setupSeconds;
+    private final long startNanos;
+    private final long startGcCount;
+    private final long startGcMillis;
+
+    private long rows;
+    private long timedRows;
+    private boolean timing;
+    private long mark;
+    private final long[] columnNanos;
+    private long statisticsNanos;
+    private long writerNanos;
+    private long writeSupportNanos;
+    private long closeNanos;
+    private long pausedNanos;
+    private long uploadNanos;
+
+    private long bytes;
+    private LongSupplier byteCounter;
+    private long nextProgressNanos;
+
+    // set by finish()
+    private long elapsedNanos;
+    private long outputBytes;
+    private long gcCount;
+    private long gcMillis;
+
+    /**
+     * Starts the metrics; the clock for the generation starts now.
+     *
+     * @param name          name of the output, for progress messages
+     * @param columns       column names
+     * @param expectedRows  rows that will be generated, or -1 if unknown
+     * @param setupSeconds  time it took to read the generation file and create the generators
+     */
+    GenerationMetrics(final String name, final String[] columns, final long expectedRows, final double setupSeconds) {
+        this.name = name;
+        this.columns = columns;
+        this.expectedRows = expectedRows;
+        this.setupSeconds = setupSeconds;
+        columnNanos = new long[columns.length];
+        startGcCount = getGcCount();
+        startGcMillis = getGcMillis();
+        startNanos = System.nanoTime();
+        nextProgressNanos = startNanos + PROGRESS_NANOS;
+    }
+
+    /**
+     * Counts a row about to be generated, and tells whether it's one to time.  If it is, each stage should be
+     * followed by a call to {@link #columnDone(int)}, {@link #statisticsDone()} or {@link #writeDone()}.
+     *
+     * @return  true if this row is timed
+     */
+    boolean startRow() {
+        ++rows;
+        if ((rows & (PROGRESS_CHECK_INTERVAL - 1)) == 0 && PROGRESS_NANOS > 0) {
+            checkProgress();
+        }
+        // not the first row, which may pay for lazy initialization
+        timing = (rows & (TIMED_ROW_INTERVAL - 1)) == 0;
+        if (timing) {
+            ++timedRows;
+            mark = System.nanoTime();
+        }
+        return timing;
+    }
+
+    /** Tells whether the current row is timed. */
+    boolean isTimedRow() {
+        return timing;
+    }
+
+    void columnDone(final int column) {
+        final long now = System.nanoTime();
+        columnNanos[column] += now - mark;
+        mark = now;
+    }
+
+    void statisticsDone() {
+        final long now = System.nanoTime();
+        statisticsNanos += now - mark;
+        mark = now;
+    }
+
+    void writeDone() {
+        final long now = System.nanoTime();
+        writerNanos += now - mark;
+        mark = now;
+    }
+
+    /** Adds the time {@link CustomWriterSupport} took for a timed row; it's part of the writer stage. */
+    void addWriteSupportNanos(final long nanos) {
+        writeSupportNanos += nanos;
+    }
+
+    /** Adds the time spent flushing and closing the output. */
+    void addCloseNanos(final long nanos) {
+        closeNanos += nanos;
+    }
+
+    /** Adds the time generation was paused by its {@link GenerationScheduler}. */
+    void addPausedNanos(final long nanos) {
+        pausedNanos += nanos;
+    }
+
+    /** Adds the time spent handing batches to a {@link RowBatchConsumer}, which uploads them. */
+    void addUploadNanos(final long nanos) {
+        uploadNanos += nanos;
+    }
+
+    /** Counts bytes written, for outputs that don't keep count themselves. */
+    void addBytes(final long count) {
+        bytes += count;
+    }
+
+    /** Sets where to get the bytes written so far, for outputs that keep count. */
+    void setByteCounter(final LongSupplier counter) {
+        byteCounter = counter;
+    }
+
+    private long getBytes() {
+        return byteCounter != null ? byteCounter.getAsLong() : bytes;
+    }
+
+    private void checkProgress() {
+        final long now = System.nanoTime();
+        if (now < nextProgressNanos) {
+            return;
+        }
+        nextProgressNanos = now + PROGRESS_NANOS;
+        final double seconds = (now - startNanos) / 1e9;
+        final double rowsPerSecond = rows / seconds;
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d rows", name, rows));
+        if (expectedRows > 0) {
+            sb.append(String.format(" (%.1f%%)", 100.0 * rows / expectedRows));
+        }
+        sb.append(String.format(", %s, %d rows/s, %s/s", GenerationPlanner.formatBytes(getBytes()),
+                Math.round(rowsPerSecond), GenerationPlanner.formatBytes(Math.round(getBytes() / seconds))));
+        if (expectedRows > rows) {
+            sb.append(", ").append(GenerationPlanner.formatSeconds((expectedRows - rows) / rowsPerSecond)).append(" left");
+        }
+        System.out.println(sb);
+    }
+
+    /**
+     * Stops the clock.
+     *
+     * @param outputBytes   size of the output
+     */
+    void finish(final long outputBytes) {
+        elapsedNanos = System.nanoTime() - startNanos;
+        this.outputBytes = outputBytes;
+        gcCount = getGcCount() - startGcCount;
+        gcMillis = getGcMillis() - startGcMillis;
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long getGcMillis() {
+        long millis = 0;
+        for (final GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+
+    /** Seconds for all rows, from the nanoseconds of the timed rows. */
+    private double scaledSeconds(final long nanos) {
+        return timedRows == 0 ? 0.0 : nanos / 1e9 * rows / timedRows;
+    }
+
+    private static String format(final double value) {
+        return String.format(Locale.ROOT, "%.6f", value);
+    }
+
+    /**
+     * Writes the metrics as JSON, with values as strings like generation files.
+     *
+     * @param fileName          name of the file to write
+     * @param outputFilename    name of the file the metrics are about
+     * @param format            format of that file
+     * @throws IOException
+     */
+    void write(final String fileName, final String outputFilename, final DataGen.OutputFormat format) throws IOException {
+        final double elapsed = elapsedNanos / 1e9;
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put("output_file", outputFilename);
+        document.put("format", format.name());
+        document.put("rows", Long.toString(rows));
+        document.put("output_bytes", Long.toString(outputBytes));
+        document.put("setup_seconds", format(setupSeconds));
+        document.put("elapsed_seconds", format(elapsed));
+        document.put("rows_per_second", format(elapsed > 0 ? rows / elapsed : 0.0));
+        document.put("bytes_per_second", format(elapsed > 0 ? outputBytes / elapsed : 0.0));
+
+        long generationNanos = 0;
+        for (final long nanos : columnNanos) {
+            generationNanos += nanos;
+        }
+        final Map<String, Object> stages = new LinkedHashMap<>();
+        stages.put("generation_seconds", format(scaledSeconds(generationNanos)));
+        stages.put("statistics_seconds", format(scaledSeconds(statisticsNanos)));
+        if (format == DataGen.OutputFormat.PARQUET) {
+            stages.put("write_support_seconds", format(scaledSeconds(writeSupportNanos)));
+            stages.put("parquet_writer_seconds", format(scaledSeconds(writerNanos - writeSupportNanos)));
+        } else {
+            stages.put("writer_seconds", format(scaledSeconds(writerNanos)));
+        }
+        if (format == DataGen.OutputFormat.FLIGHT) {
+            stages.put("upload_seconds", format(uploadNanos / 1e9));
+        }
+        stages.put("close_seconds", format(closeNanos / 1e9));
+        stages.put("paused_seconds", format(pausedNanos / 1e9));
+        // checking whether the generators have more, and whatever else isn't timed
+        final double timed = scaledSeconds(generationNanos + statisticsNanos + writerNanos)
+                + closeNanos / 1e9 + pausedNanos / 1e9 + uploadNanos / 1e9;
+        stages.put("other_seconds", format(Math.max(0.0, elapsed - timed)));
+        document.put("stages", stages);
+
+        final Map<String, Object> gc = new LinkedHashMap<>();
+        gc.put("collections", Long.toString(gcCount));
+        gc.put("seconds", format(gcMillis / 1e3));
+        document.put("gc", gc);
+
+        document.put("timed_rows", Long.toString(timedRows));
+        final List<Object> columnList = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; ++i) {
+            final Map<String, Object> column = new LinkedHashMap<>();
+            column.put("name", columns[i]);
+            column.put("nanos_per_row", format(timedRows == 0 ? 0.0 : (double) columnNanos[i] / timedRows));
+            column.put("share", format(generationNanos == 0 ? 0.0 : (double) columnNanos[i] / generationNanos));
+            columnList.add(column);
+        }
+        document.put("columns", columnList);
+
+        final StringBuilder sb = new StringBuilder();
+        Utils.appendJson(sb, document, 0);
+        sb.append('\n');
+        try (final FileWriter writer = new FileWriter(fileName)) {
+            writer.write(sb.toString());
+        }
+    }
+
+    /**
+     * Prints a summary line: rows and bytes per second, and the slowest column.
+     */
+    void print() {
+        final double elapsed = elapsedNanos / 1e9;
+        int slowest = -1;
+        for (int i = 0; i < columns.length; ++i) {
+            if (slowest < 0 || columnNanos[i] > columnNanos[slowest]) {
+                slowest = i;
+            }
+        }
+        final StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d rows in %s, %d rows/s, %s/s", name, rows, GenerationPlanner.formatSeconds(elapsed),
+                Math.round(elapsed > 0 ? rows / elapsed : 0.0),
+                GenerationPlanner.formatBytes(Math.round(elapsed > 0 ? outputBytes / elapsed : 0.0))));
+        if (slowest >= 0 && timedRows > 0) {
+            sb.append(String.format(", slowest column %s at %.0f ns/row", columns[slowest], (double) columnNanos[slowest] / timedRows));
+        }
+        if (gcMillis > 0) {
+            sb.append(String.format(", GC %s", GenerationPlanner.formatSeconds(gcMillis / 1e3)));
+        }
+        if (uploadNanos > 0) {
+            sb.append(String.format(", uploading %s", GenerationPlanner.formatSeconds(uploadNanos / 1e9)));
+        }
+        if (pausedNanos > 0) {
+            sb.append(String.format(", paused %s", GenerationPlanner.formatSeconds(pausedNanos / 1e9)));
+        }
+        System.out.println(sb);
+    }
+}
@@ -0,0 +1,463 @@
+package io.deephaven.datagen;
+
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Estimates what generating a file takes before doing it: rows, output bytes, peak heap and wall time.
+ *
+ * Rows and heap come from the generators, without producing values: the rows of the columns that run out,
+ * the decks of SHUFFLED and SWAPPED ranges, the values loaded from source files, plus the buffers of the
+ * Parquet or CSV writer.  Output bytes and time are extrapolated from a sample of the first rows, written to a
+ * temporary file in the same format and with the same compression.  What the first row waits for, like building
+ * a shuffled deck or reading the first row group of a source file, is timed apart as setup.
+ * A small sample doesn't compress like the whole file, so output bytes for Parquet are a rough estimate.
+ * FLIGHT uploads have no output bytes, and their sample fills batches without uploading them, so their time
+ * leaves the upload out.
+ *
+ * Budgets given by java properties are checked by {@link DataGen#generateData} before generating, and by this
+ * tool for each file: {@code generation.budget.bytes} and {@code generation.budget.heap}, in bytes with an optional
+ * k, m, g or t suffix, and {@code generation.budget.seconds}.
+ *
+ * Usage: {@code GenerationPlanner [-n sample_rows] (generator.json|job.json)...}
+ */
+public class GenerationPlanner {
+
+    private static final String me = GenerationPlanner.class.getSimpleName();
+
+    private static final long SAMPLE_ROWS = Long.parseLong(System.getProperty(
+            "generation.plan.sample.rows", "100000"));
+    private static final long BUDGET_BYTES = getBytesProperty("generation.budget.bytes");
+    private static final long BUDGET_HEAP_BYTES = getBytesProperty("generation.budget.heap");
+    private static final double BUDGET_SECONDS = Double.parseDouble(System.getProperty(
+            "generation.budget.seconds", "-1"));
+
+    /**
+     * The estimates for one generation file.
+     */
+    static final class Plan {
+        private final String name;
+        private final DataGen.OutputFormat format;
+        private final CompressionCodecName compression;
+        private final int columns;
+        private final long rows;
+        private final boolean rowsExact;
+        private final long generatorHeapBytes;
+
+        // from the sample; sampleRows is -1 when there was none
+        private long sampleRows = -1;
+        private long sampleBytes;
+        private boolean sampleIsAll;
+        private double setupSeconds;
+        private double sampleSeconds;
+
+        private Plan(final String name, final GeneratorFile generation) {
+            this.name = name;
+            format = generation.format;
+            compression = generation.compression;
+            columns = generation.columns.length;
+            rows = generation.getRowCount();
+            rowsExact = generation.isRowCountExact();
+            generatorHeapBytes = generation.getEstimatedGeneratorHeapBytes();
+        }
+
+        /** Output bytes, or -1 if unknown. */
+        long getEstimatedBytes() {
+            if (sampleRows < 0 || (!sampleIsAll && rows < 0)) {
+                return -1;
+            }
+            if (sampleIsAll || sampleRows == 0) {
+                return sampleBytes;
+            }
+            return Math.round((double) sampleBytes * rows / sampleRows);
+        }
+
+        /** Wall time in seconds, or -1 if unknown. */
+        double getEstimatedSeconds() {
+            if (sampleRows < 0 || (!sampleIsAll && rows < 0)) {
+                return -1;
+            }
+            if (sampleIsAll || sampleRows == 0) {
+                return setupSeconds + sampleSeconds;
+            }
+            return setupSeconds + sampleSeconds * rows / sampleRows;
+        }
+
+        long getWriterHeapBytes() {
+            if (format == DataGen.OutputFormat.CSV) {
+                // chars in the BufferedWriter, and bytes in the encoder below it
+                return 4L * DataGen.CSV_BUFFER_SIZE;
+            }
+            if (format == DataGen.OutputFormat.FLIGHT) {
+                // a boxed value and its reference per cell of a batch, and as much again for the client's copy
+                final long batchRows = rows < 0 ? DataGen.UPLOAD_BATCH_ROWS : Math.min(rows, DataGen.UPLOAD_BATCH_ROWS);
+                return 2L * 32 * columns * batchRows;
+            }
+            // the row group is buffered until it's flushed; each column has a page and a dictionary in the works
+            final long bytes = getEstimatedBytes();
+            final long rowGroup = bytes < 0 ? ParquetWriter.DEFAULT_BLOCK_SIZE : Math.min(bytes, ParquetWriter.DEFAULT_BLOCK_SIZE);
+            return rowGroup + 2L * columns * ParquetWriter.DEFAULT_PAGE_SIZE;
+        }
+
+        long getStatisticsHeapBytes() {
+            return DataGen.GENERATION_STATS ? GenerationStatistics.estimateHeapBytes(columns) : 0;
+        }
+
+        long getEstimatedHeapBytes() {
+            return generatorHeapBytes + getWriterHeapBytes() + getStatisticsHeapBytes();
+        }
+
+        /**
+         * Compares the estimates to the budgets.
+         *
+         * @return  a description of each budget that's exceeded; empty if none is
+         */
+        List<String> checkBudgets() {
+            final List<String> exceeded = new ArrayList<>();
+            final long heap = getEstimatedHeapBytes();
+            if (BUDGET_HEAP_BYTES >= 0 && heap > BUDGET_HEAP_BYTES) {
+                exceeded.add(String.format("heap %s is over the budget of %s", formatBytes(heap), formatBytes(BUDGET_HEAP_BYTES)));
+            }
+            if (sampleRows < 0) {
+                // no sample, nothing more to compare
+                return exceeded;
+            }
+            final long bytes = getEstimatedBytes();
+            final double seconds = getEstimatedSeconds();
+            if ((BUDGET_BYTES >= 0 || BUDGET_SECONDS >= 0) && bytes < 0) {
+                System.err.printf("%s: the number of rows is unknown; can't check the output size and time budgets\n", name);
+            }
+            if (BUDGET_BYTES >= 0 && bytes > BUDGET_BYTES) {
+                exceeded.add(String.format("output %s is over the budget of %s", formatBytes(bytes), formatBytes(BUDGET_BYTES)));
+            }
+            if (BUDGET_SECONDS >= 0 && seconds > BUDGET_SECONDS) {
+                exceeded.add(String.format("time %s is over the budget of %s", formatSeconds(seconds), formatSeconds(BUDGET_SECONDS)));
+            }
+            return exceeded;
+        }
+
+        void print() {
+            System.out.printf("%s: %s%s, %d columns, %s rows\n",
+                    name,
+                    format,
+                    format == DataGen.OutputFormat.PARQUET ? " " + compression : "",
+                    columns,
+                    rows < 0 ? "unknown" : (rowsExact ? "" : "at most ") + rows);
+            final long bytes = getEstimatedBytes();
+            final double seconds = getEstimatedSeconds();
+            if (sampleRows < 0) {
+                System.out.printf("    output: not sampled\n");
+            } else {
+                System.out.printf("    output: %s, from %d sample rows in %s\n",
+                        bytes < 0 ? "unknown" : formatBytes(bytes), sampleRows, formatBytes(sampleBytes));
+            }
+            System.out.printf("    heap:   %s: generators %s, writer %s, statistics %s\n",
+                    formatBytes(getEstimatedHeapBytes()), formatBytes(generatorHeapBytes),
+                    formatBytes(getWriterHeapBytes()), formatBytes(getStatisticsHeapBytes()));
+            if (sampleRows >= 0) {
+                System.out.printf("    time:   %s: setup %s, then %s rows/s\n",
+                        seconds < 0 ? "unknown" : formatSeconds(seconds),
+                        formatSeconds(setupSeconds),
+                        sampleSeconds > 0 ? Long.toString(Math.round(sampleRows / sampleSeconds)) : "-");
+            }
+        }
+    }
+
+    /**
+     * Estimates what generating a file takes.
+     *
+     * @param generatorFile     the generation file
+     * @param name              name of the generation file, for messages
+     * @param sampleRows        rows to generate to estimate output bytes and time, or 0 for none
+     * @param heapLimit         don't sample if the heap estimate goes over this many bytes; -1 for no limit
+     * @return                  the estimates
+     * @throws IOException
+     * @throws ParseException
+     */
+    static Plan plan(
+            final File generatorFile,
+            final String name,
+            final long sampleRows,
+            final long heapLimit) throws IOException, ParseException {
+        final long start = System.nanoTime();
+        final GeneratorFile generation = GeneratorFile.read(generatorFile);
+        final Plan plan = new Plan(name, generation);
+        if (sampleRows <= 0 || (heapLimit >= 0 && plan.getEstimatedHeapBytes() > heapLimit)) {
+            // sampling would need all that heap as well
+            return plan;
+        }
+
+        // what the first row waits for
+        for (final DataGenerator generator : generation.generators) {
+            if (!generator.isUnbounded()) {
+                generator.getIterator().hasNext();
+            }
+        }
+        plan.setupSeconds = (System.nanoTime() - start) / 1e9;
+
+        final long limit = generation.maxRows >= 0 ? Math.min(sampleRows, generation.maxRows) : sampleRows;
+        if (generation.format == DataGen.OutputFormat.FLIGHT) {
+            final long sampleStart = System.nanoTime();
+            plan.sampleRows = DataGen.generateBatches(generation, limit, null, null, DROP_BATCHES);
+            plan.sampleSeconds = (System.nanoTime() - sampleStart) / 1e9;
+            plan.sampleIsAll = plan.sampleRows < limit || plan.sampleRows == generation.maxRows;
+            return plan;
+        }
+        final File sampleFile = File.createTempFile(me, format(generation.format));
+        // the Parquet writer won't write over an existing file
+        sampleFile.delete();
+        try {
+            final long sampleStart = System.nanoTime();
+            plan.sampleRows = DataGen.generate(generation, sampleFile.getPath(), limit, null, null, null);
+            plan.sampleSeconds = (System.nanoTime() - sampleStart) / 1e9;
+            plan.sampleBytes = sampleFile.length();
+            plan.sampleIsAll = plan.sampleRows < limit || plan.sampleRows == generation.maxRows;
+        } finally {
+            sampleFile.delete();
+            // written by Hadoop's local file system next to Parquet files
+            new File(sampleFile.getParentFile(), "." + sampleFile.getName() + ".crc").delete();
+        }
+        return plan;
+    }
+
+    /** Takes the batches of a FLIGHT sample, and drops them. */
+    private static final RowBatchConsumer DROP_BATCHES = new RowBatchConsumer() {
+        @Override
+        public void start(final String variable, final String[] columns, final Class<?>[] types) {
+        }
+
+        @Override
+        public void batch(final Object[][] values, final int rows) {
+        }
+
+        @Override
+        public void finish(final long rows) {
+        }
+    };
+
+    /**
+     * Estimates the peak heap of generating a file, without a sample; for Parquet, that counts a whole row group.
+     *
+     * @param generation    the generation file, with generators that haven't produced values yet
+     * @return              the estimate in bytes
+     */
+    static long estimateHeapBytes(final GeneratorFile generation) {
+        return new Plan(null, generation).getEstimatedHeapBytes();
+    }
+
+    private static String format(final DataGen.OutputFormat format) {
+        return "." + format.name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Checks the estimates for a generation file against the budgets given by java properties, if any.
+     * The output size and time need a sample, which is only generated when they have a budget.
+     *
+     * @param generatorFile     the generation file
+     * @param name              name of the generation file, for messages
+     * @throws IOException
+     * @throws ParseException
+     * @throws IllegalStateException if an estimate is over its budget
+     */
+    static void checkBudgets(final File generatorFile, final String name) throws IOException, ParseException {
+        if (BUDGET_BYTES < 0 && BUDGET_HEAP_BYTES < 0 && BUDGET_SECONDS < 0) {
+            return;
+        }
+        final boolean needsSample = BUDGET_BYTES >= 0 || BUDGET_SECONDS >= 0;
+        final Plan plan = plan(generatorFile, name, needsSample ? SAMPLE_ROWS : 0, BUDGET_HEAP_BYTES);
+        plan.print();
+        final List<String> exceeded = plan.checkBudgets();
+        if (!exceeded.isEmpty()) {
+            throw new IllegalStateException(String.format("%s: not generating, %s", name, String.join("; ", exceeded)));
+        }
+    }
+
+    private static long getBytesProperty(final String property) {
+        final String value = System.getProperty(property);
+        if (value == null) {
+            return -1;
+        }
+        return parseBytes(property, value);
+    }
+
+    /**
+     * Parses a size in bytes, with an optional suffix k, m, g or t for powers of 1024.
+     */
+    static long parseBytes(final String what, final String value) {
+        final String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        if (trimmed.isEmpty()) {
+            throw new IllegalArgumentException(String.format("%s: empty size", what));
+        }
+        final int shift;
+        switch (trimmed.charAt(trimmed.length() - 1)) {
+            case 'k':
+                shift = 10;
+                break;
+            case 'm':
+                shift = 20;
+                break;
+            case 'g':
+                shift = 30;
+                break;
+            case 't':
+                shift = 40;
+                break;
+            default:
+                shift = 0;
+                break;
+        }
+        final String number = shift == 0 ? trimmed : trimmed.substring(0, trimmed.length() - 1);
+        try {
+            return Math.round(Double.parseDouble(number) * (1L << shift));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException(String.format("%s: \"%s\" isn't a size", what, value));
+        }
+    }
+
+    static String formatBytes(final long bytes) {
+        if (bytes < 1024) {
+            return bytes + " B";
+        }
+        final String[] units = { "KiB", "MiB", "GiB", "TiB" };
+        double value = bytes / 1024.0;
+        int unit = 0;
+        while (value >= 1024 && unit < units.length - 1) {
+            value /= 1024;
+            ++unit;
+        }
+        return String.format("%.2f %s", value, units[unit]);
+    }
+
+    static String formatSeconds(final double seconds) {
+        if (seconds < 120) {
+            return String.format("%.1f s", seconds);
+        }
+        final long s = Math.round(seconds);
+        return String.format("%d:%02d:%02d", s / 3600, (s / 60) % 60, s % 60);
+    }
+
+    private static void usage() {
+        System.err.printf("Usage: %s [-n sample_rows] (generator.json|job.json)...\n", me);
+        System.err.printf("    -n sample_rows   rows to generate to estimate output size and time; 0 for none (default %d)\n",
+                SAMPLE_ROWS);
+        System.err.printf("Budgets are checked when the java properties generation.budget.bytes, generation.budget.heap\n");
+        System.err.printf("or generation.budget.seconds are set; the exit status is 1 if any is exceeded.\n");
+        System.exit(1);
+    }
+
+    /**
+     * Lists the generation files to plan for: the file itself, or for a job file the generator files of its
+     * benchmarks, each once.
+     *
+     * @param file  a generation file or a job file
+     * @return      map from generation file to the name it's given by
+     */
+    private static Map<File, String> getGeneratorFiles(final File file) throws IOException, ParseException {
+        final JSONObject document;
+        try (final Reader reader = new FileReader(file)) {
+            document = (JSONObject) new JSONParser().parse(reader);
+        }
+        final Map<File, String> generatorFiles = new LinkedHashMap<>();
+        final Object benchmarks = document.get("benchmarks");
+        if (!(benchmarks instanceof List)) {
+            generatorFiles.put(file, file.getPath());
+            return generatorFiles;
+        }
+        for (final Object benchmark : (List<Object>) benchmarks) {
+            final List<String> generatorFilenames = (List<String>) ((JSONObject) benchmark).get("generator_files");
+            if (generatorFilenames == null) {
+                continue;
+            }
+            for (final String generatorFilename : generatorFilenames) {
+                final File generatorFile = Utils.locateFile(file.getAbsoluteFile().getParentFile(), generatorFilename);
+                generatorFiles.putIfAbsent(generatorFile.getCanonicalFile(), generatorFilename);
+            }
+        }
+        return generatorFiles;
+    }
+
+    public static void main(String[] args) {
+        long sampleRows = SAMPLE_ROWS;
+
+        int argn = 0;
+        while (argn < args.length && args[argn].startsWith("-")) {
+            final String arg = args[argn++];
+            if (argn == args.length) {
+                usage();
+            }
+            try {
+                if ("-n".equals(arg)) {
+                    sampleRows = Long.parseLong(args[argn++]);
+                } else {
+                    System.err.printf("%s: unknown option '%s'.\n", me, arg);
+                    usage();
+                }
+            } catch (NumberFormatException ex) {
+                System.err.printf("%s: '%s' is not a valid number for %s.\n", me, args[argn - 1], arg);
+                usage();
+            }
+        }
+        if (argn == args.length) {
+            usage();
+        }
+
+        // sampling with more than this JVM can hold would only end in an OutOfMemoryError
+        final long heapLimit = BUDGET_HEAP_BYTES >= 0 ? BUDGET_HEAP_BYTES : Runtime.getRuntime().maxMemory();
+        int planned = 0;
+        long totalBytes = 0;
+        double totalSeconds = 0;
+        long maxHeap = 0;
+        boolean totalsKnown = true;
+        boolean overBudget = false;
+        for (; argn < args.length; ++argn) {
+            final File file = new File(args[argn]);
+            try {
+                for (final Map.Entry<File, String> entry : getGeneratorFiles(file).entrySet()) {
+                    final Plan plan = plan(entry.getKey(), entry.getValue(), sampleRows, heapLimit);
+                    plan.print();
+                    for (final String exceeded : plan.checkBudgets()) {
+                        System.out.printf("    OVER BUDGET: %s\n", exceeded);
+                        overBudget = true;
+                    }
+                    ++planned;
+                    maxHeap = Math.max(maxHeap, plan.getEstimatedHeapBytes());
+                    if (plan.getEstimatedBytes() < 0) {
+                        totalsKnown = false;
+                    } else {
+                        totalBytes += plan.getEstimatedBytes();
+                        totalSeconds += plan.getEstimatedSeconds();
+                    }
+                }
+            } catch (IOException | ParseException ex) {
+                System.err.printf("%s: couldn't plan for \"%s\": %s\n", me, file.getPath(), ex);
+                System.exit(1);
+            }
+        }
+
+        if (planned > 1) {
+            System.out.printf("Total for %d files: output %s, time %s, heap at most %s\n",
+                    planned,
+                    totalsKnown ? formatBytes(totalBytes) : "unknown",
+                    totalsKnown ? formatSeconds(totalSeconds) : "unknown",
+                    formatBytes(maxHeap));
+        }
+        if (maxHeap > Runtime.getRuntime().maxMemory()) {
+            System.out.printf("The heap estimate is over this JVM's maximum of %s.\n",
+                    formatBytes(Runtime.getRuntime().maxMemory()));
+        }
+        System.exit(overBudget ? 1 : 0);
+    }
+}
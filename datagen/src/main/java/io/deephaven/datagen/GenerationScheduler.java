@@ -0,0 +1,311 @@
+package io.deephaven.datagen;
+
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates several generation files at the same time, each once however many times it's submitted.
+ *
+ * Generation is limited three ways:
+ * <ul>
+ *     <li>CPU: at most {@code generation.threads} files are generated at once (default half the processors).</li>
+ *     <li>disk: at most {@code generation.io.threads} generations write to their output at once (default 2); the
+ *         others keep generating into their buffers, and wait their turn when those are full.</li>
+ *     <li>heap: a generation waits until the heap estimated by {@link GenerationPlanner} for it fits in the JVM's
+ *         maximum heap, next to the estimates of the generations running, unless it would run alone.</li>
+ * </ul>
+ * The output files, and whether one is generated or already there, are the same as with
+ * {@link DataGen#generateData(String, File, String)}.
+ *
+ * Generation can be paused, for instance while a benchmark is timed on the same machine; generations stop at their
+ * next row until resumed.  The time during which some generation was running and not paused is kept, so that
+ * whoever measures something else at the same time can tell how much it overlapped with generation.
+ */
+public class GenerationScheduler implements AutoCloseable {
+
+    private static final int GENERATION_THREADS = Integer.parseInt(System.getProperty(
+            "generation.threads", Integer.toString(Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+    private static final int IO_THREADS = Integer.parseInt(System.getProperty(
+            "generation.io.threads", "2"));
+
+    private final String outputPrefixPath;
+    private final ExecutorService executor;
+    private final Semaphore ioPermits;
+    private final long heapLimit;
+    // by generator file, in the order they were submitted
+    private final Map<File, Future<String>> generations = new LinkedHashMap<>();
+
+    // guarded by this
+    private long reservedHeapBytes;
+    private int running;
+
+    // guarded by pauseLock
+    private final Object pauseLock = new Object();
+    private boolean paused;
+    private int active;
+    private long busyNanos;
+    private long busySince;
+
+    /**
+     * Creates a scheduler with the limits given by java properties.
+     *
+     * @param outputPrefixPath  base directory for generated data
+     */
+    public GenerationScheduler(final String outputPrefixPath) {
+        this(outputPrefixPath, GENERATION_THREADS, IO_THREADS);
+    }
+
+    /**
+     * @param outputPrefixPath  base directory for generated data
+     * @param threads           files generated at once
+     * @param ioThreads         generations writing at once
+     */
+    public GenerationScheduler(final String outputPrefixPath, final int threads, final int ioThreads) {
+        if (threads < 1 || ioThreads < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "generation threads (=%d) and io threads (=%d) should be >= 1", threads, ioThreads));
+        }
+        this.outputPrefixPath = outputPrefixPath;
+        final AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, "generation-" + threadCount.incrementAndGet());
+            // an error exits without waiting for the other generations
+            thread.setDaemon(true);
+            return thread;
+        });
+        ioPermits = new Semaphore(ioThreads, true);
+        heapLimit = Runtime.getRuntime().maxMemory();
+    }
+
+    /**
+     * Starts generating a file, unless it's already been submitted.
+     *
+     * @param dir                   a directory relative to which interpret the generatorFilename
+     * @param generatorFilename     the generation file
+     * @return                      the name of the output file, once generated
+     */
+    public synchronized Future<String> submit(final File dir, final String generatorFilename) {
+        final File generatorFile = getKey(dir, generatorFilename);
+        return generations.computeIfAbsent(generatorFile, file -> executor.submit(() -> {
+            started();
+            try {
+                return DataGen.generateData(outputPrefixPath, dir, generatorFilename, this);
+            } finally {
+                finished();
+            }
+        }));
+    }
+
+    /**
+     * Waits for a file to be generated, submitting it first if it wasn't.
+     *
+     * @param dir                   a directory relative to which interpret the generatorFilename
+     * @param generatorFilename     the generation file
+     * @return                      the name of the output file
+     * @throws IOException
+     * @throws ParseException
+     */
+    public String get(final File dir, final String generatorFilename) throws IOException, ParseException {
+        final Future<String> generation = submit(dir, generatorFilename);
+        try {
+            return generation.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting for " + generatorFilename);
+        } catch (ExecutionException ex) {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof ParseException) {
+                throw (ParseException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(generatorFilename + ": generation failed", cause);
+        }
+    }
+
+    /**
+     * Waits for all the files submitted so far to be generated.
+     *
+     * @throws IOException
+     * @throws ParseException
+     */
+    public void awaitAll() throws IOException, ParseException {
+        final Map<File, Future<String>> submitted;
+        synchronized (this) {
+            submitted = new LinkedHashMap<>(generations);
+        }
+        for (final Future<String> generation : submitted.values()) {
+            try {
+                generation.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting for generation");
+            } catch (ExecutionException ex) {
+                // get() tells which one
+            }
+        }
+    }
+
+    /** The generation file, as the same file submitted from different directories or paths. */
+    private static File getKey(final File dir, final String generatorFilename) {
+        final File generatorFile = DataGen.locateGeneratorFile(dir, generatorFilename);
+        try {
+            return generatorFile.getCanonicalFile();
+        } catch (IOException ex) {
+            return generatorFile.getAbsoluteFile();
+        }
+    }
+
+    private void started() {
+        synchronized (pauseLock) {
+            if (active++ == 0 && !paused) {
+                busySince = System.nanoTime();
+            }
+        }
+    }
+
+    private void finished() {
+        synchronized (pauseLock) {
+            if (--active == 0 && !paused) {
+                busyNanos += System.nanoTime() - busySince;
+            }
+        }
+    }
+
+    /**
+     * Pauses generation: generations stop at their next row, and the busy clock stops.  Reading generation files,
+     * checking budgets and closing outputs aren't paused.
+     */
+    public void pause() {
+        synchronized (pauseLock) {
+            if (paused) {
+                return;
+            }
+            if (active > 0) {
+                busyNanos += System.nanoTime() - busySince;
+            }
+            paused = true;
+        }
+    }
+
+    /**
+     * Resumes generation paused by {@link #pause()}.
+     */
+    public void resume() {
+        synchronized (pauseLock) {
+            if (!paused) {
+                return;
+            }
+            paused = false;
+            if (active > 0) {
+                busySince = System.nanoTime();
+            }
+            pauseLock.notifyAll();
+        }
+    }
+
+    /**
+     * Tells for how long some generation has been running and not paused since the scheduler was created.
+     * The difference between two calls is how much generation overlapped what ran in between.
+     *
+     * @return  nanoseconds
+     */
+    public long getBusyNanos() {
+        synchronized (pauseLock) {
+            return busyNanos + (active > 0 && !paused ? System.nanoTime() - busySince : 0);
+        }
+    }
+
+    /**
+     * Waits while generation is paused; called by generations between rows.
+     *
+     * @return  nanoseconds waited
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    long awaitResumed() throws InterruptedIOException {
+        synchronized (pauseLock) {
+            if (!paused) {
+                return 0;
+            }
+            final long start = System.nanoTime();
+            while (paused) {
+                try {
+                    pauseLock.wait();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("interrupted while generation was paused");
+                }
+            }
+            return System.nanoTime() - start;
+        }
+    }
+
+    /** The base directory for generated data. */
+    public String getOutputPrefixPath() {
+        return outputPrefixPath;
+    }
+
+    Semaphore getIoPermits() {
+        return ioPermits;
+    }
+
+    /**
+     * Waits until the estimated heap of a generation fits next to the ones running, and counts it.
+     *
+     * @param name      name of the output, for messages
+     * @param bytes     estimated heap of the generation
+     * @throws InterruptedIOException if interrupted while waiting
+     */
+    synchronized void reserveHeap(final String name, final long bytes) throws InterruptedIOException {
+        boolean waited = false;
+        while (running > 0 && reservedHeapBytes + bytes > heapLimit) {
+            if (!waited) {
+                System.out.printf("%s: waiting for heap, %s needed and %s of %s taken by %d other generations\n",
+                        name, GenerationPlanner.formatBytes(bytes), GenerationPlanner.formatBytes(reservedHeapBytes),
+                        GenerationPlanner.formatBytes(heapLimit), running);
+                waited = true;
+            }
+            try {
+                wait();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException(name + ": interrupted waiting for heap");
+            }
+        }
+        reservedHeapBytes += bytes;
+        ++running;
+    }
+
+    synchronized void releaseHeap(final long bytes) {
+        reservedHeapBytes -= bytes;
+        --running;
+        notifyAll();
+    }
+
+    /**
+     * Stops generating; generations that haven't started are dropped.
+     */
+    @Override
+    public void close() {
+        resume();
+        executor.shutdownNow();
+    }
+}
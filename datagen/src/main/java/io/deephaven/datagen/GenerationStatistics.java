@@ -0,0 +1,206 @@
+package io.deephaven.datagen;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Statistics of the data as it is generated, one row at a time: per column the number of rows and nulls, the
+ * minimum and maximum, and an estimate of the number of distinct values from a {@link HyperLogLog}.
+ * They are written next to the output file, see {@link DataGen#getStatisticsFilename(String)}, so benchmarks
+ * can know what the data holds without reading it.
+ *
+ * Array columns only count rows and nulls.
+ */
+final class GenerationStatistics {
+
+    private final String[] columns;
+    private final ColumnStatistics[] columnStatistics;
+    private long rows;
+
+    GenerationStatistics(final String[] columns, final DataGenerator[] generators) {
+        this.columns = columns;
+        columnStatistics = new ColumnStatistics[columns.length];
+        for (int i = 0; i < columns.length; ++i) {
+            columnStatistics[i] = new ColumnStatistics(generators[i].getColumnType());
+        }
+    }
+
+    /**
+     * Adds a row; values are read right away, so reusable buffers can be overwritten after.
+     *
+     * @param data  the values of the row, one per column
+     */
+    void addRow(final Object[] data) {
+        ++rows;
+        for (int i = 0; i < data.length; ++i) {
+            columnStatistics[i].add(data[i]);
+        }
+    }
+
+    /**
+     * Estimates the heap the statistics take, mostly the distinct count sketches.
+     *
+     * @param columns   number of columns
+     * @return          an estimate in bytes
+     */
+    static long estimateHeapBytes(final int columns) {
+        return columns * ((1L << HyperLogLog.DEFAULT_INDEX_BITS) + 256);
+    }
+
+    long getRows() {
+        return rows;
+    }
+
+    /**
+     * Writes the statistics as JSON, with values as strings like generation files.
+     *
+     * @param fileName          name of the file to write
+     * @param outputFilename    name of the file the statistics are about
+     * @throws IOException
+     */
+    void write(final String fileName, final String outputFilename) throws IOException {
+        final Map<String, Object> document = new LinkedHashMap<>();
+        document.put("output_file", outputFilename);
+        document.put("rows", Long.toString(rows));
+        final List<Object> columnList = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; ++i) {
+            final Map<String, Object> column = new LinkedHashMap<>();
+            column.put("name", columns[i]);
+            columnStatistics[i].addTo(column);
+            columnList.add(column);
+        }
+        document.put("columns", columnList);
+
+        final StringBuilder sb = new StringBuilder();
+        Utils.appendJson(sb, document, 0);
+        sb.append('\n');
+        try (final FileWriter writer = new FileWriter(fileName)) {
+            writer.write(sb.toString());
+        }
+    }
+
+    private static final class ColumnStatistics {
+        private final DataGenerator.ColumnType columnType;
+        private final HyperLogLog distinct = new HyperLogLog();
+        private long nulls;
+        private boolean isArray;
+        private boolean haveValue;
+
+        // the one that applies to the values
+        private long longMin = Long.MAX_VALUE;
+        private long longMax = Long.MIN_VALUE;
+        private double doubleMin = Double.POSITIVE_INFINITY;
+        private double doubleMax = Double.NEGATIVE_INFINITY;
+        private String stringMin;
+        private String stringMax;
+
+        ColumnStatistics(final DataGenerator.ColumnType columnType) {
+            this.columnType = columnType;
+        }
+
+        void add(final Object value) {
+            if (value == null) {
+                ++nulls;
+                return;
+            }
+            haveValue = true;
+            if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                addLong(((Number) value).longValue());
+            } else if (value instanceof Double || value instanceof Float || value instanceof BigDecimal) {
+                final double d = ((Number) value).doubleValue();
+                distinct.addHash(HyperLogLog.hash(d));
+                if (d < doubleMin) {
+                    doubleMin = d;
+                }
+                if (d > doubleMax) {
+                    doubleMax = d;
+                }
+            } else if (value instanceof CharSequence) {
+                final CharSequence s = (CharSequence) value;
+                distinct.add(s);
+                // a copy only when it's a new minimum or maximum
+                if (stringMin == null || compare(s, stringMin) < 0) {
+                    stringMin = s.toString();
+                }
+                if (stringMax == null || compare(s, stringMax) > 0) {
+                    stringMax = s.toString();
+                }
+            } else if (value instanceof DataGenerator.UnixTimestampNanos) {
+                addLong(((DataGenerator.UnixTimestampNanos) value).nanos);
+            } else if (value instanceof LocalDate) {
+                addLong(((LocalDate) value).toEpochDay());
+            } else if (value instanceof Boolean) {
+                addLong((Boolean) value ? 1 : 0);
+            } else if (value instanceof Object[]) {
+                isArray = true;
+            } else {
+                // like FIXED_BINARY; no order worth reporting
+                distinct.add(value);
+            }
+        }
+
+        private void addLong(final long value) {
+            distinct.addHash(HyperLogLog.hash(value));
+            if (value < longMin) {
+                longMin = value;
+            }
+            if (value > longMax) {
+                longMax = value;
+            }
+        }
+
+        private static int compare(final CharSequence a, final CharSequence b) {
+            final int length = Math.min(a.length(), b.length());
+            for (int i = 0; i < length; ++i) {
+                final int cmp = Character.compare(a.charAt(i), b.charAt(i));
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(a.length(), b.length());
+        }
+
+        void addTo(final Map<String, Object> column) {
+            column.put("type", columnType.name());
+            column.put("nulls", Long.toString(nulls));
+            if (isArray || !haveValue) {
+                return;
+            }
+            final String min;
+            final String max;
+            if (longMin <= longMax) {
+                min = formatLong(longMin);
+                max = formatLong(longMax);
+            } else if (doubleMin <= doubleMax) {
+                min = Double.toString(doubleMin);
+                max = Double.toString(doubleMax);
+            } else {
+                min = stringMin;
+                max = stringMax;
+            }
+            if (min != null) {
+                column.put("min", min);
+                column.put("max", max);
+            }
+            column.put("distinct", Long.toString(distinct.estimate()));
+        }
+
+        private String formatLong(final long value) {
+            switch (columnType) {
+                case DATE:
+                    return LocalDate.ofEpochDay(value).toString();
+                case BOOLEAN:
+                    return Boolean.toString(value != 0);
+                default:
+                    // timestamps stay nanoseconds since the epoch
+                    return Long.toString(value);
+            }
+        }
+    }
+}
@@ -0,0 +1,380 @@
+package io.deephaven.datagen;
+
+import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A generation file, read and ready to generate from: its output format, the columns with their generators bound
+ * to the row they fill, the order to generate them in, and the optional row limit.  Generators are used up by
+ * generating, so reading the file again gives fresh ones, as {@link GenerationPlanner} does to sample.
+ */
+final class GeneratorFile {
+
+    // in the definitions of the columns of a MultiColumnGenerator, which aren't JSON
+    private static final String GROUP_KEY = "group";
+    private static final String FIELD_KEY = "field";
+
+    final DataGen.OutputFormat format;
+    final CompressionCodecName compression;
+    final JSONObject csv;
+    // for FLIGHT, the server variable the uploaded table is bound to
+    final String variable;
+    final String[] columns;
+    final DataGenerator[] generators;
+    final int[] order;
+    final Object[] data;
+    final long maxRows;
+
+    private GeneratorFile(
+            final DataGen.OutputFormat format,
+            final CompressionCodecName compression,
+            final JSONObject csv,
+            final String variable,
+            final String[] columns,
+            final DataGenerator[] generators,
+            final long maxRows) {
+        this.format = format;
+        this.compression = compression;
+        this.csv = csv;
+        this.variable = variable;
+        this.columns = columns;
+        this.generators = generators;
+        this.maxRows = maxRows;
+
+        // columns computed from other columns read them from the row as it is generated
+        order = getGenerationOrder(columns, generators);
+        data = new Object[columns.length];
+        for (final DataGenerator generator : generators) {
+            generator.bindColumns(columns, generators, data);
+        }
+    }
+
+    /**
+     * Reads the format of a generation file, without creating its generators.
+     *
+     * @param generatorFile     the generation file
+     * @return                  the output format
+     * @throws IOException
+     * @throws ParseException
+     */
+    static DataGen.OutputFormat readFormat(final File generatorFile) throws IOException, ParseException {
+        return getOutputFormat(parse(generatorFile));
+    }
+
+    /**
+     * Reads a generation file and creates its generators; source files they take values from are loaded.
+     *
+     * @param generatorFile     the generation file
+     * @return                  a GeneratorFile ready to generate from
+     * @throws IOException
+     * @throws ParseException
+     */
+    static GeneratorFile read(final File generatorFile) throws IOException, ParseException {
+        final JSONObject jsonMap = parse(generatorFile);
+        final Map<String, Object> documentDictionary = (Map<String, Object>) jsonMap;
+
+        final Object columnsObject = documentDictionary.get("columns");
+        // keeps the column order of the list form, after expanding templates
+        final Map<String, JSONObject> columnDictionary = new LinkedHashMap<>();
+        if (columnsObject instanceof Map) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) columnsObject).entrySet()) {
+                addColumn(columnDictionary, entry.getKey(), (JSONObject) entry.getValue());
+            }
+        } else if (columnsObject instanceof List) {
+            final List<Object> columnList = (List) columnsObject;
+            for (Object element : columnList) {
+                final JSONObject jo = (JSONObject) element;
+                // a definition of several columns names them with "names"
+                final String column = jo.containsKey("names") && !jo.containsKey("name")
+                        ? (String) jo.get("generation_type")
+                        : Utils.getStringElementValue("name", jo);
+                addColumn(columnDictionary, column, jo);
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    "element \"columns\" has the wrong type: " + columnsObject.getClass().getSimpleName());
+        }
+        final String[] columns = columnDictionary.keySet().toArray(new String[columnDictionary.size()]);
+
+        // map from string (name of column) to our io.deephaven.datagen.DataGenerator-derived objects
+        final DataGenerator[] generators = new DataGenerator[columns.length];
+
+        // for each entry in the JSON document ...
+        int i = 0;
+        for (final String column : columns) {
+
+            // get the column name and the JSON object
+            final JSONObject jsonField = columnDictionary.get(column);
+
+            // create that object and dump it into the map
+            final MultiColumnGenerator group = (MultiColumnGenerator) jsonField.get(GROUP_KEY);
+            final DataGenerator gen = group == null
+                    ? DataGenerator.fromJson(column, jsonField)
+                    : group.getColumn(column, (String) jsonField.get(FIELD_KEY));
+            generators[i++] = gen;
+        }
+
+        // optional limit on the number of rows; needed if no column ever runs out
+        final long maxRows = Long.parseLong(Utils.getStringElementValueOrDefault("rows", jsonMap, "-1"));
+
+        if (documentDictionary.get("format") == null) {
+            System.out.println("no format found, defaulting to PARQUET");
+        }
+        final DataGen.OutputFormat format = getOutputFormat(documentDictionary);
+        return new GeneratorFile(
+                format,
+                getCompression(jsonMap),
+                (JSONObject) jsonMap.get("csv"),
+                format == DataGen.OutputFormat.FLIGHT ? getVariable(jsonMap) : null,
+                columns,
+                generators,
+                maxRows);
+    }
+
+    private static JSONObject parse(final File generatorFile) throws IOException, ParseException {
+        try (final Reader reader = new FileReader(generatorFile)) {
+            return (JSONObject) new JSONParser().parse(reader);
+        }
+    }
+
+    /***
+     * Parse the output format from the given JSON document map
+     *
+     * @param document      JSON document map, positioned at top-level
+     * @return              OutputFormat, PARQUET if there is none, or an exception about a bad type
+     */
+    private static DataGen.OutputFormat getOutputFormat(final Map<String, Object> document) {
+        final String fmt = (String) document.get("format");
+        if (fmt == null) {
+            return DataGen.OutputFormat.PARQUET;
+        }
+
+        try {
+            return Enum.valueOf(DataGen.OutputFormat.class, fmt);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(String.format("unrecognized output format \"%s\"", fmt));
+        }
+    }
+
+    private static String getVariable(final JSONObject jo) {
+        final String variable = (String) jo.get("variable");
+        if (variable == null || !variable.matches("[A-Za-z_][A-Za-z_0-9]*")) {
+            throw new IllegalArgumentException(String.format(
+                    "format FLIGHT needs a \"variable\" to bind the table to that is a name, not \"%s\"", variable));
+        }
+        return variable;
+    }
+
+    private static CompressionCodecName getCompression(final JSONObject jo) {
+        final String codec = Utils.getStringElementValueOrDefault("compression", jo, "GZIP");
+        try {
+            return CompressionCodecName.valueOf(codec.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(String.format("unrecognized compression \"%s\"", codec));
+        }
+    }
+
+    /**
+     * Tells how many rows generation produces, if that can be known without generating them: the least of
+     * {@code "rows"} and the row counts of the columns that run out.
+     *
+     * @return  the number of rows, or -1 if it's unknown; see {@link #isRowCountExact()}
+     */
+    long getRowCount() {
+        long rows = maxRows;
+        for (final DataGenerator generator : generators) {
+            if (generator.isUnbounded()) {
+                continue;
+            }
+            final long count = generator.getRowCount();
+            if (count >= 0 && (rows < 0 || count < rows)) {
+                rows = count;
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Tells whether {@link #getRowCount()} is exact, or only an upper bound because some column that runs out
+     * can't tell when.
+     */
+    boolean isRowCountExact() {
+        for (final DataGenerator generator : generators) {
+            if (!generator.isUnbounded() && generator.getRowCount() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Estimates the heap the generators hold on to; see {@link DataGenerator#getEstimatedHeapBytes()}. */
+    long getEstimatedGeneratorHeapBytes() {
+        long bytes = 0;
+        for (final DataGenerator generator : generators) {
+            bytes += generator.getEstimatedHeapBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Orders the columns so that each column is generated after the columns it references.
+     * Otherwise columns keep their order.
+     *
+     * @param columns       Column names
+     * @param generators    Generators for each of the columns
+     * @return              Indices of the columns, in generation order
+     */
+    private static int[] getGenerationOrder(final String[] columns, final DataGenerator[] generators) {
+        final Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < columns.length; ++i) {
+            indices.put(columns[i], i);
+        }
+        final int[] order = new int[columns.length];
+        // 0: not visited, 1: visiting its references, 2: ordered
+        final int[] state = new int[columns.length];
+        int ordered = 0;
+        for (int i = 0; i < columns.length; ++i) {
+            ordered = visitColumn(i, columns, generators, indices, state, order, ordered);
+        }
+        return order;
+    }
+
+    private static int visitColumn(
+            final int i,
+            final String[] columns,
+            final DataGenerator[] generators,
+            final Map<String, Integer> indices,
+            final int[] state,
+            final int[] order,
+            int ordered) {
+        if (state[i] == 2) {
+            return ordered;
+        }
+        if (state[i] == 1) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: column references itself through other columns", columns[i]));
+        }
+        state[i] = 1;
+        for (final String reference : generators[i].getReferencedColumns()) {
+            final Integer referenced = indices.get(reference);
+            if (referenced == null) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: references unknown column \"%s\"", columns[i], reference));
+            }
+            ordered = visitColumn(referenced, columns, generators, indices, state, order, ordered);
+        }
+        state[i] = 2;
+        order[ordered++] = i;
+        return ordered;
+    }
+
+    /**
+     * Adds a column definition to the dictionary of columns.  A definition with a {@code template_count}
+     * is a template for that many columns: {@code {i}} in its name is replaced by the column index,
+     * starting at {@code template_start} (default 0), and the index is added to its seed.
+     *
+     * @param columnDictionary  Map from column name to column definition, in column order
+     * @param name              Name of the column, or name template
+     * @param jo                JSONObject with the column definition
+     */
+    private static void addColumn(
+            final Map<String, JSONObject> columnDictionary,
+            final String name,
+            final JSONObject jo) {
+        if (jo.containsKey("names")) {
+            addColumns(columnDictionary, name, jo);
+            return;
+        }
+        if (!jo.containsKey("template_count")) {
+            putColumn(columnDictionary, name, jo);
+            return;
+        }
+
+        final int count = Utils.getIntElementValue("template_count", jo);
+        final int start = Utils.getIntElementValueOrDefault("template_start", jo, 0);
+        if (count <= 0) {
+            throw new IllegalArgumentException(String.format("%s: template_count (=%d) should be > 0", name, count));
+        }
+        if (count > 1 && !name.contains("{i}")) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: a template for more than one column needs \"{i}\" in its name", name));
+        }
+        final String seed = (String) jo.get("seed");
+        for (int i = start; i < start + count; ++i) {
+            final JSONObject column = new JSONObject();
+            column.putAll(jo);
+            column.remove("template_count");
+            column.remove("template_start");
+            if (seed != null) {
+                column.put("seed", Long.toString(Long.parseLong(seed) + i));
+            }
+            final String columnName = name.replace("{i}", Integer.toString(i));
+            if (column.containsKey("name")) {
+                column.put("name", columnName);
+            }
+            putColumn(columnDictionary, columnName, column);
+        }
+    }
+
+    /**
+     * Adds the columns of a definition of several columns, see {@link MultiColumnGenerator}: one for each entry of
+     * its {@code "names"}, from the field the generator has to the name of the column, in the generator's order of
+     * fields.  The generator is created now; each column's definition holds it, under {@link #GROUP_KEY}, and names
+     * its field, under {@link #FIELD_KEY}.
+     *
+     * @param columnDictionary  Map from column name to column definition, in column order
+     * @param name              Name of the definition, for messages
+     * @param jo                JSONObject with the definition
+     */
+    private static void addColumns(
+            final Map<String, JSONObject> columnDictionary,
+            final String name,
+            final JSONObject jo) {
+        if (jo.containsKey("template_count")) {
+            throw new IllegalArgumentException(String.format("%s: a definition with \"names\" can't be a template", name));
+        }
+        final Object names = jo.get("names");
+        if (!(names instanceof Map) || ((Map<?, ?>) names).isEmpty()) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: \"names\" should map the fields generated to column names", name));
+        }
+        final MultiColumnGenerator generator = MultiColumnGenerator.fromJson(name, jo);
+        final Map<String, Object> fieldNames = new HashMap<>((Map<String, Object>) names);
+        // the map from JSON has no order of its own
+        for (final String field : generator.getFields()) {
+            final String columnName = (String) fieldNames.remove(field);
+            if (columnName == null) {
+                continue;
+            }
+            final JSONObject column = new JSONObject();
+            column.put(GROUP_KEY, generator);
+            column.put(FIELD_KEY, field);
+            putColumn(columnDictionary, columnName, column);
+        }
+        if (!fieldNames.isEmpty()) {
+            throw new IllegalArgumentException(String.format("%s: unknown fields %s in \"names\", should be among %s",
+                    name, fieldNames.keySet(), String.join(", ", generator.getFields())));
+        }
+    }
+
+    private static void putColumn(
+            final Map<String, JSONObject> columnDictionary,
+            final String name,
+            final JSONObject jo) {
+        if (columnDictionary.put(name, jo) != null) {
+            throw new IllegalArgumentException(String.format("%s: column defined more than once", name));
+        }
+    }
+}
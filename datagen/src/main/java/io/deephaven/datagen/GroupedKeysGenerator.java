@@ -0,0 +1,451 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A GroupedKeysGenerator produces the columns of a grouping key from a key space of exact size, so the number of
+ * groups, and the state an aggregation keeps, is what the generation file says rather than what independent
+ * draws happen to give.
+ *
+ * Each entry of {@code keys} is a column: its {@code field}, {@code type} (INT32, the default, INT64 or STRING),
+ * and {@code cardinality}; its values are {@code start} (default 0) and up, or {@code prefix} followed by 0 and up
+ * for strings.  Of all the combinations of their values, {@code distinct_keys} (default all of them) are used,
+ * picked at random, or evenly spaced when {@code order} is sorted.  Then each key gets rows:
+ * <ul>
+ *     <li>{@code multiplicity} uniform (the default): {@code rows_per_key} (default 1) each.</li>
+ *     <li>{@code multiplicity} zipf: {@code total_rows} in all, at least one for each key, the rest shared
+ *         following a Zipf law with {@code zipf_exponent} (default 1) over the keys in random order.</li>
+ * </ul>
+ * The rows come, with {@code sampling} without_replacement (the default), exactly that many times per key:
+ * {@code order} shuffled (the default) in random order, grouped with the rows of a key together and the keys in
+ * random order, or sorted by key.  With {@code sampling} with_replacement, each row draws a key at random with the
+ * same weights, without end; the number of distinct keys is then at most {@code distinct_keys}.
+ *
+ * Shuffling and picking keys use {@link FeistelPermutation}, which takes no memory; only zipf keeps something per
+ * key, its counts in a {@link CountSampler} for shuffled rows, or its cumulative weights with replacement.
+ */
+final class GroupedKeysGenerator extends MultiColumnGenerator {
+
+    enum Multiplicity {
+        UNIFORM,
+        ZIPF,
+    }
+
+    enum Order {
+        SHUFFLED,
+        GROUPED,
+        SORTED,
+    }
+
+    private final String[] fields;
+    private final DataGenerator.ColumnType[] types;
+    private final long[] cardinalities;
+    private final long[] starts;
+    private final String[] prefixes;
+    private final long keySpace;
+    private final long distinctKeys;
+    private final Multiplicity multiplicity;
+    private final Order order;
+    private final boolean withReplacement;
+    private final long rowsPerKey;
+    private final long totalRows;
+    private final double zipfExponent;
+    private final Random prng;
+
+    // zipf: extra rows shared out by weight, what the weights add up to, and the keys that get one more
+    private double zipfTotalWeight;
+    private long zipfExtraRows;
+    private long zipfRemainder;
+
+    // set up when generation starts, since some take memory
+    private boolean started;
+    private FeistelPermutation combinations;
+    private FeistelPermutation rows;
+    private FeistelPermutation keyOrder;
+    private CountSampler sampler;
+    private double[] cumulativeWeights;
+
+    private long emitted;
+    // grouped and sorted: the key whose rows are coming, and how many of them are left
+    private long runKey = -1;
+    private long runLeft;
+
+    // the current row
+    private final Object[] values;
+
+    private GroupedKeysGenerator(
+            final String[] fields,
+            final DataGenerator.ColumnType[] types,
+            final long[] cardinalities,
+            final long[] starts,
+            final String[] prefixes,
+            final long keySpace,
+            final long distinctKeys,
+            final Multiplicity multiplicity,
+            final Order order,
+            final boolean withReplacement,
+            final long rowsPerKey,
+            final long totalRows,
+            final double zipfExponent,
+            final long seed) {
+        this.fields = fields;
+        this.types = types;
+        this.cardinalities = cardinalities;
+        this.starts = starts;
+        this.prefixes = prefixes;
+        this.keySpace = keySpace;
+        this.distinctKeys = distinctKeys;
+        this.multiplicity = multiplicity;
+        this.order = order;
+        this.withReplacement = withReplacement;
+        this.rowsPerKey = rowsPerKey;
+        this.totalRows = totalRows;
+        this.zipfExponent = zipfExponent;
+        this.prng = new Random(seed);
+        values = new Object[fields.length];
+
+        if (multiplicity == Multiplicity.ZIPF) {
+            for (long rank = 0; rank < distinctKeys; ++rank) {
+                zipfTotalWeight += zipfWeight(rank);
+            }
+            zipfExtraRows = totalRows - distinctKeys;
+            long shared = 0;
+            for (long rank = 0; rank < distinctKeys; ++rank) {
+                shared += zipfExtra(rank);
+            }
+            zipfRemainder = zipfExtraRows - shared;
+            if (zipfRemainder < 0 || zipfRemainder > distinctKeys) {
+                throw new IllegalStateException(String.format(
+                        "zipf counts add up to %d rows, not %d", distinctKeys + shared, totalRows));
+            }
+        }
+    }
+
+    static GroupedKeysGenerator fromJson(final String name, final JSONObject jo) {
+        final long seed = Utils.getLongElementValue("seed", jo);
+        final Object keysObject = jo.get("keys");
+        if (!(keysObject instanceof List) || ((List<?>) keysObject).isEmpty()) {
+            throw new IllegalArgumentException(String.format("%s: \"keys\" should be a list of key columns", name));
+        }
+        final List<?> keys = (List<?>) keysObject;
+        final int n = keys.size();
+        final String[] fields = new String[n];
+        final DataGenerator.ColumnType[] types = new DataGenerator.ColumnType[n];
+        final long[] cardinalities = new long[n];
+        final long[] starts = new long[n];
+        final String[] prefixes = new String[n];
+        long keySpace = 1;
+        for (int i = 0; i < n; ++i) {
+            final JSONObject key = (JSONObject) keys.get(i);
+            fields[i] = Utils.getStringElementValue("field", key);
+            for (int j = 0; j < i; ++j) {
+                if (fields[j].equals(fields[i])) {
+                    throw new IllegalArgumentException(String.format("%s: key field %s is given twice", name, fields[i]));
+                }
+            }
+            final String type = Utils.getStringElementValueOrDefault("type", key, "INT32");
+            try {
+                types[i] = DataGenerator.ColumnType.valueOf(type);
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException(String.format("%s: unknown type %s of key %s", name, type, fields[i]));
+            }
+            cardinalities[i] = Utils.getLongElementValue("cardinality", key);
+            if (cardinalities[i] <= 0) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: cardinality (=%d) of key %s should be > 0", name, cardinalities[i], fields[i]));
+            }
+            switch (types[i]) {
+                case INT32:
+                    starts[i] = Utils.getIntElementValueOrDefault("start", key, 0);
+                    if (starts[i] + cardinalities[i] - 1 > Integer.MAX_VALUE) {
+                        throw new IllegalArgumentException(String.format(
+                                "%s: the values of key %s don't fit an INT32", name, fields[i]));
+                    }
+                    break;
+                case INT64:
+                    starts[i] = Long.parseLong(Utils.getStringElementValueOrDefault("start", key, "0"));
+                    if (starts[i] > Long.MAX_VALUE - (cardinalities[i] - 1)) {
+                        throw new IllegalArgumentException(String.format(
+                                "%s: the values of key %s don't fit an INT64", name, fields[i]));
+                    }
+                    break;
+                case STRING:
+                    prefixes[i] = Utils.getStringElementValueOrDefault("prefix", key, "");
+                    break;
+                default:
+                    throw new IllegalArgumentException(String.format(
+                            "%s: key %s has type %s; grouped_keys makes INT32, INT64 or STRING keys", name, fields[i], types[i]));
+            }
+            try {
+                keySpace = Math.multiplyExact(keySpace, cardinalities[i]);
+            } catch (ArithmeticException ex) {
+                keySpace = Long.MAX_VALUE;
+            }
+        }
+        if (keySpace > FeistelPermutation.MAX_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: the key space, the product of the cardinalities, should be at most 2^62", name));
+        }
+
+        final long distinctKeys = Long.parseLong(
+                Utils.getStringElementValueOrDefault("distinct_keys", jo, Long.toString(keySpace)));
+        if (distinctKeys <= 0 || distinctKeys > keySpace) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: distinct_keys (=%d) should be between 1 and the product of the cardinalities (=%d)",
+                    name, distinctKeys, keySpace));
+        }
+
+        final Multiplicity multiplicity = getEnum(name, jo, "multiplicity", Multiplicity.UNIFORM);
+        final Order order = getEnum(name, jo, "order", Order.SHUFFLED);
+        final String sampling = Utils.getStringElementValueOrDefault("sampling", jo, "without_replacement");
+        final boolean withReplacement;
+        switch (sampling.toLowerCase(Locale.ROOT)) {
+            case "without_replacement":
+                withReplacement = false;
+                break;
+            case "with_replacement":
+                withReplacement = true;
+                break;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: sampling must be without_replacement or with_replacement; found \"%s\"", name, sampling));
+        }
+        if (withReplacement && order != Order.SHUFFLED) {
+            throw new IllegalArgumentException(String.format("%s: sampling with_replacement can only be shuffled", name));
+        }
+
+        long rowsPerKey = 0;
+        long totalRows = 0;
+        double zipfExponent = 0.0;
+        if (multiplicity == Multiplicity.UNIFORM) {
+            rowsPerKey = Long.parseLong(Utils.getStringElementValueOrDefault("rows_per_key", jo, "1"));
+            if (rowsPerKey <= 0) {
+                throw new IllegalArgumentException(String.format("%s: rows_per_key (=%d) should be > 0", name, rowsPerKey));
+            }
+            if (!withReplacement && (distinctKeys > FeistelPermutation.MAX_SIZE / rowsPerKey)) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: distinct_keys * rows_per_key should be at most 2^62", name));
+            }
+            totalRows = distinctKeys * rowsPerKey;
+        } else {
+            if (distinctKeys > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: zipf multiplicity keeps a count per key, so distinct_keys (=%d) should fit an INT32",
+                        name, distinctKeys));
+            }
+            zipfExponent = Double.parseDouble(Utils.getStringElementValueOrDefault("zipf_exponent", jo, "1"));
+            if (zipfExponent < 0.0) {
+                throw new IllegalArgumentException(String.format("%s: zipf_exponent (=%g) should be >= 0", name, zipfExponent));
+            }
+            if (!withReplacement) {
+                totalRows = Utils.getLongElementValue("total_rows", jo);
+                if (totalRows < distinctKeys) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s: total_rows (=%d) should be at least distinct_keys (=%d), to give each key a row",
+                            name, totalRows, distinctKeys));
+                }
+            }
+        }
+
+        return new GroupedKeysGenerator(fields, types, cardinalities, starts, prefixes, keySpace, distinctKeys,
+                multiplicity, order, withReplacement, rowsPerKey, totalRows, zipfExponent, seed);
+    }
+
+    private static <T extends Enum<T>> T getEnum(final String name, final JSONObject jo, final String key, final T defaultValue) {
+        final String value = Utils.getStringElementValueOrDefault(key, jo, defaultValue.name());
+        try {
+            return Enum.valueOf(defaultValue.getDeclaringClass(), value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            final StringBuilder sb = new StringBuilder();
+            for (final T constant : defaultValue.getDeclaringClass().getEnumConstants()) {
+                sb.append(sb.length() == 0 ? "" : ", ").append(constant.name().toLowerCase(Locale.ROOT));
+            }
+            throw new IllegalArgumentException(String.format(
+                    "%s: %s must be one of %s; found \"%s\"", name, key, sb, value));
+        }
+    }
+
+    private double zipfWeight(final long rank) {
+        return Math.pow(rank + 1, -zipfExponent);
+    }
+
+    /** The rows of a key of the given rank beyond its first, leaving out the remainder. */
+    private long zipfExtra(final long rank) {
+        return (long) Math.floor(zipfExtraRows * zipfWeight(rank) / zipfTotalWeight);
+    }
+
+    /** The rows of a key of the given rank. */
+    private long zipfRows(final long rank) {
+        return 1 + zipfExtra(rank) + (rank < zipfRemainder ? 1 : 0);
+    }
+
+    @Override
+    protected String[] getFields() {
+        return fields;
+    }
+
+    @Override
+    protected DataGenerator.ColumnType getColumnType(final int field) {
+        return types[field];
+    }
+
+    @Override
+    protected boolean isUnbounded() {
+        return withReplacement;
+    }
+
+    @Override
+    protected long getRowCount() {
+        return withReplacement ? -1 : totalRows;
+    }
+
+    @Override
+    protected boolean hasNext() {
+        return withReplacement || emitted < totalRows;
+    }
+
+    @Override
+    protected long getEstimatedHeapBytes() {
+        if (multiplicity != Multiplicity.ZIPF) {
+            return 0;
+        }
+        if (withReplacement) {
+            return 16 + 8L * distinctKeys;
+        }
+        return order == Order.SHUFFLED ? 16 + 8L * (distinctKeys + 1) : 0;
+    }
+
+    private void start() {
+        started = true;
+        combinations = new FeistelPermutation(keySpace, prng.nextLong());
+        keyOrder = new FeistelPermutation(distinctKeys, prng.nextLong());
+        if (withReplacement) {
+            if (multiplicity == Multiplicity.ZIPF) {
+                cumulativeWeights = new double[(int) distinctKeys];
+                double total = 0.0;
+                for (int rank = 0; rank < distinctKeys; ++rank) {
+                    total += zipfWeight(rank);
+                    cumulativeWeights[rank] = total;
+                }
+            }
+            return;
+        }
+        if (order != Order.SHUFFLED) {
+            return;
+        }
+        if (multiplicity == Multiplicity.UNIFORM) {
+            rows = new FeistelPermutation(totalRows, prng.nextLong());
+        } else {
+            final long[] counts = new long[(int) distinctKeys];
+            for (int rank = 0; rank < counts.length; ++rank) {
+                counts[rank] = zipfRows(rank);
+            }
+            sampler = new CountSampler(counts);
+        }
+    }
+
+    @Override
+    protected void advance() {
+        if (!started) {
+            start();
+        }
+        final long key = nextKey();
+        ++emitted;
+
+        // the combination of the key's values, in mixed radix with the last key column changing fastest
+        long combination = order == Order.SORTED ? spread(key) : combinations.permute(key);
+        for (int i = fields.length - 1; i >= 0; --i) {
+            final long index = combination % cardinalities[i];
+            combination /= cardinalities[i];
+            switch (types[i]) {
+                case INT32:
+                    values[i] = (int) (starts[i] + index);
+                    break;
+                case INT64:
+                    values[i] = starts[i] + index;
+                    break;
+                default:
+                    values[i] = prefixes[i] + index;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Picks the key of the next row, as an index in {@code [0, distinctKeys)}; keys are ranked by index for zipf.
+     */
+    private long nextKey() {
+        if (withReplacement) {
+            if (multiplicity == Multiplicity.UNIFORM) {
+                return nextLong(prng, distinctKeys);
+            }
+            return search(cumulativeWeights, prng.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1]);
+        }
+        if (order == Order.SHUFFLED) {
+            if (multiplicity == Multiplicity.UNIFORM) {
+                return rows.permute(emitted) / rowsPerKey;
+            }
+            return sampler.take(nextLong(prng, sampler.remaining()));
+        }
+        if (runLeft == 0) {
+            ++runKey;
+            // the heavy keys aren't the first ones
+            final long rank = keyOrder.permute(runKey);
+            runLeft = multiplicity == Multiplicity.UNIFORM ? rowsPerKey : zipfRows(rank);
+        }
+        --runLeft;
+        return order == Order.SORTED ? runKey : keyOrder.permute(runKey);
+    }
+
+    /**
+     * Maps a key to evenly spaced combinations, in increasing order: {@code floor(key * keySpace / distinctKeys)}.
+     */
+    private long spread(final long key) {
+        final long quotient = keySpace / distinctKeys;
+        final long remainder = keySpace % distinctKeys;
+        if (remainder == 0 || key <= Long.MAX_VALUE / remainder) {
+            return key * quotient + key * remainder / distinctKeys;
+        }
+        return key * quotient + BigInteger.valueOf(key).multiply(BigInteger.valueOf(remainder))
+                .divide(BigInteger.valueOf(distinctKeys)).longValue();
+    }
+
+    private static int search(final double[] cumulative, final double u) {
+        int lo = 0;
+        int hi = cumulative.length - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (cumulative[mid] <= u) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** A uniformly random long in {@code [0, bound)}. */
+    private static long nextLong(final Random prng, final long bound) {
+        if (bound <= Integer.MAX_VALUE) {
+            return prng.nextInt((int) bound);
+        }
+        long bits;
+        long value;
+        do {
+            bits = prng.nextLong() >>> 1;
+            value = bits % bound;
+        } while (bits - value + (bound - 1) < 0);
+        return value;
+    }
+
+    @Override
+    protected Object getValue(final int field) {
+        return values[field];
+    }
+}
@@ -46,13 +46,10 @@ public class IDGenerator extends DataGenerator {
             case STRING:
                 hexString = Utils.getBooleanElementValueOrDefault("hex", jo, false);
                 break;
-            case DOUBLE:
-            case TIMESTAMP_NANOS:
-                throw new IllegalArgumentException(
-                        "Only column types INT32 or INT64 are supported for " +
-                                IDGenerator.class.getSimpleName());
             default:
-                throw new IllegalStateException("Missing types");
+                throw new IllegalArgumentException(String.format(
+                        "%s: generation_type id makes INT32, INT64 or STRING values, or types converted from INT64; found %s",
+                        fieldName, columnType));
         }
 
         final Increment increment;
@@ -130,7 +127,7 @@ public class IDGenerator extends DataGenerator {
             if (columnType == ColumnType.INT32)
                 return (int) next;
             else if (columnType == ColumnType.INT64)
-                return Long.toString(next);
+                return next;
             else if (columnType == ColumnType.STRING)
                 if (hexString) {
                     return Long.toHexString(next);
@@ -142,6 +139,11 @@ public class IDGenerator extends DataGenerator {
         }
     }
 
+    @Override
+    public boolean isUnbounded() {
+        return true;
+    }
+
     @Override
     public Iterator<Object> getIterator() {
         return objectIterator;
@@ -0,0 +1,98 @@
+package io.deephaven.datagen;
+
+import org.apache.parquet.io.PositionOutputStream;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.Semaphore;
+
+/**
+ * An output stream that buffers what's written to it, and takes one of a limited number of permits for each write
+ * of its buffer to the stream below, so that generations running at the same time don't all write to the disk
+ * at once; see {@link GenerationScheduler}.  It keeps its position, so it can back a Parquet {@code OutputFile}.
+ */
+final class LimitedOutputStream extends PositionOutputStream {
+
+    private final OutputStream out;
+    private final Semaphore permits;
+    private final byte[] buffer;
+    private int count;
+    private long written;
+
+    /**
+     * @param out           the stream to write to; closed with this one
+     * @param permits       the permits, shared by all the streams that should take turns
+     * @param bufferSize    the size of the writes to {@code out}, except for the last one
+     */
+    LimitedOutputStream(final OutputStream out, final Semaphore permits, final int bufferSize) {
+        this.out = out;
+        this.permits = permits;
+        buffer = new byte[bufferSize];
+    }
+
+    @Override
+    public long getPos() {
+        return written + count;
+    }
+
+    @Override
+    public void write(final int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) throws IOException {
+        if (len >= buffer.length) {
+            // no point copying it
+            flushBuffer();
+            writeOut(b, off, len);
+            return;
+        }
+        if (len > buffer.length - count) {
+            flushBuffer();
+        }
+        System.arraycopy(b, off, buffer, count, len);
+        count += len;
+    }
+
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            writeOut(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void writeOut(final byte[] b, final int off, final int len) throws IOException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted waiting to write");
+        }
+        try {
+            out.write(b, off, len);
+        } finally {
+            permits.release();
+        }
+        written += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package io.deephaven.datagen;
 
 import java.util.Iterator;
+import java.util.Set;
 
 public class LongToStringDataGeneratorAdapter extends DataGenerator {
     final DataGenerator wrappedGenerator;
@@ -15,6 +16,31 @@ public class LongToStringDataGeneratorAdapter extends DataGenerator {
         this.hex = hex;
     }
 
+    @Override
+    public Set<String> getReferencedColumns() {
+        return wrappedGenerator.getReferencedColumns();
+    }
+
+    @Override
+    public void bindColumns(final String[] columns, final DataGenerator[] generators, final Object[] row) {
+        wrappedGenerator.bindColumns(columns, generators, row);
+    }
+
+    @Override
+    public boolean isUnbounded() {
+        return wrappedGenerator.isUnbounded();
+    }
+
+    @Override
+    public long getRowCount() {
+        return wrappedGenerator.getRowCount();
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        return wrappedGenerator.getEstimatedHeapBytes();
+    }
+
     @Override
     public Iterator<Object> getIterator() {
         final Iterator<Object> wrapped = wrappedGenerator.getIterator();
@@ -0,0 +1,144 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * A generator of several columns that are generated together, like the time, symbol, price and size of a tick:
+ * its definition has {@code "names"}, a map from each field it generates to the name of the column that gets it,
+ * instead of a {@code "name"}.  {@link GeneratorFile} makes one column of each field, all reading the same stream.
+ *
+ * Each column is a {@link DataGenerator} with its own iterator.  The first of them asked for a value in a row
+ * moves the stream to its next element, whichever column that is, and the others read the same element; so each
+ * column must be asked for exactly one value per row, as generation does.
+ */
+abstract class MultiColumnGenerator {
+
+    /**
+     * Creates a multi-column generator from its definition.
+     *
+     * @param name  a name for the definition, for messages
+     * @param jo    the definition, with {@code "names"}
+     * @return      an initialized generator
+     */
+    static MultiColumnGenerator fromJson(final String name, final JSONObject jo) {
+        final String generation_type = Utils.getStringElementValue("generation_type", jo);
+        switch (generation_type.toLowerCase(Locale.ROOT)) {
+            case "ticks":
+                return TickGenerator.fromJson(name, jo);
+
+            case "grouped_keys":
+                return GroupedKeysGenerator.fromJson(name, jo);
+
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: generation_type %s doesn't generate several columns", name, generation_type));
+        }
+    }
+
+    private long elements;
+    // the column that accounts for the heap of the generator
+    private Column heapColumn;
+
+    /**
+     * Gets the generator of the column of one field.
+     *
+     * @param columnName    name of the column, for messages
+     * @param field         the field, a key of {@code "names"}
+     * @return              the column's generator
+     */
+    final DataGenerator getColumn(final String columnName, final String field) {
+        final int index = Arrays.asList(getFields()).indexOf(field);
+        if (index < 0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: unknown field \"%s\" in \"names\", should be one of %s",
+                    columnName, field, String.join(", ", getFields())));
+        }
+        final Column column = new Column(getColumnType(index), index);
+        if (heapColumn == null) {
+            heapColumn = column;
+        }
+        return column;
+    }
+
+    /** The fields the generator has, that {@code "names"} can map to columns. */
+    protected abstract String[] getFields();
+
+    /** The type of a field, by its index in {@link #getFields()}. */
+    protected abstract DataGenerator.ColumnType getColumnType(int field);
+
+    /** See {@link DataGenerator#isUnbounded()}. */
+    protected boolean isUnbounded() {
+        return true;
+    }
+
+    /** See {@link DataGenerator#getRowCount()}. */
+    protected long getRowCount() {
+        return -1;
+    }
+
+    /** Tells whether the stream has an element after the current one. */
+    protected boolean hasNext() {
+        return true;
+    }
+
+    /** Moves on to the next element of the stream. */
+    protected abstract void advance();
+
+    /** Gets a field of the current element, by its index in {@link #getFields()}. */
+    protected abstract Object getValue(int field);
+
+    /** See {@link DataGenerator#getEstimatedHeapBytes()}. */
+    protected long getEstimatedHeapBytes() {
+        return 0;
+    }
+
+    private final class Column extends DataGenerator {
+        private final int field;
+        private long rows;
+
+        private Column(final ColumnType columnType, final int field) {
+            super(columnType);
+            this.field = field;
+        }
+
+        @Override
+        public boolean isUnbounded() {
+            return MultiColumnGenerator.this.isUnbounded();
+        }
+
+        @Override
+        public long getRowCount() {
+            return MultiColumnGenerator.this.getRowCount();
+        }
+
+        @Override
+        public long getEstimatedHeapBytes() {
+            return this == heapColumn ? MultiColumnGenerator.this.getEstimatedHeapBytes() : 0;
+        }
+
+        @Override
+        public Iterator<Object> getIterator() {
+            return new Iterator<Object>() {
+                @Override
+                public boolean hasNext() {
+                    // another column may have moved the stream to this column's next element already
+                    return rows < elements || MultiColumnGenerator.this.hasNext();
+                }
+
+                @Override
+                public Object next() {
+                    // the first column asked in a row moves the stream for all of them
+                    if (rows++ == elements) {
+                        advance();
+                        ++elements;
+                    }
+                    return getValue(field);
+                }
+            };
+        }
+    }
+}
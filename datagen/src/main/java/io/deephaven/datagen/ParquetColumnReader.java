@@ -0,0 +1,370 @@
+package io.deephaven.datagen;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.column.ColumnReader;
+import org.apache.parquet.column.impl.ColumnReadStoreImpl;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.hadoop.metadata.FileMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.api.Converter;
+import org.apache.parquet.io.api.GroupConverter;
+import org.apache.parquet.io.api.PrimitiveConverter;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the values of a single, flat column of a Parquet file, one row group at a time.  Only the chunk
+ * for that column in the row group being read is loaded, so files much larger than the heap can be read.
+ *
+ * Values are converted to the objects the generators produce for the matching {@link DataGenerator.ColumnType}:
+ * for instance a {@code TIMESTAMP(MILLIS)} column reads as {@code TIMESTAMP_NANOS}, and strings as {@code String}.
+ */
+public class ParquetColumnReader implements Closeable {
+
+    private final String fileName;
+    private final String columnName;
+    private final ParquetFileReader reader;
+    private final MessageType projection;
+    private final String createdBy;
+    private final ColumnDescriptor descriptor;
+    private final List<BlockMetaData> rowGroups;
+    private final DataGenerator.ColumnType columnType;
+    private final int precision;
+    private final int scaleOrLength;
+    private final long timestampMultiplier;
+
+    /** A converter for the projected column; we read values from the ColumnReader instead. */
+    private static final GroupConverter NO_OP_CONVERTER = new GroupConverter() {
+        private final PrimitiveConverter primitiveConverter = new PrimitiveConverter() {};
+
+        @Override
+        public Converter getConverter(final int fieldIndex) {
+            return primitiveConverter;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void end() {
+        }
+    };
+
+    private ParquetColumnReader(
+            final String fileName,
+            final String columnName,
+            final ParquetFileReader reader) {
+        this.fileName = fileName;
+        this.columnName = columnName;
+        this.reader = reader;
+
+        final FileMetaData fileMetaData = reader.getFooter().getFileMetaData();
+        final MessageType schema = fileMetaData.getSchema();
+        createdBy = fileMetaData.getCreatedBy();
+        if (!schema.containsField(columnName)) {
+            throw new IllegalArgumentException(String.format("%s: no column \"%s\"", fileName, columnName));
+        }
+        final Type type = schema.getType(columnName);
+        if (!type.isPrimitive() || type.getRepetition() == Type.Repetition.REPEATED) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: column \"%s\" isn't a flat column, which is all that can be read", fileName, columnName));
+        }
+        projection = new MessageType(schema.getName(), type);
+        reader.setRequestedSchema(projection);
+        descriptor = projection.getColumnDescription(new String[] {columnName});
+        rowGroups = reader.getRowGroups();
+
+        final PrimitiveType primitiveType = type.asPrimitiveType();
+        final LogicalTypeAnnotation annotation = primitiveType.getLogicalTypeAnnotation();
+        int precision = DataGenerator.DEFAULT_DECIMAL_PRECISION;
+        int scaleOrLength = DataGenerator.DEFAULT_DECIMAL_SCALE;
+        long timestampMultiplier = 1;
+        switch (primitiveType.getPrimitiveTypeName()) {
+            case BOOLEAN:
+                columnType = DataGenerator.ColumnType.BOOLEAN;
+                break;
+            case FLOAT:
+                columnType = DataGenerator.ColumnType.FLOAT;
+                break;
+            case DOUBLE:
+                columnType = DataGenerator.ColumnType.DOUBLE;
+                break;
+            case BINARY:
+                if (annotation != null && !(annotation instanceof LogicalTypeAnnotation.StringLogicalTypeAnnotation)) {
+                    throw unsupported(primitiveType);
+                }
+                columnType = DataGenerator.ColumnType.STRING;
+                break;
+            case FIXED_LEN_BYTE_ARRAY:
+                if (annotation != null) {
+                    throw unsupported(primitiveType);
+                }
+                columnType = DataGenerator.ColumnType.FIXED_BINARY;
+                scaleOrLength = primitiveType.getTypeLength();
+                break;
+            case INT32:
+            case INT64:
+                if (annotation == null) {
+                    columnType = primitiveType.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT32
+                            ? DataGenerator.ColumnType.INT32
+                            : DataGenerator.ColumnType.INT64;
+                } else if (annotation instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation) {
+                    final int bitWidth = ((LogicalTypeAnnotation.IntLogicalTypeAnnotation) annotation).getBitWidth();
+                    columnType = bitWidth == 8 ? DataGenerator.ColumnType.INT8
+                            : bitWidth == 16 ? DataGenerator.ColumnType.INT16
+                            : bitWidth == 32 ? DataGenerator.ColumnType.INT32
+                            : DataGenerator.ColumnType.INT64;
+                } else if (annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation) {
+                    columnType = DataGenerator.ColumnType.DATE;
+                } else if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+                    final LogicalTypeAnnotation.DecimalLogicalTypeAnnotation decimal =
+                            (LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) annotation;
+                    if (decimal.getPrecision() > 18) {
+                        throw unsupported(primitiveType);
+                    }
+                    columnType = DataGenerator.ColumnType.DECIMAL;
+                    precision = decimal.getPrecision();
+                    scaleOrLength = decimal.getScale();
+                } else if (annotation instanceof LogicalTypeAnnotation.TimestampLogicalTypeAnnotation
+                        && primitiveType.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT64) {
+                    columnType = DataGenerator.ColumnType.TIMESTAMP_NANOS;
+                    switch (((LogicalTypeAnnotation.TimestampLogicalTypeAnnotation) annotation).getUnit()) {
+                        case MILLIS:
+                            timestampMultiplier = 1_000_000L;
+                            break;
+                        case MICROS:
+                            timestampMultiplier = 1_000L;
+                            break;
+                        default:
+                            timestampMultiplier = 1L;
+                            break;
+                    }
+                } else {
+                    throw unsupported(primitiveType);
+                }
+                break;
+            default:
+                throw unsupported(primitiveType);
+        }
+        this.precision = precision;
+        this.scaleOrLength = scaleOrLength;
+        this.timestampMultiplier = timestampMultiplier;
+    }
+
+    private IllegalArgumentException unsupported(final PrimitiveType primitiveType) {
+        return new IllegalArgumentException(String.format(
+                "%s: column \"%s\" has unsupported type %s %s", fileName, columnName,
+                primitiveType.getPrimitiveTypeName(), primitiveType.getLogicalTypeAnnotation()));
+    }
+
+    /**
+     * Opens a column of a Parquet file for reading.
+     *
+     * @param fileName      String with the name of the Parquet file
+     * @param columnName    String with the name of a top-level, non repeated column
+     * @return              a ParquetColumnReader, which should be closed when done
+     * @throws IOException
+     */
+    public static ParquetColumnReader open(final String fileName, final String columnName) throws IOException {
+        final File file = new File(fileName);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("Parquet file \"" + fileName + "\" doesn't exist");
+        }
+        final Path path = new Path(file.toURI().toString());
+        final ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, new Configuration()));
+        try {
+            return new ParquetColumnReader(fileName, columnName, reader);
+        } catch (RuntimeException ex) {
+            reader.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Lists the columns of a Parquet file that {@link #open(String, String)} can read.
+     *
+     * @param fileName      String with the name of the Parquet file
+     * @return              names of the flat columns, in schema order
+     * @throws IOException
+     */
+    public static List<String> getColumnNames(final String fileName) throws IOException {
+        final File file = new File(fileName);
+        if (!file.exists()) {
+            throw new IllegalArgumentException("Parquet file \"" + fileName + "\" doesn't exist");
+        }
+        final Path path = new Path(file.toURI().toString());
+        try (final ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(path, new Configuration()))) {
+            final List<String> names = new ArrayList<>();
+            for (final Type field : reader.getFooter().getFileMetaData().getSchema().getFields()) {
+                if (field.isPrimitive() && field.getRepetition() != Type.Repetition.REPEATED) {
+                    names.add(field.getName());
+                } else {
+                    System.err.printf("%s: skipping column \"%s\", which isn't flat\n", fileName, field.getName());
+                }
+            }
+            return names;
+        }
+    }
+
+    public DataGenerator.ColumnType getColumnType() {
+        return columnType;
+    }
+
+    /** Precision for DECIMAL columns. */
+    public int getPrecision() {
+        return precision;
+    }
+
+    /** Scale for DECIMAL columns, or length in bytes for FIXED_BINARY columns. */
+    public int getScaleOrLength() {
+        return scaleOrLength;
+    }
+
+    public int getRowGroupCount() {
+        return rowGroups.size();
+    }
+
+    public long getRowCount(final int rowGroup) {
+        return rowGroups.get(rowGroup).getRowCount();
+    }
+
+    public long getTotalRowCount() {
+        long total = 0;
+        for (final BlockMetaData rowGroup : rowGroups) {
+            total += rowGroup.getRowCount();
+        }
+        return total;
+    }
+
+    /** Rows in the largest row group. */
+    public long getMaxRowGroupRowCount() {
+        long max = 0;
+        for (final BlockMetaData rowGroup : rowGroups) {
+            max = Math.max(max, rowGroup.getRowCount());
+        }
+        return max;
+    }
+
+    /**
+     * Gets the uncompressed size of the largest chunk of this column, which is about what
+     * {@link #readRowGroup(int)} holds in memory.
+     *
+     * @return  size in bytes
+     */
+    public long getMaxColumnChunkBytes() {
+        long max = 0;
+        for (final BlockMetaData rowGroup : rowGroups) {
+            for (final ColumnChunkMetaData chunk : rowGroup.getColumns()) {
+                if (Arrays.equals(chunk.getPath().toArray(), descriptor.getPath())) {
+                    max = Math.max(max, chunk.getTotalUncompressedSize());
+                }
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Values of the column in one row group, read in order.
+     */
+    public final class RowGroupCursor {
+        private final ColumnReader columnReader;
+        private long remaining;
+
+        private RowGroupCursor(final ColumnReader columnReader, final long rowCount) {
+            this.columnReader = columnReader;
+            this.remaining = rowCount;
+        }
+
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        /** Reads the next value, or null if it's null in the file. */
+        public Object next() {
+            --remaining;
+            final Object value;
+            if (columnReader.getCurrentDefinitionLevel() < descriptor.getMaxDefinitionLevel()) {
+                value = null;
+            } else {
+                value = readValue(columnReader);
+            }
+            columnReader.consume();
+            return value;
+        }
+    }
+
+    /**
+     * Starts reading a row group, loading the column chunk for it.
+     *
+     * @param rowGroup  index of the row group
+     * @return          a cursor over the values in the row group
+     * @throws IOException
+     */
+    public RowGroupCursor readRowGroup(final int rowGroup) throws IOException {
+        final PageReadStore pages = reader.readRowGroup(rowGroup);
+        if (pages == null) {
+            throw new IllegalStateException(String.format("%s: couldn't read row group %d", fileName, rowGroup));
+        }
+        final ColumnReader columnReader =
+                new ColumnReadStoreImpl(pages, NO_OP_CONVERTER, projection, createdBy).getColumnReader(descriptor);
+        return new RowGroupCursor(columnReader, pages.getRowCount());
+    }
+
+    private Object readValue(final ColumnReader columnReader) {
+        switch (columnType) {
+            case BOOLEAN:
+                return columnReader.getBoolean();
+            case INT8:
+                return (byte) columnReader.getInteger();
+            case INT16:
+                return (short) columnReader.getInteger();
+            case INT32:
+                return columnReader.getInteger();
+            case INT64:
+                return columnReader.getLong();
+            case FLOAT:
+                return columnReader.getFloat();
+            case DOUBLE:
+                return columnReader.getDouble();
+            case DATE:
+                return LocalDate.ofEpochDay(columnReader.getInteger());
+            case TIMESTAMP_NANOS:
+                return new DataGenerator.UnixTimestampNanos(columnReader.getLong() * timestampMultiplier);
+            case DECIMAL: {
+                final long unscaled = descriptor.getPrimitiveType().getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT32
+                        ? columnReader.getInteger()
+                        : columnReader.getLong();
+                return new BigDecimal(BigInteger.valueOf(unscaled), scaleOrLength);
+            }
+            case STRING:
+                return columnReader.getBinary().toStringUsingUTF8();
+            case FIXED_BINARY:
+                return new DataGenerator.FixedBinary(columnReader.getBinary().getBytes());
+            default:
+                throw new IllegalStateException("Missing types");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,268 @@
+package io.deephaven.datagen;
+
+import org.apache.parquet.schema.Type;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A ParquetSourceGenerator takes its values from a column of an existing Parquet file, so generated tables can
+ * have the value distributions of real data.  The file is streamed one row group at a time with
+ * {@link ParquetColumnReader}, so it never needs to fit in the heap.
+ *
+ * The modes are:
+ * <ul>
+ *     <li>REPLAY: the values in file order, once; {@code count} can cut it short.</li>
+ *     <li>TILE: the values in file order, starting over at the end of the file until there are {@code count}.</li>
+ *     <li>RESAMPLE: {@code count} values sampled with replacement.  Row groups are picked at random, weighted by
+ *         their row count, and as many values as the row group has are sampled from it, so only one row group
+ *         of the column is kept in memory.</li>
+ * </ul>
+ * Nulls in the file are kept; {@code percent_null} adds more.
+ */
+public class ParquetSourceGenerator extends DataGenerator {
+
+    enum Mode {
+        REPLAY,
+        TILE,
+        RESAMPLE,
+    }
+
+    private final String fileName;
+    private final ParquetColumnReader reader;
+    private final Mode mode;
+    private final long count;
+    private final Random prng;
+    private final PercentNullManager pctNullMgr;
+    private final GeneratorObjectIterator objectIterator;
+
+    private ParquetSourceGenerator(
+            final String fileName,
+            final ParquetColumnReader reader,
+            final Mode mode,
+            final long count,
+            final long seed,
+            final double percentNull) {
+        super(reader.getColumnType());
+        this.fileName = fileName;
+        this.reader = reader;
+        this.mode = mode;
+        this.count = count;
+        this.prng = new Random(seed);
+        this.pctNullMgr = PercentNullManager.fromPercentage(percentNull, seed);
+        objectIterator = new GeneratorObjectIterator();
+    }
+
+    static DataGenerator fromJson(final String fieldName, final JSONObject jo) {
+        final String fileName = Utils.getStringElementValue("source_file", jo);
+        final String columnName = Utils.getStringElementValueOrDefault("column_name", jo, fieldName);
+
+        final String modeName = Utils.getStringElementValueOrDefault("mode", jo, "replay");
+        final Mode mode;
+        try {
+            mode = Mode.valueOf(modeName.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: mode must be one of replay, tile or resample; found \"%s\"", fieldName, modeName));
+        }
+        final long count;
+        if (mode == Mode.REPLAY) {
+            count = Long.parseLong(Utils.getStringElementValueOrDefault("count", jo, "-1"));
+        } else {
+            count = Utils.getLongElementValue("count", jo);
+            if (count < 0) {
+                throw new IllegalArgumentException(String.format("%s: count (=%d) should be >= 0", fieldName, count));
+            }
+        }
+        final long seed = Long.parseLong(Utils.getStringElementValueOrDefault("seed", jo, "0"));
+        final double percentNull = PercentNullManager.parseJson(fieldName, jo);
+
+        final ParquetColumnReader reader;
+        try {
+            reader = ParquetColumnReader.open(fileName, columnName);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(String.format("%s: couldn't open \"%s\"", fieldName, fileName), ex);
+        }
+
+        final String type = (String) jo.get("type");
+        if (type != null && !type.equals(reader.getColumnType().name())) {
+            closeQuietly(reader);
+            throw new IllegalArgumentException(String.format(
+                    "%s: column \"%s\" of \"%s\" has type %s, not %s",
+                    fieldName, columnName, fileName, reader.getColumnType(), type));
+        }
+        if (mode != Mode.REPLAY && count > 0 && reader.getTotalRowCount() == 0) {
+            closeQuietly(reader);
+            throw new IllegalArgumentException(String.format(
+                    "%s: can't %s the empty file \"%s\"", fieldName, modeName, fileName));
+        }
+
+        return new ParquetSourceGenerator(fileName, reader, mode, count, seed, percentNull);
+    }
+
+    private static void closeQuietly(final ParquetColumnReader reader) {
+        try {
+            reader.close();
+        } catch (IOException ex) {
+            System.err.printf("Couldn't close Parquet file: %s\n", ex);
+        }
+    }
+
+    @Override
+    public Type getParquetType(final String columnName) {
+        return parquetTypeFromJSONType(columnType, columnName, reader.getPrecision(), reader.getScaleOrLength());
+    }
+
+    @Override
+    public long getRowCount() {
+        if (mode != Mode.REPLAY) {
+            return count;
+        }
+        final long total = reader.getTotalRowCount();
+        return count < 0 ? total : Math.min(count, total);
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        final long chunkBytes = reader.getMaxColumnChunkBytes();
+        if (mode != Mode.RESAMPLE) {
+            return chunkBytes;
+        }
+        // the row group is also kept as objects to sample from; strings take about their encoded size again
+        final long rows = reader.getMaxRowGroupRowCount();
+        final long objectBytes;
+        switch (columnType) {
+            case STRING:
+            case FIXED_BINARY:
+                objectBytes = 40;
+                break;
+            case DECIMAL:
+                objectBytes = 80;
+                break;
+            case DATE:
+                objectBytes = 24;
+                break;
+            default:
+                objectBytes = 16;
+                break;
+        }
+        return 2 * chunkBytes + rows * (4 + objectBytes);
+    }
+
+    @Override
+    public Iterator<Object> getIterator() {
+        return objectIterator;
+    }
+
+    private class GeneratorObjectIterator implements Iterator<Object> {
+        private long produced;
+        private boolean closed;
+
+        // REPLAY and TILE
+        private int rowGroup = -1;
+        private ParquetColumnReader.RowGroupCursor cursor;
+
+        // RESAMPLE
+        private long[] cumulativeRows;
+        private Object[] sample = new Object[0];
+        private int sampleSize;
+        private long sampleRemaining;
+
+        @Override
+        public boolean hasNext() {
+            if (closed) {
+                return false;
+            }
+            final boolean more;
+            try {
+                more = (count < 0 || produced < count) && ensureValue();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Error reading " + fileName, ex);
+            }
+            if (!more) {
+                // nothing else is going to be read
+                closed = true;
+                closeQuietly(reader);
+            }
+            return more;
+        }
+
+        /** Makes sure there is a value to produce next, reading another row group if needed. */
+        private boolean ensureValue() throws IOException {
+            if (mode == Mode.RESAMPLE) {
+                if (sampleRemaining == 0) {
+                    loadSample();
+                }
+                return true;
+            }
+            while (cursor == null || !cursor.hasNext()) {
+                if (rowGroup + 1 == reader.getRowGroupCount()) {
+                    if (mode == Mode.REPLAY || produced == 0) {
+                        return false;
+                    }
+                    // TILE starts over
+                    rowGroup = -1;
+                }
+                cursor = reader.readRowGroup(++rowGroup);
+            }
+            return true;
+        }
+
+        private void loadSample() throws IOException {
+            if (cumulativeRows == null) {
+                cumulativeRows = new long[reader.getRowGroupCount()];
+                long total = 0;
+                for (int i = 0; i < cumulativeRows.length; ++i) {
+                    total += reader.getRowCount(i);
+                    cumulativeRows[i] = total;
+                }
+            }
+            final long total = cumulativeRows[cumulativeRows.length - 1];
+            final long pick = (long) (prng.nextDouble() * total);
+            // the row group holding row "pick": the first one whose cumulative count is above it
+            int group = Arrays.binarySearch(cumulativeRows, pick);
+            group = group < 0 ? -group - 1 : group + 1;
+            while (reader.getRowCount(group) == 0) {
+                ++group;
+            }
+
+            final long rows = reader.getRowCount(group);
+            if (rows > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException(String.format(
+                        "%s: row group %d has too many rows (%d) to resample", fileName, group, rows));
+            }
+            if (sample.length < rows) {
+                sample = new Object[(int) rows];
+            }
+            final ParquetColumnReader.RowGroupCursor groupCursor = reader.readRowGroup(group);
+            sampleSize = 0;
+            while (groupCursor.hasNext()) {
+                sample[sampleSize++] = groupCursor.next();
+            }
+            sampleRemaining = sampleSize;
+        }
+
+        @Override
+        public Object next() {
+            ++produced;
+            final Object value;
+            if (mode == Mode.RESAMPLE) {
+                --sampleRemaining;
+                value = sample[prng.nextInt(sampleSize)];
+            } else {
+                value = cursor.next();
+            }
+
+            // even if we end up rolling a null
+            if (pctNullMgr.test()) {
+                return null;
+            }
+            return value;
+        }
+    }
+}
@@ -55,6 +55,17 @@ public class RandomGenerator extends DataGenerator {
         return new RandomGenerator(columnType, seed, percent_null, ls.iterator());
     }
 
+    static RandomGenerator ofUniformTimestamp(
+            final long lowerBoundNanos,
+            final long upperBoundNanos,
+            final long seed,
+            final double percent_null
+    ) {
+        final LongStream ls = new Random(seed).longs(lowerBoundNanos, upperBoundNanos);
+        return new RandomGenerator(
+                ColumnType.TIMESTAMP_NANOS, seed, percent_null, ls.mapToObj(UnixTimestampNanos::new).iterator());
+    }
+
     static RandomGenerator ofNormal(
             final double mean,
             final double stddev,
@@ -266,6 +277,11 @@ public class RandomGenerator extends DataGenerator {
         });
     }
 
+    @Override
+    public boolean isUnbounded() {
+        return true;
+    }
+
     @Override
     public Iterator<Object> getIterator() {
         return objectIterator;
@@ -310,8 +326,12 @@ public class RandomGenerator extends DataGenerator {
                 return new LongToStringDataGeneratorAdapter(longGenerator, hex);
             }
 
-            case TIMESTAMP_NANOS:
-                throw new IllegalArgumentException(String.format("%s: output type %s is not supported", fieldName, columnType));
+            case TIMESTAMP_NANOS: {
+                final long lowerBound = Utils.getLongElementValue("lower_bound", jo);
+                final long upperBound = Utils.getLongElementValue("upper_bound", jo);
+
+                return RandomGenerator.ofUniformTimestamp(lowerBound, upperBound, seed, percentNull);
+            }
             default:
                 throw new IllegalStateException("Missing column type");
         }
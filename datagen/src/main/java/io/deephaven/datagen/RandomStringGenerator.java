@@ -0,0 +1,342 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A RandomStringGenerator produces random ASCII strings with a configurable character set, length distribution,
+ * shared prefixes, and optionally a guarantee that every value is distinct.
+ *
+ * Values are written into a single reusable {@link DataGenerator.AsciiStringBuffer}, so no String is created
+ * per row; the buffer returned by the iterator is only valid until the next call to {@code next()}.
+ *
+ * The length distributions are:
+ * <ul>
+ *     <li>fixed, with parameter {@code length}.</li>
+ *     <li>uniform, with parameters {@code min_length} and {@code max_length}, inclusive.</li>
+ *     <li>normal, with parameters {@code mean_length} and {@code stddev_length}, clamped to
+ *         {@code min_length} and {@code max_length}.</li>
+ *     <li>long_tail, a Pareto distribution starting at {@code min_length} with parameter {@code alpha},
+ *         clamped to {@code max_length}.</li>
+ * </ul>
+ *
+ * With {@code prefix_ratio} r, the first r * length characters of each string come from one of
+ * {@code prefix_count} shared prefixes, which makes comparisons look further into the strings.
+ * With {@code unique}, the last characters of each string encode a row counter, in a fixed width
+ * enough for {@code unique_rows} rows (default 2^40), so no two strings are equal; every length the distribution can
+ * give has to hold it.
+ */
+public class RandomStringGenerator extends DataGenerator {
+
+    enum LengthDistribution {
+        FIXED,
+        UNIFORM,
+        NORMAL,
+        LONG_TAIL,
+    }
+
+    private static final String LOWERCASE = "abcdefghijklmnopqrstuvwxyz";
+    private static final String UPPERCASE = "ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+    private static final String DIGITS = "0123456789";
+
+    /** Default number of rows for which the unique suffix is guaranteed to be distinct. */
+    static final long DEFAULT_UNIQUE_ROWS = 1L << 40;
+
+    private final byte[] alphabet;
+    private final LengthDistribution lengthDistribution;
+    private final int minLength;
+    private final int maxLength;
+    private final double meanLength;
+    private final double stddevLength;
+    private final double alpha;
+    private final double prefixRatio;
+    private final byte[][] prefixes;
+    private final int uniqueDigits;
+    // the rows the unique suffix has room for
+    private final long uniqueCapacity;
+    private final Random prng;
+    private final PercentNullManager pctNullMgr;
+    private final AsciiStringBuffer buffer;
+    private final GeneratorObjectIterator objectIterator;
+    private long counter;
+
+    private RandomStringGenerator(
+            final byte[] alphabet,
+            final LengthDistribution lengthDistribution,
+            final int minLength,
+            final int maxLength,
+            final double meanLength,
+            final double stddevLength,
+            final double alpha,
+            final double prefixRatio,
+            final int prefixCount,
+            final int uniqueDigits,
+            final long uniqueCapacity,
+            final long seed,
+            final double percentNull) {
+        super(ColumnType.STRING);
+        this.alphabet = alphabet;
+        this.lengthDistribution = lengthDistribution;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.meanLength = meanLength;
+        this.stddevLength = stddevLength;
+        this.alpha = alpha;
+        this.prefixRatio = prefixRatio;
+        this.prng = new Random(seed);
+        this.pctNullMgr = PercentNullManager.fromPercentage(percentNull, seed);
+
+        this.uniqueDigits = uniqueDigits;
+        this.uniqueCapacity = uniqueCapacity;
+
+        final int prefixLength = (int) Math.floor(prefixRatio * maxLength);
+        prefixes = new byte[prefixRatio > 0.0 ? prefixCount : 0][prefixLength];
+        for (final byte[] prefix : prefixes) {
+            fill(prefix, 0, prefixLength);
+        }
+
+        buffer = new AsciiStringBuffer(maxLength);
+        objectIterator = new GeneratorObjectIterator();
+    }
+
+    private static byte[] alphabetFromJson(final String fieldName, final JSONObject jo) {
+        final String chars = (String) jo.get("chars");
+        final String charset = chars != null
+                ? chars
+                : charset(fieldName, Utils.getStringElementValueOrDefault("charset", jo, "alphanumeric"));
+        if (charset.length() < 2) {
+            throw new IllegalArgumentException(String.format("%s: need at least two characters to pick from", fieldName));
+        }
+        for (int i = 0; i < charset.length(); ++i) {
+            if (charset.charAt(i) > 127) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: only ASCII characters are supported, found \"%c\"", fieldName, charset.charAt(i)));
+            }
+        }
+        return charset.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * The characters of a named charset.
+     */
+    static String charset(final String fieldName, final String name) {
+        switch (name.toLowerCase(Locale.ROOT)) {
+            case "alphanumeric":
+                return LOWERCASE + UPPERCASE + DIGITS;
+            case "lowercase":
+                return LOWERCASE;
+            case "uppercase":
+                return UPPERCASE;
+            case "letters":
+                return LOWERCASE + UPPERCASE;
+            case "digits":
+                return DIGITS;
+            case "hex":
+                return DIGITS + "abcdef";
+            case "printable": {
+                final StringBuilder sb = new StringBuilder();
+                for (char c = ' '; c <= '~'; ++c) {
+                    sb.append(c);
+                }
+                return sb.toString();
+            }
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: charset must be one of alphanumeric, lowercase, uppercase, letters, digits, hex or printable; found \"%s\"",
+                        fieldName, name));
+        }
+    }
+
+    /**
+     * The fewest characters of an alphabet that number a count of rows.
+     */
+    static int uniqueDigits(final int alphabetSize, final long rows) {
+        int digits = 1;
+        for (long capacity = alphabetSize; capacity < rows; ++digits) {
+            capacity = capacity > Long.MAX_VALUE / alphabetSize ? Long.MAX_VALUE : capacity * alphabetSize;
+        }
+        return digits;
+    }
+
+    static DataGenerator fromJson(final String fieldName, final JSONObject jo) {
+        final ColumnType columnType = DataGenerator.columnTypeFromJson(jo);
+        if (columnType != ColumnType.STRING) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: output type %s is not supported for random_string", fieldName, columnType));
+        }
+
+        final byte[] alphabet = alphabetFromJson(fieldName, jo);
+        final long seed = Utils.getLongElementValue("seed", jo);
+        final double percentNull = PercentNullManager.parseJson(fieldName, jo);
+
+        final String distribution = Utils.getStringElementValueOrDefault("length_distribution", jo, "fixed");
+        final LengthDistribution lengthDistribution;
+        int minLength;
+        int maxLength;
+        double meanLength = 0.0;
+        double stddevLength = 0.0;
+        double alpha = 0.0;
+        switch (distribution.toLowerCase(Locale.ROOT)) {
+            case "fixed":
+                lengthDistribution = LengthDistribution.FIXED;
+                minLength = maxLength = Utils.getIntElementValue("length", jo);
+                break;
+            case "uniform":
+                lengthDistribution = LengthDistribution.UNIFORM;
+                minLength = Utils.getIntElementValue("min_length", jo);
+                maxLength = Utils.getIntElementValue("max_length", jo);
+                break;
+            case "normal":
+                lengthDistribution = LengthDistribution.NORMAL;
+                meanLength = Utils.getDoubleElementValue("mean_length", jo);
+                stddevLength = Utils.getDoubleElementValue("stddev_length", jo);
+                minLength = Utils.getIntElementValueOrDefault("min_length", jo, 0);
+                maxLength = Utils.getIntElementValueOrDefault(
+                        "max_length", jo, (int) Math.ceil(meanLength + 6 * stddevLength));
+                break;
+            case "long_tail":
+                lengthDistribution = LengthDistribution.LONG_TAIL;
+                minLength = Utils.getIntElementValue("min_length", jo);
+                maxLength = Utils.getIntElementValue("max_length", jo);
+                alpha = Double.parseDouble(Utils.getStringElementValueOrDefault("alpha", jo, "1.5"));
+                if (alpha <= 0.0 || minLength <= 0) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s: long_tail needs alpha (=%g) > 0 and min_length (=%d) > 0", fieldName, alpha, minLength));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException(String.format(
+                        "%s: length_distribution must be one of fixed, uniform, normal or long_tail; found \"%s\"",
+                        fieldName, distribution));
+        }
+        if (minLength < 0 || maxLength < minLength) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: lengths should satisfy 0 <= min_length (=%d) <= max_length (=%d)", fieldName, minLength, maxLength));
+        }
+
+        final double prefixRatio = Double.parseDouble(Utils.getStringElementValueOrDefault("prefix_ratio", jo, "0"));
+        if (prefixRatio < 0.0 || prefixRatio > 1.0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: prefix_ratio (=%g) should be between 0 and 1", fieldName, prefixRatio));
+        }
+        final int prefixCount = Utils.getIntElementValueOrDefault("prefix_count", jo, 1);
+        if (prefixCount <= 0) {
+            throw new IllegalArgumentException(String.format("%s: prefix_count (=%d) should be > 0", fieldName, prefixCount));
+        }
+        final boolean unique = Utils.getBooleanElementValueOrDefault("unique", jo, false);
+        int uniqueDigits = 0;
+        long uniqueCapacity = 0;
+        if (unique) {
+            final long uniqueRows = Long.parseLong(Utils.getStringElementValueOrDefault(
+                    "unique_rows", jo, Long.toString(DEFAULT_UNIQUE_ROWS)));
+            if (uniqueRows <= 0) {
+                throw new IllegalArgumentException(String.format("%s: unique_rows (=%d) should be > 0", fieldName, uniqueRows));
+            }
+            uniqueDigits = uniqueDigits(alphabet.length, uniqueRows);
+            uniqueCapacity = 1;
+            for (int i = 0; i < uniqueDigits; ++i) {
+                uniqueCapacity = uniqueCapacity > Long.MAX_VALUE / alphabet.length
+                        ? Long.MAX_VALUE : uniqueCapacity * alphabet.length;
+            }
+            if (minLength < uniqueDigits) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: unique needs %d characters at the end of every string to number unique_rows (=%d) rows, "
+                                + "but strings can be %d long; raise the lengths or lower unique_rows",
+                        fieldName, uniqueDigits, uniqueRows, minLength));
+            }
+        }
+
+        return new RandomStringGenerator(
+                alphabet, lengthDistribution, minLength, maxLength, meanLength, stddevLength, alpha,
+                prefixRatio, prefixCount, uniqueDigits, uniqueCapacity, seed, percentNull);
+    }
+
+    private void fill(final byte[] dest, final int from, final int to) {
+        for (int i = from; i < to; ++i) {
+            dest[i] = alphabet[prng.nextInt(alphabet.length)];
+        }
+    }
+
+    private int nextLength() {
+        switch (lengthDistribution) {
+            case FIXED:
+                return minLength;
+            case UNIFORM:
+                return minLength + prng.nextInt(maxLength - minLength + 1);
+            case NORMAL: {
+                final long length = Math.round(meanLength + stddevLength * prng.nextGaussian());
+                return (int) Math.max(minLength, Math.min(maxLength, length));
+            }
+            case LONG_TAIL: {
+                double u;
+                do {
+                    u = prng.nextDouble();
+                } while (u == 0.0);
+                final double length = minLength * Math.pow(u, -1.0 / alpha);
+                return (int) Math.min(maxLength, Math.floor(length));
+            }
+            default:
+                throw new IllegalStateException("Missing length distribution");
+        }
+    }
+
+    private AsciiStringBuffer generate() {
+        final int length = nextLength();
+        final byte[] bytes = buffer.bytes;
+        int pos = 0;
+        if (prefixes.length > 0) {
+            final byte[] prefix = prefixes.length == 1 ? prefixes[0] : prefixes[prng.nextInt(prefixes.length)];
+            pos = Math.min((int) Math.floor(prefixRatio * length), prefix.length);
+            System.arraycopy(prefix, 0, bytes, 0, pos);
+        }
+        final int randomEnd = length - uniqueDigits;
+        if (pos < randomEnd) {
+            fill(bytes, pos, randomEnd);
+        }
+        if (uniqueDigits > 0) {
+            if (counter == uniqueCapacity) {
+                throw new IllegalStateException(String.format(
+                        "unique strings of %d row counter characters ran out after %d rows; raise unique_rows",
+                        uniqueDigits, uniqueCapacity));
+            }
+            long n = counter++;
+            for (int i = length - 1; i >= randomEnd; --i) {
+                bytes[i] = alphabet[(int) (n % alphabet.length)];
+                n /= alphabet.length;
+            }
+        }
+        buffer.length = length;
+        return buffer;
+    }
+
+    @Override
+    public boolean isUnbounded() {
+        return true;
+    }
+
+    @Override
+    public Iterator<Object> getIterator() {
+        return objectIterator;
+    }
+
+    private class GeneratorObjectIterator implements Iterator<Object> {
+        @Override
+        public boolean hasNext() {
+            return true;
+        }
+
+        @Override
+        public Object next() {
+            // generate even if we end up rolling a null, so the sequence doesn't depend on nulls
+            final AsciiStringBuffer value = generate();
+            if (pctNullMgr.test()) {
+                return null;
+            }
+            return value;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package io.deephaven.datagen;
+
+import java.io.IOException;
+
+/**
+ * Takes the rows of a generation that isn't written to a file, in batches of columns; see
+ * {@link DataGen#uploadData(String, java.io.File, String, RowBatchConsumer)}.
+ *
+ * Values are a boxed primitive ({@code Boolean}, {@code Byte}, {@code Short}, {@code Integer}, {@code Long},
+ * {@code Float} or {@code Double}), a {@code String} or an {@code Instant}, or null.
+ */
+public interface RowBatchConsumer {
+
+    /**
+     * Called once, before the first batch.
+     *
+     * @param variable  name the data should be known by, from the generation file
+     * @param columns   column names
+     * @param types     class of the values of each column
+     * @throws IOException
+     */
+    void start(String variable, String[] columns, Class<?>[] types) throws IOException;
+
+    /**
+     * Takes a batch of rows.  The arrays are filled again for the next batch once this returns.
+     *
+     * @param values    values by column, then by row
+     * @param rows      number of rows in the batch, from the start of each column's array
+     * @throws IOException
+     */
+    void batch(Object[][] values, int rows) throws IOException;
+
+    /**
+     * Called once after the last batch, which may be before any if there were no rows.
+     *
+     * @param rows      number of rows in all the batches
+     * @throws IOException
+     */
+    void finish(long rows) throws IOException;
+}
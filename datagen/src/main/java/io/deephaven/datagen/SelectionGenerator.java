@@ -2,15 +2,15 @@ package io.deephaven.datagen;
 
 import org.json.simple.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Random;
 
+/**
+ * Selects values from the lines of a source file.  The lines are parsed as the column's type, like the values of a
+ * {@code file} column; null values of STRING columns are empty strings.
+ */
 public class SelectionGenerator extends DataGenerator {
     enum DistributionType {
         NORMAL,
@@ -20,7 +20,7 @@ public class SelectionGenerator extends DataGenerator {
 
     private final DistributionType distribution;
     private final PercentNullManager pctNullMgr;
-    private final ArrayList<String> strings;
+    private final ArrayList<Object> strings;
     private final Random prng;
     private final GeneratorObjectIterator objectIterator;
 
@@ -38,19 +38,7 @@ public class SelectionGenerator extends DataGenerator {
 
         prng = new Random(seed);
 
-        strings = new ArrayList<>();
-
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))) {
-            while (br.ready()) {
-                strings.add(br.readLine());
-            }
-        } catch (FileNotFoundException e) {
-            System.err.printf("File %s not found", fileName);
-            throw new IllegalStateException();
-        } catch (IOException e) {
-            System.err.printf("IOException while reading %s: %s", fileName, e);
-            throw new IllegalStateException();
-        }
+        strings = Utils.readFile(fileName, columnType);
 
         objectIterator = new GeneratorObjectIterator();
     }
@@ -101,6 +89,16 @@ public class SelectionGenerator extends DataGenerator {
         return sg;
     }
 
+    @Override
+    public boolean isUnbounded() {
+        return true;
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        return Utils.estimateHeapBytes(strings);
+    }
+
     @Override
     public Iterator<Object> getIterator() {
         return objectIterator;
@@ -153,13 +151,13 @@ public class SelectionGenerator extends DataGenerator {
         }
 
         @Override
-        public String next() {
+        public Object next() {
             // generate something
             int idx = getNextIndex();
 
             // but possibly discard it
             if (pctNullMgr.test()) {
-                return "";
+                return columnType == ColumnType.STRING ? "" : null;
             }
 
             return strings.get(idx);
@@ -0,0 +1,96 @@
+package io.deephaven.datagen;
+
+import java.util.Arrays;
+
+/**
+ * A streaming histogram with a bounded number of bins, after Ben-Haim and Tom-Tov,
+ * "A Streaming Parallel Decision Tree Algorithm" (JMLR 2010).
+ *
+ * Each bin is a centroid and a count.  A new value gets its own bin; when there are too many bins,
+ * the two closest ones are merged into their weighted mean.  No range needs to be known up front,
+ * and the result is good enough to compare the shape of a sample against candidate distributions.
+ */
+class StreamingHistogram {
+
+    private final int maxBins;
+    private final double[] centroids;
+    private final long[] counts;
+    private int bins;
+    private long total;
+
+    StreamingHistogram(final int maxBins) {
+        this.maxBins = maxBins;
+        // one extra slot for the value being added before merging
+        this.centroids = new double[maxBins + 1];
+        this.counts = new long[maxBins + 1];
+    }
+
+    void add(final double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        ++total;
+        int pos = Arrays.binarySearch(centroids, 0, bins, value);
+        if (pos >= 0) {
+            ++counts[pos];
+            return;
+        }
+        pos = -pos - 1;
+        System.arraycopy(centroids, pos, centroids, pos + 1, bins - pos);
+        System.arraycopy(counts, pos, counts, pos + 1, bins - pos);
+        centroids[pos] = value;
+        counts[pos] = 1;
+        ++bins;
+        if (bins > maxBins) {
+            mergeClosest();
+        }
+    }
+
+    private void mergeClosest() {
+        int closest = 0;
+        double minGap = Double.POSITIVE_INFINITY;
+        for (int i = 0; i + 1 < bins; ++i) {
+            final double gap = centroids[i + 1] - centroids[i];
+            if (gap < minGap) {
+                minGap = gap;
+                closest = i;
+            }
+        }
+        final long count = counts[closest] + counts[closest + 1];
+        centroids[closest] = (centroids[closest] * counts[closest] + centroids[closest + 1] * counts[closest + 1]) / count;
+        counts[closest] = count;
+        System.arraycopy(centroids, closest + 2, centroids, closest + 1, bins - closest - 2);
+        System.arraycopy(counts, closest + 2, counts, closest + 1, bins - closest - 2);
+        --bins;
+    }
+
+    long getTotal() {
+        return total;
+    }
+
+    int getBinCount() {
+        return bins;
+    }
+
+    double getCentroid(final int bin) {
+        return centroids[bin];
+    }
+
+    long getCount(final int bin) {
+        return counts[bin];
+    }
+
+    /**
+     * Estimates the fraction of values that are at most each centroid, counting half of the centroid's own bin.
+     *
+     * @param bin   index of the bin
+     * @return      estimated cumulative fraction at the bin's centroid
+     */
+    double cumulativeFraction(final int bin) {
+        long below = 0;
+        for (int i = 0; i < bin; ++i) {
+            below += counts[i];
+        }
+        return (below + counts[bin] / 2.0) / total;
+    }
+}
@@ -0,0 +1,347 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A TickGenerator produces a market data feed: the timestamp, symbol, price and size of each trade, in time order,
+ * with the patterns that make some keys much hotter than others:
+ * <ul>
+ *     <li>popularity: the share of ticks of each symbol follows a Zipf law with exponent {@code zipf_exponent}
+ *         (default 1), over the symbols in random order.</li>
+ *     <li>intraday volume: ticks come at {@code ticks_per_second} on average over a session of
+ *         {@code session_seconds} (default 23400, six and a half hours), more at the open and the close than at
+ *         midday, by {@code open_close_ratio} (default 3).  Sessions start at {@code start_nanos} and every
+ *         24 hours after it.</li>
+ *     <li>bursts: a tick starts a burst on its symbol with probability {@code burst_probability} (default 0.001);
+ *         during a burst ticks come {@code burst_multiplier} (default 10) times as fast, the extra ones all on that
+ *         symbol, for {@code burst_mean_ticks} (default 200) of its ticks on average.</li>
+ *     <li>prices: each symbol's price is a geometric random walk from a log-normal spread around
+ *         {@code start_price} (default 100), with {@code daily_volatility} (default 0.02) per session, of which a
+ *         {@code market_correlation} share of the variance (default 0.3) comes from a walk all symbols share.
+ *         Prices are rounded to {@code tick_size} (default 0.01).</li>
+ *     <li>sizes: a whole number of {@code lot_size} (default 100) lots, Pareto distributed with {@code size_alpha}
+ *         (default 1.5), capped at {@code max_lots} (default 10000).</li>
+ * </ul>
+ * Symbols are given by {@code symbols}, or made up, {@code symbol_count} of them.  Ticks never run out, so a
+ * generation file with only tick columns needs {@code "rows"}; no value is ever null.
+ */
+final class TickGenerator extends MultiColumnGenerator {
+
+    private static final String[] FIELDS = {"timestamp", "symbol", "price", "size"};
+    private static final DataGenerator.ColumnType[] TYPES = {
+            DataGenerator.ColumnType.TIMESTAMP_NANOS,
+            DataGenerator.ColumnType.STRING,
+            DataGenerator.ColumnType.DOUBLE,
+            DataGenerator.ColumnType.INT32,
+    };
+    private static final long DAY_NANOS = 86_400_000_000_000L;
+
+    private final String[] symbols;
+    // cumulative popularity, by symbol
+    private final double[] cumulativeShare;
+    private final long startNanos;
+    private final long sessionNanos;
+    private final double ticksPerNano;
+    // intraday rate at x in [0, 1] of the session is a + b (2x - 1)^2, which averages to 1
+    private final double uShapeA;
+    private final double uShapeB;
+    private final double burstProbability;
+    private final double burstMultiplier;
+    private final double burstEndProbability;
+    private final double marketVolatility;
+    private final double idiosyncraticVolatility;
+    private final double tickSize;
+    // ticks per unit of price, when that's a whole number, to divide by instead of multiplying by tickSize
+    private final double ticksPerUnit;
+    private final int lotSize;
+    private final double sizeAlpha;
+    private final int maxLots;
+    private final Random prng;
+
+    // the walk of the market and of each symbol's log price, and when each symbol last ticked, in session time
+    private double marketLogPrice;
+    private final double[] logPrices;
+    private final double[] lastMarketLogPrice;
+    private final long[] lastTickNanos;
+
+    private long session;
+    // time into the current session
+    private long sessionOffsetNanos;
+    // time into all sessions so far, which is what prices move with
+    private long tradingNanos;
+    private int burstSymbol = -1;
+
+    // the current tick
+    private DataGenerator.UnixTimestampNanos timestamp;
+    private String symbol;
+    private Double price;
+    private Integer size;
+
+    private TickGenerator(
+            final String[] symbols,
+            final double zipfExponent,
+            final long startNanos,
+            final long sessionNanos,
+            final double ticksPerSecond,
+            final double openCloseRatio,
+            final double burstProbability,
+            final double burstMultiplier,
+            final double burstMeanTicks,
+            final double startPrice,
+            final double dailyVolatility,
+            final double marketCorrelation,
+            final double tickSize,
+            final int lotSize,
+            final double sizeAlpha,
+            final int maxLots,
+            final long seed) {
+        this.prng = new Random(seed);
+        this.startNanos = startNanos;
+        this.sessionNanos = sessionNanos;
+        this.ticksPerNano = ticksPerSecond / 1e9;
+        this.uShapeA = 3.0 / (openCloseRatio + 2.0);
+        this.uShapeB = uShapeA * (openCloseRatio - 1.0);
+        this.burstProbability = burstProbability;
+        this.burstMultiplier = burstMultiplier;
+        this.burstEndProbability = 1.0 / burstMeanTicks;
+        // volatilities per square root of a nanosecond of session time
+        final double perNano = dailyVolatility / Math.sqrt(sessionNanos);
+        this.marketVolatility = perNano * Math.sqrt(marketCorrelation);
+        this.idiosyncraticVolatility = perNano * Math.sqrt(1.0 - marketCorrelation);
+        this.tickSize = tickSize;
+        final double inverse = Math.rint(1.0 / tickSize);
+        this.ticksPerUnit = Math.abs(inverse * tickSize - 1.0) < 1e-9 ? inverse : 0.0;
+        this.lotSize = lotSize;
+        this.sizeAlpha = sizeAlpha;
+        this.maxLots = maxLots;
+
+        // popularity doesn't follow the order the symbols are given or made up in
+        this.symbols = symbols.clone();
+        for (int i = this.symbols.length - 1; i > 0; --i) {
+            final int j = prng.nextInt(i + 1);
+            final String swap = this.symbols[i];
+            this.symbols[i] = this.symbols[j];
+            this.symbols[j] = swap;
+        }
+        cumulativeShare = new double[symbols.length];
+        double total = 0.0;
+        for (int i = 0; i < symbols.length; ++i) {
+            total += Math.pow(i + 1, -zipfExponent);
+            cumulativeShare[i] = total;
+        }
+        for (int i = 0; i < symbols.length; ++i) {
+            cumulativeShare[i] /= total;
+        }
+
+        logPrices = new double[symbols.length];
+        for (int i = 0; i < symbols.length; ++i) {
+            logPrices[i] = Math.log(startPrice) + prng.nextGaussian();
+        }
+        lastMarketLogPrice = new double[symbols.length];
+        lastTickNanos = new long[symbols.length];
+    }
+
+    static TickGenerator fromJson(final String name, final JSONObject jo) {
+        final long seed = Utils.getLongElementValue("seed", jo);
+
+        final List<String> given = Utils.getStringListElementValuesOrNull("symbols", jo);
+        final String[] symbols;
+        if (given != null) {
+            symbols = given.toArray(new String[0]);
+        } else {
+            final int count = Utils.getIntElementValue("symbol_count", jo);
+            if (count <= 0) {
+                throw new IllegalArgumentException(String.format("%s: symbol_count (=%d) should be > 0", name, count));
+            }
+            symbols = makeSymbols(count);
+        }
+        if (symbols.length == 0) {
+            throw new IllegalArgumentException(String.format("%s: symbols can't be empty", name));
+        }
+
+        final double zipfExponent = getDouble(jo, "zipf_exponent", "1");
+        final long startNanos = Utils.getLongElementValue("start_nanos", jo);
+        final double sessionSeconds = getDouble(jo, "session_seconds", "23400");
+        final double ticksPerSecond = Utils.getDoubleElementValue("ticks_per_second", jo);
+        final double openCloseRatio = getDouble(jo, "open_close_ratio", "3");
+        final double burstProbability = getDouble(jo, "burst_probability", "0.001");
+        final double burstMultiplier = getDouble(jo, "burst_multiplier", "10");
+        final double burstMeanTicks = getDouble(jo, "burst_mean_ticks", "200");
+        final double startPrice = getDouble(jo, "start_price", "100");
+        final double dailyVolatility = getDouble(jo, "daily_volatility", "0.02");
+        final double marketCorrelation = getDouble(jo, "market_correlation", "0.3");
+        final double tickSize = getDouble(jo, "tick_size", "0.01");
+        final int lotSize = Utils.getIntElementValueOrDefault("lot_size", jo, 100);
+        final double sizeAlpha = getDouble(jo, "size_alpha", "1.5");
+        final int maxLots = Utils.getIntElementValueOrDefault("max_lots", jo, 10000);
+
+        if (zipfExponent < 0.0) {
+            throw new IllegalArgumentException(String.format("%s: zipf_exponent (=%g) should be >= 0", name, zipfExponent));
+        }
+        if (sessionSeconds <= 0.0 || sessionSeconds > 86400.0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: session_seconds (=%g) should be > 0 and at most a day", name, sessionSeconds));
+        }
+        if (ticksPerSecond <= 0.0) {
+            throw new IllegalArgumentException(String.format("%s: ticks_per_second (=%g) should be > 0", name, ticksPerSecond));
+        }
+        if (openCloseRatio <= 0.0) {
+            throw new IllegalArgumentException(String.format("%s: open_close_ratio (=%g) should be > 0", name, openCloseRatio));
+        }
+        if (burstProbability < 0.0 || burstProbability > 1.0 || burstMultiplier < 1.0 || burstMeanTicks < 1.0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: bursts need 0 <= burst_probability (=%g) <= 1, burst_multiplier (=%g) >= 1 and burst_mean_ticks (=%g) >= 1",
+                    name, burstProbability, burstMultiplier, burstMeanTicks));
+        }
+        if (startPrice <= 0.0 || dailyVolatility < 0.0 || tickSize <= 0.0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: prices need start_price (=%g) > 0, daily_volatility (=%g) >= 0 and tick_size (=%g) > 0",
+                    name, startPrice, dailyVolatility, tickSize));
+        }
+        if (marketCorrelation < 0.0 || marketCorrelation > 1.0) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: market_correlation (=%g) should be between 0 and 1", name, marketCorrelation));
+        }
+        if (lotSize <= 0 || sizeAlpha <= 0.0 || maxLots <= 0 || (long) lotSize * maxLots > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: sizes need lot_size (=%d) > 0, size_alpha (=%g) > 0, max_lots (=%d) > 0, and lot_size * max_lots to fit an INT32",
+                    name, lotSize, sizeAlpha, maxLots));
+        }
+
+        return new TickGenerator(symbols, zipfExponent, startNanos, Math.round(sessionSeconds * 1e9), ticksPerSecond,
+                openCloseRatio, burstProbability, burstMultiplier, burstMeanTicks, startPrice, dailyVolatility,
+                marketCorrelation, tickSize, lotSize, sizeAlpha, maxLots, seed);
+    }
+
+    private static double getDouble(final JSONObject jo, final String key, final String defaultValue) {
+        return Double.parseDouble(Utils.getStringElementValueOrDefault(key, jo, defaultValue));
+    }
+
+    /**
+     * Makes up distinct ticker-like symbols: A to Z, then AA to ZZ, and so on.
+     */
+    private static String[] makeSymbols(final int count) {
+        final String[] symbols = new String[count];
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            sb.setLength(0);
+            // bijective base 26
+            for (long n = i + 1L; n > 0; n = (n - 1) / 26) {
+                sb.append((char) ('A' + (n - 1) % 26));
+            }
+            symbols[i] = sb.reverse().toString();
+        }
+        return symbols;
+    }
+
+    @Override
+    protected String[] getFields() {
+        return FIELDS;
+    }
+
+    @Override
+    protected DataGenerator.ColumnType getColumnType(final int field) {
+        return TYPES[field];
+    }
+
+    @Override
+    protected long getEstimatedHeapBytes() {
+        // the names, and the share, prices and last tick of each symbol
+        return Utils.estimateHeapBytes(Arrays.asList(symbols)) + 4L * 8 * symbols.length;
+    }
+
+    @Override
+    protected void advance() {
+        final boolean inBurst = burstSymbol >= 0;
+        final double multiplier = inBurst ? burstMultiplier : 1.0;
+
+        // the rate changes slowly through the session, so the wait is drawn at the rate of its start
+        final double x = (double) sessionOffsetNanos / sessionNanos;
+        final double shape = uShapeA + uShapeB * (2.0 * x - 1.0) * (2.0 * x - 1.0);
+        double u;
+        do {
+            u = prng.nextDouble();
+        } while (u == 0.0);
+        final long wait = (long) Math.floor(-Math.log(u) / (ticksPerNano * shape * multiplier));
+        final long lastTradingNanos = tradingNanos;
+        if (sessionOffsetNanos + wait < sessionNanos) {
+            sessionOffsetNanos += wait;
+            tradingNanos += wait;
+        } else {
+            // on to the open of the next session
+            tradingNanos += sessionNanos - sessionOffsetNanos;
+            sessionOffsetNanos = 0;
+            ++session;
+        }
+        final long nanos = startNanos + session * DAY_NANOS + sessionOffsetNanos;
+
+        final int s;
+        if (inBurst && prng.nextDouble() * multiplier >= 1.0) {
+            s = burstSymbol;
+            if (prng.nextDouble() < burstEndProbability) {
+                burstSymbol = -1;
+            }
+        } else {
+            s = pickSymbol();
+            if (!inBurst && burstProbability > 0.0 && prng.nextDouble() < burstProbability) {
+                burstSymbol = s;
+            }
+        }
+
+        // the market moves all the time, each symbol's own walk between its ticks
+        marketLogPrice += marketVolatility * Math.sqrt(tradingNanos - lastTradingNanos) * prng.nextGaussian();
+        final long sinceLast = tradingNanos - lastTickNanos[s];
+        logPrices[s] += marketLogPrice - lastMarketLogPrice[s]
+                + idiosyncraticVolatility * Math.sqrt(sinceLast) * prng.nextGaussian();
+        lastMarketLogPrice[s] = marketLogPrice;
+        lastTickNanos[s] = tradingNanos;
+        final double ticks = Math.max(1.0, Math.rint(Math.exp(logPrices[s]) / tickSize));
+
+        double v;
+        do {
+            v = prng.nextDouble();
+        } while (v == 0.0);
+        final double lots = Math.min(maxLots, Math.floor(Math.pow(v, -1.0 / sizeAlpha)));
+
+        timestamp = new DataGenerator.UnixTimestampNanos(nanos);
+        symbol = symbols[s];
+        // 10001 / 100 is 100.01, where 10001 * 0.01 isn't quite
+        price = ticksPerUnit > 0.0 ? ticks / ticksPerUnit : ticks * tickSize;
+        size = (int) lots * lotSize;
+    }
+
+    private int pickSymbol() {
+        final double u = prng.nextDouble();
+        int lo = 0;
+        int hi = cumulativeShare.length - 1;
+        while (lo < hi) {
+            final int mid = (lo + hi) >>> 1;
+            if (cumulativeShare[mid] <= u) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    protected Object getValue(final int field) {
+        switch (field) {
+            case 0:
+                return timestamp;
+            case 1:
+                return symbol;
+            case 2:
+                return price;
+            case 3:
+                return size;
+            default:
+                throw new IllegalStateException("unknown field " + field);
+        }
+    }
+}
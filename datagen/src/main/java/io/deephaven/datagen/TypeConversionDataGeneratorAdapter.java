@@ -0,0 +1,232 @@
+package io.deephaven.datagen;
+
+import org.apache.parquet.schema.Type;
+import org.json.simple.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Adapts a generator producing a "carrier" type (INT64, DOUBLE or STRING) into one producing one of the
+ * narrower or parameterized column types: BOOLEAN, INT8, INT16, FLOAT, DATE, DECIMAL and FIXED_BINARY.
+ * This way every generation type can produce those types without each generator knowing about them.
+ * It also lets the distributions only defined for doubles produce INT32 and INT64 values.
+ *
+ * <ul>
+ *     <li>INT32 and INT64 round doubles; INT32 fails for values out of range.</li>
+ *     <li>BOOLEAN is true for non-zero values.</li>
+ *     <li>INT8 and INT16 round doubles, and fail for values out of range.</li>
+ *     <li>DATE interprets the value as a number of days since 1970-01-01.</li>
+ *     <li>DECIMAL rounds to {@code scale} decimal digits, and fails for values with more than
+ *         {@code precision} digits.</li>
+ *     <li>FIXED_BINARY takes the UTF-8 bytes of the string, truncated or zero padded to {@code length}.</li>
+ * </ul>
+ */
+public class TypeConversionDataGeneratorAdapter extends DataGenerator {
+    final DataGenerator wrappedGenerator;
+    final String fieldName;
+    final int precision;
+    final int scaleOrLength;
+
+    private TypeConversionDataGeneratorAdapter(
+            final String fieldName,
+            final ColumnType columnType,
+            final DataGenerator wrappedGenerator,
+            final int precision,
+            final int scaleOrLength) {
+        super(columnType);
+        this.fieldName = fieldName;
+        this.wrappedGenerator = wrappedGenerator;
+        this.precision = precision;
+        this.scaleOrLength = scaleOrLength;
+    }
+
+    /** What a generator can produce, which decides the type it carries a column's values in. */
+    enum Source {
+        /** generates INT64 or DOUBLE values */
+        GENERATED,
+        /** generates INT64 values only, like the id generation type */
+        INTEGERS,
+        /** parses values from a list or a file, and can parse the narrower types itself */
+        LIST,
+    }
+
+    /**
+     * Determines the type a generator should produce so its values can be converted to {@code columnType}.
+     *
+     * @param columnType    ColumnType requested for the column
+     * @param jo            JSONObject with the column definition
+     * @param source        what the generator can produce
+     * @return              the carrier ColumnType, or null if the generator can produce columnType directly
+     */
+    static ColumnType carrierType(final ColumnType columnType, final JSONObject jo, final Source source) {
+        final boolean doubles = source == Source.GENERATED && isDoubleDistribution(jo);
+        switch (columnType) {
+            case DECIMAL:
+                return source == Source.INTEGERS ? ColumnType.INT64 : ColumnType.DOUBLE;
+            case FIXED_BINARY:
+                return ColumnType.STRING;
+            case FLOAT:
+                if (source == Source.LIST) {
+                    return null;
+                }
+                return source == Source.INTEGERS ? ColumnType.INT64 : ColumnType.DOUBLE;
+            case INT32:
+            case INT64:
+                return doubles ? ColumnType.DOUBLE : null;
+            case BOOLEAN:
+            case INT8:
+            case INT16:
+            case DATE: {
+                if (source == Source.LIST) {
+                    return null;
+                }
+                return doubles ? ColumnType.DOUBLE : ColumnType.INT64;
+            }
+            default:
+                return null;
+        }
+    }
+
+    /** Some distributions are only defined for doubles. */
+    private static boolean isDoubleDistribution(final JSONObject jo) {
+        final String distribution = (String) jo.get("distribution");
+        return "normal".equalsIgnoreCase(distribution) || "exponential".equalsIgnoreCase(distribution);
+    }
+
+    static DataGenerator fromJson(
+            final String fieldName,
+            final JSONObject jo,
+            final ColumnType columnType,
+            final DataGenerator wrappedGenerator) {
+        int precision = DEFAULT_DECIMAL_PRECISION;
+        int scaleOrLength = DEFAULT_DECIMAL_SCALE;
+        if (columnType == ColumnType.DECIMAL) {
+            precision = Utils.getIntElementValueOrDefault("precision", jo, DEFAULT_DECIMAL_PRECISION);
+            scaleOrLength = Utils.getIntElementValueOrDefault("scale", jo, DEFAULT_DECIMAL_SCALE);
+            if (precision < 1 || precision > 18) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: precision (=%d) should be between 1 and 18", fieldName, precision));
+            }
+            if (scaleOrLength < 0 || scaleOrLength > precision) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: scale (=%d) should be between 0 and precision (=%d)", fieldName, scaleOrLength, precision));
+            }
+        } else if (columnType == ColumnType.FIXED_BINARY) {
+            scaleOrLength = Utils.getIntElementValue("length", jo);
+            if (scaleOrLength <= 0) {
+                throw new IllegalArgumentException(String.format(
+                        "%s: length (=%d) should be > 0", fieldName, scaleOrLength));
+            }
+        }
+        return new TypeConversionDataGeneratorAdapter(fieldName, columnType, wrappedGenerator, precision, scaleOrLength);
+    }
+
+    @Override
+    public Type getParquetType(final String columnName) {
+        return parquetTypeFromJSONType(columnType, columnName, precision, scaleOrLength);
+    }
+
+    private long toLong(final Object value) {
+        if (value instanceof Double || value instanceof Float) {
+            return Math.round(((Number) value).doubleValue());
+        }
+        return ((Number) value).longValue();
+    }
+
+    private long checkRange(final long value, final long min, final long max) {
+        if (value < min || value > max) {
+            throw new IllegalArgumentException(String.format(
+                    "%s: value %d out of range for %s", fieldName, value, columnType));
+        }
+        return value;
+    }
+
+    private Object convert(final Object value) {
+        switch (columnType) {
+            case BOOLEAN:
+                return ((Number) value).doubleValue() != 0.0;
+            case INT8:
+                return (byte) checkRange(toLong(value), Byte.MIN_VALUE, Byte.MAX_VALUE);
+            case INT16:
+                return (short) checkRange(toLong(value), Short.MIN_VALUE, Short.MAX_VALUE);
+            case INT32:
+                return (int) checkRange(toLong(value), Integer.MIN_VALUE, Integer.MAX_VALUE);
+            case INT64:
+                return toLong(value);
+            case FLOAT:
+                return ((Number) value).floatValue();
+            case DATE:
+                return LocalDate.ofEpochDay(toLong(value));
+            case DECIMAL: {
+                // longs are exact, as doubles aren't past 2^53
+                final BigDecimal decimal = (value instanceof Long
+                        ? BigDecimal.valueOf((Long) value) : BigDecimal.valueOf(((Number) value).doubleValue()))
+                        .setScale(scaleOrLength, RoundingMode.HALF_UP);
+                if (decimal.precision() > precision) {
+                    throw new IllegalArgumentException(String.format(
+                            "%s: value %s doesn't fit in a DECIMAL with precision %d", fieldName, decimal, precision));
+                }
+                return decimal;
+            }
+            case FIXED_BINARY: {
+                final byte[] source = value.toString().getBytes(StandardCharsets.UTF_8);
+                final byte[] bytes = new byte[scaleOrLength];
+                System.arraycopy(source, 0, bytes, 0, Math.min(source.length, scaleOrLength));
+                return new FixedBinary(bytes);
+            }
+            default:
+                throw new IllegalStateException("Need to implement more types");
+        }
+    }
+
+    @Override
+    public Set<String> getReferencedColumns() {
+        return wrappedGenerator.getReferencedColumns();
+    }
+
+    @Override
+    public void bindColumns(final String[] columns, final DataGenerator[] generators, final Object[] row) {
+        wrappedGenerator.bindColumns(columns, generators, row);
+    }
+
+    @Override
+    public boolean isUnbounded() {
+        return wrappedGenerator.isUnbounded();
+    }
+
+    @Override
+    public long getRowCount() {
+        return wrappedGenerator.getRowCount();
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+        return wrappedGenerator.getEstimatedHeapBytes();
+    }
+
+    @Override
+    public Iterator<Object> getIterator() {
+        final Iterator<Object> wrapped = wrappedGenerator.getIterator();
+
+        return new Iterator<Object>() {
+            @Override
+            public boolean hasNext() {
+                return wrapped.hasNext();
+            }
+
+            @Override
+            public Object next() {
+                final Object next = wrapped.next();
+                if (next == null) {
+                    return null;
+                }
+                return convert(next);
+            }
+        };
+    }
+}
@@ -4,10 +4,15 @@ import org.json.simple.JSONObject;
 import org.mortbay.util.ajax.JSON;
 
 import java.io.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
 import java.time.temporal.TemporalAccessor;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.function.Function;
 
 public class Utils {
@@ -165,6 +170,61 @@ public class Utils {
         return values;
     }
 
+    /**
+     * Estimates the heap held by a list of values, as loaded from a file: the references in the list and
+     * the objects they point to, assuming compressed references and Latin-1 strings.
+     *
+     * @param values    the values
+     * @return          an estimate in bytes
+     */
+    public static long estimateHeapBytes(final List<?> values) {
+        long bytes = 16 + 4L * values.size();
+        for (final Object value : values) {
+            bytes += estimateHeapBytes(value);
+        }
+        return bytes;
+    }
+
+    /**
+     * Estimates the heap held by a single value, with its header and padding.
+     *
+     * @param value     a value as produced by a generator, or null
+     * @return          an estimate in bytes
+     */
+    public static long estimateHeapBytes(final Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            // the String and its byte array
+            return 24 + align(16 + ((String) value).length());
+        }
+        if (value instanceof BigDecimal) {
+            // with its BigInteger, for unscaled values that don't fit in a long
+            return 40 + 40;
+        }
+        if (value instanceof LocalDate) {
+            return 24;
+        }
+        if (value instanceof DataGenerator.FixedBinary) {
+            return 16 + align(16 + ((DataGenerator.FixedBinary) value).bytes.length);
+        }
+        if (value instanceof Object[]) {
+            final Object[] array = (Object[]) value;
+            long bytes = align(16 + 4L * array.length);
+            for (final Object element : array) {
+                bytes += estimateHeapBytes(element);
+            }
+            return bytes;
+        }
+        // boxed primitives and UnixTimestampNanos
+        return 16;
+    }
+
+    private static long align(final long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
     public static ArrayList<String> getStringListElementValues(final String key, final JSONObject jo) {
         return getStringListElementValues(key, jo, false);
     }
@@ -230,7 +290,7 @@ public class Utils {
             final T v;
             try {
                 v = fromString.apply(s);
-            } catch (NumberFormatException ex) {
+            } catch (NumberFormatException | DateTimeParseException ex) {
                 throw new IllegalArgumentException(
                         String.format("Element in position %d (=\"%s\" cannot be converted to int", i+1, s), ex);
             }
@@ -249,7 +309,19 @@ public class Utils {
                 return getDoubleListElementValues(key, jo);
             case STRING:
                 return getStringListElementValues(key, jo);
+            case BOOLEAN:
+                return getListElementValues(Utils::parseBoolean, key, jo, false);
+            case INT8:
+                return getListElementValues(Byte::parseByte, key, jo, false);
+            case INT16:
+                return getListElementValues(Short::parseShort, key, jo, false);
+            case FLOAT:
+                return getListElementValues(Float::parseFloat, key, jo, false);
+            case DATE:
+                return getListElementValues(LocalDate::parse, key, jo, false);
             case TIMESTAMP_NANOS:
+            case DECIMAL:
+            case FIXED_BINARY:
                 throw new IllegalArgumentException("Unsupported type " + columnType);
             default:
                 throw new IllegalStateException("Missing types");
@@ -268,6 +340,16 @@ public class Utils {
                 return Double.parseDouble(strValue);
             case STRING:
                 return strValue;
+            case BOOLEAN:
+                return parseBoolean(strValue);
+            case INT8:
+                return Byte.parseByte(strValue);
+            case INT16:
+                return Short.parseShort(strValue);
+            case FLOAT:
+                return Float.parseFloat(strValue);
+            case DATE:
+                return LocalDate.parse(strValue);
             case TIMESTAMP_NANOS: {
                 final TemporalAccessor t = DateTimeFormatter.ISO_DATE_TIME.parse(strValue);
                 final long nanos =
@@ -279,4 +361,99 @@ public class Utils {
                 throw new IllegalStateException("Need to implement more types");
         }
     }
+
+    private static boolean parseBoolean(final String value) {
+        if (value.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (value.equalsIgnoreCase("false")) {
+            return false;
+        }
+        throw new IllegalArgumentException(String.format("Couldn't parse value \"%s\" as a boolean.", value));
+    }
+
+    /**
+     * Pretty prints maps, lists and strings as JSON, keeping the order of the maps.  Other values are
+     * written as strings, which is how generation files hold numbers.
+     *
+     * @param sb        where to append
+     * @param value     a Map with String keys, a List, or a value
+     * @param indent    indentation level of the value
+     */
+    public static void appendJson(final StringBuilder sb, final Object value, final int indent) {
+        if (value instanceof Map) {
+            final Map<String, Object> map = (Map<String, Object>) value;
+            sb.append('{');
+            String separator = "\n";
+            for (final Map.Entry<String, Object> entry : map.entrySet()) {
+                sb.append(separator);
+                indent(sb, indent + 1);
+                appendString(sb, entry.getKey());
+                sb.append(": ");
+                appendJson(sb, entry.getValue(), indent + 1);
+                separator = ",\n";
+            }
+            sb.append('\n');
+            indent(sb, indent);
+            sb.append('}');
+        } else if (value instanceof List) {
+            final List<Object> list = (List<Object>) value;
+            final boolean multiline = !list.isEmpty() && list.get(0) instanceof Map;
+            // lists of values, like options, stay on one line
+            sb.append('[');
+            String separator = multiline ? "\n" : "";
+            for (final Object element : list) {
+                sb.append(separator);
+                if (multiline) {
+                    indent(sb, indent + 1);
+                }
+                appendJson(sb, element, indent + 1);
+                separator = multiline ? ",\n" : ", ";
+            }
+            if (multiline) {
+                sb.append('\n');
+                indent(sb, indent);
+            }
+            sb.append(']');
+        } else {
+            appendString(sb, value.toString());
+        }
+    }
+
+    private static void indent(final StringBuilder sb, final int indent) {
+        for (int i = 0; i < indent; ++i) {
+            sb.append("  ");
+        }
+    }
+
+    private static void appendString(final StringBuilder sb, final String s) {
+        sb.append('"');
+        for (int i = 0; i < s.length(); ++i) {
+            final char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\r':
+                    sb.append("\\r");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        sb.append('"');
+    }
 }
@@ -0,0 +1,186 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvDialectTest {
+
+    /** Values with two, three and four byte characters, the last ones surrogate pairs. */
+    private static final String[] VALUES = {
+            "", "a", "plain", "caf\u00e9", "\u4e2d\u6587", "\ud83d\ude00", "x\ud83d\ude00\ud83d\ude00y",
+            "\ud83d\ude00\ud83d\ude00\ud83d\ude00",
+    };
+
+    private static CsvDialect dialect(final String... settings) {
+        final JSONObject jo = new JSONObject();
+        for (int i = 0; i < settings.length; i += 2) {
+            jo.put(settings[i], settings[i + 1]);
+        }
+        return CsvDialect.fromJson(jo);
+    }
+
+    private static String field(final CsvDialect dialect, final Object value) {
+        final StringBuilder row = new StringBuilder();
+        dialect.appendField(row, value);
+        return row.toString();
+    }
+
+    @Test
+    void minimalQuotesOnlyWhatNeedsIt() {
+        final CsvDialect csv = dialect();
+        assertEquals("plain", field(csv, "plain"));
+        assertEquals("42", field(csv, 42L));
+        assertEquals("1.50", field(csv, new BigDecimal("1.50")));
+        assertEquals("", field(csv, null));
+        // empty strings are quoted, to tell them from nulls
+        assertEquals("\"\"", field(csv, ""));
+        assertEquals("\"a,b\"", field(csv, "a,b"));
+        assertEquals("\"a\nb\"", field(csv, "a\nb"));
+        assertEquals("\"a\r\nb\"", field(csv, "a\r\nb"));
+        assertEquals("\"[1|2]\"", field(dialect("delimiter", "|"), new Object[] {1L, 2L}));
+    }
+
+    @Test
+    void quotesAreDoubled() {
+        final CsvDialect csv = dialect();
+        assertEquals("\"say \"\"hi\"\"\"", field(csv, "say \"hi\""));
+        assertEquals("\"\"\"\"", field(csv, "\""));
+        final CsvDialect single = dialect("quote", "'");
+        assertEquals("'it''s'", field(single, "it's"));
+        assertEquals("a\"b", field(single, "a\"b"));
+    }
+
+    @Test
+    void escapeCharacterPrecedesQuotesAndItself() {
+        final CsvDialect csv = dialect("escape", "\\");
+        assertEquals("\"say \\\"hi\\\"\"", field(csv, "say \"hi\""));
+        assertEquals("\"a\\\\b\"", field(csv, "a\\b"));
+        assertEquals("\"a,b\"", field(csv, "a,b"));
+    }
+
+    @Test
+    void allQuotesEveryValue() {
+        final CsvDialect csv = dialect("quote_policy", "all");
+        assertEquals("\"plain\"", field(csv, "plain"));
+        assertEquals("\"42\"", field(csv, 42L));
+        assertEquals("\"true\"", field(csv, true));
+        assertEquals("\"a\"\"b\"", field(csv, "a\"b"));
+        assertEquals("", field(csv, null));
+    }
+
+    @Test
+    void nonNumericLeavesNumbersAndBooleans() {
+        final CsvDialect csv = dialect("quote_policy", "non_numeric", "delimiter", "tab");
+        assertEquals("\"plain\"", field(csv, "plain"));
+        assertEquals("42", field(csv, 42L));
+        assertEquals("2.5", field(csv, 2.5));
+        assertEquals("1.50", field(csv, new BigDecimal("1.50")));
+        assertEquals("false", field(csv, false));
+        assertEquals("\"a\tb\"", field(csv, "a\tb"));
+        assertEquals("\"a,b\"", field(csv, "a,b"));
+    }
+
+    @Test
+    void noneEscapesInsteadOfQuoting() {
+        final CsvDialect csv = dialect("quote_policy", "none", "escape", "\\");
+        assertEquals("plain", field(csv, "plain"));
+        assertEquals("a\\,b", field(csv, "a,b"));
+        assertEquals("say \\\"hi\\\"", field(csv, "say \"hi\""));
+        assertEquals("a\\\\b", field(csv, "a\\b"));
+        assertEquals("a\\\nb", field(csv, "a\nb"));
+        assertEquals("a\\\r\\\nb", field(csv, "a\r\nb"));
+        // quote_policy none can't double quotes
+        assertThrows(IllegalArgumentException.class, () -> dialect("quote_policy", "none"));
+    }
+
+    @Test
+    void nullValueIsQuotedWhenItIsAString() {
+        final CsvDialect csv = dialect("null_value", "NULL");
+        assertEquals("NULL", field(csv, null));
+        assertEquals("\"NULL\"", field(csv, "NULL"));
+        assertEquals("", field(csv, ""));
+        assertEquals("NULLS", field(csv, "NULLS"));
+    }
+
+    /** Reads back a field written with doubled quotes. */
+    private static String unquote(final String written) {
+        if (written.isEmpty() || written.charAt(0) != '"') {
+            return written;
+        }
+        assertTrue(written.length() >= 2 && written.endsWith("\""), written);
+        final String inner = written.substring(1, written.length() - 1);
+        assertTrue(!inner.replace("\"\"", "").contains("\""), written);
+        return inner.replace("\"\"", "\"");
+    }
+
+    /** Checks that read is the value with inserted added once, and no surrogate pair split. */
+    private static void assertOneInsert(final String value, final String read, final String inserted) {
+        assertEquals(value.length() + inserted.length(), read.length(), read);
+        boolean found = false;
+        for (int i = read.indexOf(inserted); i >= 0; i = read.indexOf(inserted, i + 1)) {
+            if ((read.substring(0, i) + read.substring(i + inserted.length())).equals(value)) {
+                found = true;
+                break;
+            }
+        }
+        assertTrue(found, value + " -> " + read);
+        for (int i = 0; i < read.length(); ++i) {
+            if (Character.isHighSurrogate(read.charAt(i))) {
+                assertTrue(i + 1 < read.length() && Character.isLowSurrogate(read.charAt(i + 1)), read);
+            } else if (Character.isLowSurrogate(read.charAt(i))) {
+                assertTrue(i > 0 && Character.isHighSurrogate(read.charAt(i - 1)), read);
+            }
+        }
+    }
+
+    @Test
+    void embeddedQuotesDelimitersAndLineBreaksReadBack() {
+        final String[][] inserts = {{"quote_ratio", "\""}, {"delimiter_ratio", ","}, {"newline_ratio", "\n"}};
+        for (final String[] insert : inserts) {
+            for (final String lineEnding : new String[] {"lf", "crlf"}) {
+                final CsvDialect csv = dialect(insert[0], "1", "line_ending", lineEnding, "seed", "7");
+                final String inserted = insert[1].equals("\n") ? csv.getLineEnding() : insert[1];
+                for (int repeat = 0; repeat < 50; ++repeat) {
+                    for (final String value : VALUES) {
+                        final String written = field(csv, value);
+                        assertTrue(written.startsWith("\""), written);
+                        assertOneInsert(value, unquote(written), inserted);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void multibyteContentKeepsSurrogatePairs() {
+        final CsvDialect csv = dialect("multibyte_ratio", "1", "seed", "3");
+        for (int repeat = 0; repeat < 50; ++repeat) {
+            for (final String value : VALUES) {
+                final String written = field(csv, value);
+                assertTrue(written.length() > value.length(), written);
+                for (int i = 0; i < written.length(); ++i) {
+                    if (Character.isHighSurrogate(written.charAt(i))) {
+                        assertTrue(Character.isLowSurrogate(written.charAt(++i)), written);
+                    } else {
+                        assertTrue(!Character.isLowSurrogate(written.charAt(i)), written);
+                    }
+                }
+            }
+        }
+        // only strings get stress content
+        assertEquals("42", field(csv, 42L));
+    }
+
+    @Test
+    void ratiosAddUpToAtMostOne() {
+        assertThrows(IllegalArgumentException.class, () -> dialect("quote_ratio", "0.6", "newline_ratio", "0.6"));
+        assertThrows(IllegalArgumentException.class, () -> dialect("delimiter_ratio", "-0.1"));
+        assertThrows(IllegalArgumentException.class, () -> dialect("delimiter", "\""));
+    }
+}
@@ -0,0 +1,201 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpressionCompilerTest {
+
+    /** Columns L (a long), D (a double), S (a string) and B (a boolean), and the row holding their values. */
+    private static final String[] COLUMNS = {"L", "D", "S", "B"};
+
+    private static ExpressionCompiler.Compiled compile(final String text) {
+        return ExpressionCompiler.parse("field", text).compile("field", name -> {
+            final int index = Arrays.asList(COLUMNS).indexOf(name);
+            switch (name) {
+                case "L":
+                    return ExpressionCompiler.Compiled.ofLong(row -> (Long) row[index]);
+                case "D":
+                    return ExpressionCompiler.Compiled.ofDouble(row -> (Double) row[index]);
+                case "S":
+                    return ExpressionCompiler.Compiled.ofString(row -> (String) row[index]);
+                case "B":
+                    return ExpressionCompiler.Compiled.ofBoolean(row -> (Boolean) row[index]);
+                default:
+                    throw new IllegalArgumentException("no column " + name);
+            }
+        });
+    }
+
+    private static Object eval(final String text, final Object... row) {
+        return compile(text).objectEvaluator().eval(row);
+    }
+
+    private static ExpressionCompiler.ValueType type(final String text) {
+        return compile(text).type;
+    }
+
+    @Test
+    void literals() {
+        assertEquals(42L, eval("42"));
+        assertEquals(1.5, eval("1.5"));
+        assertEquals(2e3, eval("2e3"));
+        assertEquals(0.25, eval(".25"));
+        assertEquals("it's", eval("\"it's\""));
+        assertEquals("a'b", eval("'a\\'b'"));
+        assertEquals(true, eval("true"));
+        assertEquals(false, eval(" false "));
+    }
+
+    @Test
+    void precedence() {
+        assertEquals(7L, eval("1 + 2 * 3"));
+        assertEquals(9L, eval("(1 + 2) * 3"));
+        // left associative
+        assertEquals(3L, eval("10 - 4 - 3"));
+        assertEquals(2L, eval("12 / 3 / 2"));
+        assertEquals(1L, eval("7 % 4 % 2"));
+        assertEquals(-6L, eval("-2 * 3"));
+        assertEquals(2L, eval("--2"));
+        assertEquals(true, eval("1 + 2 < 4 && 2 * 2 == 4"));
+        assertEquals(true, eval("true || false && false"));
+        assertEquals(false, eval("(true || false) && false"));
+        assertEquals(true, eval("!true == false"));
+        // the conditional is lowest, and right associative
+        assertEquals(2L, eval("false ? 1 : true ? 2 : 3"));
+        assertEquals(5L, eval("1 < 2 ? 2 + 3 : 0"));
+    }
+
+    @Test
+    void integersStayIntegersAndWidenWithDoubles() {
+        assertEquals(ExpressionCompiler.ValueType.LONG, type("7 / 2"));
+        assertEquals(3L, eval("7 / 2"));
+        assertEquals(-1L, eval("-7 % 3"));
+        assertEquals(ExpressionCompiler.ValueType.DOUBLE, type("7 / 2.0"));
+        assertEquals(3.5, eval("7 / 2.0"));
+        assertEquals(ExpressionCompiler.ValueType.DOUBLE, type("L + D"));
+        assertEquals(5.5, eval("L + D", 3L, 2.5, null, null));
+        assertEquals(true, eval("L < D", 2L, 2.5, null, null));
+        assertEquals(true, eval("L == 2.0", 2L, null, null, null));
+        assertEquals(ExpressionCompiler.ValueType.DOUBLE, type("B ? L : D"));
+        assertEquals(4.0, eval("B ? L : D", 4L, 1.0, null, true));
+        assertEquals(ExpressionCompiler.ValueType.DOUBLE, type("max(L, D, 1)"));
+        assertEquals(ExpressionCompiler.ValueType.LONG, type("max(L, 1)"));
+        assertEquals(Long.MAX_VALUE, eval("L + 1", Long.MAX_VALUE - 1, null, null, null));
+    }
+
+    @Test
+    void integerDivisionByZeroIsNull() {
+        final ExpressionCompiler.ObjectEvaluator divide = compile("100 / L").objectEvaluator();
+        final ExpressionCompiler.ObjectEvaluator remainder = compile("100 % L").objectEvaluator();
+        assertEquals(25L, divide.eval(new Object[] {4L, null, null, null}));
+        final Object[] zero = {0L, null, null, null};
+        assertThrows(ExpressionCompiler.NullValue.class, () -> divide.eval(zero));
+        assertThrows(ExpressionCompiler.NullValue.class, () -> remainder.eval(zero));
+        // it is null for an enclosing expression too, unless the branch dividing isn't taken
+        assertThrows(ExpressionCompiler.NullValue.class, () -> eval("str(1 + 100 / L)", zero));
+        assertEquals(0L, eval("L == 0 ? 0 : 100 / L", zero));
+        assertEquals(false, eval("L != 0 && 100 / L > 1", zero));
+        // doubles divide by zero as Java does
+        assertEquals(Double.POSITIVE_INFINITY, eval("1.0 / L", zero));
+        assertTrue(Double.isNaN((Double) eval("1.0 % L", zero)));
+    }
+
+    @Test
+    void strings() {
+        assertEquals("1x", eval("1 + 'x'"));
+        assertEquals("x1.5", eval("'x' + 1.5"));
+        assertEquals("3true", eval("1 + 2 + str(B)", null, null, null, true));
+        assertEquals("IBM-7", eval("concat(S, '-', str(L))", 7L, null, "IBM", null));
+        assertEquals(true, eval("S < 'b'", null, null, "a", null));
+        assertEquals(42L, eval("long('42')"));
+        assertEquals(0.5, eval("double('0.5')"));
+    }
+
+    @Test
+    void functions() {
+        assertEquals(3L, eval("abs(-3)"));
+        assertEquals(2.5, eval("abs(-2.5)"));
+        assertEquals(1L, eval("min(3, 1, 2)"));
+        assertEquals(3.5, eval("max(3, 1, 3.5)"));
+        assertEquals(2L, eval("if(false, 1, 2)"));
+        assertEquals(3L, eval("long(3.9)"));
+        // hash is HyperLogLog's, made non-negative
+        assertEquals(HyperLogLog.hash(5L) >>> 1, eval("hash(5)"));
+        assertEquals(HyperLogLog.hash("IBM") >>> 1, eval("hash(S)", null, null, "IBM", null));
+        assertEquals(HyperLogLog.hash(0.5) >>> 1, eval("hash(0.5)"));
+        assertTrue((Long) eval("hash(-1)") >= 0);
+    }
+
+    @Test
+    void format() {
+        assertEquals("007-x-1.50", eval("format('%03d-%s-%.2f', L, S, D)", 7L, 1.5, "x", null));
+        // a literal format is checked against the argument types when compiling
+        assertThrows(IllegalArgumentException.class, () -> compile("format('%d', S)"));
+        assertThrows(IllegalArgumentException.class, () -> compile("format('%s %s', 1)"));
+        assertThrows(IllegalArgumentException.class, () -> compile("format(1, 2)"));
+    }
+
+    @Test
+    void referencedColumns() {
+        final Set<String> columns = new LinkedHashSet<>();
+        ExpressionCompiler.parse("field", "L + D * L > 0 ? concat(S) : 'b'").collectColumns(columns);
+        assertEquals(new LinkedHashSet<>(Arrays.asList("L", "D", "S")), columns);
+    }
+
+    @Test
+    void syntaxErrors() {
+        for (final String text : new String[] {"", "1 +", "(1", "1)", "'abc", "1 2", "max(1,", "1.2.3", "a ? b", "#"}) {
+            final IllegalArgumentException ex =
+                    assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.parse("field", text));
+            assertTrue(ex.getMessage().startsWith("field: "), ex.getMessage());
+        }
+    }
+
+    @Test
+    void typeErrors() {
+        for (final String text : new String[] {"'a' * 2", "!1", "-S", "true ? 1 : 'a'", "1 ? 2 : 3", "B < true",
+                "1 && B", "nope(1)", "abs(1, 2)", "abs(S)", "X + 1"}) {
+            assertThrows(IllegalArgumentException.class, () -> compile(text), text);
+        }
+    }
+
+    @Test
+    void generatedValuesAreNullWhereAnIntegerIsDividedByZero() {
+        final JSONObject jo = new JSONObject();
+        jo.put("type", "INT64");
+        jo.put("expression", "100 / L");
+        final DataGenerator generator = ExpressionGenerator.fromJson("Ratio", jo);
+        assertEquals(Collections.singleton("L"), generator.getReferencedColumns());
+        final Object[] row = new Object[2];
+        generator.bindColumns(new String[] {"L", "Ratio"}, new DataGenerator[] {column(), generator}, row);
+        final Iterator<Object> values = generator.getIterator();
+        row[0] = 4L;
+        assertEquals(25L, values.next());
+        row[0] = 0L;
+        assertNull(values.next());
+        row[0] = null;
+        assertNull(values.next());
+        row[0] = -5L;
+        assertEquals(-20L, values.next());
+    }
+
+    private static DataGenerator column() {
+        return new DataGenerator(DataGenerator.ColumnType.INT64) {
+            @Override
+            public Iterator<Object> getIterator() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
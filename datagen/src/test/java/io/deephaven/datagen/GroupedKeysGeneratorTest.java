@@ -0,0 +1,204 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupedKeysGeneratorTest {
+
+    private static final String[] ORDERS = {"shuffled", "grouped", "sorted"};
+
+    @Test
+    void permutationIsABijection() {
+        for (final long size : new long[] {1, 2, 3, 4, 5, 7, 10, 17, 100, 255, 1000, 1023, 1025, 4097, 12345}) {
+            for (long seed = 0; seed < 3; ++seed) {
+                final FeistelPermutation permutation = new FeistelPermutation(size, seed);
+                final BitSet seen = new BitSet();
+                for (long x = 0; x < size; ++x) {
+                    final long y = permutation.permute(x);
+                    assertTrue(y >= 0 && y < size, size + ": " + x + " went to " + y);
+                    assertTrue(!seen.get((int) y), size + ": " + y + " came twice");
+                    seen.set((int) y);
+                }
+                assertEquals(size, seen.cardinality());
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> new FeistelPermutation(0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new FeistelPermutation(FeistelPermutation.MAX_SIZE + 1, 1));
+    }
+
+    @Test
+    void samplerDrawsEachIndexItsCount() {
+        final long[] counts = {3, 0, 5, 1, 0, 7, 2};
+        final CountSampler sampler = new CountSampler(counts);
+        assertEquals(18, sampler.remaining());
+        final long[] drawn = new long[counts.length];
+        final Random prng = new Random(5);
+        while (sampler.remaining() > 0) {
+            ++drawn[sampler.take((long) (prng.nextDouble() * sampler.remaining()))];
+        }
+        assertArrayEquals(counts, drawn);
+        assertThrows(IllegalArgumentException.class, () -> sampler.take(0));
+
+        // u picks the index whose counts, end to end, cover it
+        final CountSampler ordered = new CountSampler(new long[] {2, 0, 1});
+        assertEquals(2, ordered.take(2));
+        assertEquals(0, ordered.take(1));
+        assertEquals(0, ordered.take(0));
+        assertThrows(IllegalArgumentException.class, () -> new CountSampler(new long[] {1, -1}));
+    }
+
+    private static JSONObject key(final String field, final String type, final long cardinality) {
+        final JSONObject key = new JSONObject();
+        key.put("field", field);
+        key.put("type", type);
+        key.put("cardinality", Long.toString(cardinality));
+        return key;
+    }
+
+    private static JSONObject definition(final String... settings) {
+        final JSONObject jo = new JSONObject();
+        jo.put("keys", Arrays.asList(key("a", "STRING", 7), key("b", "INT64", 11)));
+        jo.put("seed", "42");
+        for (int i = 0; i < settings.length; i += 2) {
+            jo.put(settings[i], settings[i + 1]);
+        }
+        return jo;
+    }
+
+    /** The rows of each key the generator makes, in the order keys first come. */
+    private static Map<List<Object>, Long> generate(final JSONObject jo, final long limit) {
+        final GroupedKeysGenerator generator = GroupedKeysGenerator.fromJson("keys", jo);
+        final Map<List<Object>, Long> rows = new LinkedHashMap<>();
+        long n = 0;
+        while (generator.hasNext() && n++ < limit) {
+            generator.advance();
+            rows.merge(Arrays.asList(generator.getValue(0), generator.getValue(1)), 1L, Long::sum);
+        }
+        if (!generator.isUnbounded()) {
+            assertEquals(generator.getRowCount(), n);
+        }
+        return rows;
+    }
+
+    @Test
+    void uniformGivesEachKeyItsRows() {
+        for (final String order : ORDERS) {
+            final Map<List<Object>, Long> rows = generate(
+                    definition("distinct_keys", "30", "rows_per_key", "4", "order", order), Long.MAX_VALUE);
+            assertEquals(30, rows.size(), order);
+            for (final Map.Entry<List<Object>, Long> entry : rows.entrySet()) {
+                assertEquals(4L, (long) entry.getValue(), order + " " + entry.getKey());
+                final String a = (String) entry.getKey().get(0);
+                final long b = (Long) entry.getKey().get(1);
+                assertTrue(a.length() == 1 && a.charAt(0) >= '0' && a.charAt(0) < '7', a);
+                assertTrue(b >= 0 && b < 11, Long.toString(b));
+            }
+        }
+        // all of the key space, once each
+        assertEquals(77, generate(definition(), Long.MAX_VALUE).size());
+    }
+
+    @Test
+    void sortedKeysIncrease() {
+        final JSONObject jo = definition("distinct_keys", "20", "rows_per_key", "2", "order", "sorted");
+        final List<List<Object>> keys = new ArrayList<>(generate(jo, Long.MAX_VALUE).keySet());
+        for (int i = 1; i < keys.size(); ++i) {
+            final long previous = Long.parseLong((String) keys.get(i - 1).get(0)) * 11 + (Long) keys.get(i - 1).get(1);
+            final long next = Long.parseLong((String) keys.get(i).get(0)) * 11 + (Long) keys.get(i).get(1);
+            assertTrue(previous < next, keys.get(i - 1) + " before " + keys.get(i));
+        }
+    }
+
+    /**
+     * The rows of each key for zipf, as documented: one each, and floor(extra * w / W) of the rest, with
+     * w = (rank + 1)^-s, plus one for the first ranks to make up the total.
+     */
+    private static List<Long> zipfRows(final int keys, final long totalRows, final double exponent) {
+        double total = 0.0;
+        for (int rank = 0; rank < keys; ++rank) {
+            total += Math.pow(rank + 1, -exponent);
+        }
+        final long extra = totalRows - keys;
+        final long[] rows = new long[keys];
+        long shared = 0;
+        for (int rank = 0; rank < keys; ++rank) {
+            rows[rank] = 1 + (long) Math.floor(extra * Math.pow(rank + 1, -exponent) / total);
+            shared += rows[rank];
+        }
+        for (int rank = 0; shared < totalRows; ++rank, ++shared) {
+            ++rows[rank];
+        }
+        final List<Long> sorted = new ArrayList<>();
+        for (final long r : rows) {
+            sorted.add(r);
+        }
+        sorted.sort(Collections.reverseOrder());
+        return sorted;
+    }
+
+    @Test
+    void zipfGivesEachKeyItsExactRows() {
+        for (final String exponent : new String[] {"0", "0.5", "1", "2"}) {
+            final List<Long> expected = zipfRows(50, 1000, Double.parseDouble(exponent));
+            for (final String order : ORDERS) {
+                final Map<List<Object>, Long> rows = generate(definition("distinct_keys", "50", "multiplicity", "zipf",
+                        "total_rows", "1000", "zipf_exponent", exponent, "order", order), Long.MAX_VALUE);
+                assertEquals(50, rows.size(), order);
+                final List<Long> multiplicities = new ArrayList<>(rows.values());
+                multiplicities.sort(Collections.reverseOrder());
+                assertEquals(expected, multiplicities, exponent + " " + order);
+            }
+        }
+        // every key gets a row, even when the law would give the tail nothing
+        final Map<List<Object>, Long> rows = generate(definition("multiplicity", "zipf", "total_rows", "80",
+                "zipf_exponent", "3"), Long.MAX_VALUE);
+        assertEquals(77, rows.size());
+        assertEquals(80L, rows.values().stream().mapToLong(Long::longValue).sum());
+    }
+
+    @Test
+    void withReplacementUsesOnlyTheDistinctKeys() {
+        for (final String multiplicity : new String[] {"uniform", "zipf"}) {
+            final Map<List<Object>, Long> rows = generate(definition("distinct_keys", "10",
+                    "multiplicity", multiplicity, "sampling", "with_replacement"), 5000);
+            assertEquals(10, rows.size(), multiplicity);
+        }
+    }
+
+    @Test
+    void keyValuesMustFitTheirType() {
+        final JSONObject jo = definition();
+        final JSONObject last = key("c", "INT64", 10);
+        last.put("start", Long.toString(Long.MAX_VALUE - 9));
+        jo.put("keys", Arrays.asList(key("a", "STRING", 7), last));
+        final GroupedKeysGenerator generator = GroupedKeysGenerator.fromJson("keys", jo);
+        long max = Long.MIN_VALUE;
+        while (generator.hasNext()) {
+            generator.advance();
+            max = Math.max(max, (Long) generator.getValue(1));
+        }
+        assertEquals(Long.MAX_VALUE, max);
+
+        last.put("start", Long.toString(Long.MAX_VALUE - 8));
+        assertThrows(IllegalArgumentException.class, () -> GroupedKeysGenerator.fromJson("keys", jo));
+        last.put("type", "INT32");
+        last.put("start", Integer.toString(Integer.MAX_VALUE - 8));
+        assertThrows(IllegalArgumentException.class, () -> GroupedKeysGenerator.fromJson("keys", jo));
+        last.put("start", Integer.toString(Integer.MAX_VALUE - 9));
+        GroupedKeysGenerator.fromJson("keys", jo);
+    }
+}
@@ -0,0 +1,82 @@
+package io.deephaven.datagen;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    private static HyperLogLog sketch(final int indexBits, final long from, final long count) {
+        final HyperLogLog sketch = new HyperLogLog(indexBits);
+        for (long value = from; value < from + count; ++value) {
+            sketch.add(value);
+        }
+        return sketch;
+    }
+
+    /** Three standard errors, 1.04 / sqrt(m) each. */
+    private static double tolerance(final int indexBits) {
+        return 3 * 1.04 / Math.sqrt(1 << indexBits);
+    }
+
+    private static void assertWithin(final double tolerance, final long expected, final long estimate) {
+        final double error = Math.abs(estimate - expected) / (double) expected;
+        assertTrue(error <= tolerance,
+                String.format("estimate %d of %d is off by %.2f%%, over %.2f%%", estimate, expected, 100 * error, 100 * tolerance));
+    }
+
+    @Test
+    void largeCountsAreWithinTheStandardError() {
+        for (final int indexBits : new int[] {8, 10, 12, 14}) {
+            for (final long count : new long[] {100_000, 1_000_000}) {
+                assertWithin(tolerance(indexBits), count, sketch(indexBits, 1_000_000_000L, count).estimate());
+            }
+        }
+    }
+
+    @Test
+    void smallCountsUseLinearCounting() {
+        // the raw estimate is about 0.7 m with most registers empty, far off for these
+        final int indexBits = HyperLogLog.DEFAULT_INDEX_BITS;
+        assertEquals(0, new HyperLogLog(indexBits).estimate());
+        for (final long count : new long[] {1, 2, 10, 100}) {
+            assertEquals(count, sketch(indexBits, 0, count).estimate());
+        }
+        for (final long count : new long[] {1_000, 5_000, 20_000}) {
+            assertWithin(0.02, count, sketch(indexBits, 0, count).estimate());
+        }
+    }
+
+    @Test
+    void estimatesAreSmoothAcrossTheSwitch() {
+        // linear counting gives way to the raw estimate at 2.5 m, 2560 for 10 index bits
+        final int indexBits = 10;
+        for (long count = 1_000; count <= 6_000; count += 250) {
+            assertWithin(tolerance(indexBits), count, sketch(indexBits, 7_000_000L * count, count).estimate());
+        }
+    }
+
+    @Test
+    void repeatsAndEqualValuesOfOtherTypesCountOnce() {
+        final HyperLogLog sketch = new HyperLogLog();
+        for (int i = 0; i < 3; ++i) {
+            for (int value = 0; value < 1_000; ++value) {
+                sketch.add(value);
+                sketch.add((long) value);
+                sketch.add(new StringBuilder("s").append(value));
+                sketch.add("s" + value);
+            }
+        }
+        assertWithin(0.02, 2_000, sketch.estimate());
+    }
+
+    @Test
+    void mergeIsTheUnion() {
+        final HyperLogLog merged = sketch(12, 0, 60_000);
+        merged.merge(sketch(12, 40_000, 60_000));
+        assertEquals(sketch(12, 0, 100_000).estimate(), merged.estimate());
+        assertThrows(IllegalArgumentException.class, () -> merged.merge(new HyperLogLog(13)));
+    }
+}
@@ -0,0 +1,50 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IDGeneratorTest {
+
+    private static JSONObject id(final String type, final String startId) {
+        final JSONObject jo = new JSONObject();
+        jo.put("generation_type", "id");
+        jo.put("type", type);
+        jo.put("start_id", startId);
+        jo.put("increment", "Increasing");
+        jo.put("seed", "1");
+        return jo;
+    }
+
+    @Test
+    void convertedTypesCountInIntegers() {
+        final Iterator<Object> floats = DataGenerator.fromJson("f", id("FLOAT", "1")).getIterator();
+        assertEquals(1.0f, floats.next());
+        assertEquals(2.0f, floats.next());
+
+        final JSONObject decimal = id("DECIMAL", "9007199254740993");
+        final Iterator<Object> decimals = DataGenerator.fromJson("d", decimal).getIterator();
+        // exact past 2^53, where a double would round
+        assertEquals(new BigDecimal("9007199254740993.00"), decimals.next());
+        assertEquals(new BigDecimal("9007199254740994.00"), decimals.next());
+
+        final Iterator<Object> dates = DataGenerator.fromJson("t", id("DATE", "0")).getIterator();
+        assertEquals(LocalDate.of(1970, 1, 1), dates.next());
+    }
+
+    @Test
+    void otherTypesAreRejected() {
+        for (final String type : new String[] {"DOUBLE", "TIMESTAMP_NANOS"}) {
+            final IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                    () -> DataGenerator.fromJson("c", id(type, "1")), type);
+            assertTrue(ex.getMessage().startsWith("c: generation_type id makes"), ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.deephaven.datagen;
+
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RandomStringGeneratorTest {
+
+    private static JSONObject definition(final String charset, final int minLength, final int maxLength) {
+        final JSONObject jo = new JSONObject();
+        jo.put("type", "STRING");
+        jo.put("charset", charset);
+        jo.put("length_distribution", "uniform");
+        jo.put("min_length", Integer.toString(minLength));
+        jo.put("max_length", Integer.toString(maxLength));
+        jo.put("seed", "1");
+        jo.put("unique", "true");
+        return jo;
+    }
+
+    @Test
+    void uniqueStringsKeepTheConfiguredLengths() {
+        final JSONObject jo = definition("digits", 3, 5);
+        jo.put("unique_rows", "1000");
+        final Iterator<Object> values = RandomStringGenerator.fromJson("Key", jo).getIterator();
+        final Set<String> seen = new HashSet<>();
+        for (int row = 0; row < 1000; ++row) {
+            final String value = values.next().toString();
+            assertTrue(value.length() >= 3 && value.length() <= 5, value);
+            assertTrue(seen.add(value), value);
+        }
+        // the counter has room for 1000 rows only
+        assertThrows(IllegalStateException.class, values::next);
+    }
+
+    @Test
+    void uniqueNeedsRoomForTheRowCounter() {
+        // 2^40 rows take 7 alphanumeric characters, or 13 digits
+        assertEquals(7, RandomStringGenerator.uniqueDigits(62, RandomStringGenerator.DEFAULT_UNIQUE_ROWS));
+        assertEquals(13, RandomStringGenerator.uniqueDigits(10, RandomStringGenerator.DEFAULT_UNIQUE_ROWS));
+        assertEquals(1, RandomStringGenerator.uniqueDigits(10, 1));
+        assertEquals(3, RandomStringGenerator.uniqueDigits(10, 1000));
+        assertEquals(4, RandomStringGenerator.uniqueDigits(10, 1001));
+        assertEquals(19, RandomStringGenerator.uniqueDigits(10, Long.MAX_VALUE));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> RandomStringGenerator.fromJson("Key", definition("alphanumeric", 6, 10)));
+        RandomStringGenerator.fromJson("Key", definition("alphanumeric", 7, 10));
+        final JSONObject fewer = definition("alphanumeric", 4, 10);
+        fewer.put("unique_rows", "14776336");
+        RandomStringGenerator.fromJson("Key", fewer);
+        fewer.put("unique_rows", "14776337");
+        assertThrows(IllegalArgumentException.class, () -> RandomStringGenerator.fromJson("Key", fewer));
+    }
+}
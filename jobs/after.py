@@ -24,6 +24,13 @@ if elapsed_benchmark_nanos is not None:
 else:
     elapsed_seconds = (time_end_ns - time_start_ns) / (1000*1000*1000.0)
 
+#
+# Benchmarks that don't set 'processed_rows' are credited with the rows of the
+# tables generated for them, as counted by BencherApp in 'generated_rows'.
+#
+if processed_rows is None:
+    processed_rows = generated_rows
+
 if processed_rows is not None:
     rows_per_second = processed_rows / elapsed_seconds
 else:
@@ -48,15 +55,33 @@ timestamp_utc = datetime.datetime.fromtimestamp(now, pytz.UTC)
 timestamp_nyc = datetime.datetime.fromtimestamp(now, pytz.timezone('America/New_York'))
 
 # Append to bench-results.csv our results.
-header = [ 'bench_name', 'extra_description', 'timestamp_nyc', 'timestamp_utc', 'process_unique_id', 'gc_seconds', 'elapsed_seconds', 'rows_per_second' ]
-fields = [ bench_name, extra_description if extra_description is not None else None, timestamp_nyc, timestamp_utc, process_unique_id, gc_seconds, elapsed_seconds, rows_per_second ]
+# 'generation_overlap_seconds' is set by BencherApp: the seconds of the timed statements during which it was
+# generating data for later benchmarks on its machine; if that's the same machine, nonzero values deserve a second look.
+header = [ 'bench_name', 'extra_description', 'timestamp_nyc', 'timestamp_utc', 'process_unique_id', 'gc_seconds', 'elapsed_seconds', 'rows_per_second', 'generation_overlap_seconds' ]
+fields = [ bench_name, extra_description if extra_description is not None else None, timestamp_nyc, timestamp_utc, process_unique_id, gc_seconds, elapsed_seconds, rows_per_second, generation_overlap_seconds ]
+# 'warmup_iteration' is set by BencherApp for the iterations run with -w, which aren't results.
 results_file = '/data/bench-results.csv'
-need_header = not os.path.exists(results_file)
-with open(results_file, 'a') as file:
-    writer = csv.writer(file)
-    if need_header:
-        writer.writerow(header)
-    writer.writerow(fields)
+if not warmup_iteration:
+    need_header = not os.path.exists(results_file)
+    if not need_header:
+        with open(results_file) as file:
+            rows = list(csv.reader(file))
+        if rows and rows[0] != header:
+            # columns are only ever added at the end: a file started before some of them gets them, empty in its
+            # old rows, so that every row lines up with the header
+            if len(rows[0]) > len(header) or rows[0] != header[:len(rows[0])]:
+                raise Exception("%s has columns %s, expected %s; not appending to it" % (results_file, rows[0], header))
+            with open(results_file + '.tmp', 'w') as file:
+                writer = csv.writer(file)
+                writer.writerow(header)
+                for row in rows[1:]:
+                    writer.writerow(row + [''] * (len(header) - len(row)))
+            os.replace(results_file + '.tmp', results_file)
+    with open(results_file, 'a') as file:
+        writer = csv.writer(file)
+        if need_header:
+            writer.writerow(header)
+        writer.writerow(fields)
 
 try:
     bench_cleanup()
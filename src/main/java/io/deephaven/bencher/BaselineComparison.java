@@ -0,0 +1,305 @@
+package io.deephaven.bencher;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares the timings of the timed statements of a run with those of a baseline run, read from a results file
+ * {@link ResultRecorder} wrote.  For each benchmark and statement, the baseline is its latest run in the file, and
+ * the difference is significant when the two-sided Mann-Whitney U test rejects that neither tends to be slower, at
+ * {@code compare.alpha} (default 0.05), and the medians differ by more than {@code compare.threshold} of the
+ * baseline median (default 0.05).  Like the summaries, the baseline leaves out the iterations before timings settled,
+ * as its summary lines tell.  Only regressions on the same data as the baseline's count, unless
+ * {@code compare.any.data} is set.
+ */
+final class BaselineComparison {
+
+    static final double ALPHA = Double.parseDouble(System.getProperty("compare.alpha", "0.05"));
+    static final double THRESHOLD = Double.parseDouble(System.getProperty("compare.threshold", "0.05"));
+    static final boolean ANY_DATA = Boolean.parseBoolean(System.getProperty("compare.any.data", "False"));
+    // the exact distribution of U takes time in the cube of the sizes, and more orderings than a double holds
+    private static final int EXACT_MAX_SIZE = 400;
+
+    enum Verdict {
+        REGRESSION,
+        IMPROVEMENT,
+        UNCHANGED,
+        NO_BASELINE,
+    }
+
+    /**
+     * The comparison of a statement's timings.
+     */
+    static final class Result {
+        final String benchmark;
+        final String statement;
+        final Verdict verdict;
+        final int baselineSamples;
+        final double baselineMedian;
+        final double median;
+        // relative to the baseline median; positive is slower
+        final double change;
+        final double p;
+        final boolean sameData;
+
+        private Result(
+                final String benchmark,
+                final String statement,
+                final Verdict verdict,
+                final int baselineSamples,
+                final double baselineMedian,
+                final double median,
+                final double change,
+                final double p,
+                final boolean sameData) {
+            this.benchmark = benchmark;
+            this.statement = statement;
+            this.verdict = verdict;
+            this.baselineSamples = baselineSamples;
+            this.baselineMedian = baselineMedian;
+            this.median = median;
+            this.change = change;
+            this.p = p;
+            this.sameData = sameData;
+        }
+    }
+
+    private static final class Baseline {
+        private final String runId;
+        private final String dataFingerprint;
+        private final List<Long> samples = new ArrayList<>();
+        // the first samples, before timings settled, as the summary of the run tells
+        private int unsteady;
+
+        private Baseline(final String runId, final String dataFingerprint) {
+            this.runId = runId;
+            this.dataFingerprint = dataFingerprint;
+        }
+    }
+
+    private final File file;
+    // by benchmark and statement
+    private final Map<List<String>, Baseline> baselines = new HashMap<>();
+    private final List<Result> regressions = new ArrayList<>();
+
+    private BaselineComparison(final File file) {
+        this.file = file;
+    }
+
+    /**
+     * Reads the measured timings of the baseline from a results file; for each benchmark and statement, those of
+     * the latest run.
+     */
+    static BaselineComparison load(final File file) throws IOException, ParseException {
+        final BaselineComparison comparison = new BaselineComparison(file);
+        final JSONParser parser = new JSONParser();
+        try (final BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                final JSONObject record = (JSONObject) parser.parse(line);
+                if ("summary".equals(record.get("record"))) {
+                    final Baseline baseline = comparison.baselines.get(
+                            key((String) record.get("benchmark"), (String) record.get("statement")));
+                    final Number unsteady = (Number) record.get("unsteady_iterations");
+                    if (baseline != null && unsteady != null && baseline.runId.equals(String.valueOf(record.get("run_id")))) {
+                        baseline.unsteady = unsteady.intValue();
+                    }
+                    continue;
+                }
+                if (!"statement".equals(record.get("record"))
+                        || !Boolean.TRUE.equals(record.get("timed"))
+                        || !Boolean.TRUE.equals(record.get("success"))
+                        || Boolean.TRUE.equals(record.get("warmup"))
+                        || Boolean.TRUE.equals(record.get("discarded"))) {
+                    continue;
+                }
+                final List<String> key = key((String) record.get("benchmark"), (String) record.get("statement"));
+                final String runId = String.valueOf(record.get("run_id"));
+                Baseline baseline = comparison.baselines.get(key);
+                if (baseline == null || !baseline.runId.equals(runId)) {
+                    // a later run
+                    baseline = new Baseline(runId, (String) record.get("data_sha256"));
+                    comparison.baselines.put(key, baseline);
+                }
+                baseline.samples.add(((Number) record.get("client_nanos")).longValue());
+            }
+        }
+        for (final Baseline baseline : comparison.baselines.values()) {
+            baseline.samples.subList(0, Math.min(baseline.unsteady, baseline.samples.size())).clear();
+        }
+        return comparison;
+    }
+
+    /**
+     * How many of the baselines could be told apart from a statement measured that many times, at {@link #ALPHA}.
+     */
+    int countDetectable(final int samples) {
+        int detectable = 0;
+        for (final Baseline baseline : baselines.values()) {
+            if (minimumP(baseline.samples.size(), samples) <= ALPHA) {
+                ++detectable;
+            }
+        }
+        return detectable;
+    }
+
+    /** The number of benchmarks and statements with a baseline. */
+    int size() {
+        return baselines.size();
+    }
+
+    /**
+     * The smallest two-sided p-value the Mann-Whitney U test can give for samples of sizes m and n: when one is
+     * all below the other, 2 of the C(m + n, m) orderings.
+     */
+    static double minimumP(final int m, final int n) {
+        double orderings = 1.0;
+        for (int i = 1; i <= Math.min(m, n); ++i) {
+            orderings = orderings * (Math.max(m, n) + i) / i;
+        }
+        return Math.min(1.0, 2.0 / orderings);
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    private static List<String> key(final String benchmark, final String statement) {
+        final List<String> key = new ArrayList<>(2);
+        key.add(benchmark);
+        key.add(statement);
+        return key;
+    }
+
+    /**
+     * Compares a statement's timings with the baseline.
+     *
+     * @param benchmark         title of the benchmark
+     * @param statement         title of the statement
+     * @param samples           the measured timings
+     * @param dataFingerprint   fingerprint of the benchmark's data
+     */
+    Result compare(final String benchmark, final String statement, final List<Long> samples, final String dataFingerprint) {
+        final double median = new BenchmarkStatistics(samples).getMedian();
+        final Baseline baseline = baselines.get(key(benchmark, statement));
+        if (baseline == null) {
+            return new Result(benchmark, statement, Verdict.NO_BASELINE, 0, Double.NaN, median, Double.NaN, Double.NaN, false);
+        }
+        final double baselineMedian = new BenchmarkStatistics(baseline.samples).getMedian();
+        final double change = median / baselineMedian - 1.0;
+        final double p = mannWhitneyP(baseline.samples, samples);
+        final Verdict verdict;
+        if (p < ALPHA && change > THRESHOLD) {
+            verdict = Verdict.REGRESSION;
+        } else if (p < ALPHA && change < -THRESHOLD) {
+            verdict = Verdict.IMPROVEMENT;
+        } else {
+            verdict = Verdict.UNCHANGED;
+        }
+        final boolean sameData = dataFingerprint != null && dataFingerprint.equals(baseline.dataFingerprint);
+        final Result result = new Result(benchmark, statement, verdict, baseline.samples.size(), baselineMedian,
+                median, change, p, sameData);
+        if (verdict == Verdict.REGRESSION && (sameData || ANY_DATA)) {
+            regressions.add(result);
+        }
+        return result;
+    }
+
+    /** The significant regressions found so far, that fail the run. */
+    List<Result> getRegressions() {
+        return regressions;
+    }
+
+    /**
+     * The two-sided p-value of the Mann-Whitney U test: exact when there are no ties and the samples are small
+     * enough, in the normal approximation with corrections for ties and continuity otherwise.
+     */
+    static double mannWhitneyP(final List<Long> x, final List<Long> y) {
+        final int m = x.size();
+        final int n = y.size();
+        if (m == 0 || n == 0) {
+            return 1.0;
+        }
+        // U of x, counting ties as half, in halves; and whether there are ties, between or within the samples
+        long u2 = 0;
+        for (final long a : x) {
+            for (final long b : y) {
+                u2 += a > b ? 2 : a == b ? 1 : 0;
+            }
+        }
+        final List<Long> all = new ArrayList<>(x);
+        all.addAll(y);
+        all.sort(null);
+        double tieCorrection = 0.0;
+        for (int i = 0; i < all.size(); ) {
+            int j = i;
+            while (j < all.size() && all.get(j).equals(all.get(i))) {
+                ++j;
+            }
+            final double t = j - i;
+            tieCorrection += t * t * t - t;
+            i = j;
+        }
+
+        final long product = (long) m * n;
+        if (tieCorrection == 0.0 && m + n <= EXACT_MAX_SIZE) {
+            final long u = Math.min(u2 / 2, product - u2 / 2);
+            final double[] counts = uDistribution(m, n);
+            double total = 0.0;
+            double tail = 0.0;
+            for (int k = 0; k < counts.length; ++k) {
+                total += counts[k];
+                if (k <= u) {
+                    tail += counts[k];
+                }
+            }
+            return Math.min(1.0, 2.0 * tail / total);
+        }
+
+        final double mean = product / 2.0;
+        final double size = m + n;
+        final double variance = product / 12.0 * ((size + 1) - tieCorrection / (size * (size - 1)));
+        if (variance <= 0.0) {
+            return 1.0;
+        }
+        final double z = Math.max(0.0, Math.abs(u2 / 2.0 - mean) - 0.5) / Math.sqrt(variance);
+        return Math.min(1.0, 2.0 * (1.0 - BenchmarkStatistics.normalCdf(z)));
+    }
+
+    /**
+     * The number of orderings of samples of sizes m and n without ties that give each value of U: the coefficients
+     * of the Gaussian binomial coefficient, the product over i from 1 to m of (1 - q^(n+i)) / (1 - q^i).
+     */
+    private static double[] uDistribution(final int m, final int n) {
+        final int size = m * n + 1;
+        final double[] counts = new double[size];
+        counts[0] = 1.0;
+        for (int i = 1; i <= m; ++i) {
+            // times (1 - q^(n+i))
+            for (int k = size - 1; k >= n + i; --k) {
+                counts[k] -= counts[k - n - i];
+            }
+            // over (1 - q^i)
+            for (int k = i; k < size; ++k) {
+                counts[k] += counts[k - i];
+            }
+        }
+        return counts;
+    }
+}
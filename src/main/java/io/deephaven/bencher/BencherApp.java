@@ -2,17 +2,21 @@ package io.deephaven.bencher;
 
 import com.google.common.base.Stopwatch;
 import io.deephaven.client.impl.ConsoleSession;
-import io.deephaven.client.impl.Session;
+import io.deephaven.client.impl.FlightSession;
+import io.deephaven.client.impl.SessionImpl;
 import io.deephaven.client.impl.SessionImplConfig;
 import io.deephaven.client.impl.script.Changes;
 import io.deephaven.client.impl.FieldInfo;
 
 import io.deephaven.datagen.DataGen;
+import io.deephaven.datagen.GenerationScheduler;
 
 import io.deephaven.datagen.Utils;
 import io.deephaven.proto.DeephavenChannel;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
 import org.json.simple.JSONObject;
 import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
@@ -38,6 +42,29 @@ public class BencherApp {
     private static final String DH_ENDPOINT = System.getProperty("dh.endpoint", "localhost:10000");
     private static final String JOBS_PREFIX_PATH = System.getProperty("jobs.prefix.path", "jobs");
     private static final boolean GENERATE_ONLY = Boolean.parseBoolean(System.getProperty("generate.only", "False"));
+    private static final boolean GENERATION_UP_FRONT = Boolean.parseBoolean(System.getProperty("generation.up.front", "False"));
+    // only with generation.up.front
+    private static final boolean GENERATION_WAIT_ALL = Boolean.parseBoolean(System.getProperty("generation.wait.all", "True"));
+    private static final boolean GENERATION_PREFETCH = Boolean.parseBoolean(System.getProperty("generation.prefetch", "False"));
+    private static final boolean GENERATION_PREFETCH_PAUSE = Boolean.parseBoolean(System.getProperty("generation.prefetch.pause", "False"));
+    // by default under the output prefix path
+    private static final String RESULTS_FILE = System.getProperty("results.file");
+    // with adaptive iterations, -n is the fewest
+    private static final boolean ITERATIONS_ADAPTIVE = Boolean.parseBoolean(System.getProperty("iterations.adaptive", "False"));
+    private static final int ITERATIONS_MAX = Integer.parseInt(System.getProperty("iterations.max", "50"));
+    private static final double ITERATIONS_CI_TARGET = Double.parseDouble(System.getProperty("iterations.ci.target", "0.05"));
+    private static final double ITERATIONS_TREND_ALPHA = Double.parseDouble(System.getProperty("iterations.trend.alpha", "0.05"));
+    // fewer can't show a trend
+    private static final int ITERATIONS_ADAPTIVE_MIN = 5;
+    // fewer can't tell how much timings vary
+    private static final int SUITE_PILOT_MIN = 3;
+    // the share of an iteration's timed statements garbage collection can take before the iteration is contaminated
+    private static final double GC_THRESHOLD = Double.parseDouble(System.getProperty("gc.threshold", "0.1"));
+    private static final boolean GC_RERUN = Boolean.parseBoolean(System.getProperty("gc.rerun", "False"));
+    private static final int GC_MAX_RERUNS = Integer.parseInt(System.getProperty("gc.max.reruns", "3"));
+
+    private static final boolean LEAK_CHECK = Boolean.parseBoolean(System.getProperty("leak.check", "False"));
+    private static final boolean LEAK_FAIL = Boolean.parseBoolean(System.getProperty("leak.fail", "False"));
 
     private static void append(final StringBuilder sb, final List<FieldInfo> vars) {
         boolean first = true;
@@ -93,7 +120,7 @@ public class BencherApp {
         }
     }
 
-    static Session getSession(final ScheduledExecutorService scheduler, final ManagedChannel managedChannel) {
+    static SessionImpl getSession(final ScheduledExecutorService scheduler, final ManagedChannel managedChannel) {
         SessionImplConfig cfg = SessionImplConfig.builder()
                 .executor(scheduler)
                 .closeTimeout(SESSION_TIMEOUT)
@@ -141,10 +168,17 @@ public class BencherApp {
         return jsonMap;
     }
 
-    static void runBenchmark(
-            final int iter, final int nIter, final String benchTitle,
+    /**
+     * Runs an iteration of a benchmark.
+     *
+     * @return  garbage collection during its timed statements, and in the server during all of them
+     */
+    static GcUsage runBenchmark(
+            final boolean warmup, final int iter, final int nIter, final String benchTitle,
             final String extraDescription,
-            final Supplier<ConsoleSession> console, final File baseDir, final JSONObject jsonMap) {
+            final Supplier<ConsoleSession> console, final GenerationScheduler scheduler,
+            final File baseDir, final JSONObject jsonMap,
+            final String generatedSetup, final ResultRecorder.Benchmark results) {
         final Map<String, Object> documentDictionary = (Map<String, Object>) jsonMap;
         final ArrayList<Object> statements = (ArrayList<Object>) documentDictionary.get("statements");
 
@@ -152,11 +186,17 @@ public class BencherApp {
         final LiveVariablesTracker varTracker = new LiveVariablesTracker();
         // for each statement ...
         int statementNo = 0;
-        System.out.printf("Starting iteration %d of %d for \"%s\"\n", iter + 1, nIter, benchTitle);
+        // time spent generating data during the timed statements
+        long timedOverlapNanos = 0;
+        final GcUsage iterationGc = new GcUsage();
+        final String iteration = warmup ? "warmup iteration" : "iteration";
+        System.out.printf("Starting %s %d of %d for \"%s\"\n", iteration, iter + 1, nIter, benchTitle);
 
         try {
             // really we'd want escape python, but this should do
-            final String titleSet = "title_string = \"" + StringEscapeUtils.escapeJava(benchTitle) + "\"\n";
+            final String titleSet = "title_string = \"" + StringEscapeUtils.escapeJava(benchTitle) + "\"\n" + generatedSetup
+                    + "generation_overlap_seconds = 0.0\n"
+                    + "warmup_iteration = " + (warmup ? "True" : "False") + "\n";
             if (extraDescription == null) {
                 console.get().executeCode("extra_description = None\n" + titleSet);
             } else {
@@ -169,6 +209,9 @@ public class BencherApp {
             throw new IllegalStateException();
         }
 
+        // the server's collections are sampled around the statements once, outside of the timed ones
+        final long[] serverGcBefore = GcUsage.sampleServer(console.get(), scheduler.getOutputPrefixPath());
+        final long statementsStart = System.nanoTime();
         for (final Object statementObject : statements) {
             ++statementNo;
             final Map<String, Object> statementDefinitionDictionary = (Map<String, Object>) statementObject;
@@ -212,7 +255,14 @@ public class BencherApp {
             }
             boolean isTimed = ((Long) statementDefinitionDictionary.get("timed")) != 0;
 
-            Stopwatch sw = isTimed ? Stopwatch.createStarted() : null;
+            // outside of the time, so collections of timed statements only
+            final long[] clientGcBefore = GcUsage.sampleClient();
+            // generating data for later benchmarks competes with this one if it runs on the same machine
+            if (isTimed && GENERATION_PREFETCH_PAUSE) {
+                scheduler.pause();
+            }
+            final long busyBefore = scheduler.getBusyNanos();
+            final Stopwatch sw = Stopwatch.createStarted();
 
             // actually execute
             final Changes changes;
@@ -220,24 +270,51 @@ public class BencherApp {
                 changes = console.get().executeCode(statement);
             } catch (Exception ex) {
                 System.err.printf("Execution of \"%s\" failed: %s\n", title, ex);
+                results.record(warmup, iter + 1, nIter, statementNo, title, statement, isTimed, sw.elapsed(TimeUnit.NANOSECONDS),
+                        new GcUsage(), ex.toString());
                 System.exit(1);
                 // keep the compiler happy.
                 throw new IllegalStateException();
+            } finally {
+                if (isTimed && GENERATION_PREFETCH_PAUSE) {
+                    scheduler.resume();
+                }
             }
+            sw.stop();
+            final long overlapNanos = scheduler.getBusyNanos() - busyBefore;
+            final GcUsage gc = new GcUsage();
+            gc.add(clientGcBefore, GcUsage.sampleClient(), sw.elapsed(TimeUnit.NANOSECONDS));
             varTracker.update(changes);
 
             final Optional<String> errorMessageOptional = changes.errorMessage();
-            errorMessageOptional.ifPresent(s -> {
-                System.err.printf("Execution of \"%s\" failed with error:\n%s\n", title, s);
+            if (errorMessageOptional.isPresent()) {
+                System.err.printf("Execution of \"%s\" failed with error:\n%s\n", title, errorMessageOptional.get());
+                results.record(warmup, iter + 1, nIter, statementNo, title, statement, isTimed, sw.elapsed(TimeUnit.NANOSECONDS),
+                        gc, errorMessageOptional.get());
                 System.exit(1);
-            });
+            }
 
             // optionally time ...
-            if (sw != null) {
-                sw.stop();
+            if (isTimed) {
+                results.record(warmup, iter + 1, nIter, statementNo, title, statement, true, sw.elapsed(TimeUnit.NANOSECONDS), gc, null);
+                iterationGc.add(gc);
                 System.out.printf("\"%s\": Execution as seen from client side took %d milliseconds\n",
                         title,
                         sw.elapsed(TimeUnit.MILLISECONDS));
+                if (overlapNanos > 0) {
+                    // recorded with the results by after.py
+                    timedOverlapNanos += overlapNanos;
+                    System.out.printf("\"%s\": Data generation ran for %d milliseconds of it\n",
+                            title,
+                            TimeUnit.NANOSECONDS.toMillis(overlapNanos));
+                    try {
+                        console.get().executeCode(String.format(Locale.ROOT, "generation_overlap_seconds = %.3f\n",
+                                timedOverlapNanos / 1e9));
+                    } catch (Exception ex) {
+                        System.err.printf("Recording generation overlap for \"%s\" failed: %s\n", title, ex);
+                        System.exit(1);
+                    }
+                }
             }
 
             if (!TERSE) {
@@ -245,6 +322,9 @@ public class BencherApp {
             }
             System.out.flush();
         }
+        final long statementsNanos = System.nanoTime() - statementsStart;
+        iterationGc.addServer(serverGcBefore, GcUsage.sampleServer(console.get(), scheduler.getOutputPrefixPath()),
+                statementsNanos);
         if (!SKIP_CLEANUP) {
             final Changes changes;
             try {
@@ -261,8 +341,9 @@ public class BencherApp {
                 System.exit(1);
             }
             System.out.printf("Executed cleanup\n");
-            System.out.printf("Finished iteration %d of %d for \"%s\"\n", iter + 1, nIter, benchTitle);
+            System.out.printf("Finished %s %d of %d for \"%s\"\n", iteration, iter + 1, nIter, benchTitle);
         }
+        return iterationGc;
     }
 
     private static ArrayList<Object> getBenchmarks(final File jobFile) throws IOException, ParseException {
@@ -284,7 +365,7 @@ public class BencherApp {
     private static final String me = BencherApp.class.getSimpleName();
 
     private static void usage() {
-        System.err.println("Usage: " + me + " [-n iterations] output_prefix_path job.json [job.json...]");
+        System.err.println("Usage: " + me + " [-n iterations] [-w warmup_iterations] [-b budget_seconds] [-c baseline_results] [-d description] output_prefix_path job.json [job.json...]");
         System.exit(1);
     }
 
@@ -292,11 +373,21 @@ public class BencherApp {
     private static class SessionAndConsoleHolder implements AutoCloseable, Supplier<ConsoleSession> {
         private ScheduledExecutorService scheduler;
         private ManagedChannel managedChannel;
-        private Session session;
+        private SessionImpl session;
         private ConsoleSession console;
+        private BufferAllocator allocator;
+        private FlightSession flight;
 
         @Override
         public void close() {
+            if (flight != null) {
+                try {
+                    flight.close();
+                } catch (Exception ex) {
+                    System.err.printf(me + ": Failed to close flight session: %s\n", ex);
+                }
+                allocator.close();
+            }
             console.close();
             session.close();
             shutdown(scheduler, managedChannel);
@@ -330,10 +421,25 @@ public class BencherApp {
         public ConsoleSession get() {
             return maybeMake();
         }
+
+        /**
+         * Makes an uploader of generated data to the server, through the same session as the console.
+         */
+        private synchronized FlightUploader getUploader() {
+            maybeMake();
+            if (flight == null) {
+                allocator = new RootAllocator();
+                flight = FlightSession.of(session, allocator, managedChannel);
+            }
+            return new FlightUploader(FlightUploader.server(flight, allocator, console));
+        }
     }
 
     public static void main(String[] args) {
         int iterations = 1;
+        int warmupIterations = 0;
+        long budgetSeconds = 0;
+        BaselineComparison baseline = null;
         String extraDescription = null;
         final String outputPrefixPath;
         final File[] jobFiles;
@@ -351,6 +457,42 @@ public class BencherApp {
                     throw new IllegalStateException();
                 }
             }
+            else if ("-w".equals(arg)) {
+                try {
+                    warmupIterations = Integer.parseInt(args[argn++]);
+                } catch (NumberFormatException ex) {
+                    System.err.printf("%s: '%s' is not a valid number of warmup iterations.\n", me, args[argn - 1]);
+                    usage();
+                    // keep the compiler happy
+                    throw new IllegalStateException();
+                }
+            }
+            else if ("-b".equals(arg)) {
+                try {
+                    budgetSeconds = Long.parseLong(args[argn++]);
+                } catch (NumberFormatException ex) {
+                    System.err.printf("%s: '%s' is not a valid number of seconds.\n", me, args[argn - 1]);
+                    usage();
+                    // keep the compiler happy
+                    throw new IllegalStateException();
+                }
+                if (ITERATIONS_ADAPTIVE) {
+                    System.err.printf("%s: a time budget and adaptive iterations don't go together.\n", me);
+                    usage();
+                }
+            }
+            else if ("-c".equals(arg)) {
+                final String baselineFilename = args[argn++];
+                try {
+                    baseline = BaselineComparison.load(new File(baselineFilename));
+                } catch (IOException ex) {
+                    System.err.printf("%s: Couldn't read baseline results \"%s\": %s\n", me, baselineFilename, ex);
+                    System.exit(1);
+                } catch (ParseException ex) {
+                    System.err.printf("%s: Couldn't parse baseline results \"%s\": %s\n", me, baselineFilename, ex);
+                    System.exit(1);
+                }
+            }
             else if ("-d".equals(arg)) {
                 extraDescription = args[argn++];
             }
@@ -365,9 +507,159 @@ public class BencherApp {
             jobFiles[ii] = validate(maybeMakeRelativePath(args[argn++]));
         }
 
-        try (SessionAndConsoleHolder consoleHolder = new SessionAndConsoleHolder()) {
+        if (baseline != null && baseline.size() > 0) {
+            // the fewest measured iterations each benchmark gets
+            final int measured = ITERATIONS_ADAPTIVE
+                    ? Math.max(iterations, ITERATIONS_ADAPTIVE_MIN)
+                    : budgetSeconds > 0 ? Math.max(iterations, SUITE_PILOT_MIN) : iterations;
+            final int detectable = baseline.countDetectable(measured);
+            if (detectable == 0 && !ITERATIONS_ADAPTIVE && budgetSeconds <= 0) {
+                System.err.printf(Locale.ROOT,
+                        "%s: With %d measured iterations, no comparison with \"%s\" can be significant at compare.alpha %g; run more with -n.\n",
+                        me, measured, baseline.getFile().getPath(), BaselineComparison.ALPHA);
+                System.exit(1);
+            }
+            if (detectable < baseline.size()) {
+                System.err.printf(Locale.ROOT,
+                        "%s: Warning: with %d measured iterations, %d of the %d statements in \"%s\" can't be significant at compare.alpha %g.\n",
+                        me, measured, baseline.size() - detectable, baseline.size(), baseline.getFile().getPath(),
+                        BaselineComparison.ALPHA);
+            }
+        }
+
+        if (LEAK_CHECK && SKIP_CLEANUP) {
+            System.err.printf("%s: Without cleanup there is no baseline to check for leaks, not checking.\n", me);
+        }
+        final List<HeapLeakMonitor.Leak> leakList = new ArrayList<>();
+        final File resultsFile = new File(RESULTS_FILE != null
+                ? RESULTS_FILE
+                : outputPrefixPath + File.separator + "bench-results.jsonl");
+        try (SessionAndConsoleHolder consoleHolder = new SessionAndConsoleHolder();
+             GenerationScheduler scheduler = new GenerationScheduler(outputPrefixPath);
+             ResultRecorder results = new ResultRecorder(resultsFile)) {
+            final GenerationPipeline pipeline = new GenerationPipeline(scheduler, jobFiles);
+            pipeline.start();
+            final HeapLeakMonitor leaks = LEAK_CHECK && !SKIP_CLEANUP && !GENERATE_ONLY
+                    ? new HeapLeakMonitor(results, outputPrefixPath)
+                    : null;
+            if (leaks != null) {
+                leaks.start(consoleHolder.get());
+            }
+            if (budgetSeconds > 0) {
+                runSuite(consoleHolder, pipeline, results, baseline, leaks, jobFiles, warmupIterations,
+                        Math.max(iterations, SUITE_PILOT_MIN), budgetSeconds, extraDescription);
+            } else {
+                for (final File jobFile : jobFiles) {
+                    run(consoleHolder, pipeline, results, baseline, leaks, jobFile, warmupIterations, iterations, extraDescription);
+                }
+            }
+            if (leaks != null) {
+                leakList.addAll(leaks.getLeaks());
+            }
+        } catch (IOException ex) {
+            System.err.printf(me + ": Couldn't open results file \"%s\": %s\n", resultsFile.getPath(), ex);
+            System.exit(1);
+        }
+
+        if (!leakList.isEmpty()) {
+            System.err.printf("%s: %d leaks of server heap:\n", me, leakList.size());
+            for (final HeapLeakMonitor.Leak leak : leakList) {
+                System.err.println(leak);
+            }
+        }
+        // gates builds on performance
+        if (baseline != null && !baseline.getRegressions().isEmpty()) {
+            System.err.printf("%s: %d significant regressions against \"%s\":\n",
+                    me, baseline.getRegressions().size(), baseline.getFile().getPath());
+            for (final BaselineComparison.Result regression : baseline.getRegressions()) {
+                System.err.printf(Locale.ROOT, "\"%s\" \"%s\": %+.1f%%, p=%.4f\n",
+                        regression.benchmark, regression.statement, 100 * regression.change, regression.p);
+            }
+            System.exit(2);
+        }
+        if (LEAK_FAIL && !leakList.isEmpty()) {
+            System.exit(3);
+        }
+    }
+
+    /**
+     * Generates the data of the benchmarks, each generator file once, the files of a benchmark at the same time:
+     * <ul>
+     *     <li>by default, the data of each benchmark when it starts, so that nothing else is generating while it
+     *         runs.</li>
+     *     <li>with {@code generation.up.front}, all of it before the first benchmark runs; with
+     *         {@code generation.wait.all} false as well, all of it in the background, and each benchmark starts as
+     *         soon as its own data are there.</li>
+     *     <li>with {@code generation.prefetch}, the data of the next benchmark while the current one runs.</li>
+     * </ul>
+     */
+    private static final class GenerationPipeline {
+        private final GenerationScheduler scheduler;
+        // the directory and generator files of each benchmark, in the order they run
+        private final List<File> dirs = new ArrayList<>();
+        private final List<List<String>> generatorFiles = new ArrayList<>();
+        private int current = -1;
+
+        private GenerationPipeline(final GenerationScheduler scheduler, final File[] jobFiles) {
+            this.scheduler = scheduler;
             for (final File jobFile : jobFiles) {
-                run(consoleHolder, outputPrefixPath, jobFile, iterations, extraDescription);
+                for (final Object bench : readBenchmarks(jobFile)) {
+                    final Map<String, Object> benchmarkDefinition = (Map<String, Object>) bench;
+                    dirs.add(jobFile.getParentFile());
+                    generatorFiles.add((ArrayList<String>) benchmarkDefinition.get("generator_files"));
+                }
+            }
+        }
+
+        private void start() {
+            if (GENERATION_PREFETCH) {
+                submit(0);
+                return;
+            }
+            if (!GENERATION_UP_FRONT) {
+                return;
+            }
+            for (int benchmark = 0; benchmark < generatorFiles.size(); ++benchmark) {
+                submit(benchmark);
+            }
+            if (!GENERATION_WAIT_ALL) {
+                return;
+            }
+            try {
+                scheduler.awaitAll();
+            } catch (IOException | ParseException ex) {
+                // reported when the benchmark that needs it gets it
+            }
+        }
+
+        /**
+         * Moves on to the next benchmark, and starts generating its data if it wasn't already; with
+         * {@code generation.prefetch}, the data of the one after it too.
+         */
+        private void nextBenchmark() {
+            ++current;
+            submit(current);
+            if (GENERATION_PREFETCH) {
+                submit(current + 1);
+            }
+        }
+
+        private void submit(final int benchmark) {
+            if (benchmark >= generatorFiles.size()) {
+                return;
+            }
+            for (final String generatorFilename : generatorFiles.get(benchmark)) {
+                try {
+                    // uploads are generated when their benchmark runs
+                    if (!DataGen.isUpload(dirs.get(benchmark), generatorFilename)) {
+                        scheduler.submit(dirs.get(benchmark), generatorFilename);
+                    }
+                } catch (IOException | ParseException ex) {
+                    // reported when the benchmark that needs it gets it
+                } catch (IllegalArgumentException ex) {
+                    System.err.printf(me + ": Couldn't find generator file \"%s\": %s\n", generatorFilename, ex.getMessage());
+                    System.exit(1);
+                }
             }
         }
     }
@@ -385,13 +677,170 @@ public class BencherApp {
         return jobFile;
     }
 
-    private static void run(final Supplier<ConsoleSession> console, final String outputPrefixPath, final File jobFile, final int iterations, final String extraDescription) {
-        final File inputFileDir = jobFile.getParentFile();
+    /**
+     * Makes Python statements defining the statistics of the generated files, from the files DataGen writes
+     * next to them:
+     * <ul>
+     *     <li>{@code generated_stats}, a dict from the name of each generated file, without extension, to a dict
+     *         with its {@code rows} and its {@code columns}, a dict from column name to a dict with the column's
+     *         {@code type}, {@code nulls}, {@code min}, {@code max} and {@code distinct} (an estimate).</li>
+     *     <li>{@code generated_rows}, the rows of all the generated files, or None if some file has no statistics.</li>
+     * </ul>
+     */
+    private static String generatedStatisticsPython(final List<String> outputFilenames) {
+        final StringBuilder sb = new StringBuilder("generated_stats = {");
+        long totalRows = 0;
+        boolean haveAll = true;
+        for (final String outputFilename : outputFilenames) {
+            final File statsFile = new File(DataGen.getStatisticsFilename(outputFilename));
+            if (!statsFile.exists()) {
+                System.err.printf(me + ": no statistics for \"%s\"; generated_rows will be None.\n", outputFilename);
+                haveAll = false;
+                continue;
+            }
+            final JSONObject stats;
+            try (final FileReader reader = new FileReader(statsFile)) {
+                stats = (JSONObject) new JSONParser().parse(reader);
+            } catch (IOException | ParseException ex) {
+                System.err.printf(me + ": couldn't read statistics \"%s\": %s; generated_rows will be None.\n",
+                        statsFile.getPath(), ex);
+                haveAll = false;
+                continue;
+            }
+            final String rows = (String) stats.get("rows");
+            totalRows += Long.parseLong(rows);
 
-        // open and read the definition file to an array of definition objects
-        ArrayList<Object> benchmarks = null;
+            String name = new File(outputFilename).getName();
+            final int extension = name.lastIndexOf('.');
+            if (extension > 0) {
+                name = name.substring(0, extension);
+            }
+            appendPythonString(sb, name);
+            sb.append(": {\"rows\": ").append(rows).append(", \"columns\": {");
+            for (final Object columnObject : (List<Object>) stats.get("columns")) {
+                final Map<String, Object> column = (Map<String, Object>) columnObject;
+                final String type = (String) column.get("type");
+                appendPythonString(sb, (String) column.get("name"));
+                sb.append(": {\"type\": ");
+                appendPythonString(sb, type);
+                for (final String key : new String[] {"nulls", "min", "max", "distinct"}) {
+                    final String value = (String) column.get(key);
+                    sb.append(", \"").append(key).append("\": ");
+                    if (value == null) {
+                        sb.append("None");
+                    } else if ("min".equals(key) || "max".equals(key)) {
+                        appendPythonValue(sb, type, value);
+                    } else {
+                        sb.append(value);
+                    }
+                }
+                sb.append("}, ");
+            }
+            sb.append("}}, ");
+        }
+        sb.append("}\n");
+        sb.append("generated_rows = ").append(haveAll ? Long.toString(totalRows) : "None").append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Prints and records the statistics of the measured iterations of each timed statement of a benchmark, and
+     * with a baseline, how they compare.
+     */
+    private static void summarize(
+            final ResultRecorder.Benchmark benchmarkResults,
+            final String stopReason,
+            final BaselineComparison baseline) {
+        printSummary(benchmarkResults, benchmarkResults.summarize(stopReason));
+        if (baseline == null) {
+            return;
+        }
+        System.out.printf("Compared to \"%s\":\n", baseline.getFile().getPath());
+        for (final Map.Entry<String, List<Long>> entry : benchmarkResults.getSummarizedSamples().entrySet()) {
+            final BaselineComparison.Result result = baseline.compare(benchmarkResults.getTitle(), entry.getKey(),
+                    entry.getValue(), benchmarkResults.getDataFingerprint());
+            benchmarkResults.recordComparison(result);
+            if (result.verdict == BaselineComparison.Verdict.NO_BASELINE) {
+                System.out.printf("\"%s\": no baseline\n", entry.getKey());
+                continue;
+            }
+            System.out.printf(Locale.ROOT, "\"%s\": %s, median %.1f ms vs %.1f ms (%+.1f%%), p=%.4f%s%s\n",
+                    entry.getKey(), result.verdict.name().toLowerCase(Locale.ROOT), result.median / 1e6,
+                    result.baselineMedian / 1e6, 100 * result.change, result.p,
+                    result.sameData ? "" : BaselineComparison.ANY_DATA ? ", on different data" : ", on different data, not gated",
+                    BaselineComparison.minimumP(result.baselineSamples, entry.getValue().size()) > BaselineComparison.ALPHA
+                            ? ", too few samples to be significant" : "");
+        }
+    }
+
+    /**
+     * Prints the statistics of the measured iterations of each timed statement of a benchmark, in milliseconds.
+     */
+    private static void printSummary(final ResultRecorder.Benchmark benchmarkResults,
+            final Map<String, BenchmarkStatistics> summary) {
+        final String title = benchmarkResults.getTitle();
+        if (summary.isEmpty()) {
+            return;
+        }
+        System.out.printf("Summary of \"%s\", in milliseconds; %.0f%% confidence interval of the mean:\n",
+                title, 100 * BenchmarkStatistics.CONFIDENCE);
+        for (final Map.Entry<String, BenchmarkStatistics> entry : summary.entrySet()) {
+            final BenchmarkStatistics statistics = entry.getValue();
+            final double[] interval = statistics.getMeanInterval();
+            System.out.printf(Locale.ROOT,
+                    "\"%s\": n=%d min=%.1f median=%.1f mean=%.1f p90=%.1f stddev=%.1f cv=%.1f%% ci=[%.1f, %.1f]\n",
+                    entry.getKey(), statistics.getCount(), statistics.getMin() / 1e6, statistics.getMedian() / 1e6,
+                    statistics.getMean() / 1e6, statistics.getPercentile(0.9) / 1e6, statistics.getStddev() / 1e6,
+                    100 * statistics.getCoefficientOfVariation(), interval[0] / 1e6, interval[1] / 1e6);
+        }
+        if (benchmarkResults.getGcContaminated() > 0) {
+            System.out.printf(Locale.ROOT,
+                    "Garbage collection took more than %.0f%% of %d measured iterations, %d of them run again\n",
+                    100 * GC_THRESHOLD, benchmarkResults.getGcContaminated(), benchmarkResults.getGcDiscarded());
+        }
+    }
+
+    private static void appendPythonValue(final StringBuilder sb, final String type, final String value) {
+        switch (type) {
+            case "BOOLEAN":
+                sb.append(Boolean.parseBoolean(value) ? "True" : "False");
+                break;
+            case "STRING":
+            case "FIXED_BINARY":
+            case "DATE":
+                appendPythonString(sb, value);
+                break;
+            case "FLOAT":
+            case "DOUBLE":
+                // Double.toString spells these in ways Python doesn't
+                if ("NaN".equals(value)) {
+                    sb.append("float('nan')");
+                } else if ("Infinity".equals(value)) {
+                    sb.append("float('inf')");
+                } else if ("-Infinity".equals(value)) {
+                    sb.append("float('-inf')");
+                } else {
+                    sb.append(value);
+                }
+                break;
+            default:
+                // numbers, and timestamps as nanoseconds since the epoch
+                sb.append(value);
+                break;
+        }
+    }
+
+    private static void appendPythonString(final StringBuilder sb, final String value) {
+        // really we'd want escape python, but this should do
+        sb.append('"').append(StringEscapeUtils.escapeJava(value)).append('"');
+    }
+
+    /**
+     * Reads the benchmarks of a job file, exiting if it can't.
+     */
+    private static ArrayList<Object> readBenchmarks(final File jobFile) {
         try {
-            benchmarks = getBenchmarks(jobFile);
+            return getBenchmarks(jobFile);
         } catch (FileNotFoundException ex) {
             System.err.printf(me + ": Couldn't find file \"%s\": %s.\n", jobFile.getAbsolutePath(), ex);
             System.exit(1);
@@ -402,75 +851,372 @@ public class BencherApp {
             System.err.printf(me + ": Couldn't parse file \"%s\": %s.\n", jobFile.getAbsolutePath(), ex);
             System.exit(1);
         }
+        // keep the compiler happy
+        throw new IllegalStateException();
+    }
 
-        // for each of the definition objects, run the benchmark!
-        int benchmarkNo = 0;
-        for (final Object bench : benchmarks) {
-            ++benchmarkNo;
-            final Map<String, Object> benchmarkDefinition = (Map<String, Object>) bench;
+    /**
+     * A benchmark ready to iterate: its data generated or uploaded, and its statements read.
+     */
+    private static final class PreparedBenchmark {
+        private final File jobFile;
+        private final String title;
+        private final File inputFileDir;
+        private final List<File> generatorFiles;
+        private final List<String> outputFilenames;
+        private final List<String> uploadVariables;
+        private final JSONObject benchmarkObject;
+        private final String generatedSetup;
+        // waiting for data still being generated, which setting the benchmark up again doesn't do
+        private final long dataWaitNanos;
 
-            final String title = (String) benchmarkDefinition.get("title");
-            if (title == null) {
-                System.err.println(me + ": benchmark number " + benchmarkNo + " is missing a \"title\" element");
-            }
-            ArrayList<String> generatorFilenames = (ArrayList<String>) benchmarkDefinition.get("generator_files");
-            for (int i = 0; i < generatorFilenames.size(); ++i) {
-                generatorFilenames.set(i, generatorFilenames.get(i));
-            }
+        private PreparedBenchmark(
+                final File jobFile,
+                final String title,
+                final List<File> generatorFiles,
+                final List<String> outputFilenames,
+                final List<String> uploadVariables,
+                final JSONObject benchmarkObject,
+                final long dataWaitNanos) {
+            this.jobFile = jobFile;
+            this.title = title;
+            this.inputFileDir = jobFile.getParentFile();
+            this.generatorFiles = generatorFiles;
+            this.outputFilenames = outputFilenames;
+            this.uploadVariables = uploadVariables;
+            this.benchmarkObject = benchmarkObject;
+            this.generatedSetup = generatedStatisticsPython(outputFilenames);
+            this.dataWaitNanos = dataWaitNanos;
+        }
 
-            System.out.printf("Starting for benchmark name \"%s\" from file \"%s\"\n", title, jobFile.getAbsoluteFile());
+        private ResultRecorder.Benchmark record(final ResultRecorder results, final String extraDescription) {
+            return results.benchmark(jobFile, title, extraDescription, generatorFiles, outputFilenames);
+        }
+    }
 
-            // generate data, then run the benchmark script
-            for (final String generatorFilename : generatorFilenames) {
-                try {
-                    DataGen.generateData(outputPrefixPath, inputFileDir, generatorFilename);
-                } catch (IOException ex) {
-                    System.err.printf(me + ": Couldn't read generator file \"%s\": %s\n", generatorFilename, ex);
-                    System.exit(1);
-                } catch (ParseException ex) {
-                    System.err.printf(me  + ": Couldn't parse generator file \"%s\": %s\n", generatorFilename, ex);
-                    System.exit(1);
+    private static String getTitle(final int benchmarkNo, final Map<String, Object> benchmarkDefinition) {
+        final String title = (String) benchmarkDefinition.get("title");
+        if (title == null) {
+            System.err.println(me + ": benchmark number " + benchmarkNo + " is missing a \"title\" element");
+        }
+        return title;
+    }
+
+    /**
+     * Waits for the data of a benchmark, uploads the data that is uploaded, and reads its statements.
+     *
+     * @return  the benchmark, or null if only generating
+     */
+    private static PreparedBenchmark prepare(final SessionAndConsoleHolder console, final GenerationPipeline pipeline,
+            final File jobFile, final Map<String, Object> benchmarkDefinition, final String title) {
+        final File inputFileDir = jobFile.getParentFile();
+        final List<String> generatorFilenames = (List<String>) benchmarkDefinition.get("generator_files");
+
+        // wait for the data, then run the benchmark script
+        final List<String> outputFilenames = new ArrayList<>();
+        final List<String> uploadFilenames = new ArrayList<>();
+        final long waitStart = System.nanoTime();
+        for (final String generatorFilename : generatorFilenames) {
+            try {
+                if (DataGen.isUpload(inputFileDir, generatorFilename)) {
+                    // generated again for each benchmark, once there's a server to upload to
+                    uploadFilenames.add(generatorFilename);
+                    continue;
                 }
+                outputFilenames.add(pipeline.scheduler.get(inputFileDir, generatorFilename));
+            } catch (IOException ex) {
+                System.err.printf(me + ": Couldn't read generator file \"%s\": %s\n", generatorFilename, ex);
+                System.exit(1);
+            } catch (ParseException ex) {
+                System.err.printf(me  + ": Couldn't parse generator file \"%s\": %s\n", generatorFilename, ex);
+                System.exit(1);
+            } catch (IllegalStateException ex) {
+                // like going over a generation budget
+                System.err.printf(me + ": %s\n", ex.getMessage());
+                System.exit(1);
             }
+        }
+        final long dataWaitNanos = System.nanoTime() - waitStart;
 
-            if (GENERATE_ONLY) {
-                System.out.printf("Generate only requested, not running benchmark \"%s\".\n", title);
-                continue;
-            }
-            final JSONObject benchmarkObject;
-            final String benchFilename = (String) benchmarkDefinition.get("benchmark_file");
+        if (GENERATE_ONLY) {
+            System.out.printf("Generate only requested, not running benchmark \"%s\".\n", title);
+            return null;
+        }
+        final List<String> uploadVariables = new ArrayList<>();
+        for (final String generatorFilename : uploadFilenames) {
+            final FlightUploader uploader = console.getUploader();
             try {
-                if (benchFilename != null) {
-                    benchmarkObject = getBenchmarkObject(inputFileDir, benchFilename);
-                } else {
-                    benchmarkObject = (JSONObject) benchmarkDefinition.get("benchmark");
-                    if (benchmarkObject == null) {
-                        System.err.printf(me + ": There is no \"benchmark_file\" or \"benchmark\" definition in \"%s\".\n",
-                                jobFile.getAbsolutePath());
-                        System.exit(1);
-                    }
-                }
-                for (int iteration = 0; iteration < iterations; ++iteration) {
-                    runBenchmark(iteration, iterations, title, extraDescription, console, inputFileDir, benchmarkObject);
-                }
+                outputFilenames.add(DataGen.uploadData(pipeline.scheduler.getOutputPrefixPath(),
+                        inputFileDir, generatorFilename, uploader));
             } catch (IOException ex) {
-                if (benchFilename != null) {
-                    System.err.printf(me + ": Couldn't read benchmark file \"%s\": %s\n", benchFilename, ex);
-                } else {
-                    System.err.printf(me + ": Couldnt read benchmark: %s.\n", ex);
-                }
+                System.err.printf(me + ": Couldn't upload generator file \"%s\": %s\n", generatorFilename, ex);
                 System.exit(1);
             } catch (ParseException ex) {
-                System.err.printf(me + ": Couldn't parse benchmark file \"%s\": %s\n",
-                        jobFile.getAbsolutePath(), ex);
+                System.err.printf(me  + ": Couldn't parse generator file \"%s\": %s\n", generatorFilename, ex);
                 System.exit(1);
+            } catch (IllegalStateException ex) {
+                // like going over a generation budget
+                System.err.printf(me + ": %s\n", ex.getMessage());
+                System.exit(1);
+            }
+            uploadVariables.add(uploader.getVariable());
+        }
+        JSONObject benchmarkObject = null;
+        final String benchFilename = (String) benchmarkDefinition.get("benchmark_file");
+        try {
+            if (benchFilename != null) {
+                benchmarkObject = getBenchmarkObject(inputFileDir, benchFilename);
+            } else {
+                benchmarkObject = (JSONObject) benchmarkDefinition.get("benchmark");
+                if (benchmarkObject == null) {
+                    System.err.printf(me + ": There is no \"benchmark_file\" or \"benchmark\" definition in \"%s\".\n",
+                            jobFile.getAbsolutePath());
+                    System.exit(1);
+                }
+            }
+        } catch (IOException ex) {
+            System.err.printf(me + ": Couldn't read benchmark file \"%s\": %s\n", benchFilename, ex);
+            System.exit(1);
+        } catch (ParseException ex) {
+            System.err.printf(me + ": Couldn't parse benchmark file \"%s\": %s\n",
+                    jobFile.getAbsolutePath(), ex);
+            System.exit(1);
+        }
+        final List<File> generatorFiles = new ArrayList<>();
+        for (final String generatorFilename : generatorFilenames) {
+            generatorFiles.add(Utils.locateFile(inputFileDir, generatorFilename));
+        }
+        return new PreparedBenchmark(jobFile, title, generatorFiles, outputFilenames, uploadVariables, benchmarkObject,
+                dataWaitNanos);
+    }
+
+    /**
+     * Runs an iteration of a benchmark; with {@code gc.rerun}, again while garbage collection takes more than
+     * {@code gc.threshold} of its timed statements, up to {@code gc.max.reruns} times.  With a leak monitor, samples
+     * the server's heap after each cleanup.
+     */
+    private static void runIteration(final SessionAndConsoleHolder console, final GenerationPipeline pipeline,
+            final PreparedBenchmark benchmark, final ResultRecorder.Benchmark benchmarkResults,
+            final HeapLeakMonitor leaks,
+            final boolean warmup, final int iteration, final int iterations, final String extraDescription) {
+        for (int rerun = 0; ; ++rerun) {
+            GcUsage gc = null;
+            try {
+                gc = runBenchmark(warmup, iteration, iterations, benchmark.title, extraDescription, console, pipeline.scheduler,
+                        benchmark.inputFileDir, benchmark.benchmarkObject, benchmark.generatedSetup, benchmarkResults);
             } catch (Exception ex) {
                 System.err.printf(me + ": Execution failed for \"%s\": %s\n",
-                        title, ex);
+                        benchmark.title, ex);
                 System.exit(1);
             }
+            if (leaks != null) {
+                leaks.afterIteration(console.get(), benchmark.title, warmup, iteration + 1);
+            }
+            final boolean contaminated = gc.getFraction() > GC_THRESHOLD;
+            final boolean discard = contaminated && !warmup && GC_RERUN && rerun < GC_MAX_RERUNS;
+            benchmarkResults.endIteration(gc, contaminated, discard);
+            if (contaminated) {
+                System.out.printf(Locale.ROOT,
+                        "Garbage collection took %.0f%% of the timed statements of \"%s\" (client %d ms in %d, server %s)%s\n",
+                        100 * gc.getFraction(), benchmark.title, gc.clientMillis, gc.clientCount,
+                        gc.serverCount < 0 ? "unknown" : gc.serverMillis + " ms in " + gc.serverCount,
+                        discard ? "; running the iteration again" : "");
+            }
+            if (!discard) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Removes the tables uploaded for a benchmark, which aren't variables the statements made, so iterations don't
+     * clean them up; with a leak monitor, samples the server's heap after.
+     */
+    private static void cleanup(final SessionAndConsoleHolder console, final PreparedBenchmark benchmark,
+            final HeapLeakMonitor leaks) {
+        if (!benchmark.uploadVariables.isEmpty() && !SKIP_CLEANUP) {
+            try {
+                console.get().executeCode(benchmark.uploadVariables.stream()
+                        .map(variable -> variable + " = None")
+                        .collect(Collectors.joining("; ")));
+            } catch (Exception ex) {
+                System.err.printf(me + ": Clean up of uploaded tables failed for \"%s\": %s\n", benchmark.title, ex);
+                System.exit(1);
+            }
+        }
+        if (leaks != null) {
+            leaks.afterBenchmark(console.get(), benchmark.title);
+        }
+    }
+
+    private static void run(final SessionAndConsoleHolder console, final GenerationPipeline pipeline,
+            final ResultRecorder results, final BaselineComparison baseline, final HeapLeakMonitor leaks, final File jobFile,
+            final int warmupIterations, final int iterations, final String extraDescription) {
+        // open and read the definition file to an array of definition objects
+        final ArrayList<Object> benchmarks = readBenchmarks(jobFile);
+
+        // for each of the definition objects, run the benchmark!
+        int benchmarkNo = 0;
+        for (final Object bench : benchmarks) {
+            ++benchmarkNo;
+            final Map<String, Object> benchmarkDefinition = (Map<String, Object>) bench;
+            final String title = getTitle(benchmarkNo, benchmarkDefinition);
+
+            System.out.printf("Starting for benchmark name \"%s\" from file \"%s\"\n", title, jobFile.getAbsoluteFile());
+            pipeline.nextBenchmark();
+
+            final PreparedBenchmark benchmark = prepare(console, pipeline, jobFile, benchmarkDefinition, title);
+            if (benchmark == null) {
+                continue;
+            }
+            final ResultRecorder.Benchmark benchmarkResults = benchmark.record(results, extraDescription);
+            for (int iteration = 0; iteration < warmupIterations; ++iteration) {
+                runIteration(console, pipeline, benchmark, benchmarkResults, leaks, true, iteration, warmupIterations,
+                        extraDescription);
+            }
+            final String stopReason;
+            if (ITERATIONS_ADAPTIVE) {
+                // until timings settle, within bounds
+                final int minIterations = Math.max(iterations, ITERATIONS_ADAPTIVE_MIN);
+                final int maxIterations = Math.max(ITERATIONS_MAX, minIterations);
+                int iteration = 0;
+                while (true) {
+                    runIteration(console, pipeline, benchmark, benchmarkResults, leaks, false, iteration, maxIterations,
+                            extraDescription);
+                    ++iteration;
+                    if (iteration >= minIterations && benchmarkResults.isSteady(
+                            minIterations, ITERATIONS_CI_TARGET, ITERATIONS_TREND_ALPHA)) {
+                        stopReason = "steady_state";
+                        break;
+                    }
+                    if (iteration >= maxIterations) {
+                        stopReason = "max_iterations";
+                        break;
+                    }
+                }
+                System.out.printf("Stopped \"%s\" after %d iterations: %s\n", title, iteration, stopReason);
+            } else {
+                for (int iteration = 0; iteration < iterations; ++iteration) {
+                    runIteration(console, pipeline, benchmark, benchmarkResults, leaks, false, iteration, iterations,
+                            extraDescription);
+                }
+                stopReason = "fixed";
+            }
+            summarize(benchmarkResults, stopReason, baseline);
+            cleanup(console, benchmark, leaks);
 
             System.out.printf("benchmark \"%s\" completed\n\n", title);
         }
     }
+
+    /**
+     * Runs the benchmarks of all the job files within a time budget, in two passes:
+     * <ol>
+     *     <li>each benchmark, with its warmup iterations and {@code pilotIterations} measured ones, timing how long
+     *         setting it up and an iteration take, and how much its timings vary.</li>
+     *     <li>the benchmarks that {@link SuiteBudget} gives the time left to, set up again for more iterations.</li>
+     * </ol>
+     * The summaries of all of them come at the end.
+     */
+    private static void runSuite(final SessionAndConsoleHolder console, final GenerationPipeline pipeline,
+            final ResultRecorder results, final BaselineComparison baseline, final HeapLeakMonitor leaks,
+            final File[] jobFiles,
+            final int warmupIterations, final int pilotIterations, final long budgetSeconds,
+            final String extraDescription) {
+        final long startNanos = System.nanoTime();
+        final List<File> suiteJobFiles = new ArrayList<>();
+        final List<Map<String, Object>> definitions = new ArrayList<>();
+        final List<String> titles = new ArrayList<>();
+        final List<ResultRecorder.Benchmark> suiteResults = new ArrayList<>();
+        final List<Long> setupNanos = new ArrayList<>();
+        final List<Long> iterationNanos = new ArrayList<>();
+
+        for (final File jobFile : jobFiles) {
+            int benchmarkNo = 0;
+            for (final Object bench : readBenchmarks(jobFile)) {
+                ++benchmarkNo;
+                final Map<String, Object> benchmarkDefinition = (Map<String, Object>) bench;
+                final String title = getTitle(benchmarkNo, benchmarkDefinition);
+
+                System.out.printf("Starting pilot of benchmark name \"%s\" from file \"%s\"\n", title, jobFile.getAbsoluteFile());
+                pipeline.nextBenchmark();
+
+                final long setupStart = System.nanoTime();
+                final PreparedBenchmark benchmark = prepare(console, pipeline, jobFile, benchmarkDefinition, title);
+                if (benchmark == null) {
+                    continue;
+                }
+                final ResultRecorder.Benchmark benchmarkResults = benchmark.record(results, extraDescription);
+                for (int iteration = 0; iteration < warmupIterations; ++iteration) {
+                    runIteration(console, pipeline, benchmark, benchmarkResults, leaks, true, iteration, warmupIterations,
+                            extraDescription);
+                }
+                // generated data is there the next time; uploads, reading the benchmark and warmup cost again
+                long setup = System.nanoTime() - setupStart - benchmark.dataWaitNanos;
+                final long iterationsStart = System.nanoTime();
+                for (int iteration = 0; iteration < pilotIterations; ++iteration) {
+                    runIteration(console, pipeline, benchmark, benchmarkResults, leaks, false, iteration, pilotIterations,
+                            extraDescription);
+                }
+                final long iterationsEnd = System.nanoTime();
+                cleanup(console, benchmark, leaks);
+                setup += System.nanoTime() - iterationsEnd;
+
+                suiteJobFiles.add(jobFile);
+                definitions.add(benchmarkDefinition);
+                titles.add(title);
+                suiteResults.add(benchmarkResults);
+                setupNanos.add(setup);
+                iterationNanos.add((iterationsEnd - iterationsStart) / pilotIterations);
+                System.out.printf("Finished pilot of \"%s\"\n\n", title);
+            }
+        }
+
+        final int n = titles.size();
+        final long[] setups = new long[n];
+        final long[] iterationTimes = new long[n];
+        final int[] pilots = new int[n];
+        final double[] variation = new double[n];
+        for (int i = 0; i < n; ++i) {
+            setups[i] = setupNanos.get(i);
+            iterationTimes[i] = iterationNanos.get(i);
+            pilots[i] = pilotIterations;
+            variation[i] = suiteResults.get(i).getVariation();
+        }
+        final long leftNanos = TimeUnit.SECONDS.toNanos(budgetSeconds) - (System.nanoTime() - startNanos);
+        final int[] extra = SuiteBudget.allocate(setups, iterationTimes, pilots, variation, Math.max(0, leftNanos));
+        System.out.printf("Pilots took %d of the %d seconds of the budget; more iterations:\n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), budgetSeconds);
+        for (int i = 0; i < n; ++i) {
+            System.out.printf(Locale.ROOT, "\"%s\": %d more, at %.1f s each, cv %.1f%%\n",
+                    titles.get(i), extra[i], iterationTimes[i] / 1e9, 100 * variation[i]);
+        }
+        System.out.println();
+
+        for (int i = 0; i < n; ++i) {
+            if (extra[i] == 0) {
+                continue;
+            }
+            System.out.printf("Starting for benchmark name \"%s\" from file \"%s\"\n",
+                    titles.get(i), suiteJobFiles.get(i).getAbsoluteFile());
+            final PreparedBenchmark benchmark = prepare(console, pipeline, suiteJobFiles.get(i), definitions.get(i), titles.get(i));
+            for (int iteration = 0; iteration < warmupIterations; ++iteration) {
+                runIteration(console, pipeline, benchmark, suiteResults.get(i), leaks, true, iteration, warmupIterations,
+                        extraDescription);
+            }
+            final int iterations = pilotIterations + extra[i];
+            for (int iteration = pilotIterations; iteration < iterations; ++iteration) {
+                runIteration(console, pipeline, benchmark, suiteResults.get(i), leaks, false, iteration, iterations,
+                        extraDescription);
+            }
+            cleanup(console, benchmark, leaks);
+            System.out.printf("benchmark \"%s\" completed\n\n", titles.get(i));
+        }
+
+        for (int i = 0; i < n; ++i) {
+            summarize(suiteResults.get(i), "budget", baseline);
+        }
+        System.out.printf("Suite took %d seconds of a budget of %d\n",
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - startNanos), budgetSeconds);
+    }
 }
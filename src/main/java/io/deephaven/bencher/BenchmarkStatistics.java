@@ -0,0 +1,198 @@
+package io.deephaven.bencher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Summary statistics of the timings of a statement over the measured iterations of a benchmark: min, median, mean,
+ * 90th percentile, standard deviation, coefficient of variation, and a bootstrap confidence interval of the mean.
+ * Also the tests that tell whether timings have settled, for adaptive iterations.
+ */
+final class BenchmarkStatistics {
+
+    static final double CONFIDENCE = Double.parseDouble(System.getProperty("stats.confidence", "0.95"));
+    static final int BOOTSTRAP_RESAMPLES = Integer.parseInt(System.getProperty("stats.bootstrap.resamples", "2000"));
+    // the same samples always get the same interval
+    private static final long BOOTSTRAP_SEED = 0x5eed;
+
+    private final long[] sorted;
+    private final double mean;
+    private final double stddev;
+
+    /**
+     * @param samples   nanoseconds of each measured iteration, at least one
+     */
+    BenchmarkStatistics(final List<Long> samples) {
+        if (samples.isEmpty()) {
+            throw new IllegalArgumentException("no samples");
+        }
+        sorted = new long[samples.size()];
+        for (int i = 0; i < sorted.length; ++i) {
+            sorted[i] = samples.get(i);
+        }
+        Arrays.sort(sorted);
+        mean = mean(sorted);
+        double squares = 0.0;
+        for (final long sample : sorted) {
+            squares += (sample - mean) * (sample - mean);
+        }
+        stddev = sorted.length < 2 ? Double.NaN : Math.sqrt(squares / (sorted.length - 1));
+    }
+
+    int getCount() {
+        return sorted.length;
+    }
+
+    long getMin() {
+        return sorted[0];
+    }
+
+    long getMax() {
+        return sorted[sorted.length - 1];
+    }
+
+    double getMedian() {
+        return getPercentile(0.5);
+    }
+
+    double getMean() {
+        return mean;
+    }
+
+    /** The sample standard deviation; NaN for a single sample. */
+    double getStddev() {
+        return stddev;
+    }
+
+    /** The standard deviation relative to the mean; NaN for a single sample. */
+    double getCoefficientOfVariation() {
+        return stddev / mean;
+    }
+
+    /**
+     * A percentile, interpolating linearly between the samples around it.
+     *
+     * @param p     between 0 and 1
+     */
+    double getPercentile(final double p) {
+        final double position = p * (sorted.length - 1);
+        final int below = (int) Math.floor(position);
+        final int above = Math.min(below + 1, sorted.length - 1);
+        return sorted[below] + (position - below) * (sorted[above] - sorted[below]);
+    }
+
+    /**
+     * A percentile bootstrap confidence interval of the mean, with {@code stats.confidence} (default 0.95) and
+     * {@code stats.bootstrap.resamples} (default 2000) resamples.
+     *
+     * @return  the lower and upper bounds
+     */
+    double[] getMeanInterval() {
+        return getMeanInterval(CONFIDENCE, BOOTSTRAP_RESAMPLES);
+    }
+
+    double[] getMeanInterval(final double confidence, final int resamples) {
+        if (sorted.length == 1) {
+            return new double[] {mean, mean};
+        }
+        final Random prng = new Random(BOOTSTRAP_SEED);
+        final double[] means = new double[resamples];
+        for (int r = 0; r < resamples; ++r) {
+            double sum = 0.0;
+            for (int i = 0; i < sorted.length; ++i) {
+                sum += sorted[prng.nextInt(sorted.length)];
+            }
+            means[r] = sum / sorted.length;
+        }
+        Arrays.sort(means);
+        final double tail = (1.0 - confidence) / 2.0;
+        final int lower = (int) Math.floor(tail * (resamples - 1));
+        final int upper = (int) Math.ceil((1.0 - tail) * (resamples - 1));
+        return new double[] {means[lower], means[upper]};
+    }
+
+    /** The width of {@link #getMeanInterval()} relative to the mean. */
+    double getRelativeIntervalWidth() {
+        final double[] interval = getMeanInterval();
+        return (interval[1] - interval[0]) / mean;
+    }
+
+    /**
+     * Finds where timings reach steady state: the first sample from which on the Mann-Kendall test finds no trend,
+     * up or down, with the given significance, leaving at least {@code minSamples} samples.
+     *
+     * @param samples       timings in the order they were taken
+     * @param minSamples    the fewest samples a steady state has
+     * @param alpha         significance of the trend test
+     * @return              the index of the first steady sample, or -1 if there is none yet
+     */
+    static int steadyStart(final List<Long> samples, final int minSamples, final double alpha) {
+        for (int start = 0; samples.size() - start >= minSamples; ++start) {
+            if (mannKendallP(samples.subList(start, samples.size())) >= alpha) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * The two-sided p-value of the Mann-Kendall test for a monotonic trend, in the normal approximation with the
+     * correction for ties.
+     *
+     * @param samples   values in the order they were taken
+     * @return          the probability of a trend at least that strong without one; 1 for fewer than 3 values
+     */
+    static double mannKendallP(final List<Long> samples) {
+        final int n = samples.size();
+        if (n < 3) {
+            return 1.0;
+        }
+        long s = 0;
+        for (int i = 0; i < n; ++i) {
+            for (int j = i + 1; j < n; ++j) {
+                s += Long.signum(samples.get(j) - samples.get(i));
+            }
+        }
+        double variance = n * (n - 1.0) * (2.0 * n + 5.0);
+        final long[] values = new long[n];
+        for (int i = 0; i < n; ++i) {
+            values[i] = samples.get(i);
+        }
+        Arrays.sort(values);
+        for (int i = 0; i < n; ) {
+            int j = i;
+            while (j < n && values[j] == values[i]) {
+                ++j;
+            }
+            final double t = j - i;
+            variance -= t * (t - 1.0) * (2.0 * t + 5.0);
+            i = j;
+        }
+        variance /= 18.0;
+        if (s == 0 || variance <= 0.0) {
+            return 1.0;
+        }
+        final double z = (Math.abs(s) - 1) / Math.sqrt(variance);
+        return 2.0 * (1.0 - normalCdf(z));
+    }
+
+    /**
+     * The standard normal cumulative distribution function, within 1.5e-7 (Abramowitz and Stegun 7.1.26).
+     */
+    static double normalCdf(final double z) {
+        final double x = Math.abs(z) / Math.sqrt(2.0);
+        final double t = 1.0 / (1.0 + 0.3275911 * x);
+        final double erf = 1.0 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741
+                + t * (-1.453152027 + t * 1.061405429)))) * Math.exp(-x * x);
+        return z >= 0 ? 0.5 * (1.0 + erf) : 0.5 * (1.0 - erf);
+    }
+
+    private static double mean(final long[] samples) {
+        double sum = 0.0;
+        for (final long sample : samples) {
+            sum += sample;
+        }
+        return sum / samples.length;
+    }
+}
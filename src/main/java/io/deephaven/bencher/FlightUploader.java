@@ -0,0 +1,197 @@
+package io.deephaven.bencher;
+
+import io.deephaven.client.impl.ConsoleSession;
+import io.deephaven.client.impl.FlightSession;
+import io.deephaven.client.impl.TableHandle;
+import io.deephaven.datagen.RowBatchConsumer;
+import io.deephaven.qst.column.Column;
+import io.deephaven.qst.table.NewTable;
+import org.apache.arrow.memory.BufferAllocator;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Uploads generated rows to the server over Arrow Flight, with a DoPut of each batch, and binds the table they make
+ * to a variable of the console the benchmark statements run in.  Data uploaded this way is never written to disk,
+ * on either side.  A single batch is bound as it is; several are merged on the server.
+ */
+final class FlightUploader implements RowBatchConsumer {
+
+    /**
+     * What uploading needs of the server; {@link #server} makes it of a Flight session and a console session.
+     */
+    interface Server {
+        /** Uploads a table with a DoPut; the server keeps it until it is released. */
+        Upload put(NewTable table) throws IOException, InterruptedException;
+
+        /** Runs Python in the console, for the error it failed with, if it did. */
+        Optional<String> execute(String code) throws IOException, InterruptedException;
+    }
+
+    /**
+     * A table uploaded to the server.
+     */
+    interface Upload {
+        /** Binds the table to a variable of the console, which keeps it from then on. */
+        void bind(String variable) throws IOException, InterruptedException;
+
+        /** Lets go of the table on the server; any variable it is bound to keeps it. */
+        void release();
+    }
+
+    private final Server server;
+
+    private String variable;
+    private String[] columns;
+    private Class<?>[] types;
+    private final List<Upload> uploads = new ArrayList<>();
+
+    FlightUploader(final Server server) {
+        this.server = server;
+    }
+
+    /**
+     * The server behind a Flight session, and the console of the same session.
+     */
+    static Server server(final FlightSession flight, final BufferAllocator allocator, final ConsoleSession console) {
+        return new Server() {
+            @Override
+            public Upload put(final NewTable table) throws IOException, InterruptedException {
+                final TableHandle handle;
+                try {
+                    handle = flight.put(table, allocator);
+                } catch (TableHandle.TableHandleException ex) {
+                    throw new IOException(ex);
+                }
+                return new Upload() {
+                    @Override
+                    public void bind(final String variable) throws IOException, InterruptedException {
+                        try {
+                            console.bindToVariable(variable, handle).get();
+                        } catch (ExecutionException ex) {
+                            throw new IOException(ex.getCause());
+                        }
+                    }
+
+                    @Override
+                    public void release() {
+                        handle.close();
+                    }
+                };
+            }
+
+            @Override
+            public Optional<String> execute(final String code) throws IOException, InterruptedException {
+                try {
+                    return console.executeCode(code).errorMessage();
+                } catch (ExecutionException | TimeoutException ex) {
+                    throw new IOException(ex);
+                }
+            }
+        };
+    }
+
+    /** The variable the last upload was bound to. */
+    String getVariable() {
+        return variable;
+    }
+
+    @Override
+    public void start(final String variable, final String[] columns, final Class<?>[] types) {
+        this.variable = variable;
+        this.columns = columns;
+        this.types = types;
+    }
+
+    @Override
+    public void batch(final Object[][] values, final int rows) throws IOException {
+        final List<Column<?>> batch = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; ++i) {
+            batch.add(column(columns[i], types[i], values[i], rows));
+        }
+        put(NewTable.of(batch));
+    }
+
+    private static <T> Column<T> column(final String name, final Class<T> type, final Object[] values, final int rows) {
+        // the batch is filled again once this returns
+        // an array of the class given is a T[], as long as the type isn't primitive, which column types aren't
+        @SuppressWarnings("unchecked")
+        final T[] copy = (T[]) Array.newInstance(type, rows);
+        System.arraycopy(values, 0, copy, 0, rows);
+        return Column.of(name, type, copy);
+    }
+
+    private void put(final NewTable table) throws IOException {
+        try {
+            uploads.add(server.put(table));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted uploading " + variable);
+        } catch (IOException ex) {
+            throw new IOException("Couldn't upload a batch of " + variable, ex);
+        }
+    }
+
+    @Override
+    public void finish(final long rows) throws IOException {
+        try {
+            if (uploads.isEmpty()) {
+                // no rows, but the columns are still expected
+                batch(new Object[columns.length][0], 0);
+            }
+            if (uploads.size() == 1) {
+                bind(variable, uploads.get(0));
+                return;
+            }
+            final StringBuilder parts = new StringBuilder();
+            for (int i = 0; i < uploads.size(); ++i) {
+                final String part = String.format("__%s_part%d", variable, i);
+                bind(part, uploads.get(i));
+                if (i != 0) {
+                    parts.append(", ");
+                }
+                parts.append(part);
+            }
+            execute(String.format("from deephaven import merge\n%s = merge([%s])\ndel %s\n", variable, parts, parts));
+        } finally {
+            // the server keeps the tables bound to variables
+            for (final Upload upload : uploads) {
+                upload.release();
+            }
+            uploads.clear();
+        }
+    }
+
+    private void bind(final String name, final Upload upload) throws IOException {
+        try {
+            upload.bind(name);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted binding " + name);
+        } catch (IOException ex) {
+            throw new IOException("Couldn't bind the uploaded table to " + name, ex);
+        }
+    }
+
+    private void execute(final String code) throws IOException {
+        final Optional<String> error;
+        try {
+            error = server.execute(code);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted merging " + variable);
+        } catch (IOException ex) {
+            throw new IOException("Couldn't merge the uploaded batches of " + variable, ex);
+        }
+        if (error.isPresent()) {
+            throw new IOException("Couldn't merge the uploaded batches of " + variable + ": " + error.get());
+        }
+    }
+}
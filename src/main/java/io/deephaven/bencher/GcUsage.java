@@ -0,0 +1,142 @@
+package io.deephaven.bencher;
+
+import io.deephaven.client.impl.ConsoleSession;
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+
+/**
+ * Garbage collection in the client and server JVMs while statements ran: collections and milliseconds, added up over
+ * all the collectors, and the nanoseconds the statements took.  When collection takes too large a share of that,
+ * the timings say more about the heap than about the statements.
+ *
+ * The client's are sampled around each timed statement.  The server's are read through a {@link ServerProbe}, which
+ * is a console call of its own, so only with {@code gc.server} set to {@code True} (default {@code False}), and only
+ * around all the statements of an iteration, so the calls stay out of the measured loop.  If they aren't read, server
+ * collections are unknown, -1.
+ */
+final class GcUsage {
+
+    static final String SERVER_FILENAME = "bencher-server-gc.txt";
+    static final String SERVER_FUNCTION = "__bencher_server_gc";
+
+    private static volatile boolean serverAvailable =
+            Boolean.parseBoolean(System.getProperty("gc.server", "False"));
+    // the console the probe is defined in is the same for the whole run
+    private static boolean serverDefined;
+
+    long clientCount;
+    long clientMillis;
+    long serverCount = -1;
+    long serverMillis = -1;
+    long nanos;
+    // the statements the server's collections are over
+    long serverNanos;
+
+    /**
+     * Python defining the function that writes the server's totals.
+     */
+    static String serverSetupPython() {
+        return ServerProbe.definePython(SERVER_FUNCTION,
+                "    import jpy\n"
+                        + "    beans = jpy.get_type('java.lang.management.ManagementFactory').getGarbageCollectorMXBeans()\n"
+                        + "    count = 0\n"
+                        + "    millis = 0\n"
+                        + "    for i in range(beans.size()):\n"
+                        + "        count += max(0, beans.get(i).getCollectionCount())\n"
+                        + "        millis += max(0, beans.get(i).getCollectionTime())\n",
+                "(count, millis)", SERVER_FILENAME);
+    }
+
+    /**
+     * The totals of the client JVM: collections and milliseconds.
+     */
+    static long[] sampleClient() {
+        final long[] totals = new long[2];
+        for (final GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            totals[0] += Math.max(0, bean.getCollectionCount());
+            totals[1] += Math.max(0, bean.getCollectionTime());
+        }
+        return totals;
+    }
+
+    /**
+     * The totals of the server JVM, through {@link #SERVER_FUNCTION}, which the first call defines; stops trying if
+     * they can't be read.
+     *
+     * @param console           the console the statements run in
+     * @param outputPrefixPath  where the client sees the server's data directory
+     * @return                  collections and milliseconds, or null if unknown
+     */
+    static long[] sampleServer(final ConsoleSession console, final String outputPrefixPath) {
+        if (!serverAvailable) {
+            return null;
+        }
+        try {
+            if (!serverDefined) {
+                final Optional<String> error = console.executeCode(serverSetupPython()).errorMessage();
+                if (error.isPresent()) {
+                    throw new IOException(error.get());
+                }
+                serverDefined = true;
+            }
+            return ServerProbe.call(console, outputPrefixPath, SERVER_FUNCTION, SERVER_FILENAME);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception ex) {
+            serverAvailable = false;
+            System.err.printf("%s: Couldn't get the server's garbage collection through \"%s\", not tracking it: %s\n",
+                    GcUsage.class.getSimpleName(), SERVER_FILENAME, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Adds the client's collections between two samples around a statement.
+     */
+    void add(final long[] clientBefore, final long[] clientAfter, final long statementNanos) {
+        clientCount += clientAfter[0] - clientBefore[0];
+        clientMillis += clientAfter[1] - clientBefore[1];
+        nanos += statementNanos;
+    }
+
+    /**
+     * Adds the client's collections during another statement.
+     */
+    void add(final GcUsage other) {
+        clientCount += other.clientCount;
+        clientMillis += other.clientMillis;
+        nanos += other.nanos;
+    }
+
+    /**
+     * Sets the server's collections between two samples around the statements of an iteration.
+     *
+     * @param serverBefore      the sample before, or null if unknown
+     * @param serverAfter       the sample after, or null if unknown
+     * @param statementsNanos   how long the statements took, untimed ones too
+     */
+    void addServer(final long[] serverBefore, final long[] serverAfter, final long statementsNanos) {
+        if (serverBefore == null || serverAfter == null) {
+            serverCount = -1;
+            serverMillis = -1;
+        } else {
+            serverCount = serverAfter[0] - serverBefore[0];
+            serverMillis = serverAfter[1] - serverBefore[1];
+        }
+        serverNanos = statementsNanos;
+    }
+
+    /**
+     * The larger of the shares of the time that the client and the server spent collecting: the client's of the
+     * timed statements, the server's of all the statements.
+     */
+    double getFraction() {
+        final double client = nanos > 0 ? clientMillis * 1e6 / nanos : 0.0;
+        final double server = serverMillis >= 0 && serverNanos > 0 ? serverMillis * 1e6 / serverNanos : 0.0;
+        return Math.max(client, server);
+    }
+}
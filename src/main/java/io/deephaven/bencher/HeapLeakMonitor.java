@@ -0,0 +1,278 @@
+package io.deephaven.bencher;
+
+import io.deephaven.client.impl.ConsoleSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Watches the server's heap for memory the benchmarks leave behind.  After each cleanup, once the variables of an
+ * iteration are gone, and once the tables uploaded for a benchmark are, it has the server collect garbage and reads
+ * the heap it still uses, through a {@link ServerProbe}.  What a collection can't free there is retained.
+ *
+ * There are two baselines: after the cleanup of each measured iteration of a benchmark, whose uploaded tables are
+ * still there the same for all of them, one for each benchmark title even when its iterations run in several passes,
+ * like the pilot and the extra iterations of a suite; and after the cleanup of each benchmark, from before the first
+ * one, across the run.  A line fitted to each by least squares gives the growth over it; when both the fitted growth and the
+ * growth from the first sample to the last are more than {@code leak.threshold.mb} (default 100), it is a leak.
+ * Where growth began is where a line that is flat up to a point and rises from there fits best.
+ */
+final class HeapLeakMonitor {
+
+    static final String SERVER_FILENAME = "bencher-server-heap.txt";
+    static final String SERVER_FUNCTION = "__bencher_server_heap";
+    static final long THRESHOLD_BYTES =
+            (long) (Double.parseDouble(System.getProperty("leak.threshold.mb", "100")) * 1024 * 1024);
+    // fewer than this don't make a trend
+    private static final int MIN_SAMPLES = 3;
+
+    /**
+     * Heap a baseline kept.
+     */
+    static final class Leak {
+        // the benchmark whose iterations leaked, or null for the run
+        final String benchmark;
+        // the benchmark, or for a benchmark the measured iteration from 1, where growth began
+        final String onset;
+        final int samples;
+        final double growthBytes;
+        final double slopeBytes;
+
+        private Leak(final String benchmark, final String onset, final int samples, final double growthBytes,
+                final double slopeBytes) {
+            this.benchmark = benchmark;
+            this.onset = onset;
+            this.samples = samples;
+            this.growthBytes = growthBytes;
+            this.slopeBytes = slopeBytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, benchmark == null
+                            ? "server heap after cleanup grew %.0f MB over %d benchmarks (%.1f MB each), beginning with \"%s\""
+                            : "server heap after cleanup grew %.0f MB over %d iterations (%.1f MB each) of \"%s\", beginning with iteration %s",
+                    growthBytes / (1024 * 1024), samples - (benchmark == null ? 1 : 0), slopeBytes / (1024 * 1024),
+                    benchmark == null ? onset : benchmark, onset);
+        }
+    }
+
+    private final ResultRecorder results;
+    private final String outputPrefixPath;
+    private boolean available = true;
+    private boolean defined;
+    // after the cleanup of each benchmark, from before the first one; the benchmark run just before, null for the start
+    private final List<String> runTitles = new ArrayList<>();
+    private final List<Long> runSamples = new ArrayList<>();
+    // after the cleanup of each measured iteration, by benchmark title
+    private final Map<String, List<Long>> iterationSamples = new LinkedHashMap<>();
+    private final Map<String, Leak> iterationLeaks = new LinkedHashMap<>();
+    private Leak runLeak;
+
+    /**
+     * @param results           the results file, where every sample is recorded
+     * @param outputPrefixPath  where the client sees the server's data directory
+     */
+    HeapLeakMonitor(final ResultRecorder results, final String outputPrefixPath) {
+        this.results = results;
+        this.outputPrefixPath = outputPrefixPath;
+    }
+
+    /**
+     * Python defining the function that collects garbage on the server and writes its heap: used and maximum bytes.
+     * A collection is only asked for, so it asks a few times.
+     */
+    static String serverSetupPython() {
+        return ServerProbe.definePython(SERVER_FUNCTION,
+                "    import jpy\n"
+                        + "    import time\n"
+                        + "    system = jpy.get_type('java.lang.System')\n"
+                        + "    for i in range(3):\n"
+                        + "        system.gc()\n"
+                        + "        time.sleep(0.1)\n"
+                        + "    heap = jpy.get_type('java.lang.management.ManagementFactory').getMemoryMXBean().getHeapMemoryUsage()\n",
+                "(heap.getUsed(), heap.getMax())", SERVER_FILENAME);
+    }
+
+    /**
+     * Samples the heap before the first benchmark.
+     */
+    void start(final ConsoleSession console) {
+        final long[] heap = sample(console);
+        if (heap == null) {
+            return;
+        }
+        results.recordHeap(null, "start", false, 0, heap[0], heap[1]);
+        runTitles.add(null);
+        runSamples.add(heap[0]);
+    }
+
+    /**
+     * Samples the heap after the cleanup of an iteration; measured iterations make the benchmark's baseline.
+     *
+     * @param iteration     the iteration, from 1, counting warmup and measured ones apart
+     */
+    void afterIteration(final ConsoleSession console, final String title, final boolean warmup, final int iteration) {
+        final long[] heap = sample(console);
+        if (heap == null) {
+            return;
+        }
+        results.recordHeap(title, "iteration", warmup, iteration, heap[0], heap[1]);
+        System.out.printf(Locale.ROOT, "Server heap after cleanup: %.1f MB\n", heap[0] / (1024.0 * 1024));
+        if (!warmup) {
+            iterationSamples.computeIfAbsent(title, t -> new ArrayList<>()).add(heap[0]);
+        }
+    }
+
+    /**
+     * Samples the heap after the cleanup of a benchmark, and warns of leaks, by its iterations so far or across the
+     * run.
+     */
+    void afterBenchmark(final ConsoleSession console, final String title) {
+        final List<Long> samples = iterationSamples.get(title);
+        final Leak iterationLeak = samples == null ? null : check(samples, title, null);
+        if (iterationLeak != null && !iterationLeaks.containsKey(title)) {
+            warn(iterationLeak);
+        }
+        if (iterationLeak == null) {
+            iterationLeaks.remove(title);
+        } else {
+            iterationLeaks.put(title, iterationLeak);
+        }
+
+        final long[] heap = sample(console);
+        if (heap == null) {
+            return;
+        }
+        results.recordHeap(title, "benchmark", false, 0, heap[0], heap[1]);
+        runTitles.add(title);
+        runSamples.add(heap[0]);
+        final Leak leak = check(runSamples, null, runTitles);
+        if (leak != null && runLeak == null) {
+            warn(leak);
+        }
+        runLeak = leak;
+    }
+
+    /**
+     * The leaks found: by the iterations of benchmarks, and across the run so far.
+     */
+    List<Leak> getLeaks() {
+        final List<Leak> leaks = new ArrayList<>(iterationLeaks.values());
+        if (runLeak != null) {
+            leaks.add(runLeak);
+        }
+        return leaks;
+    }
+
+    private void warn(final Leak leak) {
+        System.err.printf("%s: Warning: %s\n", HeapLeakMonitor.class.getSimpleName(), leak);
+        results.recordLeak(leak);
+    }
+
+    private long[] sample(final ConsoleSession console) {
+        if (!available) {
+            return null;
+        }
+        try {
+            if (!defined) {
+                final Optional<String> error = console.executeCode(serverSetupPython()).errorMessage();
+                if (error.isPresent()) {
+                    throw new IOException(error.get());
+                }
+                defined = true;
+            }
+            return ServerProbe.call(console, outputPrefixPath, SERVER_FUNCTION, SERVER_FILENAME);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception ex) {
+            available = false;
+            System.err.printf("%s: Couldn't get the server's heap through \"%s\", not checking for leaks: %s\n",
+                    HeapLeakMonitor.class.getSimpleName(), SERVER_FILENAME, ex);
+            return null;
+        }
+    }
+
+    /**
+     * @param samples       the baseline
+     * @param benchmark     the benchmark whose iterations they are, or null for the run
+     * @param titles        for the run, the benchmark each sample came after
+     * @return              the leak, or null if there is none
+     */
+    private static Leak check(final List<Long> samples, final String benchmark, final List<String> titles) {
+        final int n = samples.size();
+        if (n < MIN_SAMPLES) {
+            return null;
+        }
+        final double slope = slope(samples);
+        final double growth = slope * (n - 1);
+        if (growth <= THRESHOLD_BYTES || samples.get(n - 1) - samples.get(0) <= THRESHOLD_BYTES) {
+            return null;
+        }
+        // the first sample that rose
+        final int onset = onset(samples) + 1;
+        return new Leak(benchmark, titles == null ? Integer.toString(onset + 1) : titles.get(onset), n, growth, slope);
+    }
+
+    /**
+     * The slope of the line fitted by least squares to samples taken one apart.
+     */
+    static double slope(final List<Long> samples) {
+        final int n = samples.size();
+        final double meanX = (n - 1) / 2.0;
+        double meanY = 0.0;
+        for (final long sample : samples) {
+            meanY += sample;
+        }
+        meanY /= n;
+        double sxy = 0.0;
+        double sxx = 0.0;
+        for (int i = 0; i < n; ++i) {
+            sxy += (i - meanX) * (samples.get(i) - meanY);
+            sxx += (i - meanX) * (i - meanX);
+        }
+        return sxx > 0.0 ? sxy / sxx : 0.0;
+    }
+
+    /**
+     * The last sample before growth began: the k for which the line flat up to sample k and rising from there,
+     * a + b max(0, i - k), fits the samples best by least squares.
+     */
+    static int onset(final List<Long> samples) {
+        final int n = samples.size();
+        double meanY = 0.0;
+        for (final long sample : samples) {
+            meanY += sample;
+        }
+        meanY /= n;
+        int best = 0;
+        double bestExplained = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < n - 1; ++k) {
+            double meanH = 0.0;
+            for (int i = k + 1; i < n; ++i) {
+                meanH += i - k;
+            }
+            meanH /= n;
+            double shy = 0.0;
+            double shh = 0.0;
+            for (int i = 0; i < n; ++i) {
+                final double h = Math.max(0, i - k) - meanH;
+                shy += h * (samples.get(i) - meanY);
+                shh += h * h;
+            }
+            // the sum of squared residuals is what the hinge doesn't explain
+            final double explained = shy * shy / shh;
+            if (shy > 0.0 && explained > bestExplained) {
+                best = k;
+                bestExplained = explained;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,511 @@
+package io.deephaven.bencher;
+
+import io.deephaven.datagen.DataGen;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Records the result of every timed statement of every iteration, as a line of JSON appended to a results file on
+ * the client, so results don't depend on scraping the output or on the scripts the server runs.
+ *
+ * Each line tells which benchmark and statement it is about, the iteration, the nanoseconds the statement took as
+ * seen from the client, whether it succeeded or the error it failed with, and SHA-256 fingerprints of what was
+ * measured: the job file, the generator files, the statistics of the generated data (rows, and each column's type,
+ * nulls, min, max and distinct values), and the statement's text; also garbage collection in the client and the
+ * server while it ran.  The lines of an iteration are written when it ends, flagged if collection took too much of
+ * it; those of a failing statement at once, since it exits.
+ *
+ * Once a benchmark is done, a summary line for each timed statement follows, with the statistics of its measured
+ * iterations, leaving out the warmup ones, those run again because of garbage collection, and with adaptive
+ * iterations the ones before timings settled, and why iterations stopped; and with a baseline, a comparison line for each.
+ * With {@code leak.check}, the server's heap after each cleanup, and the leaks found in it.  Their {@code record} tells
+ * lines apart: {@code statement}, {@code summary}, {@code comparison}, {@code heap} or {@code leak}; their
+ * {@code run_id} tells runs apart.
+ */
+final class ResultRecorder implements AutoCloseable {
+
+    private final File file;
+    private final Writer writer;
+    // tells the lines of a run apart from those of other runs appended to the same file
+    private final String runId = Instant.now().toString();
+
+    /**
+     * @param file  the results file, appended to
+     * @throws IOException if it can't be opened
+     */
+    ResultRecorder(final File file) throws IOException {
+        this.file = file;
+        final File parent = file.getAbsoluteFile().getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Couldn't create the directory of " + file.getPath());
+        }
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    /**
+     * Starts recording the iterations of a benchmark.
+     *
+     * @param jobFile           the job file the benchmark is defined in
+     * @param title             title of the benchmark
+     * @param extraDescription  the description given with {@code -d}, or null
+     * @param generatorFiles    the generator files of the benchmark, in the order given
+     * @param outputFilenames   the data generated for it, or uploaded
+     * @return                  the benchmark's recorder
+     */
+    Benchmark benchmark(
+            final File jobFile,
+            final String title,
+            final String extraDescription,
+            final List<File> generatorFiles,
+            final List<String> outputFilenames) {
+        final String generatorFingerprint = fingerprint(generatorFiles.toArray(new File[0]));
+        return new Benchmark(jobFile, title, extraDescription,
+                fingerprint(jobFile),
+                generatorFingerprint,
+                dataFingerprint(outputFilenames, generatorFingerprint));
+    }
+
+    /**
+     * The SHA-256 of the statistics of generated data, but not of where it was written, so the same data generated
+     * elsewhere has the same fingerprint; without statistics ({@code generation.stats} false), that of the
+     * generator files, which generate the same data again.
+     */
+    private static String dataFingerprint(final List<String> outputFilenames, final String generatorFingerprint) {
+        final StringBuilder statistics = new StringBuilder();
+        for (final String outputFilename : outputFilenames) {
+            final File file = new File(DataGen.getStatisticsFilename(outputFilename));
+            if (!file.exists()) {
+                return generatorFingerprint;
+            }
+            try (final Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+                final Map<String, Object> document = (Map<String, Object>) new JSONParser().parse(reader);
+                document.remove("output_file");
+                appendCanonical(statistics, document);
+                statistics.append('\n');
+            } catch (IOException | ParseException | ClassCastException ex) {
+                System.err.printf("%s: Couldn't read \"%s\" to fingerprint it: %s\n",
+                        ResultRecorder.class.getSimpleName(), file.getPath(), ex);
+                return null;
+            }
+        }
+        return fingerprint(statistics.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Appends JSON with the keys of objects sorted, so that equal documents are written the same.
+     */
+    private static void appendCanonical(final StringBuilder sb, final Object value) {
+        if (value instanceof Map) {
+            sb.append('{');
+            String separator = "";
+            for (final Map.Entry<String, Object> entry : new TreeMap<>((Map<String, Object>) value).entrySet()) {
+                sb.append(separator).append('"').append(JSONValue.escape(entry.getKey())).append("\":");
+                appendCanonical(sb, entry.getValue());
+                separator = ",";
+            }
+            sb.append('}');
+        } else if (value instanceof List) {
+            sb.append('[');
+            String separator = "";
+            for (final Object element : (List<Object>) value) {
+                sb.append(separator);
+                appendCanonical(sb, element);
+                separator = ",";
+            }
+            sb.append(']');
+        } else if (value instanceof String) {
+            sb.append('"').append(JSONValue.escape((String) value)).append('"');
+        } else {
+            sb.append(value);
+        }
+    }
+
+    /**
+     * Records the server's heap after a cleanup.
+     *
+     * @param benchmark     title of the benchmark, or null before the first one
+     * @param after         what was cleaned up: {@code start}, {@code iteration} or {@code benchmark}
+     * @param warmup        whether the iteration is a warmup one
+     * @param iteration     the iteration, from 1, counting warmup and measured ones apart; 0 if not an iteration
+     * @param usedBytes     heap used once garbage was collected
+     * @param maxBytes      the maximum heap, or -1 if undefined
+     */
+    void recordHeap(
+            final String benchmark,
+            final String after,
+            final boolean warmup,
+            final int iteration,
+            final long usedBytes,
+            final long maxBytes) {
+        final Map<String, Object> line = new LinkedHashMap<>();
+        line.put("record", "heap");
+        line.put("timestamp", Instant.now().toString());
+        line.put("run_id", runId);
+        line.put("benchmark", benchmark);
+        line.put("after", after);
+        line.put("warmup", warmup);
+        line.put("iteration", (long) iteration);
+        line.put("used_bytes", usedBytes);
+        line.put("max_bytes", maxBytes);
+        write(line);
+    }
+
+    /**
+     * Records a leak {@link HeapLeakMonitor} found.
+     */
+    void recordLeak(final HeapLeakMonitor.Leak leak) {
+        final Map<String, Object> line = new LinkedHashMap<>();
+        line.put("record", "leak");
+        line.put("timestamp", Instant.now().toString());
+        line.put("run_id", runId);
+        line.put("benchmark", leak.benchmark);
+        line.put("onset", leak.onset);
+        line.put("samples", (long) leak.samples);
+        line.put("growth_bytes", leak.growthBytes);
+        line.put("slope_bytes", leak.slopeBytes);
+        write(line);
+    }
+
+    /**
+     * The recorder of the statements of one benchmark.
+     */
+    final class Benchmark {
+        private final Map<String, Object> common = new LinkedHashMap<>();
+        // the nanoseconds of the measured iterations of each timed statement, by title
+        private final Map<String, List<Long>> samples = new LinkedHashMap<>();
+        // with adaptive iterations, the first sample of each statement that is steady
+        private final Map<String, Integer> steadyStarts = new LinkedHashMap<>();
+        // the lines and timings of the iteration running, until it is known whether garbage collection spoilt it
+        private final List<Map<String, Object>> pendingLines = new ArrayList<>();
+        private final Map<String, Long> pendingSamples = new LinkedHashMap<>();
+        // measured iterations where collection took too much of the time, and those of them run again
+        private int gcContaminated;
+        private int gcDiscarded;
+
+        private Benchmark(
+                final File jobFile,
+                final String title,
+                final String extraDescription,
+                final String jobFingerprint,
+                final String generatorFingerprint,
+                final String dataFingerprint) {
+            common.put("run_id", runId);
+            common.put("benchmark", title);
+            common.put("extra_description", extraDescription);
+            common.put("job_file", jobFile.getPath());
+            common.put("job_sha256", jobFingerprint);
+            common.put("generator_sha256", generatorFingerprint);
+            common.put("data_sha256", dataFingerprint);
+        }
+
+        /**
+         * Records a statement of an iteration, once {@link #endIteration} tells whether it counts; at once if it
+         * failed, since failing exits.
+         *
+         * @param warmup        whether the iteration is a warmup one
+         * @param iteration     the iteration, from 1, counting warmup and measured ones apart
+         * @param iterations    the iterations of the benchmark of the same kind
+         * @param statementNo   the number of the statement in the benchmark, from 1
+         * @param title         title of the statement
+         * @param statement     text of the statement
+         * @param timed         whether the statement is timed; untimed statements are only recorded if they fail
+         * @param clientNanos   nanoseconds it took, as seen from the client
+         * @param gc            garbage collection while it ran
+         * @param error         why it failed, or null if it succeeded
+         */
+        void record(
+                final boolean warmup,
+                final int iteration,
+                final int iterations,
+                final int statementNo,
+                final String title,
+                final String statement,
+                final boolean timed,
+                final long clientNanos,
+                final GcUsage gc,
+                final String error) {
+            final Map<String, Object> line = new LinkedHashMap<>();
+            line.put("record", "statement");
+            line.put("timestamp", Instant.now().toString());
+            line.putAll(common);
+            line.put("warmup", warmup);
+            line.put("iteration", (long) iteration);
+            line.put("iterations", (long) iterations);
+            line.put("statement_number", (long) statementNo);
+            line.put("statement", title);
+            line.put("statement_sha256", fingerprint(statement.getBytes(StandardCharsets.UTF_8)));
+            line.put("timed", timed);
+            line.put("client_nanos", clientNanos);
+            line.put("client_gc_count", gc.clientCount);
+            line.put("client_gc_millis", gc.clientMillis);
+            line.put("success", error == null);
+            line.put("error", error);
+            pendingLines.add(line);
+            if (error != null) {
+                for (final Map<String, Object> pending : pendingLines) {
+                    write(pending);
+                }
+                pendingLines.clear();
+                return;
+            }
+            if (timed && !warmup) {
+                pendingSamples.put(title, clientNanos);
+            }
+        }
+
+        /**
+         * Records the statements of the iteration that ran, and counts their timings unless it is discarded.
+         *
+         * @param gc            garbage collection during the timed statements of the iteration, and in the server
+         *                      during all of them
+         * @param contaminated  whether collection took more than its share of the time
+         * @param discarded     whether the iteration is run again
+         */
+        void endIteration(final GcUsage gc, final boolean contaminated, final boolean discarded) {
+            for (final Map<String, Object> line : pendingLines) {
+                line.put("iteration_server_gc_count", gc.serverCount < 0 ? null : gc.serverCount);
+                line.put("iteration_server_gc_millis", gc.serverMillis < 0 ? null : gc.serverMillis);
+                line.put("iteration_gc_fraction", gc.getFraction());
+                line.put("gc_contaminated", contaminated);
+                line.put("discarded", discarded);
+                write(line);
+            }
+            final boolean measured = !pendingSamples.isEmpty();
+            if (!discarded) {
+                for (final Map.Entry<String, Long> entry : pendingSamples.entrySet()) {
+                    samples.computeIfAbsent(entry.getKey(), t -> new ArrayList<>()).add(entry.getValue());
+                }
+            }
+            if (measured && contaminated) {
+                ++gcContaminated;
+                if (discarded) {
+                    ++gcDiscarded;
+                }
+            }
+            pendingLines.clear();
+            pendingSamples.clear();
+        }
+
+        /** Measured iterations where garbage collection took more than its share of the time. */
+        int getGcContaminated() {
+            return gcContaminated;
+        }
+
+        /** Those of {@link #getGcContaminated()} that were run again. */
+        int getGcDiscarded() {
+            return gcDiscarded;
+        }
+
+        /**
+         * The largest coefficient of variation of the measured timings of the timed statements; 0 if there are
+         * none, or too few to tell.
+         */
+        double getVariation() {
+            double variation = 0.0;
+            for (final List<Long> statementSamples : samples.values()) {
+                if (statementSamples.size() > 1) {
+                    variation = Math.max(variation, new BenchmarkStatistics(statementSamples).getCoefficientOfVariation());
+                }
+            }
+            return variation;
+        }
+
+        /**
+         * Tells whether the timings of every timed statement have reached steady state: no trend since some
+         * iteration, per {@link BenchmarkStatistics#steadyStart}, and a confidence interval of the mean since then
+         * narrow enough.  The iterations before are left out of the summary.
+         *
+         * @param minSamples    the fewest iterations a steady state has
+         * @param ciTarget      the widest confidence interval, relative to the mean
+         * @param alpha         significance of the trend test
+         */
+        boolean isSteady(final int minSamples, final double ciTarget, final double alpha) {
+            boolean steady = true;
+            for (final Map.Entry<String, List<Long>> entry : samples.entrySet()) {
+                final int start = BenchmarkStatistics.steadyStart(entry.getValue(), minSamples, alpha);
+                if (start < 0) {
+                    steadyStarts.remove(entry.getKey());
+                    steady = false;
+                    continue;
+                }
+                steadyStarts.put(entry.getKey(), start);
+                final List<Long> steadySamples = entry.getValue().subList(start, entry.getValue().size());
+                if (new BenchmarkStatistics(steadySamples).getRelativeIntervalWidth() > ciTarget) {
+                    steady = false;
+                }
+            }
+            return steady;
+        }
+
+        /**
+         * The measured timings of each timed statement that {@link #summarize} is about, by title.
+         */
+        Map<String, List<Long>> getSummarizedSamples() {
+            final Map<String, List<Long>> summarized = new LinkedHashMap<>();
+            for (final Map.Entry<String, List<Long>> entry : samples.entrySet()) {
+                final int start = steadyStarts.getOrDefault(entry.getKey(), 0);
+                summarized.put(entry.getKey(), entry.getValue().subList(start, entry.getValue().size()));
+            }
+            return summarized;
+        }
+
+        String getTitle() {
+            return (String) common.get("benchmark");
+        }
+
+        String getDataFingerprint() {
+            return (String) common.get("data_sha256");
+        }
+
+        /**
+         * Records the comparison of a statement with the baseline.
+         */
+        void recordComparison(final BaselineComparison.Result result) {
+            final Map<String, Object> line = new LinkedHashMap<>();
+            line.put("record", "comparison");
+            line.put("timestamp", Instant.now().toString());
+            line.putAll(common);
+            line.put("statement", result.statement);
+            line.put("verdict", result.verdict.name().toLowerCase(Locale.ROOT));
+            line.put("baseline_samples", (long) result.baselineSamples);
+            line.put("baseline_median_nanos", orNull(result.baselineMedian));
+            line.put("median_nanos", result.median);
+            line.put("change", orNull(result.change));
+            line.put("p", orNull(result.p));
+            line.put("same_data", result.sameData);
+            write(line);
+        }
+
+        /**
+         * Records the statistics of the measured iterations of each timed statement.
+         *
+         * @param stopReason    why iterations stopped: {@code fixed} for {@code -n}, with adaptive iterations
+         *                      {@code steady_state} or {@code max_iterations}, or {@code budget} for a suite run
+         *                      within a time budget
+         * @return              the statistics, by statement title, in the order the statements ran
+         */
+        Map<String, BenchmarkStatistics> summarize(final String stopReason) {
+            final Map<String, BenchmarkStatistics> summary = new LinkedHashMap<>();
+            for (final Map.Entry<String, List<Long>> entry : samples.entrySet()) {
+                final int start = steadyStarts.getOrDefault(entry.getKey(), 0);
+                final BenchmarkStatistics statistics =
+                        new BenchmarkStatistics(entry.getValue().subList(start, entry.getValue().size()));
+                summary.put(entry.getKey(), statistics);
+
+                final double[] interval = statistics.getMeanInterval();
+                final Map<String, Object> line = new LinkedHashMap<>();
+                line.put("record", "summary");
+                line.put("timestamp", Instant.now().toString());
+                line.putAll(common);
+                line.put("statement", entry.getKey());
+                line.put("stop_reason", stopReason);
+                line.put("unsteady_iterations", (long) start);
+                line.put("gc_contaminated_iterations", (long) gcContaminated);
+                line.put("gc_discarded_iterations", (long) gcDiscarded);
+                line.put("samples", (long) statistics.getCount());
+                line.put("min_nanos", statistics.getMin());
+                line.put("median_nanos", statistics.getMedian());
+                line.put("mean_nanos", statistics.getMean());
+                line.put("p90_nanos", statistics.getPercentile(0.9));
+                line.put("stddev_nanos", orNull(statistics.getStddev()));
+                line.put("cv", orNull(statistics.getCoefficientOfVariation()));
+                line.put("confidence", BenchmarkStatistics.CONFIDENCE);
+                line.put("mean_ci_low_nanos", interval[0]);
+                line.put("mean_ci_high_nanos", interval[1]);
+                write(line);
+            }
+            return summary;
+        }
+    }
+
+    private static Double orNull(final double value) {
+        // JSON has no NaN
+        return Double.isNaN(value) ? null : value;
+    }
+
+    private synchronized void write(final Map<String, Object> line) {
+        try {
+            writer.write(JSONObject.toJSONString(line));
+            writer.write('\n');
+            writer.flush();
+        } catch (IOException ex) {
+            // losing results makes the run pointless
+            throw new IllegalStateException("Couldn't write results to " + file.getPath() + ": " + ex, ex);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        writer.close();
+    }
+
+    /**
+     * The SHA-256 of the contents of some files, each preceded by its length so that the boundaries count, in
+     * hexadecimal; null if some file can't be read.
+     */
+    static String fingerprint(final File... files) {
+        final MessageDigest digest = sha256();
+        for (final File file : files) {
+            final byte[] contents;
+            try {
+                contents = Files.readAllBytes(file.toPath());
+            } catch (IOException ex) {
+                System.err.printf("%s: Couldn't read \"%s\" to fingerprint it: %s\n",
+                        ResultRecorder.class.getSimpleName(), file.getPath(), ex);
+                return null;
+            }
+            digest.update(Long.toString(contents.length).getBytes(StandardCharsets.US_ASCII));
+            digest.update((byte) '\n');
+            digest.update(contents);
+        }
+        return hex(digest.digest());
+    }
+
+    private static String fingerprint(final byte[] bytes) {
+        return hex(sha256().digest(bytes));
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            // every Java platform has it
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static String hex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(2 * bytes.length);
+        for (final byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+}
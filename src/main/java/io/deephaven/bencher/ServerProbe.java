@@ -0,0 +1,71 @@
+package io.deephaven.bencher;
+
+import io.deephaven.client.impl.ConsoleSession;
+import io.deephaven.client.impl.script.Changes;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Reads numbers about the server JVM, like its garbage collection or its heap: a Python function the console defines
+ * writes them to a file in the directory the server reads generated data from, {@code server.data.path} (default
+ * {@code /data}), and the client reads the file under the output prefix path, the same directory as it sees it.
+ * The client deletes the file before each call, so numbers a call didn't write are never read.
+ */
+final class ServerProbe {
+
+    static final String SERVER_DATA_PATH = System.getProperty("server.data.path", "/data");
+
+    private ServerProbe() {
+    }
+
+    /**
+     * Python defining a function that writes some numbers.
+     *
+     * @param function  name of the function
+     * @param body      lines of the function's body, indented by four spaces, computing the numbers
+     * @param values    a Python expression of the numbers, a tuple
+     * @param filename  name of the file it writes in the data directory
+     */
+    static String definePython(final String function, final String body, final String values, final String filename) {
+        return "def " + function + "():\n"
+                + body
+                + "    with open('" + SERVER_DATA_PATH + "/" + filename + "', 'w') as f:\n"
+                + "        f.write(' '.join(str(v) for v in " + values + ") + '\\n')\n";
+    }
+
+    /**
+     * Calls a function {@link #definePython} defined, and reads the numbers it wrote.  Fails when the file is left over
+     * and can't be deleted, or when the call doesn't write it, as when the output prefix path isn't where the client
+     * sees the server's data directory.
+     *
+     * @param console           the console it is defined in
+     * @param outputPrefixPath  where the client sees the server's data directory
+     * @param function          name of the function
+     * @param filename          name of the file it writes
+     * @return                  the numbers
+     */
+    static long[] call(final ConsoleSession console, final String outputPrefixPath, final String function,
+            final String filename) throws Exception {
+        final File file = new File(outputPrefixPath, filename);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("couldn't delete \"" + file + "\" from an earlier call");
+        }
+        final Changes changes = console.executeCode(function + "()\n");
+        if (changes.errorMessage().isPresent()) {
+            throw new IOException(changes.errorMessage().get());
+        }
+        if (!file.exists()) {
+            throw new IOException("the server wrote \"" + SERVER_DATA_PATH + "/" + filename + "\" but there is no \""
+                    + file + "\"; is the output prefix path where the client sees " + SERVER_DATA_PATH + "?");
+        }
+        final String[] fields = new String(Files.readAllBytes(file.toPath()), StandardCharsets.US_ASCII).trim().split(" ");
+        final long[] values = new long[fields.length];
+        for (int i = 0; i < fields.length; ++i) {
+            values[i] = Long.parseLong(fields[i]);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,59 @@
+package io.deephaven.bencher;
+
+/**
+ * Shares out the time left of a suite's budget as more iterations of its benchmarks, once a few pilot iterations of
+ * each have measured how long an iteration takes and how noisy its timings are.
+ *
+ * The confidence interval of the mean of a statement's timings is about as wide, relative to the mean, as its
+ * coefficient of variation over the square root of the iterations.  Each iteration goes, in turn, to the benchmark
+ * whose widest such interval is the widest of the suite, among those whose next iteration fits in the time left,
+ * which minimizes the widest interval of the suite.  Running a benchmark again also takes setting it up again: its
+ * data uploaded, and its warmup iterations run.
+ */
+final class SuiteBudget {
+
+    private SuiteBudget() {
+    }
+
+    /**
+     * @param setupNanos        nanoseconds it takes to set up each benchmark again
+     * @param iterationNanos    nanoseconds an iteration of each benchmark takes; counted as at least 1
+     * @param iterations        the iterations each benchmark already had
+     * @param variation         the largest coefficient of variation of the timed statements of each benchmark; 0 for
+     *                          benchmarks that don't need more iterations
+     * @param budgetNanos       nanoseconds left
+     * @return                  the iterations each benchmark gets
+     */
+    static int[] allocate(
+            final long[] setupNanos,
+            final long[] iterationNanos,
+            final int[] iterations,
+            final double[] variation,
+            long budgetNanos) {
+        final int[] extra = new int[iterations.length];
+        while (true) {
+            int widest = -1;
+            double widestWidth = 0.0;
+            for (int i = 0; i < iterations.length; ++i) {
+                if (!(variation[i] > 0.0) || cost(i, setupNanos, iterationNanos, extra) > budgetNanos) {
+                    continue;
+                }
+                final double width = variation[i] / Math.sqrt(iterations[i] + extra[i]);
+                if (width > widestWidth) {
+                    widest = i;
+                    widestWidth = width;
+                }
+            }
+            if (widest < 0) {
+                return extra;
+            }
+            budgetNanos -= cost(widest, setupNanos, iterationNanos, extra);
+            ++extra[widest];
+        }
+    }
+
+    /** At least a nanosecond, so every iteration given takes from the budget, and the allocation ends. */
+    private static long cost(final int i, final long[] setupNanos, final long[] iterationNanos, final int[] extra) {
+        return Math.max(1, iterationNanos[i] + (extra[i] == 0 ? setupNanos[i] : 0));
+    }
+}
@@ -0,0 +1,180 @@
+package io.deephaven.bencher;
+
+import org.json.simple.parser.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BaselineComparisonTest {
+
+    private static final double EPSILON = 1e-12;
+
+    /**
+     * Samples in the order the letters give, from the fastest: 'x' for the first sample, 'y' for the second.  U of
+     * x counts the pairs where the x comes after the y.
+     */
+    private static List<List<Long>> ordering(final String order) {
+        final List<Long> x = new ArrayList<>();
+        final List<Long> y = new ArrayList<>();
+        for (int i = 0; i < order.length(); ++i) {
+            (order.charAt(i) == 'x' ? x : y).add(100L + i);
+        }
+        return Arrays.asList(x, y);
+    }
+
+    private static double p(final String order) {
+        final List<List<Long>> samples = ordering(order);
+        return BaselineComparison.mannWhitneyP(samples.get(0), samples.get(1));
+    }
+
+    @Test
+    void exactPValuesMatchTheTables() {
+        // one-sided P(U <= u) from the published tables of the Mann-Whitney U distribution, doubled
+        // m = 3, n = 4: .029, .057, .114 and .200 for U = 0 to 3
+        assertEquals(2.0 / 35, p("xxxyyyy"), EPSILON);
+        assertEquals(2 * 2.0 / 35, p("xxyxyyy"), EPSILON);
+        assertEquals(2 * 4.0 / 35, p("xxyyxyy"), EPSILON);
+        assertEquals(2 * 7.0 / 35, p("xyxyxyy"), EPSILON);
+        // m = n = 5: .016 for U = 2 and .028 for U = 3
+        assertEquals(2 * 4.0 / 252, p("xxxyxxyyyy"), EPSILON);
+        assertEquals(2 * 7.0 / 252, p("xxxyxyxyyy"), EPSILON);
+        // m = n = 6: .021 for U = 5, the critical value at .05 two-sided
+        assertEquals(2 * 19.0 / 924, p("xxxxyxyyyxyy"), EPSILON);
+        // either sample may be the slower
+        assertEquals(p("xxxyyyy"), p("yyyyxxx"), EPSILON);
+        assertEquals(p("xxyxyyy"), p("yyyxyxx"), EPSILON);
+        // no difference at all
+        assertEquals(1.0, p("xyyx"), EPSILON);
+        assertEquals(1.0, BaselineComparison.mannWhitneyP(new ArrayList<>(), Arrays.asList(1L, 2L)), EPSILON);
+    }
+
+    @Test
+    void tiesUseTheNormalApproximation() {
+        // U = 2.5 of 16, mean 8; ties of 3 and 2 among 8 make the variance 16/12 (9 - 30/56) = 11.2857; with the
+        // continuity correction z = (5.5 - 0.5) / sqrt(11.2857) = 1.48835, for a p of 0.136658
+        final List<Long> x = Arrays.asList(1L, 2L, 2L, 3L);
+        final List<Long> y = Arrays.asList(2L, 3L, 4L, 5L);
+        assertEquals(0.1366582477, BaselineComparison.mannWhitneyP(x, y), 1e-6);
+        assertEquals(BaselineComparison.mannWhitneyP(x, y), BaselineComparison.mannWhitneyP(y, x), EPSILON);
+        // all the same
+        assertEquals(1.0, BaselineComparison.mannWhitneyP(Arrays.asList(7L, 7L), Arrays.asList(7L, 7L, 7L)), EPSILON);
+    }
+
+    @Test
+    void largeSamplesUseTheNormalApproximation() {
+        final List<Long> x = new ArrayList<>();
+        final List<Long> y = new ArrayList<>();
+        for (long i = 0; i < 300; ++i) {
+            x.add(2 * i);
+            y.add(2 * i + 1);
+        }
+        // U = 44850 of 90000, mean 45000, variance 90000 * 601 / 12: z = 149.5 / 1501.4
+        assertEquals(2 * (1 - BenchmarkStatistics.normalCdf(149.5 / Math.sqrt(90000 * 601 / 12.0))),
+                BaselineComparison.mannWhitneyP(x, y), EPSILON);
+    }
+
+    @Test
+    void minimumPIsTwoOrderingsOfAll() {
+        assertEquals(2.0 / 70, BaselineComparison.minimumP(4, 4), EPSILON);
+        assertEquals(2.0 / 35, BaselineComparison.minimumP(3, 4), EPSILON);
+        assertEquals(2.0 / 35, BaselineComparison.minimumP(4, 3), EPSILON);
+        assertEquals(2.0 / 252, BaselineComparison.minimumP(5, 5), EPSILON);
+        assertEquals(2.0 / 184756, BaselineComparison.minimumP(10, 10), EPSILON);
+        assertEquals(2.0 / 11, BaselineComparison.minimumP(1, 10), EPSILON);
+        assertEquals(1.0, BaselineComparison.minimumP(1, 1), EPSILON);
+        assertEquals(2.0 / 3, BaselineComparison.minimumP(2, 1), EPSILON);
+        // it is what complete separation gives
+        assertEquals(BaselineComparison.minimumP(3, 4), p("xxxyyyy"), EPSILON);
+        assertEquals(BaselineComparison.minimumP(5, 5), p("yyyyyxxxxx"), EPSILON);
+    }
+
+    private static String statement(final String runId, final String benchmark, final long nanos, final String extra) {
+        return "{\"record\":\"statement\",\"run_id\":\"" + runId + "\",\"benchmark\":\"" + benchmark
+                + "\",\"statement\":\"query\",\"timed\":true,\"success\":true,\"warmup\":false,\"discarded\":false,"
+                + "\"data_sha256\":\"data-" + runId + "\",\"client_nanos\":" + nanos + extra + "}";
+    }
+
+    private static String summary(final String runId, final String benchmark, final int unsteady) {
+        return "{\"record\":\"summary\",\"run_id\":\"" + runId + "\",\"benchmark\":\"" + benchmark
+                + "\",\"statement\":\"query\",\"unsteady_iterations\":" + unsteady + "}";
+    }
+
+    private static BaselineComparison load(final String... lines) throws IOException, ParseException {
+        final File file = Files.createTempFile("bench-results", ".jsonl").toFile();
+        try {
+            Files.write(file.toPath(), Arrays.asList(lines), StandardCharsets.UTF_8);
+            return BaselineComparison.load(file);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void loadTrimsTheUnsteadyIterationsOfTheLatestRunOnly() throws IOException, ParseException {
+        final BaselineComparison comparison = load(
+                // an older run, all unsteady
+                statement("old", "sort", 900, ""),
+                statement("old", "sort", 900, ""),
+                summary("old", "sort", 2),
+                // the latest: one unsteady, then 10, 20, 30
+                statement("new", "sort", 5000, ""),
+                statement("new", "sort", 10, ""),
+                statement("new", "sort", 20, ""),
+                statement("new", "sort", 30, ""),
+                // lines that aren't measured timings don't count
+                statement("new", "sort", 7777, ",\"warmup\":true"),
+                statement("new", "sort", 7777, ",\"discarded\":true"),
+                statement("new", "sort", 7777, ",\"success\":false"),
+                "",
+                summary("new", "sort", 1),
+                // a summary of the older run, after the latest, is not the latest's
+                summary("old", "sort", 3),
+                // a benchmark only the older run has keeps its own trimming
+                statement("old", "join", 1000, ""),
+                statement("old", "join", 40, ""),
+                statement("old", "join", 50, ""),
+                summary("old", "join", 1));
+        assertEquals(2, comparison.size());
+
+        final BaselineComparison.Result sort = comparison.compare("sort", "query", Arrays.asList(20L, 20L), "data-new");
+        assertEquals(3, sort.baselineSamples);
+        assertEquals(20.0, sort.baselineMedian, EPSILON);
+        final BaselineComparison.Result join = comparison.compare("join", "query", Arrays.asList(45L), "data-old");
+        assertEquals(2, join.baselineSamples);
+        assertEquals(45.0, join.baselineMedian, EPSILON);
+        assertEquals(BaselineComparison.Verdict.NO_BASELINE,
+                comparison.compare("scan", "query", Arrays.asList(1L), null).verdict);
+    }
+
+    @Test
+    void onlyRegressionsOnTheSameDataFailTheRun() throws IOException, ParseException {
+        final List<String> lines = new ArrayList<>();
+        for (long i = 0; i < 8; ++i) {
+            lines.add(statement("base", "sort", 100 + i, ""));
+        }
+        final BaselineComparison comparison = load(lines.toArray(new String[0]));
+        final List<Long> slower = Arrays.asList(200L, 201L, 202L, 203L, 204L, 205L, 206L, 207L);
+
+        final BaselineComparison.Result otherData = comparison.compare("sort", "query", slower, "data-other");
+        assertEquals(BaselineComparison.Verdict.REGRESSION, otherData.verdict);
+        assertTrue(!otherData.sameData);
+        assertEquals(0, comparison.getRegressions().size());
+
+        final BaselineComparison.Result sameData = comparison.compare("sort", "query", slower, "data-base");
+        assertEquals(BaselineComparison.Verdict.REGRESSION, sameData.verdict);
+        assertEquals(2.0 / 12870, sameData.p, EPSILON);
+        assertEquals(Arrays.asList(sameData), comparison.getRegressions());
+        // 8 baseline samples can be told apart from 2 measured ones, not from 1
+        assertEquals(1, comparison.countDetectable(2));
+        assertEquals(0, comparison.countDetectable(1));
+    }
+}
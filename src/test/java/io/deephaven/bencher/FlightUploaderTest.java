@@ -0,0 +1,243 @@
+package io.deephaven.bencher;
+
+import io.deephaven.client.impl.VectorSchemaRootAdapter;
+import io.deephaven.qst.column.Column;
+import io.deephaven.qst.table.NewTable;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlightUploaderTest {
+
+    /**
+     * Stands in for the server: each DoPut goes through Arrow and back, like it does on the wire; the console keeps
+     * variables, each the batches it merges, and runs the Python {@link FlightUploader} sends, failing like Python
+     * would on anything else or on a name that isn't bound.
+     */
+    private static final class StandInServer implements FlightUploader.Server {
+        private static final Pattern MERGE = Pattern.compile("(\\w+) = merge\\(\\[(.*)\\]\\)");
+        private static final Pattern DEL = Pattern.compile("del (.*)");
+
+        private final BufferAllocator allocator = new RootAllocator();
+        final Map<String, List<NewTable>> variables = new LinkedHashMap<>();
+        final List<String> scripts = new ArrayList<>();
+        int held;
+
+        @Override
+        public FlightUploader.Upload put(final NewTable table) {
+            final NewTable received;
+            try (final VectorSchemaRoot root = VectorSchemaRootAdapter.of(table, allocator)) {
+                received = VectorSchemaRootAdapter.of(root);
+            }
+            ++held;
+            return new FlightUploader.Upload() {
+                private boolean released;
+
+                @Override
+                public void bind(final String variable) throws IOException {
+                    if (released) {
+                        throw new IOException("no such export");
+                    }
+                    variables.put(variable, Collections.singletonList(received));
+                }
+
+                @Override
+                public void release() {
+                    if (!released) {
+                        released = true;
+                        --held;
+                    }
+                }
+            };
+        }
+
+        @Override
+        public Optional<String> execute(final String code) {
+            scripts.add(code);
+            for (final String line : code.split("\n")) {
+                if (line.equals("from deephaven import merge")) {
+                    continue;
+                }
+                final Matcher merge = MERGE.matcher(line);
+                if (merge.matches()) {
+                    final List<NewTable> merged = new ArrayList<>();
+                    for (final String part : merge.group(2).split(", ")) {
+                        if (!variables.containsKey(part)) {
+                            return Optional.of("NameError: name '" + part + "' is not defined");
+                        }
+                        merged.addAll(variables.get(part));
+                    }
+                    variables.put(merge.group(1), merged);
+                    continue;
+                }
+                final Matcher del = DEL.matcher(line);
+                if (del.matches()) {
+                    for (final String name : del.group(1).split(", ")) {
+                        if (variables.remove(name) == null) {
+                            return Optional.of("NameError: name '" + name + "' is not defined");
+                        }
+                    }
+                    continue;
+                }
+                return Optional.of("SyntaxError: " + line);
+            }
+            return Optional.empty();
+        }
+
+        void close() {
+            allocator.close();
+        }
+    }
+
+    private static final String[] COLUMNS = {"id", "when", "name"};
+    private static final Class<?>[] TYPES = {Long.class, Instant.class, String.class};
+
+    private final StandInServer server = new StandInServer();
+    private final FlightUploader uploader = new FlightUploader(server);
+
+    @AfterEach
+    void close() {
+        server.close();
+    }
+
+    private static Object[][] batch(final int capacity) {
+        return new Object[][] {new Long[capacity], new Instant[capacity], new String[capacity]};
+    }
+
+    private static void fill(final Object[][] values, final int row, final long id) {
+        values[0][row] = id;
+        values[1][row] = id % 2 == 0 ? null : Instant.ofEpochSecond(0, 1_000_000_000L * id + 7);
+        values[2][row] = id % 3 == 0 ? null : "row" + id;
+    }
+
+    private static NewTable expected(final long fromId, final int rows) {
+        final Long[] ids = new Long[rows];
+        final Instant[] whens = new Instant[rows];
+        final String[] names = new String[rows];
+        final Object[][] values = {ids, whens, names};
+        for (int row = 0; row < rows; ++row) {
+            fill(values, row, fromId + row);
+        }
+        return NewTable.of(Column.of("id", Long.class, ids), Column.of("when", Instant.class, whens),
+                Column.of("name", String.class, names));
+    }
+
+    @Test
+    void oneBatchIsBoundAsItIs() throws IOException {
+        final Object[][] values = batch(8);
+        uploader.start("trades", COLUMNS, TYPES);
+        for (int row = 0; row < 5; ++row) {
+            fill(values, row, row);
+        }
+        // what's past the rows of the batch isn't uploaded
+        fill(values, 5, 99);
+        uploader.batch(values, 5);
+        uploader.finish(5);
+
+        assertEquals(Collections.singletonList(expected(0, 5)), server.variables.get("trades"));
+        assertEquals(Collections.singleton("trades"), server.variables.keySet());
+        assertEquals(Collections.emptyList(), server.scripts);
+        assertEquals(0, server.held);
+        assertEquals("trades", uploader.getVariable());
+    }
+
+    @Test
+    void severalBatchesAreMergedAndTheirPartsDeleted() throws IOException {
+        // the same arrays are filled again for each batch
+        final Object[][] values = batch(4);
+        uploader.start("trades", COLUMNS, TYPES);
+        long id = 0;
+        for (int b = 0; b < 3; ++b) {
+            final int rows = b == 2 ? 2 : 4;
+            for (int row = 0; row < rows; ++row) {
+                fill(values, row, id++);
+            }
+            uploader.batch(values, rows);
+        }
+        uploader.finish(id);
+
+        assertEquals(Arrays.asList(expected(0, 4), expected(4, 4), expected(8, 2)), server.variables.get("trades"));
+        // the parts were deleted
+        assertEquals(Collections.singleton("trades"), server.variables.keySet());
+        assertEquals(1, server.scripts.size());
+        assertEquals(0, server.held);
+    }
+
+    @Test
+    void zeroRowsStillMakeTheColumns() throws IOException {
+        uploader.start("trades", COLUMNS, TYPES);
+        uploader.finish(0);
+
+        assertEquals(Collections.singletonList(expected(0, 0)), server.variables.get("trades"));
+        assertEquals(0, server.held);
+    }
+
+    @Test
+    void boxedColumnsWithNulls() throws IOException {
+        final String[] columns = {"b", "i8", "i16", "i32", "f", "d"};
+        final Class<?>[] types = {Boolean.class, Byte.class, Short.class, Integer.class, Float.class, Double.class};
+        final Object[][] values = {
+                {true, null, false},
+                {(byte) -1, (byte) 127, null},
+                {null, (short) 300, (short) -300},
+                {1, null, Integer.MIN_VALUE},
+                {1.5f, Float.NaN, null},
+                {null, -0.25, Double.MAX_VALUE},
+        };
+        uploader.start("typed", columns, types);
+        uploader.batch(values, 3);
+        uploader.finish(3);
+
+        final NewTable expected = NewTable.of(
+                Column.of("b", Boolean.class, true, null, false),
+                Column.of("i8", Byte.class, (byte) -1, (byte) 127, null),
+                Column.of("i16", Short.class, null, (short) 300, (short) -300),
+                Column.of("i32", Integer.class, 1, null, Integer.MIN_VALUE),
+                Column.of("f", Float.class, 1.5f, Float.NaN, null),
+                Column.of("d", Double.class, null, -0.25, Double.MAX_VALUE));
+        assertEquals(Collections.singletonList(expected), server.variables.get("typed"));
+    }
+
+    @Test
+    void failedMergeReleasesTheUploads() throws IOException {
+        final FlightUploader failing = new FlightUploader(new FlightUploader.Server() {
+            @Override
+            public FlightUploader.Upload put(final NewTable table) {
+                return server.put(table);
+            }
+
+            @Override
+            public Optional<String> execute(final String code) {
+                return Optional.of("ModuleNotFoundError: No module named 'deephaven'");
+            }
+        });
+        final Object[][] values = batch(1);
+        failing.start("trades", COLUMNS, TYPES);
+        for (long id = 0; id < 2; ++id) {
+            fill(values, 0, id);
+            failing.batch(values, 1);
+        }
+
+        final IOException ex = assertThrows(IOException.class, () -> failing.finish(2));
+        assertTrue(ex.getMessage().contains("ModuleNotFoundError"), ex.getMessage());
+        assertEquals(0, server.held);
+    }
+}
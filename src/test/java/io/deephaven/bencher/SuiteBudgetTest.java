@@ -0,0 +1,37 @@
+package io.deephaven.bencher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class SuiteBudgetTest {
+
+    @Test
+    void noisierBenchmarksGetMoreIterations() {
+        // the same cost; twice the variation needs four times the iterations for the same width: 5 + 23 = 4 (5 + 2)
+        final int[] extra = SuiteBudget.allocate(
+                new long[] {0, 0}, new long[] {10, 10}, new int[] {5, 5}, new double[] {0.2, 0.1}, 250);
+        assertArrayEquals(new int[] {23, 2}, extra);
+    }
+
+    @Test
+    void setupIsPaidOnceAndOnlyWhatFitsIsGiven() {
+        // the first iteration of the first costs 100 + 10; the second doesn't fit after it
+        assertArrayEquals(new int[] {3, 0}, SuiteBudget.allocate(
+                new long[] {100, 100}, new long[] {10, 10}, new int[] {5, 5}, new double[] {0.2, 0.1}, 135));
+        // nothing fits
+        assertArrayEquals(new int[] {0, 0}, SuiteBudget.allocate(
+                new long[] {100, 0}, new long[] {10, 50}, new int[] {5, 5}, new double[] {0.2, 0.1}, 40));
+        // steady benchmarks get none
+        assertArrayEquals(new int[] {0, 4}, SuiteBudget.allocate(
+                new long[] {0, 0}, new long[] {10, 10}, new int[] {5, 5}, new double[] {0.0, 0.1}, 40));
+    }
+
+    @Test
+    void zeroCostIterationsStillUseTheBudget() {
+        // each counts as a nanosecond, so this ends
+        final int[] extra = SuiteBudget.allocate(
+                new long[] {0, 0}, new long[] {0, 0}, new int[] {1, 1}, new double[] {0.1, 0.1}, 1000);
+        assertArrayEquals(new int[] {500, 500}, extra);
+    }
+}